@@ -43,6 +43,7 @@ import com.arangodb.velocypack.ValueType;
 import site.ycsb.ByteIterator;
 import site.ycsb.DB;
 import site.ycsb.DBException;
+import site.ycsb.DocumentByteIterator;
 import site.ycsb.Status;
 import site.ycsb.StringByteIterator;
 
@@ -184,7 +185,7 @@ public class ArangoDBClient extends DB {
     try {
       BaseDocument toInsert = new BaseDocument(key);
       for (Map.Entry<String, ByteIterator> entry : values.entrySet()) {
-        toInsert.addAttribute(entry.getKey(), byteIteratorToString(entry.getValue()));
+        toInsert.addAttribute(entry.getKey(), DocumentByteIterator.documentOrString(entry.getValue()));
       }
       DocumentCreateOptions options = new DocumentCreateOptions().waitForSync(waitForSync);
       arangoDB.db(databaseName).collection(table).insertDocument(toInsert, options);
@@ -243,7 +244,7 @@ public class ArangoDBClient extends DB {
       if (!transactionUpdate) {
         BaseDocument updateDoc = new BaseDocument();
         for (Entry<String, ByteIterator> field : values.entrySet()) {
-          updateDoc.addAttribute(field.getKey(), byteIteratorToString(field.getValue()));
+          updateDoc.addAttribute(field.getKey(), DocumentByteIterator.documentOrString(field.getValue()));
         }
         arangoDB.db(databaseName).collection(table).updateDocument(key, updateDoc);
         return Status.OK;
@@ -390,6 +391,8 @@ public class ArangoDBClient extends DB {
         VPackSlice value = next.getValue();
         if (value.isString()) {
           resultMap.put(next.getKey(), stringToByteIterator(value.getAsString()));
+        } else if (value.isArray() || value.isObject()) {
+          resultMap.put(next.getKey(), stringToByteIterator(value.toString()));
         } else if (!value.isCustom()) {
           logger.error("Error! Not the format expected! Actually is {}",
               value.getClass().getName());
@@ -401,6 +404,8 @@ public class ArangoDBClient extends DB {
         VPackSlice value = document.get(field);
         if (value.isString()) {
           resultMap.put(field, stringToByteIterator(value.getAsString()));
+        } else if (value.isArray() || value.isObject()) {
+          resultMap.put(field, stringToByteIterator(value.toString()));
         } else if (!value.isCustom()) {
           logger.error("Error! Not the format expected! Actually is {}",
               value.getClass().getName());
@@ -0,0 +1,228 @@
+/**
+ * Copyright (c) 2020 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.db.c8db;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpDelete;
+import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPatch;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.util.EntityUtils;
+
+import com.arangodb.velocypack.VPackParser;
+import com.arangodb.velocypack.VPackSlice;
+
+import site.ycsb.DocumentByteIterator;
+import site.ycsb.Status;
+
+/**
+ * A non-blocking client for the single document calls of the C8DB REST API, used by the
+ * asynchronous mode of {@link C8DBClient} and by {@link C8DBReplicationProbe} to poll other regions.
+ * <p>
+ * Requests are sent by a few I/O reactor threads and complete through callbacks, so client
+ * threads never wait on a round trip. Requests beyond the connection pool queue inside the
+ * client until a connection frees up.
+ */
+class C8DBAsyncHttp implements Closeable {
+  /**
+   * Receives the outcome of a request, on an I/O reactor thread.
+   */
+  interface Callback {
+    void done(Status status);
+  }
+
+  /**
+   * Receives the outcome of a request and the body of the response, null if there is none.
+   */
+  interface DocumentCallback {
+    void done(Status status, String body);
+  }
+
+  private final CloseableHttpAsyncClient client;
+  private final String baseUrl;
+  private final String tenantName;
+  private final String documentUrl;
+  private volatile String authorization;
+
+  /**
+   * Create and start a client.
+   *
+   * @param baseUrl the scheme, host and port of the API, e.g. <code>https://host:443</code>.
+   * @param tenantName the tenant of the database.
+   * @param databaseName the database (geofabric) holding the collections.
+   * @param maxConnections the size of the connection pool.
+   * @param ioThreads the number of I/O reactor threads.
+   */
+  C8DBAsyncHttp(String baseUrl, String tenantName, String databaseName, int maxConnections, int ioThreads) {
+    this.baseUrl = baseUrl;
+    this.tenantName = tenantName;
+    documentUrl = baseUrl + "/_tenant/" + encode(tenantName) + "/_fabric/" + encode(databaseName)
+        + "/_api/document/";
+    client = HttpAsyncClients.custom()
+        .setMaxConnTotal(maxConnections)
+        .setMaxConnPerRoute(maxConnections)
+        .setDefaultIOReactorConfig(IOReactorConfig.custom().setIoThreadCount(ioThreads).build())
+        .build();
+    client.start();
+  }
+
+  /**
+   * Log in and use the returned token for every following request.
+   */
+  void authenticate(String user, String password) throws IOException {
+    HttpPost login = new HttpPost(baseUrl + "/_open/auth");
+    Map<String, Object> credentials = new LinkedHashMap<>();
+    credentials.put("email", user);
+    credentials.put("password", password);
+    credentials.put("tenant", tenantName);
+    StringBuilder body = new StringBuilder();
+    DocumentByteIterator.toJson(credentials, body);
+    login.setEntity(new StringEntity(body.toString(), ContentType.APPLICATION_JSON));
+    try {
+      HttpResponse response = client.execute(login, null).get();
+      String json = EntityUtils.toString(response.getEntity());
+      if (response.getStatusLine().getStatusCode() != 200) {
+        throw new IOException("C8DB login failed with " + response.getStatusLine() + ": " + json);
+      }
+      VPackSlice token = new VPackParser.Builder().build().fromJson(json).get("jwt");
+      if (!token.isString()) {
+        throw new IOException("C8DB login returned no token: " + json);
+      }
+      authorization = "bearer " + token.getAsString();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while logging in to C8DB", e);
+    } catch (ExecutionException e) {
+      throw new IOException("C8DB login failed", e.getCause());
+    }
+  }
+
+  void insert(String collection, String json, boolean waitForSync, Callback callback) {
+    HttpPost post = new HttpPost(documentUrl + encode(collection) + "?waitForSync=" + waitForSync);
+    execute(withBody(post, json), callback);
+  }
+
+  void read(String collection, String key, Callback callback) {
+    execute(new HttpGet(documentUrl + encode(collection) + "/" + encode(key)), callback);
+  }
+
+  /**
+   * Read a document and hand its JSON to the callback.
+   */
+  void readDocument(String collection, String key, DocumentCallback callback) {
+    execute(new HttpGet(documentUrl + encode(collection) + "/" + encode(key)), callback);
+  }
+
+  void update(String collection, String key, String json, boolean waitForSync, Callback callback) {
+    HttpPatch patch = new HttpPatch(documentUrl + encode(collection) + "/" + encode(key)
+        + "?waitForSync=" + waitForSync);
+    execute(withBody(patch, json), callback);
+  }
+
+  void delete(String collection, String key, Callback callback) {
+    execute(new HttpDelete(documentUrl + encode(collection) + "/" + encode(key)), callback);
+  }
+
+  private static HttpUriRequest withBody(HttpEntityEnclosingRequestBase request, String json) {
+    request.setEntity(new StringEntity(json, ContentType.APPLICATION_JSON));
+    return request;
+  }
+
+  private void execute(HttpUriRequest request, final Callback callback) {
+    execute(request, (status, body) -> callback.done(status));
+  }
+
+  private void execute(HttpUriRequest request, final DocumentCallback callback) {
+    if (authorization != null) {
+      request.setHeader("Authorization", authorization);
+    }
+    client.execute(request, new FutureCallback<HttpResponse>() {
+      @Override
+      public void completed(HttpResponse response) {
+        String body;
+        try {
+          body = response.getEntity() == null ? null : EntityUtils.toString(response.getEntity());
+        } catch (IOException e) {
+          callback.done(Status.ERROR, null);
+          return;
+        }
+        callback.done(status(response.getStatusLine().getStatusCode()), body);
+      }
+
+      @Override
+      public void failed(Exception e) {
+        callback.done(Status.ERROR, null);
+      }
+
+      @Override
+      public void cancelled() {
+        callback.done(Status.ERROR, null);
+      }
+    });
+  }
+
+  /**
+   * The status of a response code.
+   */
+  static Status status(int code) {
+    if (code >= 200 && code < 300) {
+      return Status.OK;
+    }
+    switch (code) {
+    case 400:
+      return Status.BAD_REQUEST;
+    case 403:
+      return Status.FORBIDDEN;
+    case 404:
+      return Status.NOT_FOUND;
+    case 503:
+      return Status.SERVICE_UNAVAILABLE;
+    default:
+      return Status.ERROR;
+    }
+  }
+
+  private static String encode(String s) {
+    try {
+      return URLEncoder.encode(s, "UTF-8").replace("+", "%20");
+    } catch (UnsupportedEncodingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    client.close();
+  }
+}
@@ -19,8 +19,11 @@ package site.ycsb.db.c8db;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -28,6 +31,7 @@ import java.util.Properties;
 import java.util.Set;
 import java.util.Vector;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -47,8 +51,11 @@ import com.c8db.Protocol;
 import com.c8db.entity.BaseDocument;
 import com.c8db.entity.BaseEdgeDocument;
 import com.c8db.entity.CollectionType;
+import com.c8db.entity.DocumentCreateEntity;
 import com.c8db.entity.GeoFabricEntity;
+import com.c8db.entity.MultiDocumentEntity;
 import com.c8db.entity.TraversalEntity;
+import com.c8db.model.AqlQueryOptions;
 import com.c8db.model.C8TransactionOptions;
 import com.c8db.model.CollectionCreateOptions;
 import com.c8db.model.DocumentCreateOptions;
@@ -57,11 +64,17 @@ import com.c8db.model.TraversalOptions;
 import com.c8db.model.TraversalOptions.Direction;
 import com.c8db.util.MapBuilder;
 
+import site.ycsb.AggregateQuery;
 import site.ycsb.ByteIterator;
 import site.ycsb.DB;
 import site.ycsb.DBException;
+import site.ycsb.DocumentByteIterator;
+import site.ycsb.InFlightWindow;
+import site.ycsb.SearchQuery;
 import site.ycsb.Status;
 import site.ycsb.StringByteIterator;
+import site.ycsb.Workload;
+import site.ycsb.measurements.Measurements;
 
 /**
  * C8 binding for YCSB framework
@@ -76,14 +89,42 @@ public class C8DBClient extends DB {
    */
   private static final AtomicInteger INIT_COUNT = new AtomicInteger(0);
 
-  /** C8DB Driver related, Singleton. */
+  /**
+   * The C8DB driver, shared by all client threads of the process. It authenticates once, reuses its
+   * token and pools up to c8db.maxConnections connections. Guarded by the class lock.
+   */
+  private static C8DB sharedC8db;
+
+  /** This thread's reference to the shared driver. */
   private C8DB c8db;
+
+  /**
+   * The non-blocking client shared by all instances in asynchronous mode, null otherwise. Guarded
+   * by the class lock.
+   */
+  private static C8DBAsyncHttp sharedAsyncHttp;
+
+  private C8DBAsyncHttp asyncHttp;
+
+  /** The operations of this client thread in flight in asynchronous mode, null otherwise. */
+  private InFlightWindow asyncWindow;
+
+  /**
+   * Follows writes into the other regions when c8db.replication.regions is set, null otherwise.
+   * Shared by all instances and guarded by the class lock.
+   */
+  private static C8DBReplicationProbe sharedReplicationProbe;
+
+  private C8DBReplicationProbe replicationProbe;
   private String databaseName;
   private String tenantName;
   private String collectionName;
 
   private String collectionType;
 
+  /** Whether to insert vertices and edges as they are, set by <code>c8db.graph</code>. */
+  private boolean graphWorkload;
+
   private Boolean dropDBBeforeRun;
   private Boolean waitForSync = false;
   private Boolean transactionUpdate = false;
@@ -126,20 +167,107 @@ public class C8DBClient extends DB {
   private Double searchoperation;
   private Double groupoperation;
 
+  /** The analyzer the search view indexes text fields with. */
+  private String searchAnalyzer;
+
+  /** Number of records to insert per multi-document request during load, 1 to disable batching. */
+  private int batchSize;
+  /** Longest time a record may stay buffered, checked on each insert. */
+  private long batchFlushNanos;
+  private final Map<String, List<Object>> pendingInserts = new LinkedHashMap<>();
+  private int pendingRecords;
+  private long firstPendingNanos;
+  private String batchMeasurementName;
+
+  /*
+   * AQL templates. Everything that changes between calls, collection names included, is a bind
+   * parameter, so each operation always sends the same query string and the server's plan cache
+   * can serve it.
+   */
+  private static final String ARRAYSCAN_QUERY = "FOR target IN @@collection FILTER @key IN target.arrayField[*] RETURN ";
+  private static final String SEARCH_QUERY = "FOR doc IN @@view SEARCH doc.searchviewfield == @key RETURN doc";
+  private static final String JOIN_QUERY = "FOR u IN @@collection FOR c IN @@child FILTER u._key == c.childkey"
+      + " FILTER u._key == @key RETURN { [@collectionName]: u._key }";
+  private static final String GROUP_QUERY = "FOR u IN @@collection COLLECT key = u._key, groupbyfield = u.groupbyfield"
+      + " INTO groups LIMIT @limit RETURN { 'groupbyfield': groupbyfield, 'key': key }";
+  private static final String AGGREGATE_QUERY = "FOR u IN @@collection COLLECT AGGREGATE totalCount = LENGTH(1)"
+      + " RETURN { count: totalCount }";
+  private static final String RANGE_AGGREGATE_QUERY = "FOR d IN @@collection"
+      + " FILTER d.@rangeField >= @low AND d.@rangeField < @high COLLECT AGGREGATE value = %s RETURN { value }";
+  private static final String GROUP_AGGREGATE_QUERY = "FOR d IN @@collection"
+      + " FILTER d.@rangeField >= @low AND d.@rangeField < @high COLLECT grp = d.@groupField AGGREGATE value = %s"
+      + " RETURN { 'group': grp, value }";
+  private static final String TEXT_SEARCH_QUERY = "FOR doc IN @@view SEARCH ANALYZER(%s, @analyzer)"
+      + " SORT BM25(doc) DESC LIMIT @limit RETURN doc";
+  private static final String TRAVERSAL_QUERY = "WITH @@vertices FOR v IN 1..@depth OUTBOUND @start @@edges"
+      + " OPTIONS { bfs: true, uniqueVertices: 'global' } RETURN v";
+  private static final String SHORTEST_PATH_VERTICES_QUERY = "WITH @@vertices FOR v IN OUTBOUND SHORTEST_PATH @from"
+      + " TO @to @@edges RETURN v";
+  private static final String SHORTEST_PATH_QUERY = "WITH @@vertices FOR v, e IN OUTBOUND SHORTEST_PATH @from TO @to"
+      + " @@edges RETURN { 'vertex': v._key, 'edge': e._key }";
+
+  /** The AggregateQuery templates, ungrouped and grouped, by function. */
+  private static final Map<AggregateQuery.Function, String> RANGE_AGGREGATE_QUERIES =
+      new EnumMap<>(AggregateQuery.Function.class);
+  private static final Map<AggregateQuery.Function, String> GROUP_AGGREGATE_QUERIES =
+      new EnumMap<>(AggregateQuery.Function.class);
+
+  /** The SearchQuery templates by type, all ranked by BM25. */
+  private static final Map<SearchQuery.Type, String> TEXT_SEARCH_QUERIES = new EnumMap<>(SearchQuery.Type.class);
+
+  static {
+    TEXT_SEARCH_QUERIES.put(SearchQuery.Type.TERM,
+        String.format(TEXT_SEARCH_QUERY, "doc.@field IN TOKENS(@text, @analyzer)"));
+    TEXT_SEARCH_QUERIES.put(SearchQuery.Type.PHRASE, String.format(TEXT_SEARCH_QUERY, "PHRASE(doc.@field, @text)"));
+    TEXT_SEARCH_QUERIES.put(SearchQuery.Type.PREFIX, String.format(TEXT_SEARCH_QUERY, "STARTS_WITH(doc.@field, @text)"));
+    TEXT_SEARCH_QUERIES.put(SearchQuery.Type.AND,
+        String.format(TEXT_SEARCH_QUERY, "TOKENS(@text, @analyzer) ALL == doc.@field"));
+    TEXT_SEARCH_QUERIES.put(SearchQuery.Type.OR,
+        String.format(TEXT_SEARCH_QUERY, "TOKENS(@text, @analyzer) ANY == doc.@field"));
+    for (AggregateQuery.Function function : AggregateQuery.Function.values()) {
+      String aggregate = function == AggregateQuery.Function.COUNT ? "LENGTH(1)"
+          : (function == AggregateQuery.Function.AVG ? "AVERAGE" : function.name()) + "(d.@field)";
+      RANGE_AGGREGATE_QUERIES.put(function, String.format(RANGE_AGGREGATE_QUERY, aggregate));
+      GROUP_AGGREGATE_QUERIES.put(function, String.format(GROUP_AGGREGATE_QUERY, aggregate));
+    }
+  }
+
+  /** Scan template, built at init since its projection depends on the field name prefix. */
+  private String scanQuery;
+
+  /** Arrayscan templates by requested field set, since the projection depends on it. */
+  private final Map<Set<String>, String> arrayscanQueries = new HashMap<>();
+
+  /** How scans consume their cursor. */
+  private enum ScanMode {
+    /** Convert every document into a result record. */
+    MATERIALIZE,
+    /** Only count the documents; the result holds one record with the count. */
+    COUNT,
+    /** Count the documents and checksum their raw VelocyPack; the result holds one record with both. */
+    CHECKSUM
+  }
+
+  private ScanMode scanMode;
+  private boolean capScans;
+  private int cursorBatchSize;
+  private boolean streamCursor;
+
   private static String[] groupValues = {"groupValue1","groupValue2","groupValue3","groupValue4","groupValue5","groupValue6","groupValue7","groupValue8","groupValue9","groupValue10"};
-  private static int groupCounter = 1;
+
+  /** Cycles groupbyfield through all of groupValues, across client threads. */
+  private static final AtomicInteger GROUP_COUNTER = new AtomicInteger();
   /**
 
   /**
    * Initialize any state for this DB. Called once per DB instance; there is
    * one DB instance per client thread.
    *
-   * Actually, one client process will share one DB instance here.(Coincide to
-   * mongoDB driver)
+   * All instances of the process share one C8DB driver, created and torn down
+   * with the first and last instance.
    */
   @Override
   public void init() throws DBException {
-    synchronized (C8DBClient.class) {
       Properties props = getProperties();
 
       System.out.println("Inside Init Method -->");
@@ -148,8 +276,12 @@ public class C8DBClient extends DB {
       collectionName = props.getProperty("table", "usertable");
 
       collectionType = props.getProperty("c8db.collectionType", "document");
+      graphWorkload = Boolean.parseBoolean(props.getProperty("c8db.graph", "false"));
 
       fieldnameprefix = props.getProperty(FIELD_NAME_PREFIX, FIELD_NAME_PREFIX_DEFAULT);
+      scanQuery = "FOR target IN @@collection FILTER target._key >= @key SORT target._key ASC LIMIT @limit RETURN { "
+          + fieldnameprefix + "0: target." + fieldnameprefix + "0, "
+          + fieldnameprefix + "2: target." + fieldnameprefix + "2 }";
 
       // Set the DB address
       //String ip = props.getProperty("arangodb.ip", "localhost");
@@ -185,21 +317,65 @@ public class C8DBClient extends DB {
 
       searchoperation = Double.parseDouble(props.getProperty(SEARCH_PROPORTION_PROPERTY, SEARCH_PROPORTION_PROPERTY_DEFAULT));
       groupoperation = Double.parseDouble(props.getProperty(GROUP_PROPORTION_PROPERTY, GROUP_PROPORTION_PROPERTY_DEFAULT));
-
-      // Init C8DB connection
-      try {
-         c8db = new C8DB.Builder()
-                  // .host("api-stoyan.eng.macrometa.io", 443)
-                         .host(host, 443)
-                   .useSsl(true)
-                   .email(user)
-                   .password(password).build();
-      } catch (Exception e) {
-        logger.error("Failed to initialize C8DB", e);
-        System.exit(-1);
+      searchAnalyzer = props.getProperty("c8db.search.analyzer", "text_en");
+
+      // Batch inserts of the load phase only
+      boolean loading = !Boolean.parseBoolean(props.getProperty("dotransactions", "true"));
+      batchSize = loading ? Integer.parseInt(props.getProperty("c8db.batchsize", "1")) : 1;
+      batchFlushNanos = Long.parseLong(props.getProperty("c8db.batchflushms", "1000")) * 1000000L;
+      batchMeasurementName = Measurements.namespacePrefix(props) + "C8DB-BATCH-INSERT";
+
+      scanMode = ScanMode.valueOf(props.getProperty("c8db.scanmode", "materialize").toUpperCase());
+      capScans = Boolean.parseBoolean(props.getProperty("c8db.capscans", "false"));
+      cursorBatchSize = Integer.parseInt(props.getProperty("c8db.cursorbatchsize", "0"));
+      streamCursor = Boolean.parseBoolean(props.getProperty("c8db.streamcursor", "false"));
+
+      // Size the pool for one request in flight per client thread unless told otherwise
+      int maxConnections = Integer.parseInt(props.getProperty("c8db.maxConnections",
+          props.getProperty("threadcount", "1")));
+
+      boolean async = Boolean.parseBoolean(props.getProperty("c8db.async", "false"));
+      if (async) {
+        asyncWindow = new InFlightWindow(Integer.parseInt(props.getProperty("c8db.async.window", "64")), props);
       }
 
+    synchronized (C8DBClient.class) {
       if(INIT_COUNT.getAndIncrement() == 0) {
+        // Init the shared C8DB connection
+        try {
+          sharedC8db = new C8DB.Builder()
+                         .host(host, 443)
+                         .useSsl(true)
+                         .maxConnections(maxConnections)
+                         .email(user)
+                         .password(password).build();
+        } catch (Exception e) {
+          logger.error("Failed to initialize C8DB", e);
+          System.exit(-1);
+        }
+        c8db = sharedC8db;
+
+        if (async) {
+          try {
+            sharedAsyncHttp = new C8DBAsyncHttp("https://" + host + ":443", tenantName, databaseName, maxConnections,
+                Integer.parseInt(props.getProperty("c8db.async.iothreads", "2")));
+            sharedAsyncHttp.authenticate(user, password);
+          } catch (IOException e) {
+            logger.error("Failed to initialize the asynchronous C8DB client", e);
+            System.exit(-1);
+          }
+        }
+
+        String regions = props.getProperty("c8db.replication.regions", "");
+        if (!regions.isEmpty()) {
+          try {
+            sharedReplicationProbe = createReplicationProbe(props, host, regions, user, password);
+          } catch (IOException e) {
+            logger.error("Failed to connect to the replica regions", e);
+            System.exit(-1);
+          }
+        }
+
         // Init the database
         if (dropDBBeforeRun) {
           // Try delete first
@@ -323,6 +499,21 @@ public class C8DBClient extends DB {
                         }
                 }
 
+                if(graphWorkload)
+                {
+                        String vertexTable = props.getProperty("graph.vertextable", collectionName);
+                        if(!c8db.db(tenantName,databaseName).collection(vertexTable).exists())
+                        {
+                                c8db.db(tenantName,databaseName).createCollection(vertexTable);
+                        }
+                        String edgeTable = props.getProperty("graph.edgetable", vertexTable + "_edges");
+                        if(!c8db.db(tenantName,databaseName).collection(edgeTable).exists())
+                        {
+                                c8db.db(tenantName,databaseName).createCollection(edgeTable,
+                                    new CollectionCreateOptions().type(CollectionType.EDGES));
+                        }
+                }
+
                  //c8db.db().createCollection(collectionName,new CollectionCreateOptions().type(CollectionType.EDGES));
           logger.info("Collection created: " + collectionName);
         } catch (C8DBException e) {
@@ -332,31 +523,93 @@ public class C8DBClient extends DB {
 
         // Log the configuration
         logger.info("C8DB Configuration: dropDBBeforeRun: {}; address: {}:, user: {}; databaseName: {};"
-                    + " waitForSync: {}; transactionUpdate: {};",
-                    dropDBBeforeRun, host, user, databaseName, waitForSync, transactionUpdate);
+                    + " waitForSync: {}; transactionUpdate: {}; maxConnections: {};",
+                    dropDBBeforeRun, host, user, databaseName, waitForSync, transactionUpdate, maxConnections);
       }
+      c8db = sharedC8db;
+      asyncHttp = sharedAsyncHttp;
+      replicationProbe = sharedReplicationProbe;
     }
   }
 
+  /**
+   * Connect to the regions listed as <code>name=host</code> or <code>host</code>, separated by
+   * commas, to follow writes sent to the origin host.
+   */
+  private C8DBReplicationProbe createReplicationProbe(Properties props, String host, String regions,
+                                                      String user, String password) throws IOException {
+    int ioThreads = Integer.parseInt(props.getProperty("c8db.async.iothreads", "2"));
+    int maxProbes = Integer.parseInt(props.getProperty("c8db.replication.maxprobes", "1000"));
+    Map<String, C8DBAsyncHttp> clients = new LinkedHashMap<>();
+    try {
+      for (String region : regions.split(",")) {
+        String[] nameAndHost = region.trim().split("=", 2);
+        String regionHost = nameAndHost[nameAndHost.length - 1];
+        C8DBAsyncHttp http = new C8DBAsyncHttp("https://" + regionHost + ":443", tenantName, databaseName,
+            maxProbes, ioThreads);
+        clients.put(nameAndHost[0], http);
+        http.authenticate(user, password);
+      }
+    } catch (IOException e) {
+      for (C8DBAsyncHttp http : clients.values()) {
+        http.close();
+      }
+      throw e;
+    }
+    return new C8DBReplicationProbe(props.getProperty("c8db.replication.origin", host), clients,
+        Double.parseDouble(props.getProperty("c8db.replication.sampling", "1")), maxProbes,
+        Long.parseLong(props.getProperty("c8db.replication.pollms", "10")),
+        Long.parseLong(props.getProperty("c8db.replication.timeoutms", "10000")),
+        Measurements.namespacePrefix(props));
+  }
+
 
 
   /**
    * Cleanup any state for this DB. Called once per DB instance; there is one
    * DB instance per client thread.
    *
-   * Actually, one client process will share one DB instance here.(Coincide to
-   * mongoDB driver)
+   * The shared C8DB driver is shut down with the last instance.
    */
   @Override
   public void cleanup() throws DBException {
-    if (INIT_COUNT.decrementAndGet() == 0) {
-   //   arangoDB.shutdown();
-    //  arangoDB = null;
-
-      c8db.shutdown();
-      c8db = null;
-      logger.info("Local cleaned up.");
+    if (pendingRecords > 0 && !flushInserts().isOk()) {
+      logger.error("Failed to insert some of the remaining batched documents");
+    }
+    if (asyncWindow != null) {
+      try {
+        asyncWindow.drain();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new DBException("Interrupted while waiting for asynchronous operations", e);
+      }
+    }
+    synchronized (C8DBClient.class) {
+      if (INIT_COUNT.decrementAndGet() == 0) {
+        sharedC8db.shutdown();
+        sharedC8db = null;
+        if (sharedAsyncHttp != null) {
+          try {
+            sharedAsyncHttp.close();
+          } catch (IOException e) {
+            logger.error("Failed to close the asynchronous C8DB client", e);
+          }
+          sharedAsyncHttp = null;
+        }
+        if (sharedReplicationProbe != null) {
+          try {
+            sharedReplicationProbe.close();
+          } catch (IOException e) {
+            logger.error("Failed to close the replica region clients", e);
+          }
+          sharedReplicationProbe = null;
+        }
+        logger.info("Local cleaned up.");
+      }
     }
+    c8db = null;
+    asyncHttp = null;
+    replicationProbe = null;
   }
 
   /**
@@ -397,6 +650,10 @@ public class C8DBClient extends DB {
 
         try
         {
+                if(graphWorkload)
+                {
+                        return insertGraphRecord(c8database, table, key, values);
+                }
                 if(collectionType.equalsIgnoreCase("graph"))
         {
                         final BaseDocument doc = new BaseDocument();
@@ -406,10 +663,9 @@ public class C8DBClient extends DB {
                     BaseDocument joinDocument = null;
 
 
-                    c8database.collection(collectionName+"1").insertDocument(doc, null);
+                    insertDocument(c8database, collectionName+"1", doc, null);
 
-                    doc.setKey(key+"Tejinder");
-                    c8database.collection(collectionName+"1").insertDocument(doc, null);
+                    insertDocument(c8database, collectionName+"1", new BaseDocument(key+"Tejinder"), null);
 
                     String edgeKey = key + "_plus_"+ "Tejinder";
                     String from = collectionName+"1/"+key;
@@ -431,11 +687,11 @@ public class C8DBClient extends DB {
                 arrays.add(edgeKey);
                 for (Map.Entry<String, ByteIterator> entry : values.entrySet())
                 {
-                        edge.addAttribute(entry.getKey(), byteIteratorToString(entry.getValue()));
+                        edge.addAttribute(entry.getKey(), DocumentByteIterator.documentOrString(entry.getValue()));
                         arrays.add(entry.getKey());
                         if(joinoperation > 0)
                         {
-                                joinDocument.addAttribute(entry.getKey(), byteIteratorToString(entry.getValue()));
+                                joinDocument.addAttribute(entry.getKey(), DocumentByteIterator.documentOrString(entry.getValue()));
                         }
                      }
 
@@ -450,18 +706,13 @@ public class C8DBClient extends DB {
 
                   if(groupoperation > 0)
                   {
-                          edge.addAttribute("groupbyfield", groupValues[groupCounter]);
-                          if(groupCounter > 0)
-                          {
-                                  groupCounter = 1;
-                          }
-                          groupCounter = groupCounter + 1;
+                          edge.addAttribute("groupbyfield", nextGroupValue());
                   }
 
                   DocumentCreateOptions options = new DocumentCreateOptions().waitForSync(waitForSync);
             /*   try
                  {*/
-                         c8database.collection(collectionName).insertDocument(edge, options);
+                         insertDocument(c8database, collectionName, edge, options);
 
 
 
@@ -469,7 +720,7 @@ public class C8DBClient extends DB {
                                   {
                                    //   options = new DocumentCreateOptions().waitForSync(waitForSync);
                                       joinDocument.addAttribute("childkey", edgeKey);
-                                      c8database.collection(table+"child").insertDocument(joinDocument, options);
+                                      insertDocument(c8database, table+"child", joinDocument, options);
                                   }
                 /* }
                  catch(Exception e)
@@ -477,7 +728,7 @@ public class C8DBClient extends DB {
                          logger.error("Exception while trying insert {} {} with ex {}", table, key, e.toString());
                  }*/
 
-                  return Status.OK;
+                  return insertDone();
         }
                 else
                 {
@@ -494,8 +745,8 @@ public class C8DBClient extends DB {
                        */
                       if(collectionType.equalsIgnoreCase("keyvalue"))
                       {
-                          toInsert.addAttribute("value", key);
-                          toInsert.addAttribute("expireAt", "1729311400");
+                          toInsert.addAttribute("value", keyValue(key, values));
+                          toInsert.addAttribute(EXPIRE_AT, expireAt(values));
                       }
                       else
                       {
@@ -503,7 +754,7 @@ public class C8DBClient extends DB {
                           arrays.add(key);
                           for (Map.Entry<String, ByteIterator> entry : values.entrySet())
                               {
-                                  String fieldValue = byteIteratorToString(entry.getValue());
+                                  Object fieldValue = DocumentByteIterator.documentOrString(entry.getValue());
                                   toInsert.addAttribute(entry.getKey(), fieldValue);
                                   arrays.add(entry.getKey());
                                   if(joinoperation > 0)
@@ -522,20 +773,27 @@ public class C8DBClient extends DB {
                           }
                           if(groupoperation > 0)
                           {
-                                  toInsert.addAttribute("groupbyfield", groupValues[groupCounter]);
-                                  if(groupCounter > 0)
-                                  {
-                                          groupCounter = 1;
-                                  }
-                                  groupCounter = groupCounter + 1;
+                                  toInsert.addAttribute("groupbyfield", nextGroupValue());
                           }
                       }
 
+                      long version = probeVersion();
+                      if (version > 0) {
+                        toInsert.addAttribute(C8DBReplicationProbe.VERSION_FIELD, version);
+                      }
+
+                      if(asyncWindow != null && joinoperation <= 0)
+                      {
+                          String json = toJson(toInsert.getKey(), toInsert.getProperties());
+                          return submit(Workload.Operation.INSERT, callback -> asyncHttp.insert(table, json, waitForSync,
+                              probed(callback, table, key, version)));
+                      }
+
                       DocumentCreateOptions options = new DocumentCreateOptions().waitForSync(waitForSync);
                    /*  try
                      {
                         */
-                         c8database.collection(table).insertDocument(toInsert, options);
+                         insertDocument(c8database, table, toInsert, options);
 
 
                               if(joinoperation > 0)
@@ -543,14 +801,17 @@ public class C8DBClient extends DB {
                                     //  options = new DocumentCreateOptions().waitForSync(waitForSync);
                                       joinDocument.addAttribute("childkey", key);
 
-                                      c8database.collection(table+"child").insertDocument(joinDocument, options);
+                                      insertDocument(c8database, table+"child", joinDocument, options);
                                   }
                     /* }
                      catch(Exception e)
                      {
                          logger.error("Exception while trying insert {} {} with ex {}", table, key, e.toString());
                      }*/
-                      return Status.OK;
+                      if (version > 0) {
+                        replicationProbe.written(table, key, version);
+                      }
+                      return insertDone();
                         }
 
         }
@@ -563,6 +824,78 @@ public class C8DBClient extends DB {
         return Status.ERROR;
 
   }
+  /**
+   * Insert a document right away, or buffer it for the next multi-document insert when batching.
+   */
+  private void insertDocument(C8Database c8database, String collection, Object document,
+                              DocumentCreateOptions options) {
+    if (batchSize <= 1) {
+      c8database.collection(collection).insertDocument(document, options);
+      return;
+    }
+    List<Object> pending = pendingInserts.get(collection);
+    if (pending == null) {
+      pending = new ArrayList<>(batchSize);
+      pendingInserts.put(collection, pending);
+    }
+    pending.add(document);
+  }
+
+  /**
+   * Account for one inserted record, flushing the buffered documents when the batch is full or
+   * has waited long enough.
+   */
+  private Status insertDone() {
+    if (batchSize <= 1) {
+      return Status.OK;
+    }
+    if (pendingRecords++ == 0) {
+      firstPendingNanos = System.nanoTime();
+    }
+    if (pendingRecords >= batchSize || System.nanoTime() - firstPendingNanos >= batchFlushNanos) {
+      return flushInserts();
+    }
+    return Status.BATCHED_OK;
+  }
+
+  /**
+   * Insert all buffered documents, one multi-document request per collection. Each request is
+   * measured, and the status of each of its documents reported, under C8DB-BATCH-INSERT.
+   *
+   * @return OK if every document was inserted, ERROR otherwise.
+   */
+  private Status flushInserts() {
+    C8Database c8database = c8db.db(tenantName, databaseName);
+    DocumentCreateOptions options = new DocumentCreateOptions().waitForSync(waitForSync);
+    Measurements measurements = Measurements.getMeasurements();
+    boolean ok = true;
+    for (Map.Entry<String, List<Object>> entry : pendingInserts.entrySet()) {
+      List<Object> documents = entry.getValue();
+      if (documents.isEmpty()) {
+        continue;
+      }
+      long start = System.nanoTime();
+      int errors;
+      try {
+        MultiDocumentEntity<DocumentCreateEntity<Object>> result =
+            c8database.collection(entry.getKey()).insertDocuments(documents, options);
+        errors = result.getErrors().size();
+      } catch (C8DBException e) {
+        logger.error("C8DBException while trying to insert {} documents into {} with ex {}",
+            documents.size(), entry.getKey(), e.toString());
+        errors = documents.size();
+      }
+      measurements.measure(batchMeasurementName, (int) ((System.nanoTime() - start) / 1000));
+      for (int i = 0; i < documents.size(); i++) {
+        measurements.reportStatus(batchMeasurementName, i < errors ? Status.ERROR : Status.OK);
+      }
+      ok &= errors == 0;
+      documents.clear();
+    }
+    pendingRecords = 0;
+    return ok ? Status.OK : Status.ERROR;
+  }
+
   /**
    * Read a record from the database. Each field/value pair from the result
    * will be stored in a HashMap.
@@ -587,6 +920,11 @@ public class C8DBClient extends DB {
           key = key + "_plus_"+ "Tejinder";
       }
 
+      if (asyncWindow != null) {
+        String documentKey = key;
+        return submit(Workload.Operation.READ, callback -> asyncHttp.read(table, documentKey, callback));
+      }
+
       VPackSlice document1 = c8db.db(tenantName,databaseName).collection(table).getDocument(key, VPackSlice.class, null);
 
    /*   System.out.println("Checking Read System--");
@@ -597,7 +935,10 @@ public class C8DBClient extends DB {
       System.out.println("Checking document1 --"+document1);
      */
 
-      if (document1!=null && !this.fillMap(result, document1, fields)) {
+      if (document1 == null) {
+        return Status.NOT_FOUND;
+      }
+      if (!this.fillMap(result, document1, fields)) {
         return Status.ERROR;
       }
       return Status.OK;
@@ -614,15 +955,9 @@ public class C8DBClient extends DB {
 
           C8Cursor<VPackSlice> c8cursor = null;
           try {
-   //   VPackSlice document = arangoDB.db(databaseName).collection(table).getDocument(key, VPackSlice.class, null);
-
-
-      //String joinQuery = "FOR u IN "+table+"  FOR c IN "+table+"child"+"  FILTER u._key == c.childkey FILTER u._key == '"+startkey+"'  RETURN { "+table+": u, "+table+"child"+": c }";
-                  String joinQuery = "FOR u IN "+table+"  FOR c IN "+table+"child"+"  FILTER u._key == c.childkey FILTER u._key == '"+startkey+"'  RETURN { "+table+": u._key }";
-
-      //System.out.println("joinQuery -->"+ joinQuery);
-
-       c8cursor  = c8db.db(tenantName,databaseName).query(joinQuery, null, null, VPackSlice.class);
+      Map<String, Object> bindVars = new MapBuilder().put("@collection", table).put("@child", table + "child")
+          .put("collectionName", table).put("key", startkey).get();
+       c8cursor  = c8db.db(tenantName,databaseName).query(JOIN_QUERY, bindVars, null, VPackSlice.class);
 
       while (c8cursor.hasNext()) {
           VPackSlice aDocument = c8cursor.next();
@@ -656,22 +991,9 @@ public class C8DBClient extends DB {
 
 
           try {
-   //   VPackSlice document = arangoDB.db(databaseName).collection(table).getDocument(key, VPackSlice.class, null);
-
-
-      //String joinQuery = "FOR u IN "+table+"  FOR c IN "+table+"child"+"  FILTER u._key == c.childkey FILTER u._key == '"+startkey+"'  RETURN { "+table+": u, "+table+"child"+": c }";
-                //String groupQuery = "FOR u IN "+table + " COLLECT field0 = u.field0 RETURN  {field0}";
-                StringBuilder groupQuery = new StringBuilder("");
-                //groupQuery.append("FOR u IN ").append(table).append(" COLLECT ").append(fieldnameprefix).append("0 = u.").append(fieldnameprefix).append("0 LIMIT ").append(recordcount).append(" RETURN {").append(fieldnameprefix).append("0}");
-
-
-                // Added LIMIT 100 for multinode environments, as with Multinode it was not returing data for more than 100 records.
-                //groupQuery.append("FOR u IN ").append(table).append(" COLLECT key=u._key, groupbyfield = u.groupbyfield INTO groups RETURN { 'groupbyfield' : groupbyfield, 'key' : key  }");
-                groupQuery.append("FOR u IN ").append(table).append(" COLLECT key=u._key, groupbyfield = u.groupbyfield INTO groups LIMIT 100  RETURN { 'groupbyfield' : groupbyfield, 'key' : key  }");
-
-                //System.out.println("GroupQuery -->"+ groupQuery);
-
-                c8cursor  = c8db.db(tenantName,databaseName).query(groupQuery.toString(), null, null, VPackSlice.class);
+                // LIMIT 100 for multinode environments, as with Multinode it was not returing data for more than 100 records.
+                Map<String, Object> bindVars = new MapBuilder().put("@collection", table).put("limit", 100).get();
+                c8cursor  = c8db.db(tenantName,databaseName).query(GROUP_QUERY, bindVars, null, VPackSlice.class);
 
 
        while (c8cursor.hasNext()) {
@@ -708,12 +1030,8 @@ public class C8DBClient extends DB {
 
           try {
 
-                StringBuilder aggregateQuery = new StringBuilder("");
-                aggregateQuery.append("FOR u IN ").append(table).append(" COLLECT AGGREGATE totalCount = LENGTH(1)  return { count: totalCount } ");
-
-
-
-                c8cursor  = c8db.db(tenantName,databaseName).query(aggregateQuery.toString(), null, null, VPackSlice.class);
+                Map<String, Object> bindVars = new MapBuilder().put("@collection", table).get();
+                c8cursor  = c8db.db(tenantName,databaseName).query(AGGREGATE_QUERY, bindVars, null, VPackSlice.class);
 
 
        while (c8cursor.hasNext()) {
@@ -741,6 +1059,79 @@ public class C8DBClient extends DB {
       return Status.ERROR;
   }
 
+  @Override
+  public Status aggregate(String table, AggregateQuery query, Vector<HashMap<String, ByteIterator>> result) {
+    MapBuilder bindVars = new MapBuilder().put("@collection", table).put("rangeField", query.getRangeField())
+        .put("low", query.getLow()).put("high", query.getHigh());
+    if (query.getFunction() != AggregateQuery.Function.COUNT) {
+      bindVars.put("field", query.getField());
+    }
+    String aql;
+    if (query.isGrouped()) {
+      bindVars.put("groupField", query.getGroupField());
+      aql = GROUP_AGGREGATE_QUERIES.get(query.getFunction());
+    } else {
+      aql = RANGE_AGGREGATE_QUERIES.get(query.getFunction());
+    }
+    C8Cursor<VPackSlice> c8cursor = null;
+    try {
+      c8cursor = c8db.db(tenantName,databaseName).query(aql, bindVars.get(), cursorOptions(), VPackSlice.class);
+      while (c8cursor.hasNext()) {
+        HashMap<String, ByteIterator> aMap = new HashMap<String, ByteIterator>();
+        if (!this.fillMap(aMap, c8cursor.next())) {
+          return Status.ERROR;
+        }
+        result.add(aMap);
+      }
+      return Status.OK;
+    } catch (Exception e) {
+      logger.error("Exception while trying aggregate {} {} with ex {}", table, query, e.toString());
+    } finally {
+      if (c8cursor != null) {
+        try {
+          c8cursor.close();
+        } catch (IOException e) {
+          logger.error("Fail to close cursor", e);
+        }
+      }
+    }
+    return Status.ERROR;
+  }
+
+  /**
+   * The value of a key-value document: the only field of the record as is, all its fields but
+   * {@link DB#EXPIRE_AT} as an object, or the key for a record without any.
+   */
+  private static Object keyValue(String key, Map<String, ByteIterator> values) {
+    Map<String, Object> fields = new LinkedHashMap<>();
+    for (Map.Entry<String, ByteIterator> entry : values.entrySet()) {
+      if (!entry.getKey().equals(EXPIRE_AT)) {
+        fields.put(entry.getKey(), DocumentByteIterator.documentOrString(entry.getValue()));
+      }
+    }
+    if (fields.isEmpty()) {
+      return key;
+    }
+    return fields.size() == 1 ? fields.values().iterator().next() : fields;
+  }
+
+  /**
+   * The expiry time of a key-value document in seconds since the epoch, -1 for never unless the
+   * record sets {@link DB#EXPIRE_AT}.
+   */
+  private static long expireAt(Map<String, ByteIterator> values) {
+    ByteIterator expireAt = values.get(EXPIRE_AT);
+    if (expireAt == null) {
+      return -1;
+    }
+    Object seconds = DocumentByteIterator.documentOrString(expireAt);
+    return seconds instanceof Number ? ((Number) seconds).longValue() : Long.parseLong(seconds.toString().trim());
+  }
+
+  private static String nextGroupValue() {
+    return groupValues[Math.floorMod(GROUP_COUNTER.getAndIncrement(), groupValues.length)];
+  }
+
   /**
    * Update a record in the database. Any field/value pairs in the specified
    * values HashMap will be written into the record with the specified record
@@ -771,8 +1162,25 @@ public class C8DBClient extends DB {
         */
         if (!transactionUpdate) {
         BaseDocument updateDoc = new BaseDocument();
-        for (Entry<String, ByteIterator> field : values.entrySet()) {
-          updateDoc.addAttribute(field.getKey(), byteIteratorToString(field.getValue()));
+        if (collectionType.equalsIgnoreCase("keyvalue")) {
+          updateDoc.addAttribute("value", keyValue(key, values));
+          if (values.containsKey(EXPIRE_AT)) {
+            updateDoc.addAttribute(EXPIRE_AT, expireAt(values));
+          }
+        } else {
+          for (Entry<String, ByteIterator> field : values.entrySet()) {
+            updateDoc.addAttribute(field.getKey(), DocumentByteIterator.documentOrString(field.getValue()));
+          }
+        }
+        long version = probeVersion();
+        if (version > 0) {
+          updateDoc.addAttribute(C8DBReplicationProbe.VERSION_FIELD, version);
+        }
+        if (asyncWindow != null) {
+          String json = toJson(null, updateDoc.getProperties());
+          String documentKey = key;
+          return submit(Workload.Operation.UPDATE, callback -> asyncHttp.update(table, documentKey, json, waitForSync,
+              probed(callback, table, documentKey, version)));
         }
   //      arangoDB.db(databaseName).collection(table).updateDocument(key, updateDoc);
     /*    try
@@ -785,6 +1193,9 @@ public class C8DBClient extends DB {
        // c8db.db(tenantName,databaseName).collection(table).updateDocument(key, updateDoc);
         DocumentUpdateOptions docUpdateOptions = new DocumentUpdateOptions();
         c8db.db(tenantName,databaseName).collection(table).updateDocument(key, updateDoc, docUpdateOptions);
+        if (version > 0) {
+          replicationProbe.written(table, key, version);
+        }
         return Status.OK;
       } else {
         // id for documentHandle
@@ -824,6 +1235,9 @@ public class C8DBClient extends DB {
    */
   @Override
   public Status delete(String table, String key) {
+    if (asyncWindow != null) {
+      return submit(Workload.Operation.DELETE, callback -> asyncHttp.delete(table, key, callback));
+    }
     try {
    //   arangoDB.db(databaseName).collection(table).deleteDocument(key);
         c8db.db(tenantName,databaseName).collection(table).deleteDocument(key);
@@ -877,22 +1291,20 @@ public class C8DBClient extends DB {
         /*
          * TOD : This is the limit been applied for Multinode for returning only upto 200 records. Need to check why?
          */
-        if(recordcount > 100)
+        if(capScans && recordcount > 100)
         {
                 //recordcount = 100;
 
                 recordcount = 50;
         }
-      String returnFields = "{"+ fieldnameprefix + "0:target."+fieldnameprefix + "0,"+ fieldnameprefix + "2:target."+fieldnameprefix + "2 }";
-      String scanQuery = String.format(
-              "FOR target IN %s FILTER target._key >= @key SORT target._key ASC LIMIT %d RETURN %s ", table,
-              recordcount, returnFields);
-
- //     System.out.println("Inside scan in C8DB Client scanQuery "+ scanQuery);
-      Map<String, Object> bindVars = new MapBuilder().put("key", startkey).get();
+      Map<String, Object> bindVars = new MapBuilder().put("@collection", table).put("key", startkey)
+          .put("limit", recordcount).get();
 
-      c8cursor = c8db.db(tenantName,databaseName).query(scanQuery, bindVars, null, VPackSlice.class);
+      c8cursor = c8db.db(tenantName,databaseName).query(scanQuery, bindVars, cursorOptions(), VPackSlice.class);
 
+      if (scanMode != ScanMode.MATERIALIZE) {
+        return consumeScan(c8cursor, result);
+      }
       while (c8cursor.hasNext()) {
         VPackSlice aDocument = c8cursor.next();
         HashMap<String, ByteIterator> aMap = new HashMap<String, ByteIterator>(aDocument.size());
@@ -960,13 +1372,13 @@ public class C8DBClient extends DB {
               "FOR target IN %s FILTER CONTAINS(target.arrayField, @key) == true  SORT target._key ASC LIMIT %d RETURN %s ", table,
               recordcount, constructReturnForAQL(fields, "target"));
       */
-      String arrayscanQuery = String.format(
-              "FOR target IN %s FILTER  @key IN target.arrayField[*] RETURN %s ", table,
-              constructReturnForAQL(fields, "target"));
-
-    //  System.out.println("Inside arrayscan in C8DB Client arrayscanQuery"+ arrayscanQuery);
+      String arrayscanQuery = arrayscanQueries.get(fields);
+      if (arrayscanQuery == null) {
+        arrayscanQuery = ARRAYSCAN_QUERY + constructReturnForAQL(fields, "target");
+        arrayscanQueries.put(fields == null ? null : new HashSet<>(fields), arrayscanQuery);
+      }
 
-      Map<String, Object> bindVars = new MapBuilder().put("key", startkey).get();
+      Map<String, Object> bindVars = new MapBuilder().put("@collection", table).put("key", startkey).get();
     //  cursor = arangoDB.db(databaseName).query(aqlQuery, bindVars, null, VPackSlice.class);
 
       c8cursor = c8db.db(tenantName,databaseName).query(arrayscanQuery, bindVars, null, VPackSlice.class);
@@ -1011,14 +1423,9 @@ public class C8DBClient extends DB {
     String tableview = table+"view";
 
     try {
-      String searchQuery = String.format( "FOR doc IN %s SEARCH doc.searchviewfield == @key RETURN doc ", tableview);
-
-      //System.out.println("Inside search in C8DB Client searchQuery"+ searchQuery);
+      Map<String, Object> bindVars = new MapBuilder().put("@view", tableview).put("key", startkey).get();
 
-      Map<String, Object> bindVars = new MapBuilder().put("key", startkey).get();
-    //  cursor = arangoDB.db(databaseName).query(aqlQuery, bindVars, null, VPackSlice.class);
-
-      c8cursor = c8db.db(tenantName,databaseName).query(searchQuery, bindVars, null, VPackSlice.class);
+      c8cursor = c8db.db(tenantName,databaseName).query(SEARCH_QUERY, bindVars, null, VPackSlice.class);
 
       while (c8cursor.hasNext()) {
         VPackSlice aDocument = c8cursor.next();
@@ -1044,6 +1451,42 @@ public class C8DBClient extends DB {
     return Status.ERROR;
   }
 
+  /**
+   * Full-text search of the view <code>table + "view"</code>, which must link the text field with
+   * the search analyzer. Terms are analyzed like the indexed text and the best matches by BM25 come
+   * first.
+   */
+  @Override
+  public Status search(String table, SearchQuery query, Vector<HashMap<String, ByteIterator>> result) {
+    Map<String, Object> bindVars = new MapBuilder().put("@view", table + "view").put("field", query.getField())
+        .put("text", query.getText()).put("analyzer", searchAnalyzer).put("limit", query.getLimit()).get();
+    C8Cursor<VPackSlice> c8cursor = null;
+    try {
+      c8cursor = c8db.db(tenantName,databaseName).query(TEXT_SEARCH_QUERIES.get(query.getType()), bindVars,
+          cursorOptions(), VPackSlice.class);
+      while (c8cursor.hasNext()) {
+        VPackSlice aDocument = c8cursor.next();
+        HashMap<String, ByteIterator> aMap = new HashMap<String, ByteIterator>(aDocument.size());
+        if (!this.fillMap(aMap, aDocument)) {
+          return Status.ERROR;
+        }
+        result.add(aMap);
+      }
+      return Status.OK;
+    } catch (Exception e) {
+      logger.error("Exception while trying search {} {} with ex {}", table, query, e.toString());
+    } finally {
+      if (c8cursor != null) {
+        try {
+          c8cursor.close();
+        } catch (IOException e) {
+          logger.error("Fail to close cursor", e);
+        }
+      }
+    }
+    return Status.ERROR;
+  }
+
   @Override
   public Status graphTraversal(String table, String startkey, int recordcount, Set<String> fields,
       Vector<HashMap<String, ByteIterator>> result) {
@@ -1091,34 +1534,208 @@ public class C8DBClient extends DB {
 
 
 
-        //  String queryString = "FOR v, e IN OUTBOUND SHORTEST_PATH 'circles/A' TO 'circles/D' GRAPH 'traversalGraph' RETURN {'vertex': v._key, 'edge': e._key}";
+      Map<String, Object> bindVars = new MapBuilder().put("@vertices", collectionName + "1")
+          .put("@edges", collectionName).put("from", collectionName + "1/" + startkey)
+          .put("to", collectionName + "1/" + startkey + "Tejinder").get();
+      C8Cursor<Pair> cursor = null;
+      try {
+        cursor = c8db.db(tenantName,databaseName).query(SHORTEST_PATH_QUERY, bindVars, null, Pair.class);
+        List<String> shortestPathResults = new ArrayList<String>();
+        for (; cursor.hasNext();) {
+          final Pair pair = cursor.next();
+          shortestPathResults.add(pair.getVertex());
+        }
+        return Status.OK;
+      } catch (Exception e) {
+        logger.error("Exception while trying graphShortestPath {} {} with ex {}", table, startkey, e.toString());
+      } finally {
+        if (cursor != null) {
+          try {
+            cursor.close();
+          } catch (IOException e) {
+            logger.error("Fail to close cursor", e);
+          }
+        }
+      }
+      return Status.ERROR;
+  }
+
+  /**
+   * A request of the asynchronous mode, sent once there is room in the window.
+   */
+  private interface AsyncRequest {
+    void send(C8DBAsyncHttp.Callback callback);
+  }
 
-          StringBuilder query = new StringBuilder("");
-          query.append("WITH ").append(collectionName).append("1 ");
-          query.append("FOR v, e IN OUTBOUND SHORTEST_PATH '");
-          query.append(collectionName).append("1/").append(startkey).append("' TO '");
-          query.append(collectionName).append("1/").append(startkey).append("Tejinder").append("' ");
-          query.append(collectionName).append(" RETURN {'vertex': v._key, 'edge': e._key}");
+  /**
+   * Wait for room in the window of this client thread, send the request and return without
+   * waiting for it. The window measures the operation when the response arrives.
+   */
+  private Status submit(Workload.Operation op, AsyncRequest request) {
+    final InFlightWindow.Completion completion;
+    try {
+      completion = asyncWindow.begin(op);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return Status.ERROR;
+    }
+    try {
+      request.send(completion::complete);
+    } catch (RuntimeException e) {
+      logger.error("Failed to send asynchronous {} with ex {}", op, e.toString());
+      completion.complete(Status.ERROR);
+      return Status.ERROR;
+    }
+    return Status.PENDING;
+  }
 
-          String queryString = query.toString();
+  /**
+   * The version to stamp a write with for the replication probe, or 0 if the write is not followed.
+   * Batched inserts are not followed, as they are acknowledged long after the call.
+   */
+  private long probeVersion() {
+    return replicationProbe == null || batchSize > 1 ? 0 : replicationProbe.nextVersion();
+  }
 
-          //System.out.println("Graph Shortest Query-->"+ queryString);
+  /**
+   * The callback of an asynchronous write, which also hands a successful write to the replication
+   * probe when it carries a version.
+   */
+  private C8DBAsyncHttp.Callback probed(C8DBAsyncHttp.Callback callback, String table, String key, long version) {
+    if (version == 0) {
+      return callback;
+    }
+    return status -> {
+      if (status.isOk()) {
+        replicationProbe.written(table, key, version);
+      }
+      callback.done(status);
+    };
+  }
 
-      C8Cursor<Pair> cursor = c8db.db(tenantName,databaseName).query(queryString, null, null, Pair.class);
-    //  final Collection<String> collection = toVertexCollection(cursor);
-      List<String> shortestPathResults = new ArrayList<String>();
-      for (; cursor.hasNext();) {
-          final Pair pair = cursor.next();
+  /**
+   * The JSON of a document with the given key, or without one for null.
+   */
+  private static String toJson(String key, Map<String, Object> properties) {
+    Map<String, Object> document = new LinkedHashMap<>(properties);
+    if (key != null) {
+      document.put("_key", key);
+    }
+    StringBuilder sb = new StringBuilder();
+    DocumentByteIterator.toJson(document, sb);
+    return sb.toString();
+  }
 
-         // System.out.println("pair.getVertext()-->"+ pair.getVertex());
-         // System.out.println("pair.getEdge()-->"+ pair.getEdge());
-          shortestPathResults.add(pair.getVertex());
+  /**
+   * Insert a vertex, or an edge if the record holds the handles of its end vertices, with the
+   * record fields as attributes.
+   */
+  private Status insertGraphRecord(C8Database c8database, String table, String key,
+                                   Map<String, ByteIterator> values) {
+    BaseDocument document;
+    if (values.containsKey(EDGE_FROM) && values.containsKey(EDGE_TO)) {
+      BaseEdgeDocument edge = new BaseEdgeDocument();
+      edge.setKey(key);
+      edge.setFrom(values.get(EDGE_FROM).toString());
+      edge.setTo(values.get(EDGE_TO).toString());
+      document = edge;
+    } else {
+      document = new BaseDocument(key);
+    }
+    for (Map.Entry<String, ByteIterator> entry : values.entrySet()) {
+      if (!entry.getKey().equals(EDGE_FROM) && !entry.getKey().equals(EDGE_TO)) {
+        document.addAttribute(entry.getKey(), DocumentByteIterator.documentOrString(entry.getValue()));
       }
+    }
+    insertDocument(c8database, table, document, new DocumentCreateOptions().waitForSync(waitForSync));
+    return insertDone();
+  }
 
+  @Override
+  public Status graphTraversal(String vertexTable, String edgeTable, String startkey, int depth, Set<String> fields,
+                               Vector<HashMap<String, ByteIterator>> result) {
+    Map<String, Object> bindVars = new MapBuilder().put("@vertices", vertexTable).put("@edges", edgeTable)
+        .put("start", vertexTable + "/" + startkey).put("depth", depth).get();
+    return queryVertices(TRAVERSAL_QUERY, bindVars, fields, result, "graphTraversal", startkey);
+  }
 
+  @Override
+  public Status graphShortestPath(String vertexTable, String edgeTable, String startkey, String endkey,
+                                  Vector<HashMap<String, ByteIterator>> result) {
+    Map<String, Object> bindVars = new MapBuilder().put("@vertices", vertexTable).put("@edges", edgeTable)
+        .put("from", vertexTable + "/" + startkey).put("to", vertexTable + "/" + endkey).get();
+    return queryVertices(SHORTEST_PATH_VERTICES_QUERY, bindVars, null, result, "graphShortestPath", startkey);
+  }
+
+  private Status queryVertices(String query, Map<String, Object> bindVars, Set<String> fields,
+                               Vector<HashMap<String, ByteIterator>> result, String operation, String startkey) {
+    C8Cursor<VPackSlice> c8cursor = null;
+    try {
+      c8cursor = c8db.db(tenantName,databaseName).query(query, bindVars, cursorOptions(), VPackSlice.class);
+      while (c8cursor.hasNext()) {
+        VPackSlice aDocument = c8cursor.next();
+        HashMap<String, ByteIterator> aMap = new HashMap<String, ByteIterator>();
+        if (!this.fillMap(aMap, aDocument, fields)) {
+          return Status.ERROR;
+        }
+        result.add(aMap);
+      }
       return Status.OK;
+    } catch (Exception e) {
+      logger.error("Exception while trying {} {} with ex {}", operation, startkey, e.toString());
+    } finally {
+      if (c8cursor != null) {
+        try {
+          c8cursor.close();
+        } catch (IOException e) {
+          logger.error("Fail to close cursor", e);
+        }
+      }
+    }
+    return Status.ERROR;
+  }
+
+  /**
+   * Cursor options for scans: the number of documents per round trip and whether the server may
+   * stream results instead of computing them all up front. Null leaves the driver defaults.
+   */
+  private AqlQueryOptions cursorOptions() {
+    if (cursorBatchSize <= 0 && !streamCursor) {
+      return null;
+    }
+    AqlQueryOptions options = new AqlQueryOptions();
+    if (cursorBatchSize > 0) {
+      options.batchSize(cursorBatchSize);
+    }
+    if (streamCursor) {
+      options.stream(true);
+    }
+    return options;
+  }
 
+  /**
+   * Drain a scan cursor batch by batch without converting or keeping its documents, and report
+   * the document count, plus a CRC32 of their raw bytes in checksum mode, as a single record.
+   */
+  private Status consumeScan(C8Cursor<VPackSlice> c8cursor, Vector<HashMap<String, ByteIterator>> result) {
+    long count = 0;
+    CRC32 crc = scanMode == ScanMode.CHECKSUM ? new CRC32() : null;
+    while (c8cursor.hasNext()) {
+      VPackSlice aDocument = c8cursor.next();
+      if (crc != null) {
+        crc.update(aDocument.getBuffer(), aDocument.getStart(), aDocument.getByteSize());
+      }
+      count++;
+    }
+    HashMap<String, ByteIterator> summary = new HashMap<String, ByteIterator>();
+    summary.put("count", stringToByteIterator(Long.toString(count)));
+    if (crc != null) {
+      summary.put("checksum", stringToByteIterator(Long.toHexString(crc.getValue())));
+    }
+    result.add(summary);
+    return Status.OK;
   }
+
   private String createDocumentHandle(String collection, String documentKey) throws C8DBException {
     validateCollectionName(collection);
     return collection + "/" + documentKey;
@@ -1173,9 +1790,16 @@ public class C8DBClient extends DB {
           resultMap.put(next.getKey(), stringToByteIterator(value.getAsString()));
         }
         else if (value.isInt() || value.isInteger()) {
-            resultMap.put(next.getKey(), stringToByteIterator(value.getAsInt()+""));
+            resultMap.put(next.getKey(), stringToByteIterator(value.getAsLong()+""));
+          }
+        else if (value.isDouble()) {
+            resultMap.put(next.getKey(), stringToByteIterator(value.getAsDouble()+""));
+          }
+        else if (value.isNull()) {
+            // Aggregates of empty ranges
+            continue;
           }
-        else if (value.isArray()) {
+        else if (value.isArray() || value.isObject()) {
             resultMap.put(next.getKey(), stringToByteIterator(value.toString()));
           }else if (!value.isCustom()) {
           logger.error("Error! Not the format expected! Actually is {}",
@@ -1189,6 +1813,8 @@ public class C8DBClient extends DB {
 
         if (value.isString()) {
           resultMap.put(field, stringToByteIterator(value.getAsString()));
+        } else if (value.isArray() || value.isObject()) {
+          resultMap.put(field, stringToByteIterator(value.toString()));
         } else if (!value.isCustom()) {
           logger.error("Error! Not the format expected! Actually is {}",
               value.getClass().getName());
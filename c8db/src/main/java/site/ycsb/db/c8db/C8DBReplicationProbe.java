@@ -0,0 +1,184 @@
+/**
+ * Copyright (c) 2020 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.db.c8db;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.arangodb.velocypack.VPackParser;
+import com.arangodb.velocypack.VPackSlice;
+
+import site.ycsb.Status;
+import site.ycsb.measurements.Measurements;
+
+/**
+ * Measures how long writes acknowledged by the origin region take to become visible in other
+ * regions.
+ * <p>
+ * {@link C8DBClient} stamps a sample of its writes with an increasing version in
+ * {@link #VERSION_FIELD} and reports them once the origin acknowledged them. The probe then polls
+ * every other region until it reads the document at that version or a later one, and records the
+ * time since the acknowledgement under <code>REPLICATION-LAG-&lt;origin&gt;-&lt;region&gt;</code>.
+ * Writes not visible within the timeout are recorded under the same name with a
+ * <code>-TIMEOUT</code> suffix. Polls are sent without blocking and scheduled on one thread, so
+ * the writers keep their pace whatever the lag.
+ */
+class C8DBReplicationProbe implements Closeable {
+  private static final Logger LOGGER = LoggerFactory.getLogger(C8DBReplicationProbe.class);
+
+  /** The attribute holding the version of a sampled write. */
+  static final String VERSION_FIELD = "ycsb_version";
+
+  private final Map<String, C8DBAsyncHttp> regions;
+  private final Map<String, String> measurementNames = new LinkedHashMap<>();
+  private final double sampling;
+  private final int maxProbes;
+  private final long pollIntervalNanos;
+  private final long timeoutNanos;
+  private final Measurements measurements;
+  private final ScheduledExecutorService scheduler;
+  private final AtomicLong versions = new AtomicLong(System.currentTimeMillis() * 1000);
+  private final AtomicInteger probes = new AtomicInteger();
+  private final VPackParser parser = new VPackParser.Builder().build();
+
+  /**
+   * Create a probe.
+   *
+   * @param origin the name of the region taking the writes.
+   * @param regions the clients of the regions to poll, by name.
+   * @param sampling the share of writes to follow.
+   * @param maxProbes the most region polls in progress at once; writes beyond it are not sampled.
+   * @param pollIntervalMs the time between two polls of a region.
+   * @param timeoutMs the time after which a write not visible in a region counts as timed out.
+   * @param namespacePrefix the prefix of the measurement names, see
+   *        {@link Measurements#namespacePrefix}.
+   */
+  C8DBReplicationProbe(String origin, Map<String, C8DBAsyncHttp> regions, double sampling, int maxProbes,
+                       long pollIntervalMs, long timeoutMs, String namespacePrefix) {
+    this.regions = regions;
+    for (String region : regions.keySet()) {
+      measurementNames.put(region, namespacePrefix + "REPLICATION-LAG-" + origin + "-" + region);
+    }
+    this.sampling = sampling;
+    this.maxProbes = maxProbes;
+    pollIntervalNanos = TimeUnit.MILLISECONDS.toNanos(pollIntervalMs);
+    timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+    measurements = Measurements.getMeasurements();
+    scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread thread = new Thread(r, "c8db-replication-probe");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * The version to stamp a write with, or 0 if the write is not sampled.
+   */
+  long nextVersion() {
+    if (probes.get() + regions.size() > maxProbes || ThreadLocalRandom.current().nextDouble() >= sampling) {
+      return 0;
+    }
+    return versions.incrementAndGet();
+  }
+
+  /**
+   * Start following a write the origin acknowledged.
+   */
+  void written(String collection, String key, long version) {
+    long acknowledgedNanos = System.nanoTime();
+    for (Map.Entry<String, C8DBAsyncHttp> region : regions.entrySet()) {
+      probes.incrementAndGet();
+      poll(region.getKey(), region.getValue(), collection, key, version, acknowledgedNanos);
+    }
+  }
+
+  private void poll(String region, C8DBAsyncHttp http, String collection, String key, long version,
+                    long acknowledgedNanos) {
+    http.readDocument(collection, key, (status, body) -> {
+      long elapsedNanos = System.nanoTime() - acknowledgedNanos;
+      if (status == Status.OK && version(body) >= version) {
+        done(measurementNames.get(region), elapsedNanos);
+      } else if (elapsedNanos >= timeoutNanos) {
+        done(measurementNames.get(region) + "-TIMEOUT", elapsedNanos);
+      } else {
+        scheduler.schedule(() -> poll(region, http, collection, key, version, acknowledgedNanos),
+            pollIntervalNanos, TimeUnit.NANOSECONDS);
+      }
+    });
+  }
+
+  private void done(String measurementName, long elapsedNanos) {
+    measurements.measure(measurementName, (int) (elapsedNanos / 1000));
+    probes.decrementAndGet();
+  }
+
+  /**
+   * The version of a document, 0 if it has none.
+   */
+  private long version(String json) {
+    if (json == null) {
+      return 0;
+    }
+    try {
+      VPackSlice version = parser.fromJson(json).get(VERSION_FIELD);
+      return version.isNumber() ? version.getAsLong() : 0;
+    } catch (RuntimeException e) {
+      return 0;
+    }
+  }
+
+  /**
+   * The number of region polls in progress.
+   */
+  int inProgress() {
+    return probes.get();
+  }
+
+  /**
+   * Wait up to the timeout for the polls in progress, then close the region clients.
+   */
+  @Override
+  public void close() throws IOException {
+    long deadline = System.nanoTime() + timeoutNanos + pollIntervalNanos;
+    try {
+      while (probes.get() > 0 && System.nanoTime() < deadline) {
+        Thread.sleep(10);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    if (probes.get() > 0) {
+      LOGGER.warn("Stopped following {} writes to other regions", probes.get());
+    }
+    scheduler.shutdownNow();
+    for (C8DBAsyncHttp http : regions.values()) {
+      http.close();
+    }
+  }
+}
@@ -0,0 +1,153 @@
+/**
+ * Copyright (c) 2020 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.db.c8db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import site.ycsb.InFlightWindow;
+import site.ycsb.Status;
+import site.ycsb.Workload;
+import site.ycsb.measurements.Measurements;
+
+/**
+ * Runs {@link C8DBAsyncHttp} against a local stand-in for the C8DB REST API that answers every
+ * document call after a fixed delay, and checks that requests overlap up to the window size.
+ */
+public class C8DBAsyncHttpTest {
+  private static final int DELAY_MS = 50;
+
+  private static HttpServer server;
+  private static final AtomicInteger inFlight = new AtomicInteger();
+  private static final AtomicInteger maxInFlight = new AtomicInteger();
+  private static final CopyOnWriteArrayList<String> authorizations = new CopyOnWriteArrayList<>();
+
+  @BeforeClass
+  public static void startServer() throws IOException {
+    Measurements.setProperties(new Properties());
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.setExecutor(Executors.newCachedThreadPool());
+    server.createContext("/_open/auth", exchange -> respond(exchange, 200, "{\"jwt\":\"token\"}"));
+    server.createContext("/_tenant/", exchange -> {
+      int now = inFlight.incrementAndGet();
+      maxInFlight.accumulateAndGet(now, Math::max);
+      authorizations.add(exchange.getRequestHeaders().getFirst("Authorization"));
+      try {
+        Thread.sleep(DELAY_MS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      inFlight.decrementAndGet();
+      String path = exchange.getRequestURI().getPath();
+      if (path.endsWith("/missing")) {
+        respond(exchange, 404, "{\"error\":true}");
+      } else {
+        respond(exchange, exchange.getRequestMethod().equals("POST") ? 201 : 200, "{}");
+      }
+    });
+    server.start();
+  }
+
+  private static void respond(HttpExchange exchange, int code, String body) throws IOException {
+    byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+    exchange.sendResponseHeaders(code, bytes.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(bytes);
+    }
+  }
+
+  @AfterClass
+  public static void stopServer() {
+    server.stop(0);
+  }
+
+  private static C8DBAsyncHttp client(int connections) throws IOException {
+    C8DBAsyncHttp http = new C8DBAsyncHttp("http://127.0.0.1:" + server.getAddress().getPort(),
+        "tenant", "db", connections, 1);
+    http.authenticate("user", "password");
+    return http;
+  }
+
+  @Test
+  public void mapsResponseCodes() throws Exception {
+    try (C8DBAsyncHttp http = client(2)) {
+      final Status[] statuses = new Status[2];
+      final CountDownLatch done = new CountDownLatch(2);
+      http.insert("usertable", "{\"_key\":\"k\"}", false, status -> {
+        statuses[0] = status;
+        done.countDown();
+      });
+      http.read("usertable", "missing", status -> {
+        statuses[1] = status;
+        done.countDown();
+      });
+      assertTrue(done.await(5, TimeUnit.SECONDS));
+      assertEquals(Status.OK, statuses[0]);
+      assertEquals(Status.NOT_FOUND, statuses[1]);
+      assertEquals("bearer token", authorizations.get(authorizations.size() - 1));
+    }
+  }
+
+  @Test
+  public void keepsTheWindowInFlight() throws Exception {
+    maxInFlight.set(0);
+    int window = 8;
+    int requests = 64;
+    try (C8DBAsyncHttp http = client(window)) {
+      InFlightWindow inFlightWindow = new InFlightWindow(window, new Properties());
+      AtomicInteger ok = new AtomicInteger();
+      long start = System.nanoTime();
+      for (int i = 0; i < requests; i++) {
+        InFlightWindow.Completion completion = inFlightWindow.begin(Workload.Operation.READ);
+        http.read("usertable", "user" + i, status -> {
+          if (status == Status.OK) {
+            ok.incrementAndGet();
+          }
+          completion.complete(status);
+        });
+        assertTrue(inFlightWindow.inFlight() <= window);
+      }
+      inFlightWindow.drain();
+      long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+      assertEquals(requests, ok.get());
+      assertEquals(0, inFlightWindow.inFlight());
+      assertTrue("max in flight " + maxInFlight.get(), maxInFlight.get() > 1 && maxInFlight.get() <= window);
+      // Back to back, the requests would take requests * DELAY_MS.
+      assertTrue("took " + elapsedMs + " ms", elapsedMs < requests * DELAY_MS / 2);
+    }
+  }
+}
@@ -0,0 +1,211 @@
+/**
+ * Copyright (c) 2020 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.db.c8db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.arangodb.velocypack.VPackParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import site.ycsb.Status;
+import site.ycsb.measurements.Measurements;
+import site.ycsb.measurements.exporter.MeasurementsExporter;
+
+/**
+ * Writes versioned documents to a local stand-in for an origin region and follows them with
+ * {@link C8DBReplicationProbe} in a second stand-in, which only serves a document
+ * {@link #REPLICATION_DELAY_MS} after the origin took it.
+ */
+public class C8DBReplicationProbeTest {
+  private static final long REPLICATION_DELAY_MS = 100;
+
+  /** The documents of the origin and when they were written, by key. */
+  private static final Map<String, Object[]> documents = new ConcurrentHashMap<>();
+
+  private static HttpServer origin;
+  private static HttpServer replica;
+
+  @BeforeClass
+  public static void startServers() throws IOException {
+    Measurements.setProperties(new Properties());
+    origin = server();
+    origin.createContext("/_tenant/", exchange -> {
+      String json = new String(readAll(exchange), StandardCharsets.UTF_8);
+      String key = new VPackParser.Builder().build().fromJson(json).get("_key").getAsString();
+      documents.put(key, new Object[] {json, System.nanoTime()});
+      respond(exchange, 201, "{}");
+    });
+    origin.start();
+    replica = server();
+    replica.createContext("/_tenant/", exchange -> {
+      String path = exchange.getRequestURI().getPath();
+      Object[] document = documents.get(path.substring(path.lastIndexOf('/') + 1));
+      if (document == null
+          || System.nanoTime() - (Long) document[1] < TimeUnit.MILLISECONDS.toNanos(REPLICATION_DELAY_MS)) {
+        respond(exchange, 404, "{\"error\":true}");
+      } else {
+        respond(exchange, 200, (String) document[0]);
+      }
+    });
+    replica.start();
+  }
+
+  private static HttpServer server() throws IOException {
+    HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.setExecutor(Executors.newCachedThreadPool());
+    server.createContext("/_open/auth", exchange -> respond(exchange, 200, "{\"jwt\":\"token\"}"));
+    return server;
+  }
+
+  private static byte[] readAll(HttpExchange exchange) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] buffer = new byte[4096];
+    int n;
+    while ((n = exchange.getRequestBody().read(buffer)) > 0) {
+      out.write(buffer, 0, n);
+    }
+    return out.toByteArray();
+  }
+
+  private static void respond(HttpExchange exchange, int code, String body) throws IOException {
+    byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+    exchange.sendResponseHeaders(code, bytes.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(bytes);
+    }
+  }
+
+  @AfterClass
+  public static void stopServers() {
+    origin.stop(0);
+    replica.stop(0);
+  }
+
+  private static C8DBAsyncHttp client(HttpServer server) throws IOException {
+    C8DBAsyncHttp http = new C8DBAsyncHttp("http://127.0.0.1:" + server.getAddress().getPort(),
+        "tenant", "db", 16, 1);
+    http.authenticate("user", "password");
+    return http;
+  }
+
+  private static C8DBReplicationProbe probe(String originName, long timeoutMs) throws IOException {
+    Map<String, C8DBAsyncHttp> regions = new LinkedHashMap<>();
+    regions.put("replica", client(replica));
+    return new C8DBReplicationProbe(originName, regions, 1, 100, 5, timeoutMs, "");
+  }
+
+  /**
+   * Write the documents through the origin and hand each acknowledged write to the probe, the way
+   * the asynchronous mode of {@link C8DBClient} does.
+   */
+  private static void write(C8DBReplicationProbe probe, String prefix, int count) throws Exception {
+    try (C8DBAsyncHttp http = client(origin)) {
+      CountDownLatch acknowledged = new CountDownLatch(count);
+      for (int i = 0; i < count; i++) {
+        String key = prefix + i;
+        long version = probe.nextVersion();
+        assertTrue(version > 0);
+        http.insert("usertable", "{\"_key\":\"" + key + "\",\"" + C8DBReplicationProbe.VERSION_FIELD + "\":"
+            + version + "}", false, status -> {
+              assertEquals(Status.OK, status);
+              probe.written("usertable", key, version);
+              acknowledged.countDown();
+            });
+      }
+      assertTrue(acknowledged.await(5, TimeUnit.SECONDS));
+    }
+  }
+
+  @Test
+  public void measuresTheLagOfEveryWrite() throws Exception {
+    C8DBReplicationProbe probe = probe("lag", 5000);
+    write(probe, "lag", 10);
+    probe.close();
+    assertEquals(0, probe.inProgress());
+
+    Map<String, Number> lag = export("REPLICATION-LAG-lag-replica");
+    assertEquals(10L, lag.get("Operations"));
+    assertTrue("min lag " + lag.get("MinLatency(us)"),
+        lag.get("MinLatency(us)").longValue() >= TimeUnit.MILLISECONDS.toMicros(REPLICATION_DELAY_MS) / 2);
+    assertTrue("max lag " + lag.get("MaxLatency(us)"), lag.get("MaxLatency(us)").longValue() < 5000000);
+    assertNull(export("REPLICATION-LAG-lag-replica-TIMEOUT").get("Operations"));
+  }
+
+  @Test
+  public void countsWritesNotReplicatedInTime() throws Exception {
+    C8DBReplicationProbe probe = probe("slow", REPLICATION_DELAY_MS / 4);
+    write(probe, "slow", 3);
+    probe.close();
+
+    assertEquals(3L, export("REPLICATION-LAG-slow-replica-TIMEOUT").get("Operations"));
+    assertNull(export("REPLICATION-LAG-slow-replica").get("Operations"));
+  }
+
+  /**
+   * The exported values of one measurement.
+   */
+  private static Map<String, Number> export(final String metric) throws IOException {
+    final Map<String, Number> values = new HashMap<>();
+    Measurements.getMeasurements().exportMeasurements(new MeasurementsExporter() {
+      @Override
+      public void write(String m, String measurement, int i) {
+        write(m, measurement, (long) i);
+      }
+
+      @Override
+      public void write(String m, String measurement, long i) {
+        if (m.equals(metric)) {
+          values.put(measurement, i);
+        }
+      }
+
+      @Override
+      public void write(String m, String measurement, double d) {
+        if (m.equals(metric)) {
+          values.put(measurement, d);
+        }
+      }
+
+      @Override
+      public void close() {
+      }
+    });
+    return values;
+  }
+}
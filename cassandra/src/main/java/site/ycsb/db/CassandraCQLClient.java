@@ -17,26 +17,36 @@
  */
 package site.ycsb.db;
 
+import com.datastax.driver.core.BatchStatement;
 import com.datastax.driver.core.Cluster;
 import com.datastax.driver.core.ColumnDefinitions;
 import com.datastax.driver.core.ConsistencyLevel;
 import com.datastax.driver.core.Host;
 import com.datastax.driver.core.HostDistance;
 import com.datastax.driver.core.Metadata;
+import com.datastax.driver.core.ProtocolVersion;
 import com.datastax.driver.core.ResultSet;
 import com.datastax.driver.core.Row;
 import com.datastax.driver.core.Session;
 import com.datastax.driver.core.PreparedStatement;
 import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.TypeCodec;
+import com.datastax.driver.core.policies.DCAwareRoundRobinPolicy;
+import com.datastax.driver.core.policies.TokenAwarePolicy;
 import com.datastax.driver.core.querybuilder.Insert;
 import com.datastax.driver.core.querybuilder.QueryBuilder;
 import com.datastax.driver.core.querybuilder.Select;
 import com.datastax.driver.core.querybuilder.Update;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
 import site.ycsb.ByteArrayByteIterator;
 import site.ycsb.ByteIterator;
 import site.ycsb.DB;
 import site.ycsb.DBException;
+import site.ycsb.InFlightWindow;
 import site.ycsb.Status;
+import site.ycsb.Workload;
 
 import java.nio.ByteBuffer;
 import java.util.HashMap;
@@ -66,6 +76,8 @@ public class CassandraCQLClient extends DB {
 
   private static Cluster cluster = null;
   private static Session session = null;
+  private static String keyspace = null;
+  private static ProtocolVersion protocolVersion = null;
 
   private static ConcurrentMap<Set<String>, PreparedStatement> readStmts =
       new ConcurrentHashMap<Set<String>, PreparedStatement>();
@@ -117,6 +129,23 @@ public class CassandraCQLClient extends DB {
   public static final String USE_SSL_CONNECTION = "cassandra.useSSL";
   private static final String DEFAULT_USE_SSL_CONNECTION = "false";
 
+  public static final String LOCAL_DC_PROPERTY = "cassandra.localdc";
+  public static final String MAX_REQUESTS_PER_CONNECTION_PROPERTY =
+      "cassandra.maxrequestsperconnection";
+
+  public static final String ASYNC_PROPERTY = "cassandra.async";
+  public static final String ASYNC_PROPERTY_DEFAULT = "false";
+  public static final String ASYNC_WINDOW_PROPERTY = "cassandra.async.window";
+  public static final String ASYNC_WINDOW_PROPERTY_DEFAULT = "64";
+
+  public static final String BATCH_SIZE_PROPERTY = "cassandra.batchsize";
+  public static final String BATCH_SIZE_PROPERTY_DEFAULT = "1";
+
+  /**
+   * The result of a write, which has nothing to read.
+   */
+  private static final ResultHandler WRITTEN = rs -> Status.OK;
+
   /**
    * Count the number of times initialized to teardown on the last
    * {@link #cleanup()}.
@@ -126,7 +155,23 @@ public class CassandraCQLClient extends DB {
   private static boolean debug = false;
 
   private static boolean trace = false;
-  
+
+  /**
+   * The operations of this client thread in flight in asynchronous mode, or null.
+   */
+  private InFlightWindow asyncWindow;
+
+  /**
+   * The most inserts to send in one unlogged batch, 1 for no batching.
+   */
+  private int batchSize;
+
+  /**
+   * The inserts of this client thread waiting to be sent, by the primary replica of their
+   * partition.
+   */
+  private final Map<Host, BatchStatement> batches = new HashMap<Host, BatchStatement>();
+
   /**
    * Initialize any state for this DB. Called once per DB instance; there is one
    * DB instance per client thread.
@@ -137,6 +182,13 @@ public class CassandraCQLClient extends DB {
     // Keep track of number of calls to init (for later cleanup)
     INIT_COUNT.incrementAndGet();
 
+    if (Boolean.parseBoolean(getProperties().getProperty(ASYNC_PROPERTY, ASYNC_PROPERTY_DEFAULT))) {
+      asyncWindow = new InFlightWindow(Integer.parseInt(
+          getProperties().getProperty(ASYNC_WINDOW_PROPERTY, ASYNC_WINDOW_PROPERTY_DEFAULT)), getProperties());
+    }
+
+    batchSize = Integer.parseInt(getProperties().getProperty(BATCH_SIZE_PROPERTY, BATCH_SIZE_PROPERTY_DEFAULT));
+
     // Synchronized so that we only have a single
     // cluster/session instance for all the threads.
     synchronized (INIT_COUNT) {
@@ -164,7 +216,7 @@ public class CassandraCQLClient extends DB {
         String username = getProperties().getProperty(USERNAME_PROPERTY);
         String password = getProperties().getProperty(PASSWORD_PROPERTY);
 
-        String keyspace = getProperties().getProperty(KEYSPACE_PROPERTY,
+        keyspace = getProperties().getProperty(KEYSPACE_PROPERTY,
             KEYSPACE_PROPERTY_DEFAULT);
 
         readConsistencyLevel = ConsistencyLevel.valueOf(
@@ -177,16 +229,25 @@ public class CassandraCQLClient extends DB {
         Boolean useSSL = Boolean.parseBoolean(getProperties().getProperty(USE_SSL_CONNECTION,
             DEFAULT_USE_SSL_CONNECTION));
 
+        // Send each statement straight to a replica of its partition, in the local datacenter
+        DCAwareRoundRobinPolicy.Builder dcPolicy = DCAwareRoundRobinPolicy.builder();
+        String localDc = getProperties().getProperty(LOCAL_DC_PROPERTY);
+        if (localDc != null) {
+          dcPolicy.withLocalDc(localDc);
+        }
+        TokenAwarePolicy routingPolicy = new TokenAwarePolicy(dcPolicy.build());
+
         if ((username != null) && !username.isEmpty()) {
           Cluster.Builder clusterBuilder = Cluster.builder().withCredentials(username, password)
-              .withPort(Integer.valueOf(port)).addContactPoints(hosts);
+              .withPort(Integer.valueOf(port)).addContactPoints(hosts)
+              .withLoadBalancingPolicy(routingPolicy);
           if (useSSL) {
             clusterBuilder = clusterBuilder.withSSL();
           } 
           cluster = clusterBuilder.build();
         } else {
           cluster = Cluster.builder().withPort(Integer.valueOf(port))
-              .addContactPoints(hosts).build();
+              .addContactPoints(hosts).withLoadBalancingPolicy(routingPolicy).build();
         }
 
         String maxConnections = getProperties().getProperty(
@@ -205,6 +266,14 @@ public class CassandraCQLClient extends DB {
               Integer.valueOf(coreConnections));
         }
 
+        String maxRequestsPerConnection = getProperties().getProperty(
+            MAX_REQUESTS_PER_CONNECTION_PROPERTY);
+        if (maxRequestsPerConnection != null) {
+          cluster.getConfiguration().getPoolingOptions()
+              .setMaxRequestsPerConnection(HostDistance.LOCAL,
+              Integer.valueOf(maxRequestsPerConnection));
+        }
+
         String connectTimoutMillis = getProperties().getProperty(
             CONNECT_TIMEOUT_MILLIS_PROPERTY);
         if (connectTimoutMillis != null) {
@@ -230,6 +299,7 @@ public class CassandraCQLClient extends DB {
         }
 
         session = cluster.connect(keyspace);
+        protocolVersion = cluster.getConfiguration().getProtocolOptions().getProtocolVersion();
 
       } catch (Exception e) {
         throw new DBException(e);
@@ -243,6 +313,24 @@ public class CassandraCQLClient extends DB {
    */
   @Override
   public void cleanup() throws DBException {
+    for (BatchStatement batch : batches.values()) {
+      try {
+        session.execute(batch);
+      } catch (Exception e) {
+        logger.error(MessageFormatter.format("Error inserting the last batch of {} rows", batch.size()).getMessage(),
+            e);
+      }
+    }
+    batches.clear();
+    if (asyncWindow != null) {
+      try {
+        asyncWindow.drain();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new DBException("Interrupted while waiting for asynchronous operations", e);
+      }
+    }
+
     synchronized (INIT_COUNT) {
       final int curInitCount = INIT_COUNT.decrementAndGet();
       if (curInitCount <= 0) {
@@ -257,6 +345,8 @@ public class CassandraCQLClient extends DB {
         cluster.close();
         cluster = null;
         session = null;
+        keyspace = null;
+        protocolVersion = null;
       }
       if (curInitCount < 0) {
         // This should never happen.
@@ -318,26 +408,26 @@ public class CassandraCQLClient extends DB {
       logger.debug(stmt.getQueryString());
       logger.debug("key = {}", key);
 
-      ResultSet rs = session.execute(stmt.bind(key));
-
-      if (rs.isExhausted()) {
-        return Status.NOT_FOUND;
-      }
-
-      // Should be only 1 row
-      Row row = rs.one();
-      ColumnDefinitions cd = row.getColumnDefinitions();
+      return execute(Workload.Operation.READ, stmt.bind(key), key, rs -> {
+          if (rs.isExhausted()) {
+            return Status.NOT_FOUND;
+          }
 
-      for (ColumnDefinitions.Definition def : cd) {
-        ByteBuffer val = row.getBytesUnsafe(def.getName());
-        if (val != null) {
-          result.put(def.getName(), new ByteArrayByteIterator(val.array()));
-        } else {
-          result.put(def.getName(), null);
-        }
-      }
+          // Should be only 1 row
+          Row row = rs.one();
+          ColumnDefinitions cd = row.getColumnDefinitions();
+
+          for (ColumnDefinitions.Definition def : cd) {
+            ByteBuffer val = row.getBytesUnsafe(def.getName());
+            if (val != null) {
+              result.put(def.getName(), new ByteArrayByteIterator(val.array()));
+            } else {
+              result.put(def.getName(), null);
+            }
+          }
 
-      return Status.OK;
+          return Status.OK;
+        });
 
     } catch (Exception e) {
       logger.error(MessageFormatter.format("Error reading key: {}", key).getMessage(), e);
@@ -419,28 +509,28 @@ public class CassandraCQLClient extends DB {
       logger.debug(stmt.getQueryString());
       logger.debug("startKey = {}, recordcount = {}", startkey, recordcount);
 
-      ResultSet rs = session.execute(stmt.bind(startkey, Integer.valueOf(recordcount)));
+      return execute(Workload.Operation.SCAN, stmt.bind(startkey, Integer.valueOf(recordcount)), startkey, rs -> {
+          HashMap<String, ByteIterator> tuple;
+          while (!rs.isExhausted()) {
+            Row row = rs.one();
+            tuple = new HashMap<String, ByteIterator>();
 
-      HashMap<String, ByteIterator> tuple;
-      while (!rs.isExhausted()) {
-        Row row = rs.one();
-        tuple = new HashMap<String, ByteIterator>();
+            ColumnDefinitions cd = row.getColumnDefinitions();
 
-        ColumnDefinitions cd = row.getColumnDefinitions();
+            for (ColumnDefinitions.Definition def : cd) {
+              ByteBuffer val = row.getBytesUnsafe(def.getName());
+              if (val != null) {
+                tuple.put(def.getName(), new ByteArrayByteIterator(val.array()));
+              } else {
+                tuple.put(def.getName(), null);
+              }
+            }
 
-        for (ColumnDefinitions.Definition def : cd) {
-          ByteBuffer val = row.getBytesUnsafe(def.getName());
-          if (val != null) {
-            tuple.put(def.getName(), new ByteArrayByteIterator(val.array()));
-          } else {
-            tuple.put(def.getName(), null);
+            result.add(tuple);
           }
-        }
-
-        result.add(tuple);
-      }
 
-      return Status.OK;
+          return Status.OK;
+        });
 
     } catch (Exception e) {
       logger.error(
@@ -512,9 +602,7 @@ public class CassandraCQLClient extends DB {
       // Add key
       boundStmt.setString(vars.size() - 1, key);
 
-      session.execute(boundStmt);
-
-      return Status.OK;
+      return execute(Workload.Operation.UPDATE, boundStmt, key, WRITTEN);
     } catch (Exception e) {
       logger.error(MessageFormatter.format("Error updating key: {}", key).getMessage(), e);
     }
@@ -583,9 +671,10 @@ public class CassandraCQLClient extends DB {
         boundStmt.setString(i, values.get(vars.getName(i)).toString());
       }
 
-      session.execute(boundStmt);
-
-      return Status.OK;
+      if (batchSize > 1) {
+        return batch(boundStmt, key);
+      }
+      return execute(Workload.Operation.INSERT, boundStmt, key, WRITTEN);
     } catch (Exception e) {
       logger.error(MessageFormatter.format("Error inserting key: {}", key).getMessage(), e);
     }
@@ -626,9 +715,7 @@ public class CassandraCQLClient extends DB {
       logger.debug(stmt.getQueryString());
       logger.debug("key = {}", key);
 
-      session.execute(stmt.bind(key));
-
-      return Status.OK;
+      return execute(Workload.Operation.DELETE, stmt.bind(key), key, WRITTEN);
     } catch (Exception e) {
       logger.error(MessageFormatter.format("Error deleting key: {}", key).getMessage(), e);
     }
@@ -636,4 +723,81 @@ public class CassandraCQLClient extends DB {
     return Status.ERROR;
   }
 
+  /**
+   * Turns the result set of a statement into the status of its operation, reading the rows it
+   * returned.
+   */
+  private interface ResultHandler {
+    Status handle(ResultSet rs);
+  }
+
+  /**
+   * Run a statement of an operation. In asynchronous mode, wait for room in the window of this
+   * client thread, send the statement and return {@link Status#PENDING}; the window measures the
+   * operation when the response arrives.
+   */
+  private Status execute(final Workload.Operation op, Statement stmt, final String key,
+                         final ResultHandler handler) throws InterruptedException {
+    if (asyncWindow == null) {
+      return handler.handle(session.execute(stmt));
+    }
+
+    final InFlightWindow.Completion completion = asyncWindow.begin(op);
+    try {
+      Futures.addCallback(session.executeAsync(stmt), new FutureCallback<ResultSet>() {
+          @Override
+          public void onSuccess(ResultSet rs) {
+            Status status;
+            try {
+              status = handler.handle(rs);
+            } catch (RuntimeException e) {
+              logger.error(MessageFormatter.format("Error reading the result of {} of key: {}", op, key).getMessage(),
+                  e);
+              status = Status.ERROR;
+            }
+            completion.complete(status);
+          }
+
+          @Override
+          public void onFailure(Throwable t) {
+            logger.error(MessageFormatter.format("Error in {} of key: {}", op, key).getMessage(), t);
+            completion.complete(Status.ERROR);
+          }
+        });
+    } catch (RuntimeException e) {
+      completion.complete(Status.ERROR);
+      throw e;
+    }
+    return Status.PENDING;
+  }
+
+  /**
+   * Add an insert to the unlogged batch of the primary replica of its partition, and send the
+   * batch once it is full. Every key is a partition of its own, so a batch of one replica is
+   * applied by that node without forwarding rows to others.
+   * <p>
+   * The other inserts of a batch have already returned {@link Status#BATCHED_OK}, so a failed batch
+   * is measured as a single failed insert, the one that sent it.
+   * </p>
+   */
+  private Status batch(BoundStatement stmt, String key) throws InterruptedException {
+    ByteBuffer partitionKey = TypeCodec.varchar().serialize(key, protocolVersion);
+    Set<Host> replicas = cluster.getMetadata().getReplicas(keyspace, partitionKey);
+    Host primary = replicas.isEmpty() ? null : replicas.iterator().next();
+
+    BatchStatement batch = batches.get(primary);
+    if (batch == null) {
+      batch = new BatchStatement(BatchStatement.Type.UNLOGGED);
+      batch.setConsistencyLevel(writeConsistencyLevel);
+      batches.put(primary, batch);
+    }
+    batch.add(stmt);
+    if (batch.size() < batchSize) {
+      return Status.BATCHED_OK;
+    }
+
+    batches.remove(primary);
+    return execute(Workload.Operation.INSERT, batch, key, WRITTEN);
+  }
+
 }
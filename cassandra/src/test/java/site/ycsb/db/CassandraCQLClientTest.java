@@ -226,6 +226,54 @@ public class CassandraCQLClientTest {
     assertThat(row, nullValue());
   }
 
+  @Test
+  public void testAsyncWrites() throws Exception {
+    final Properties p = new Properties();
+    p.putAll(client.getProperties());
+    p.setProperty(CassandraCQLClient.ASYNC_PROPERTY, "true");
+    p.setProperty(CassandraCQLClient.ASYNC_WINDOW_PROPERTY, "4");
+    final CassandraCQLClient asyncClient = new CassandraCQLClient();
+    asyncClient.setProperties(p);
+    asyncClient.init();
+
+    final Map<String, String> input = new HashMap<String, String>();
+    input.put("field0", "value1");
+    for (int i = 0; i < 10; i++) {
+      final Status status = asyncClient.insert(TABLE, "async" + i, StringByteIterator.getByteIteratorMap(input));
+      assertThat(status, is(Status.PENDING));
+    }
+    // Waits for the writes still in flight
+    asyncClient.cleanup();
+
+    final ResultSet rs = session.execute(QueryBuilder.select().countAll().from(TABLE));
+    assertThat(rs.one().getLong(0), is(10L));
+  }
+
+  @Test
+  public void testBatchedLoad() throws Exception {
+    final Properties p = new Properties();
+    p.putAll(client.getProperties());
+    p.setProperty(CassandraCQLClient.BATCH_SIZE_PROPERTY, "3");
+    final CassandraCQLClient loadClient = new CassandraCQLClient();
+    loadClient.setProperties(p);
+    loadClient.init();
+
+    final Map<String, String> input = new HashMap<String, String>();
+    input.put("field0", "value1");
+    for (int i = 0; i < 2; i++) {
+      final Status status = loadClient.insert(TABLE, "load" + i, StringByteIterator.getByteIteratorMap(input));
+      assertThat(status, is(Status.BATCHED_OK));
+    }
+    assertThat(loadClient.insert(TABLE, "load2", StringByteIterator.getByteIteratorMap(input)), is(Status.OK));
+    assertThat(loadClient.insert(TABLE, "load3", StringByteIterator.getByteIteratorMap(input)),
+        is(Status.BATCHED_OK));
+    // Sends the last, partial batch
+    loadClient.cleanup();
+
+    final ResultSet rs = session.execute(QueryBuilder.select().countAll().from(TABLE));
+    assertThat(rs.one().getLong(0), is(4L));
+  }
+
   @Test
   public void testPreparedStatements() throws Exception {
     final int LOOP_COUNT = 3;
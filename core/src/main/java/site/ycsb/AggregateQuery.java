@@ -0,0 +1,109 @@
+/**
+ * Copyright (c) 2020 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb;
+
+/**
+ * An analytical query over the records of a table whose numeric range field lies in
+ * <code>[low, high)</code>: one aggregate of a field over all of them, or one per value of a group
+ * field.
+ * <p>
+ * The range and value fields hold {@link NumericByteIterator}s when the records were written by
+ * the workload, so bindings that keep types can aggregate them as numbers.
+ */
+public final class AggregateQuery {
+  /**
+   * The aggregate function.
+   */
+  public enum Function {
+    /** The number of records; the value field is not used. */
+    COUNT,
+    SUM,
+    AVG,
+    MIN,
+    MAX
+  }
+
+  private final Function function;
+  private final String field;
+  private final String groupField;
+  private final String rangeField;
+  private final long low;
+  private final long high;
+
+  /**
+   * @param function the aggregate function.
+   * @param field the field to aggregate.
+   * @param groupField the field to group by, or null for a single aggregate.
+   * @param rangeField the numeric field to filter on.
+   * @param low the smallest value of the range field, inclusive.
+   * @param high the largest value of the range field, exclusive.
+   */
+  public AggregateQuery(Function function, String field, String groupField, String rangeField, long low, long high) {
+    this.function = function;
+    this.field = field;
+    this.groupField = groupField;
+    this.rangeField = rangeField;
+    this.low = low;
+    this.high = high;
+  }
+
+  public Function getFunction() {
+    return function;
+  }
+
+  public String getField() {
+    return field;
+  }
+
+  /**
+   * The field to group by, or null for a single aggregate.
+   */
+  public String getGroupField() {
+    return groupField;
+  }
+
+  public boolean isGrouped() {
+    return groupField != null;
+  }
+
+  public String getRangeField() {
+    return rangeField;
+  }
+
+  public long getLow() {
+    return low;
+  }
+
+  public long getHigh() {
+    return high;
+  }
+
+  /**
+   * The shape of the query, such as <code>SUM</code> or <code>GROUP-SUM</code>, under which
+   * {@link DBWrapper} measures it.
+   */
+  public String getShape() {
+    return isGrouped() ? "GROUP-" + function.name() : function.name();
+  }
+
+  @Override
+  public String toString() {
+    return getShape() + "(" + field + ")" + (isGrouped() ? " BY " + groupField : "")
+        + " WHERE " + rangeField + " IN [" + low + ", " + high + ")";
+  }
+}
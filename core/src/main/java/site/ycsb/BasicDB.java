@@ -170,6 +170,25 @@ public class BasicDB extends DB {
     return Status.OK;
   }
 
+  @Override
+  public Status batchRead(String table, List<String> keys, Set<String> fields,
+                          List<Map<String, ByteIterator>> results) {
+    delay();
+
+    if (verbose) {
+      System.out.println("READ-BATCH " + table + " " + keys + " " + (fields == null ? "<all fields>" : fields));
+    }
+
+    for (String key : keys) {
+      if (count) {
+        incCounter(reads, hash(table, key, fields));
+      }
+      results.add(new HashMap<String, ByteIterator>());
+    }
+
+    return Status.OK;
+  }
+
   /**
    * Perform a range scan for a set of records in the database. Each field/value pair from the result will be stored
    * in a HashMap.
@@ -442,6 +461,29 @@ public class BasicDB extends DB {
 
                 return Status.OK;
   }
+
+  @Override
+  public Status search(String table, SearchQuery query, Vector<HashMap<String, ByteIterator>> result) {
+    delay();
+
+    if (verbose) {
+      System.out.println("SEARCH " + table + " " + query);
+    }
+
+    return Status.OK;
+  }
+
+  @Override
+  public Status aggregate(String table, AggregateQuery query, Vector<HashMap<String, ByteIterator>> result) {
+    delay();
+
+    if (verbose) {
+      System.out.println("AGGREGATE " + table + " " + query);
+    }
+
+    return Status.OK;
+  }
+
   @Override
   public void cleanup() {
     synchronized (MUTEX) {
@@ -188,6 +188,10 @@ public final class Client {
     System.out.println("Required properties:");
     System.out.println("  " + WORKLOAD_PROPERTY + ": the name of the workload class to use (e.g. " +
         "site.ycsb.workloads.CoreWorkload)");
+    System.out.println("  or " + WorkloadGroup.WORKLOAD_GROUPS_PROPERTY + ": a comma separated list of groups to " +
+        "run concurrently, each");
+    System.out.println("          configured by " + WorkloadGroup.GROUP_PROPERTY_PREFIX + "<name>.<property> " +
+        "overrides (e.g. " + WorkloadGroup.GROUP_PROPERTY_PREFIX + "kv." + WORKLOAD_PROPERTY + ")");
     System.out.println("");
     System.out.println("To run the transaction phase from multiple servers, start a separate client on each.");
     System.out.println("To run the load phase from multiple servers, start a separate client on each; additionally,");
@@ -196,51 +200,80 @@ public final class Client {
   }
 
   public static boolean checkRequiredProperties(Properties props) {
-    if (props.getProperty(WORKLOAD_PROPERTY) == null) {
-      System.out.println("Missing property: " + WORKLOAD_PROPERTY);
+    List<WorkloadGroup> groups;
+    try {
+      groups = WorkloadGroup.fromProperties(props);
+    } catch (IllegalArgumentException e) {
+      System.out.println(e.getMessage());
       return false;
     }
+    for (WorkloadGroup group : groups) {
+      if (group.getProperties().getProperty(WORKLOAD_PROPERTY) == null) {
+        System.out.println("Missing property: " + (group.getName().isEmpty() ? "" :
+            WorkloadGroup.GROUP_PROPERTY_PREFIX + group.getName() + ".") + WORKLOAD_PROPERTY);
+        return false;
+      }
+    }
 
     return true;
   }
 
 
+  /**
+   * Create the exporter configured by the <code>exporter</code> and <code>exportfile</code>
+   * properties.
+   */
+  static MeasurementsExporter createExporter(Properties props) throws IOException {
+    // if no destination file is provided the results will be written to stdout
+    OutputStream out;
+    String exportFile = props.getProperty(EXPORT_FILE_PROPERTY);
+    if (exportFile == null) {
+      out = System.out;
+    } else {
+      out = new FileOutputStream(exportFile);
+    }
+
+    // if no exporter is provided the default text one will be used
+    String exporterStr = props.getProperty(EXPORTER_PROPERTY,
+        "site.ycsb.measurements.exporter.TextMeasurementsExporter");
+    try {
+      return (MeasurementsExporter) Class.forName(exporterStr).getConstructor(OutputStream.class)
+          .newInstance(out);
+    } catch (Exception e) {
+      System.err.println("Could not find exporter " + exporterStr
+          + ", will use default text reporter.");
+      e.printStackTrace();
+      return new TextMeasurementsExporter(out);
+    }
+  }
+
   /**
    * Exports the measurements to either sysout or a file using the exporter
    * loaded from conf.
    *
    * @throws IOException Either failed to write to output stream or failed to close it.
    */
-  private static void exportMeasurements(Properties props, int opcount, long runtime, String[] args)
+  private static void exportMeasurements(Properties props, int opcount, long runtime, String[] args,
+                                         List<WorkloadGroup> groups, long startTime)
       throws IOException {
     MeasurementsExporter exporter = null;
     try {
-      // if no destination file is provided the results will be written to stdout
-      OutputStream out;
-      String exportFile = props.getProperty(EXPORT_FILE_PROPERTY);
-      if (exportFile == null) {
-        out = System.out;
-      } else {
-        out = new FileOutputStream(exportFile);
-      }
-
-      // if no exporter is provided the default text one will be used
-      String exporterStr = props.getProperty(EXPORTER_PROPERTY,
-          "site.ycsb.measurements.exporter.TextMeasurementsExporter");
-      try {
-        exporter = (MeasurementsExporter) Class.forName(exporterStr).getConstructor(OutputStream.class)
-            .newInstance(out);
-      } catch (Exception e) {
-        System.err.println("Could not find exporter " + exporterStr
-            + ", will use default text reporter.");
-        e.printStackTrace();
-        exporter = new TextMeasurementsExporter(out);
-      }
+      exporter = createExporter(props);
 
       exporter.write("OVERALL", "RunTime(ms)", runtime);
       double throughput = 1000.0 * (opcount) / (runtime);
       exporter.write("OVERALL", "Throughput(ops/sec)", throughput);
 
+      for (WorkloadGroup group : groups) {
+        if (group.getName().isEmpty()) {
+          continue;
+        }
+        long groupRuntime = Math.max(1, group.getFinishTimeMillis() - startTime);
+        exporter.write(group.getName() + ".OVERALL", "RunTime(ms)", groupRuntime);
+        exporter.write(group.getName() + ".OVERALL", "Throughput(ops/sec)",
+            1000.0 * group.getOpsDone() / groupRuntime);
+      }
+
       final Map<String, Long[]> gcs = Utils.getGCStatst();
       long totalGCCount = 0;
       long totalGCTime = 0;
@@ -315,34 +348,38 @@ public final class Client {
 
     long maxExecutionTime = Integer.parseInt(props.getProperty(MAX_EXECUTION_TIME, "0"));
 
-    //get number of threads, target and db
-    int threadcount = Integer.parseInt(props.getProperty(THREAD_COUNT_PROPERTY, "1"));
-    String dbname = props.getProperty(DB_PROPERTY, "site.ycsb.BasicDB");
-    int target = Integer.parseInt(props.getProperty(TARGET_PROPERTY, "0"));
-
-    //compute the target throughput
-    double targetperthreadperms = -1;
-    if (target > 0) {
-      double targetperthread = ((double) target) / ((double) threadcount);
-      targetperthreadperms = targetperthread / 1000.0;
-    }
-
     Thread warningthread = setupWarningThread();
     warningthread.start();
 
     Measurements.setProperties(props);
 
-    Workload workload = getWorkload(props);
+    final List<WorkloadGroup> groups = WorkloadGroup.fromProperties(props);
+    for (WorkloadGroup group : groups) {
+      group.setWorkload(getWorkload(group.getProperties()));
+    }
 
-    final Tracer tracer = getTracer(props, workload);
+    final Tracer tracer = getTracer(props, groups.get(0).getWorkload());
 
-    initWorkload(props, warningthread, workload, tracer);
+    for (WorkloadGroup group : groups) {
+      initWorkload(group.getProperties(), warningthread, group.getWorkload(), tracer);
+    }
 
     System.err.println("Starting test.");
+    int threadcount = 0;
+    for (WorkloadGroup group : groups) {
+      threadcount += group.getThreadCount();
+    }
     final CountDownLatch completeLatch = new CountDownLatch(threadcount);
 
-    final List<ClientThread> clients = initDb(dbname, props, threadcount, targetperthreadperms,
-        workload, tracer, completeLatch);
+    final List<ClientThread> clients = new ArrayList<>(threadcount);
+    for (WorkloadGroup group : groups) {
+      Properties groupProps = group.getProperties();
+      //get number of threads, target and db of the group
+      String dbname = groupProps.getProperty(DB_PROPERTY, "site.ycsb.BasicDB");
+      group.setClients(initDb(dbname, groupProps, group.getThreadCount(), group.getTargetPerThreadPerMs(),
+          group.getWorkload(), tracer, completeLatch));
+      clients.addAll(group.getClients());
+    }
 
     if (status) {
       boolean standardstatus = false;
@@ -357,16 +394,23 @@ public final class Client {
       statusthread.start();
     }
 
-    Thread terminator = null;
+    final List<Thread> terminators = new ArrayList<>();
     long st;
     long en;
     int opsDone;
 
     try (final TraceScope span = tracer.newScope(CLIENT_WORKLOAD_SPAN)) {
 
-      final Map<Thread, ClientThread> threads = new HashMap<>(threadcount);
-      for (ClientThread client : clients) {
-        threads.put(new Thread(tracer.wrap(client, "ClientThread")), client);
+      final Map<Thread, ClientThread> threads = new LinkedHashMap<>(threadcount);
+      final Map<WorkloadGroup, List<Thread>> groupThreads = new LinkedHashMap<>();
+      for (WorkloadGroup group : groups) {
+        List<Thread> mine = new ArrayList<>();
+        for (ClientThread client : group.getClients()) {
+          Thread t = new Thread(tracer.wrap(client, "ClientThread"));
+          threads.put(t, client);
+          mine.add(t);
+        }
+        groupThreads.put(group, mine);
       }
 
       st = System.currentTimeMillis();
@@ -376,8 +420,11 @@ public final class Client {
       }
 
       if (maxExecutionTime > 0) {
-        terminator = new TerminatorThread(maxExecutionTime, threads.keySet(), workload);
-        terminator.start();
+        for (WorkloadGroup group : groups) {
+          Thread terminator = new TerminatorThread(maxExecutionTime, groupThreads.get(group), group.getWorkload());
+          terminator.start();
+          terminators.add(terminator);
+        }
       }
 
       opsDone = 0;
@@ -397,8 +444,10 @@ public final class Client {
     try {
       try (final TraceScope span = tracer.newScope(CLIENT_CLEANUP_SPAN)) {
 
-        if (terminator != null && !terminator.isInterrupted()) {
-          terminator.interrupt();
+        for (Thread terminator : terminators) {
+          if (!terminator.isInterrupted()) {
+            terminator.interrupt();
+          }
         }
 
         if (status) {
@@ -412,7 +461,9 @@ public final class Client {
           }
         }
 
-        workload.cleanup();
+        for (WorkloadGroup group : groups) {
+          group.getWorkload().cleanup();
+        }
       }
     } catch (WorkloadException e) {
       e.printStackTrace();
@@ -422,7 +473,7 @@ public final class Client {
 
     try {
       try (final TraceScope span = tracer.newScope(CLIENT_EXPORT_MEASUREMENTS_SPAN)) {
-        exportMeasurements(props, opsDone, en - st, args);
+        exportMeasurements(props, opsDone, en - st, args, groups, st);
       }
     } catch (IOException e) {
       System.err.println("Could not export measurements, error: " + e.getMessage());
@@ -433,7 +484,7 @@ public final class Client {
     System.exit(0);
   }
 
-  private static List<ClientThread> initDb(String dbname, Properties props, int threadcount,
+  static List<ClientThread> initDb(String dbname, Properties props, int threadcount,
                                            double targetperthreadperms, Workload workload, Tracer tracer,
                                            CountDownLatch completeLatch) {
     boolean initFailed = false;
@@ -487,13 +538,13 @@ public final class Client {
     return clients;
   }
 
-  private static Tracer getTracer(Properties props, Workload workload) {
+  static Tracer getTracer(Properties props, Workload workload) {
     return new Tracer.Builder("YCSB " + workload.getClass().getSimpleName())
         .conf(getHTraceConfiguration(props))
         .build();
   }
 
-  private static void initWorkload(Properties props, Thread warningthread, Workload workload, Tracer tracer) {
+  static void initWorkload(Properties props, Thread warningthread, Workload workload, Tracer tracer) {
     try {
       try (final TraceScope span = tracer.newScope(CLIENT_WORKLOAD_INIT_SPAN)) {
         workload.init(props);
@@ -516,7 +567,7 @@ public final class Client {
     return HTraceConfiguration.fromMap(filteredProperties);
   }
 
-  private static Thread setupWarningThread() {
+  static Thread setupWarningThread() {
     //show a warning message that creating the workload is taking a while
     //but only do so if it is taking longer than 2 seconds
     //(showing the message right away if the setup wasn't taking very long was confusing people)
@@ -533,7 +584,7 @@ public final class Client {
     };
   }
 
-  private static Workload getWorkload(Properties props) {
+  static Workload getWorkload(Properties props) {
     ClassLoader classLoader = Client.class.getClassLoader();
 
     try {
@@ -559,7 +610,7 @@ public final class Client {
     return null;
   }
 
-  private static Properties parseArguments(String[] args) {
+  static Properties parseArguments(String[] args) {
     Properties props = new Properties();
     System.err.print("Command line:");
     for (String arg : args) {
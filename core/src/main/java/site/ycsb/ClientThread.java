@@ -38,6 +38,7 @@ public class ClientThread implements Runnable {
   private double targetOpsPerMs;
 
   private int opsdone;
+  private long finishTimeMs;
   private int threadid;
   private int threadcount;
   private Object workloadstate;
@@ -85,6 +86,14 @@ public class ClientThread implements Runnable {
     return opsdone;
   }
 
+  /**
+   * The time this thread finished its operations, in milliseconds since the epoch, or 0 if it
+   * has not finished.
+   */
+  public long getFinishTimeMillis() {
+    return finishTimeMs;
+  }
+
   @Override
   public void run() {
     try {
@@ -147,6 +156,7 @@ public class ClientThread implements Runnable {
       System.exit(0);
     }
 
+    finishTimeMs = System.currentTimeMillis();
     try {
       measurements.setIntendedStartTimeNs(0);
       db.cleanup();
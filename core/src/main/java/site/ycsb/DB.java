@@ -18,6 +18,7 @@
 package site.ycsb;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
@@ -43,6 +44,22 @@ import java.util.Vector;
  * recommend you explain the semantics you chose when presenting performance results.
  */
 public abstract class DB {
+  /**
+   * The field of edge records holding the <code>vertexTable/key</code> handle of their source vertex.
+   */
+  public static final String EDGE_FROM = "_from";
+
+  /**
+   * The field of edge records holding the <code>vertexTable/key</code> handle of their target vertex.
+   */
+  public static final String EDGE_TO = "_to";
+
+  /**
+   * The field of records holding their expiry time in seconds since the epoch, or -1 if they never
+   * expire. Bindings with native expiry map it onto the expiry of the record.
+   */
+  public static final String EXPIRE_AT = "expireAt";
+
   /**
    * Properties for configuring this DB.
    */
@@ -88,6 +105,31 @@ public abstract class DB {
    */
   public abstract Status read(String table, String key, Set<String> fields, Map<String, ByteIterator> result);
 
+  /**
+   * Read several records at once. The default reads them one by one; bindings whose store can
+   * fetch many keys in one call override it.
+   *
+   * @param table The name of the table
+   * @param keys The record keys of the records to read.
+   * @param fields The list of fields to read, or null for all of them
+   * @param results One HashMap of field/value pairs per key, in the order of the keys, empty for
+   *                records not found
+   * @return {@link Status#OK} if every record was read, otherwise the first failure.
+   */
+  public Status batchRead(String table, List<String> keys, Set<String> fields,
+                          List<Map<String, ByteIterator>> results) {
+    Status status = Status.OK;
+    for (String key : keys) {
+      Map<String, ByteIterator> result = new HashMap<>();
+      Status res = read(table, key, fields, result);
+      if (!res.isOk() && status.isOk()) {
+        status = res;
+      }
+      results.add(result);
+    }
+    return status;
+  }
+
   /**
    * Perform a range scan for a set of records in the database. Each field/value pair from the result will be stored
    * in a HashMap.
@@ -109,6 +151,18 @@ public abstract class DB {
   public abstract Status search(String table, String startkey, int recordcount, Set<String> fields,
           Vector<HashMap<String, ByteIterator>> result);
 
+  /**
+   * Run a full-text query against a text field of the records of a table.
+   *
+   * @param table The name of the table
+   * @param query The kind of query, its terms and the most records to return
+   * @param result A Vector of HashMaps, one per matching record, best matches first
+   * @return The result of the operation.
+   */
+  public Status search(String table, SearchQuery query, Vector<HashMap<String, ByteIterator>> result) {
+    return Status.NOT_IMPLEMENTED;
+  }
+
   /**
    * Update a record in the database. Any field/value pairs in the specified values HashMap will be written into the
    * record with the specified record key, overwriting any existing values with the same field name.
@@ -146,6 +200,39 @@ public abstract class DB {
   public abstract Status graphShortestPath(String table, String startkey, int recordcount, Set<String> fields,
               Vector<HashMap<String, ByteIterator>> result);
 
+  /**
+   * Traverse a graph outbound from a vertex, up to the given number of hops, and return the vertices reached.
+   * Edges are inserted as records of the edge table whose {@link #EDGE_FROM} and {@link #EDGE_TO} fields hold
+   * <code>vertexTable/key</code> handles.
+   *
+   * @param vertexTable The name of the vertex table
+   * @param edgeTable The name of the edge table
+   * @param startkey The record key of the start vertex
+   * @param depth The maximum number of hops
+   * @param fields The list of vertex fields to read, or null for all of them
+   * @param result A Vector of HashMaps, where each HashMap is a set field/value pairs for one vertex
+   * @return The result of the operation.
+   */
+  public Status graphTraversal(String vertexTable, String edgeTable, String startkey, int depth, Set<String> fields,
+                               Vector<HashMap<String, ByteIterator>> result) {
+    return Status.NOT_IMPLEMENTED;
+  }
+
+  /**
+   * Find a shortest outbound path between two vertices of a graph and return its vertices.
+   *
+   * @param vertexTable The name of the vertex table
+   * @param edgeTable The name of the edge table
+   * @param startkey The record key of the first vertex
+   * @param endkey The record key of the last vertex
+   * @param result A Vector of HashMaps, where each HashMap is a set field/value pairs for one vertex of the path
+   * @return The result of the operation.
+   */
+  public Status graphShortestPath(String vertexTable, String edgeTable, String startkey, String endkey,
+                                  Vector<HashMap<String, ByteIterator>> result) {
+    return Status.NOT_IMPLEMENTED;
+  }
+
   public abstract Status join(String table, String startkey, int recordcount, Set<String> fields,
               Vector<HashMap<String, ByteIterator>> result) ;
 
@@ -155,4 +242,17 @@ public abstract class DB {
   public abstract Status aggregate(String table, String startkey, int recordcount, Set<String> fields,
               Vector<HashMap<String, ByteIterator>> result) ;
 
+  /**
+   * Run an analytical query: an aggregate of a field over the records whose range field lies in a
+   * range, optionally grouped by another field.
+   *
+   * @param table The name of the table
+   * @param query The aggregate, grouping and range
+   * @param result A Vector of HashMaps, one per group, or a single one without grouping
+   * @return The result of the operation.
+   */
+  public Status aggregate(String table, AggregateQuery query, Vector<HashMap<String, ByteIterator>> result) {
+    return Status.NOT_IMPLEMENTED;
+  }
+
 }
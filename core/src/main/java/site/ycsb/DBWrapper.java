@@ -21,17 +21,23 @@ import site.ycsb.measurements.Measurements;
 import org.apache.htrace.core.TraceScope;
 import org.apache.htrace.core.Tracer;
 
+import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Wrapper around a "real" DB that measures latencies and counts return codes.
  * Also reports latency separately between OK and failed operations.
+ * If {@value OpTraceWriter#TRACE_DIR_PROPERTY} is set, every operation is also appended to a
+ * per-thread {@link OpTraceWriter} trace.
  */
 public class DBWrapper extends DB {
   private final DB db;
   private final Measurements measurements;
   private final Tracer tracer;
+  private OpTraceWriter traceWriter;
+  private String[] opNames;
+  private String cleanupName;
 
   private boolean reportLatencyForEachError = false;
   private Set<String> latencyTrackedErrors = new HashSet<String>();
@@ -80,6 +86,20 @@ public class DBWrapper extends DB {
     scopeStringGroup = simple + "#group";
     scopeStringAggregate = simple + "#aggregate";
     scopeStringSearch = simple + "#search";
+    setMeasurementPrefix("");
+  }
+
+  private void setMeasurementPrefix(String prefix) {
+    Workload.Operation[] ops = Workload.Operation.values();
+    opNames = new String[ops.length];
+    for (Workload.Operation op : ops) {
+      opNames[op.ordinal()] = prefix + op.name();
+    }
+    cleanupName = prefix + "CLEANUP";
+  }
+
+  private String opName(Workload.Operation op) {
+    return opNames[op.ordinal()];
   }
 
   /**
@@ -104,6 +124,8 @@ public class DBWrapper extends DB {
     try (final TraceScope span = tracer.newScope(scopeStringInit)) {
       db.init();
 
+      setMeasurementPrefix(Measurements.namespacePrefix(getProperties()));
+
       this.reportLatencyForEachError = Boolean.parseBoolean(getProperties().
           getProperty(REPORT_LATENCY_FOR_EACH_ERROR_PROPERTY,
               REPORT_LATENCY_FOR_EACH_ERROR_PROPERTY_DEFAULT));
@@ -116,10 +138,20 @@ public class DBWrapper extends DB {
         }
       }
 
+      try {
+        traceWriter = OpTraceWriter.fromProperties(getProperties());
+      } catch (IOException e) {
+        throw new DBException("Unable to open operation trace", e);
+      }
+
       if (LOG_REPORT_CONFIG.compareAndSet(false, true)) {
         System.err.println("DBWrapper: report latency for each error is " +
             this.reportLatencyForEachError + " and specific error codes to track" +
             " for latency are: " + this.latencyTrackedErrors.toString());
+        if (traceWriter != null) {
+          System.err.println("DBWrapper: capturing operation traces to " +
+              getProperties().getProperty(OpTraceWriter.TRACE_DIR_PROPERTY));
+        }
       }
     }
   }
@@ -134,7 +166,16 @@ public class DBWrapper extends DB {
       long st = System.nanoTime();
       db.cleanup();
       long en = System.nanoTime();
-      measure("CLEANUP", Status.OK, ist, st, en);
+      measure(cleanupName, Status.OK, ist, st, en);
+    } finally {
+      if (traceWriter != null) {
+        try {
+          traceWriter.close();
+        } catch (IOException e) {
+          System.err.println("DBWrapper: unable to close operation trace: " + e.getMessage());
+        }
+        traceWriter = null;
+      }
     }
   }
 
@@ -155,8 +196,38 @@ public class DBWrapper extends DB {
       long st = System.nanoTime();
       Status res = db.read(table, key, fields, result);
       long en = System.nanoTime();
-      measure("READ", res, ist, st, en);
-      measurements.reportStatus("READ", res);
+      measure(opName(Workload.Operation.READ), res, ist, st, en);
+      if (traceWriter != null) {
+        trace(Workload.Operation.READ, ist, st, en, table, key, 0, fields, resultBytes(result), res);
+      }
+      measurements.reportStatus(opName(Workload.Operation.READ), res);
+      return res;
+    }
+  }
+
+  /**
+   * Read several records at once, measured as one READ-BATCH operation.
+   *
+   * @param table The name of the table
+   * @param keys The record keys of the records to read.
+   * @param fields The list of fields to read, or null for all of them
+   * @param results One HashMap of field/value pairs per key
+   * @return The result of the operation.
+   */
+  public Status batchRead(String table, List<String> keys, Set<String> fields,
+                          List<Map<String, ByteIterator>> results) {
+    try (final TraceScope span = tracer.newScope(scopeStringRead)) {
+      long ist = measurements.getIntendedStartTimeNs();
+      long st = System.nanoTime();
+      Status res = db.batchRead(table, keys, fields, results);
+      long en = System.nanoTime();
+      String name = opName(Workload.Operation.READ) + "-BATCH";
+      measure(name, res, ist, st, en);
+      if (traceWriter != null) {
+        trace(Workload.Operation.READ, ist, st, en, table, keys.get(0), keys.size(), fields,
+            resultBytes(results), res);
+      }
+      measurements.reportStatus(name, res);
       return res;
     }
   }
@@ -179,8 +250,12 @@ public class DBWrapper extends DB {
       long st = System.nanoTime();
       Status res = db.scan(table, startkey, recordcount, fields, result);
       long en = System.nanoTime();
-      measure("SCAN", res, ist, st, en);
-      measurements.reportStatus("SCAN", res);
+      measure(opName(Workload.Operation.SCAN), res, ist, st, en);
+      if (traceWriter != null) {
+        trace(Workload.Operation.SCAN, ist, st, en, table, startkey, recordcount, fields,
+            resultBytes(result), res);
+      }
+      measurements.reportStatus(opName(Workload.Operation.SCAN), res);
       return res;
     }
   }
@@ -193,8 +268,12 @@ public class DBWrapper extends DB {
                   long st = System.nanoTime();
                   Status res = db.arrayscan(table, startkey, recordcount, fields, result);
                   long en = System.nanoTime();
-                  measure("ARRAYSCAN", res, ist, st, en);
-                  measurements.reportStatus("ARRAYSCAN", res);
+                  measure(opName(Workload.Operation.ARRAYSCAN), res, ist, st, en);
+                  if (traceWriter != null) {
+                    trace(Workload.Operation.ARRAYSCAN, ist, st, en, table, startkey, recordcount, fields,
+                        resultBytes(result), res);
+                  }
+                  measurements.reportStatus(opName(Workload.Operation.ARRAYSCAN), res);
                   return res;
           }
   }
@@ -207,14 +286,22 @@ public class DBWrapper extends DB {
                   long st = System.nanoTime();
                   Status res = db.search(table, startkey, recordcount, fields, result);
                   long en = System.nanoTime();
-                  measure("SEARCH", res, ist, st, en);
-                  measurements.reportStatus("SEARCH", res);
+                  measure(opName(Workload.Operation.SEARCH), res, ist, st, en);
+                  if (traceWriter != null) {
+                    trace(Workload.Operation.SEARCH, ist, st, en, table, startkey, recordcount, fields,
+                        resultBytes(result), res);
+                  }
+                  measurements.reportStatus(opName(Workload.Operation.SEARCH), res);
                   return res;
           }
   }
 
   private void measure(String op, Status result, long intendedStartTimeNanos,
                        long startTimeNanos, long endTimeNanos) {
+    if (result == Status.PENDING) {
+      // Measured by the binding on completion, see InFlightWindow.
+      return;
+    }
     String measurementName = op;
     if (result == null || !result.isOk()) {
       if (this.reportLatencyForEachError ||
@@ -230,6 +317,55 @@ public class DBWrapper extends DB {
         (int) ((endTimeNanos - intendedStartTimeNanos) / 1000));
   }
 
+  private void trace(Workload.Operation op, long intendedStartTimeNanos, long startTimeNanos,
+                     long endTimeNanos, String table, String key, int recordcount,
+                     Set<String> fields, long valueBytes, Status result) {
+    trace(op, intendedStartTimeNanos, startTimeNanos, endTimeNanos, table, key, recordcount, fields,
+        valueBytes, result, null, null);
+  }
+
+  private void trace(Workload.Operation op, long intendedStartTimeNanos, long startTimeNanos,
+                     long endTimeNanos, String table, String key, int recordcount,
+                     Set<String> fields, long valueBytes, Status result, String edgeTable, String endKey) {
+    try {
+      traceWriter.write(op, intendedStartTimeNanos, startTimeNanos, endTimeNanos, table, key,
+          recordcount, fields, valueBytes, result, edgeTable, endKey);
+    } catch (IOException e) {
+      disableTrace(e);
+    }
+  }
+
+  private void disableTrace(IOException e) {
+    // A broken trace must not abort the benchmark; stop capturing for this thread instead.
+    System.err.println("DBWrapper: disabling operation trace: " + e.getMessage());
+    try {
+      traceWriter.close();
+    } catch (IOException ignored) {
+      // ignored
+    }
+    traceWriter = null;
+  }
+
+  private static long resultBytes(Map<String, ByteIterator> result) {
+    long bytes = 0;
+    for (ByteIterator value : result.values()) {
+      if (value != null) {
+        bytes += value.bytesLeft();
+      }
+    }
+    return bytes;
+  }
+
+  private static long resultBytes(List<? extends Map<String, ByteIterator>> result) {
+    long bytes = 0;
+    if (result != null) {
+      for (Map<String, ByteIterator> row : result) {
+        bytes += resultBytes(row);
+      }
+    }
+    return bytes;
+  }
+
   /**
    * Update a record in the database. Any field/value pairs in the specified values HashMap will be written into the
    * record with the specified record key, overwriting any existing values with the same field name.
@@ -243,12 +379,23 @@ public class DBWrapper extends DB {
                        Map<String, ByteIterator> values) {
     try (final TraceScope span = tracer.newScope(scopeStringUpdate)) {
       long ist = measurements.getIntendedStartTimeNs();
+      if (traceWriter != null) {
+        traceWriter.prepareValues(values);
+      }
       long st = System.nanoTime();
       Status res = db.update(table, key, values);
       long en = System.nanoTime();
-      measure("UPDATE", res, ist, st, en);
-      measurements.reportStatus("UPDATE", res);
+      measure(opName(Workload.Operation.UPDATE), res, ist, st, en);
+      if (traceWriter != null) {
+        trace(Workload.Operation.UPDATE, ist, st, en, table, key, 0, null, 0, res);
+      }
+      measurements.reportStatus(opName(Workload.Operation.UPDATE), res);
       return res;
+    } finally {
+      if (traceWriter != null) {
+        // The binding may have thrown before the write was traced.
+        traceWriter.clearValues();
+      }
     }
   }
 
@@ -266,12 +413,23 @@ public class DBWrapper extends DB {
                        Map<String, ByteIterator> values) {
     try (final TraceScope span = tracer.newScope(scopeStringInsert)) {
       long ist = measurements.getIntendedStartTimeNs();
+      if (traceWriter != null) {
+        traceWriter.prepareValues(values);
+      }
       long st = System.nanoTime();
       Status res = db.insert(table, key, values);
       long en = System.nanoTime();
-      measure("INSERT", res, ist, st, en);
-      measurements.reportStatus("INSERT", res);
+      measure(opName(Workload.Operation.INSERT), res, ist, st, en);
+      if (traceWriter != null) {
+        trace(Workload.Operation.INSERT, ist, st, en, table, key, 0, null, 0, res);
+      }
+      measurements.reportStatus(opName(Workload.Operation.INSERT), res);
       return res;
+    } finally {
+      if (traceWriter != null) {
+        // The binding may have thrown before the write was traced.
+        traceWriter.clearValues();
+      }
     }
   }
 
@@ -288,8 +446,11 @@ public class DBWrapper extends DB {
       long st = System.nanoTime();
       Status res = db.delete(table, key);
       long en = System.nanoTime();
-      measure("DELETE", res, ist, st, en);
-      measurements.reportStatus("DELETE", res);
+      measure(opName(Workload.Operation.DELETE), res, ist, st, en);
+      if (traceWriter != null) {
+        trace(Workload.Operation.DELETE, ist, st, en, table, key, 0, null, 0, res);
+      }
+      measurements.reportStatus(opName(Workload.Operation.DELETE), res);
       return res;
     }
   }
@@ -304,8 +465,12 @@ public class DBWrapper extends DB {
           long st = System.nanoTime();
           Status res = db.graphTraversal(table, startkey, recordcount, fields, result);
           long en = System.nanoTime();
-          measure("GRAPHTRAVERSAL", res, ist, st, en);
-          measurements.reportStatus("GRAPHTRAVERSAL", res);
+          measure(opName(Workload.Operation.GRAPHTRAVERSAL), res, ist, st, en);
+          if (traceWriter != null) {
+            trace(Workload.Operation.GRAPHTRAVERSAL, ist, st, en, table, startkey, recordcount, fields,
+                resultBytes(result), res);
+          }
+          measurements.reportStatus(opName(Workload.Operation.GRAPHTRAVERSAL), res);
           return res;
         }
 
@@ -320,13 +485,53 @@ public class DBWrapper extends DB {
                   long st = System.nanoTime();
                   Status res = db.graphShortestPath(table, startkey, recordcount, fields, result);
                   long en = System.nanoTime();
-                  measure("GRAPHSHORTESTPATH", res, ist, st, en);
-                  measurements.reportStatus("GRAPHSHORTESTPATH", res);
+                  measure(opName(Workload.Operation.GRAPHSHORTESTPATH), res, ist, st, en);
+                  if (traceWriter != null) {
+                    trace(Workload.Operation.GRAPHSHORTESTPATH, ist, st, en, table, startkey, recordcount, fields,
+                        resultBytes(result), res);
+                  }
+                  measurements.reportStatus(opName(Workload.Operation.GRAPHSHORTESTPATH), res);
                   return res;
                 }
 
           }
 
+  @Override
+  public Status graphTraversal(String vertexTable, String edgeTable, String startkey, int depth, Set<String> fields,
+                               Vector<HashMap<String, ByteIterator>> result) {
+    try (final TraceScope span = tracer.newScope(scopeStringGraphTraversal)) {
+      long ist = measurements.getIntendedStartTimeNs();
+      long st = System.nanoTime();
+      Status res = db.graphTraversal(vertexTable, edgeTable, startkey, depth, fields, result);
+      long en = System.nanoTime();
+      measure(opName(Workload.Operation.GRAPHTRAVERSAL), res, ist, st, en);
+      if (traceWriter != null) {
+        trace(Workload.Operation.GRAPHTRAVERSAL, ist, st, en, vertexTable, startkey, depth, fields,
+            resultBytes(result), res, edgeTable, null);
+      }
+      measurements.reportStatus(opName(Workload.Operation.GRAPHTRAVERSAL), res);
+      return res;
+    }
+  }
+
+  @Override
+  public Status graphShortestPath(String vertexTable, String edgeTable, String startkey, String endkey,
+                                  Vector<HashMap<String, ByteIterator>> result) {
+    try (final TraceScope span = tracer.newScope(scopeStringGraphShortestPath)) {
+      long ist = measurements.getIntendedStartTimeNs();
+      long st = System.nanoTime();
+      Status res = db.graphShortestPath(vertexTable, edgeTable, startkey, endkey, result);
+      long en = System.nanoTime();
+      measure(opName(Workload.Operation.GRAPHSHORTESTPATH), res, ist, st, en);
+      if (traceWriter != null) {
+        trace(Workload.Operation.GRAPHSHORTESTPATH, ist, st, en, vertexTable, startkey, 0, null,
+            resultBytes(result), res, edgeTable, endkey);
+      }
+      measurements.reportStatus(opName(Workload.Operation.GRAPHSHORTESTPATH), res);
+      return res;
+    }
+  }
+
   public Status join(String table, String startkey, int recordcount, Set<String> fields, Vector<HashMap<String, ByteIterator>> result)
   {
                 try (final TraceScope span = tracer.newScope(scopeStringJoin)) {
@@ -334,8 +539,12 @@ public class DBWrapper extends DB {
                 long st = System.nanoTime();
                 Status res = db.join(table, startkey, recordcount, fields, result);
                 long en = System.nanoTime();
-                measure("JOIN", res, ist, st, en);
-                measurements.reportStatus("JOIN", res);
+                measure(opName(Workload.Operation.JOIN), res, ist, st, en);
+                if (traceWriter != null) {
+                  trace(Workload.Operation.JOIN, ist, st, en, table, startkey, recordcount, fields,
+                      resultBytes(result), res);
+                }
+                measurements.reportStatus(opName(Workload.Operation.JOIN), res);
                 return res;
                 }
   }
@@ -347,8 +556,12 @@ public class DBWrapper extends DB {
                 long st = System.nanoTime();
                 Status res = db.group(table, startkey, recordcount, fields, result);
                 long en = System.nanoTime();
-                measure("GROUP", res, ist, st, en);
-                measurements.reportStatus("GROUP", res);
+                measure(opName(Workload.Operation.GROUP), res, ist, st, en);
+                if (traceWriter != null) {
+                  trace(Workload.Operation.GROUP, ist, st, en, table, startkey, recordcount, fields,
+                      resultBytes(result), res);
+                }
+                measurements.reportStatus(opName(Workload.Operation.GROUP), res);
                 return res;
                 }
   }
@@ -360,10 +573,63 @@ public class DBWrapper extends DB {
                 long st = System.nanoTime();
                 Status res = db.aggregate(table, startkey, recordcount, fields, result);
                 long en = System.nanoTime();
-                measure("AGGREGATE", res, ist, st, en);
-                measurements.reportStatus("AGGREGATE", res);
+                measure(opName(Workload.Operation.AGGREGATE), res, ist, st, en);
+                if (traceWriter != null) {
+                  trace(Workload.Operation.AGGREGATE, ist, st, en, table, startkey, recordcount, fields,
+                      resultBytes(result), res);
+                }
+                measurements.reportStatus(opName(Workload.Operation.AGGREGATE), res);
                 return res;
                 }
   }
-}
 
+  /**
+   * Run an analytical query, measured under the shape of the query, e.g. AGGREGATE-GROUP-SUM.
+   */
+  @Override
+  public Status aggregate(String table, AggregateQuery query, Vector<HashMap<String, ByteIterator>> result) {
+    try (final TraceScope span = tracer.newScope(scopeStringAggregate)) {
+      String name = opName(Workload.Operation.AGGREGATE) + "-" + query.getShape();
+      long ist = measurements.getIntendedStartTimeNs();
+      long st = System.nanoTime();
+      Status res = db.aggregate(table, query, result);
+      long en = System.nanoTime();
+      measure(name, res, ist, st, en);
+      if (traceWriter != null) {
+        try {
+          traceWriter.write(Workload.Operation.AGGREGATE, ist, st, en, table, null, 0, null, resultBytes(result),
+              res, query);
+        } catch (IOException e) {
+          disableTrace(e);
+        }
+      }
+      measurements.reportStatus(name, res);
+      return res;
+    }
+  }
+
+  /**
+   * Run a full-text query, measured under its type, e.g. SEARCH-PHRASE.
+   */
+  @Override
+  public Status search(String table, SearchQuery query, Vector<HashMap<String, ByteIterator>> result) {
+    try (final TraceScope span = tracer.newScope(scopeStringSearch)) {
+      String name = opName(Workload.Operation.SEARCH) + "-" + query.getType().name();
+      long ist = measurements.getIntendedStartTimeNs();
+      long st = System.nanoTime();
+      Status res = db.search(table, query, result);
+      long en = System.nanoTime();
+      measure(name, res, ist, st, en);
+      if (traceWriter != null) {
+        try {
+          traceWriter.write(Workload.Operation.SEARCH, ist, st, en, table, null, 0, null, resultBytes(result),
+              res, query);
+        } catch (IOException e) {
+          disableTrace(e);
+        }
+      }
+      measurements.reportStatus(name, res);
+      return res;
+    }
+  }
+}
@@ -0,0 +1,151 @@
+/**
+ * Copyright (c) 2020 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A ByteIterator over a structured document, made of {@link Map}s with String keys, {@link List}s,
+ * Strings, Longs, Doubles and Booleans.
+ * <p>
+ * Document stores can take the structure as is from {@link #getDocument()}; every other binding
+ * sees its JSON serialization, which is only built the first time bytes are requested.
+ */
+public class DocumentByteIterator extends ByteIterator {
+  private final Object document;
+  private byte[] json;
+  private int off;
+
+  public DocumentByteIterator(Object document) {
+    this.document = document;
+  }
+
+  /**
+   * The structured document.
+   */
+  public Object getDocument() {
+    return document;
+  }
+
+  /**
+   * Return the document of the given value if it is a DocumentByteIterator, its number if it is a
+   * NumericByteIterator, or the value as a String otherwise.
+   */
+  public static Object documentOrString(ByteIterator value) {
+    if (value instanceof DocumentByteIterator) {
+      return ((DocumentByteIterator) value).getDocument();
+    }
+    if (value instanceof NumericByteIterator) {
+      NumericByteIterator number = (NumericByteIterator) value;
+      return number.isFloatingPoint() ? (Object) number.getDouble() : (Object) number.getLong();
+    }
+    return value.toString();
+  }
+
+  private byte[] json() {
+    if (json == null) {
+      StringBuilder sb = new StringBuilder();
+      toJson(document, sb);
+      json = sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+    return json;
+  }
+
+  /**
+   * Append the JSON serialization of a document to the given builder.
+   */
+  public static void toJson(Object value, StringBuilder sb) {
+    if (value == null) {
+      sb.append("null");
+    } else if (value instanceof Map) {
+      sb.append('{');
+      boolean first = true;
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+        if (!first) {
+          sb.append(',');
+        }
+        first = false;
+        appendString(entry.getKey().toString(), sb);
+        sb.append(':');
+        toJson(entry.getValue(), sb);
+      }
+      sb.append('}');
+    } else if (value instanceof List) {
+      sb.append('[');
+      boolean first = true;
+      for (Object element : (List<?>) value) {
+        if (!first) {
+          sb.append(',');
+        }
+        first = false;
+        toJson(element, sb);
+      }
+      sb.append(']');
+    } else if (value instanceof Number || value instanceof Boolean) {
+      sb.append(value);
+    } else {
+      appendString(value.toString(), sb);
+    }
+  }
+
+  private static void appendString(String s, StringBuilder sb) {
+    sb.append('"');
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (c == '"' || c == '\\') {
+        sb.append('\\').append(c);
+      } else if (c < ' ') {
+        sb.append(String.format("\\u%04x", (int) c));
+      } else {
+        sb.append(c);
+      }
+    }
+    sb.append('"');
+  }
+
+  @Override
+  public boolean hasNext() {
+    return off < json().length;
+  }
+
+  @Override
+  public byte nextByte() {
+    return json()[off++];
+  }
+
+  @Override
+  public long bytesLeft() {
+    return json().length - off;
+  }
+
+  @Override
+  public void reset() {
+    off = 0;
+  }
+
+  @Override
+  public byte[] toArray() {
+    byte[] bytes = json();
+    byte[] ret = new byte[bytes.length - off];
+    System.arraycopy(bytes, off, ret, 0, ret.length);
+    off = bytes.length;
+    return ret;
+  }
+}
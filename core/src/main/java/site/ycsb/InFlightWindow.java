@@ -0,0 +1,133 @@
+/**
+ * Copyright (c) 2020 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb;
+
+import site.ycsb.measurements.Measurements;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Bounds the operations a client thread keeps in flight when a binding runs them asynchronously,
+ * and measures them when they complete.
+ * <p>
+ * A binding in asynchronous mode calls {@link #begin} before submitting an operation, which
+ * waits while the window is full, and returns {@link Status#PENDING} instead of waiting for the
+ * result. {@link DBWrapper} does not measure pending operations; the binding calls
+ * {@link Completion#complete} from the completion callback instead, which records the latency and
+ * the status under the same names {@link DBWrapper} would have used. The binding calls
+ * {@link #drain} in its cleanup so that no operation is lost.
+ * <p>
+ * The intended start time is taken before waiting for the window, so time spent queued behind a
+ * full window counts towards the intended latency but not the latency.
+ */
+public class InFlightWindow {
+  private final int size;
+  private final Semaphore slots;
+  private final String prefix;
+  private final Measurements measurements;
+  private final boolean reportLatencyForEachError;
+  private final Set<String> latencyTrackedErrors;
+
+  /**
+   * Create a window.
+   *
+   * @param size the most operations in flight at once.
+   * @param props the properties of the DB, for the measurement namespace and error reporting.
+   */
+  public InFlightWindow(int size, Properties props) {
+    if (size < 1) {
+      throw new IllegalArgumentException("The in-flight window must hold at least one operation, got " + size);
+    }
+    this.size = size;
+    slots = new Semaphore(size);
+    prefix = Measurements.namespacePrefix(props);
+    measurements = Measurements.getMeasurements();
+    reportLatencyForEachError = Boolean.parseBoolean(props.getProperty("reportlatencyforeacherror", "false"));
+    String tracked = props.getProperty("latencytrackederrors");
+    latencyTrackedErrors = tracked == null ? new HashSet<String>() : new HashSet<>(Arrays.asList(tracked.split(",")));
+  }
+
+  /**
+   * Wait for room in the window and start timing an operation.
+   */
+  public Completion begin(Workload.Operation op) throws InterruptedException {
+    long intendedStartTimeNanos = measurements.getIntendedStartTimeNs();
+    slots.acquire();
+    return new Completion(prefix + op.name(), intendedStartTimeNanos, System.nanoTime());
+  }
+
+  /**
+   * The number of operations in flight.
+   */
+  public int inFlight() {
+    return size - slots.availablePermits();
+  }
+
+  /**
+   * Wait until every operation in flight has completed.
+   */
+  public void drain() throws InterruptedException {
+    slots.acquire(size);
+    slots.release(size);
+  }
+
+  /**
+   * An operation in flight.
+   */
+  public final class Completion {
+    private final String op;
+    private final long intendedStartTimeNanos;
+    private final long startTimeNanos;
+    private final AtomicBoolean done = new AtomicBoolean();
+
+    private Completion(String op, long intendedStartTimeNanos, long startTimeNanos) {
+      this.op = op;
+      this.intendedStartTimeNanos = intendedStartTimeNanos;
+      this.startTimeNanos = startTimeNanos;
+    }
+
+    /**
+     * Record the latency and status of the operation and free its slot. Only the first call
+     * counts, so callbacks may complete an operation from several paths.
+     */
+    public void complete(Status status) {
+      if (!done.compareAndSet(false, true)) {
+        return;
+      }
+      long endTimeNanos = System.nanoTime();
+      String measurementName = op;
+      if (status == null || !status.isOk()) {
+        String name = status == null ? "null" : status.getName();
+        if (reportLatencyForEachError || latencyTrackedErrors.contains(name)) {
+          measurementName = op + "-" + name;
+        } else {
+          measurementName = op + "-FAILED";
+        }
+      }
+      measurements.measure(measurementName, (int) ((endTimeNanos - startTimeNanos) / 1000));
+      measurements.measureIntended(measurementName, (int) ((endTimeNanos - intendedStartTimeNanos) / 1000));
+      measurements.reportStatus(op, status == null ? Status.ERROR : status);
+      slots.release();
+    }
+  }
+}
@@ -0,0 +1,261 @@
+/**
+ * Copyright (c) 2020 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads the files written by {@link OpTraceWriter}, one record at a time.
+ */
+public class OpTraceReader implements Closeable {
+
+  /**
+   * One captured operation.
+   */
+  public static class Record {
+    private Workload.Operation op;
+    private long intendedStartNanos;
+    private long startNanos;
+    private long latencyNanos;
+    private String table;
+    private String key;
+    private int recordcount;
+    private String[] fields;
+    private int[] valueLengths;
+    private long valueBytes;
+    private String status;
+    private String edgeTable;
+    private String endKey;
+    private AggregateQuery aggregateQuery;
+    private SearchQuery searchQuery;
+
+    public Workload.Operation getOp() {
+      return op;
+    }
+
+    /** Intended start, relative to the start of the trace file. */
+    public long getIntendedStartNanos() {
+      return intendedStartNanos;
+    }
+
+    /** Actual start, relative to the start of the trace file. */
+    public long getStartNanos() {
+      return startNanos;
+    }
+
+    public long getLatencyNanos() {
+      return latencyNanos;
+    }
+
+    public String getTable() {
+      return table;
+    }
+
+    public String getKey() {
+      return key;
+    }
+
+    public int getRecordcount() {
+      return recordcount;
+    }
+
+    /** The requested or written fields, or null if all fields were requested. */
+    public String[] getFields() {
+      return fields;
+    }
+
+    /** Written value length per field, -1 for fields that were only requested. */
+    public int[] getValueLengths() {
+      return valueLengths;
+    }
+
+    public long getValueBytes() {
+      return valueBytes;
+    }
+
+    public String getStatus() {
+      return status;
+    }
+
+    /** The edge table of a graph operation on a vertex and an edge table, otherwise null. */
+    public String getEdgeTable() {
+      return edgeTable;
+    }
+
+    /** The end key of a shortest path between two vertices, otherwise null. */
+    public String getEndKey() {
+      return endKey;
+    }
+
+    /** The query of an aggregate, or null for aggregates issued by key. */
+    public AggregateQuery getAggregateQuery() {
+      return aggregateQuery;
+    }
+
+    /** The query of a full-text search, or null for searches issued by key. */
+    public SearchQuery getSearchQuery() {
+      return searchQuery;
+    }
+
+    @Override
+    public String toString() {
+      return op + " " + table + " " + key + " " + (fields == null ? "*" : Arrays.toString(fields)) +
+          " " + valueBytes + "B " + status + " " + latencyNanos + "ns";
+    }
+  }
+
+  private static final Workload.Operation[] OPS = Workload.Operation.values();
+
+  private final DataInputStream in;
+  private final int index;
+  private final long createdMillis;
+  private final List<String> refs = new ArrayList<>();
+
+  public OpTraceReader(File file) throws IOException {
+    in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 65536));
+    if (in.readInt() != OpTraceWriter.MAGIC) {
+      in.close();
+      throw new IOException(file + " is not an operation trace");
+    }
+    short version = in.readShort();
+    if (version != OpTraceWriter.VERSION) {
+      in.close();
+      throw new IOException("Unsupported trace version " + version + " in " + file);
+    }
+    index = in.readInt();
+    createdMillis = in.readLong();
+  }
+
+  /**
+   * Lists the trace files of a directory, ordered by file index.
+   */
+  public static List<File> listTraceFiles(File dir) throws IOException {
+    File[] files = dir.listFiles();
+    if (files == null) {
+      throw new IOException("Unable to list trace directory " + dir);
+    }
+    List<File> traces = new ArrayList<>();
+    for (File f : files) {
+      if (f.getName().startsWith(OpTraceWriter.FILE_PREFIX) && f.getName().endsWith(OpTraceWriter.FILE_SUFFIX)) {
+        traces.add(f);
+      }
+    }
+    traces.sort((a, b) -> Integer.compare(fileIndex(a), fileIndex(b)));
+    return traces;
+  }
+
+  private static int fileIndex(File f) {
+    String name = f.getName();
+    return Integer.parseInt(name.substring(OpTraceWriter.FILE_PREFIX.length(),
+        name.length() - OpTraceWriter.FILE_SUFFIX.length()));
+  }
+
+  public int getIndex() {
+    return index;
+  }
+
+  public long getCreatedMillis() {
+    return createdMillis;
+  }
+
+  /**
+   * Read the next record.
+   *
+   * @return the record, or null at the end of the trace.
+   */
+  public Record next() throws IOException {
+    int op;
+    try {
+      op = in.readByte();
+    } catch (EOFException e) {
+      return null;
+    }
+    Record r = new Record();
+    r.op = OPS[op];
+    r.intendedStartNanos = in.readLong();
+    r.startNanos = in.readLong();
+    r.latencyNanos = in.readLong();
+    r.table = readRef();
+    r.key = in.readUTF();
+    r.recordcount = in.readInt();
+    int fieldcount = in.readInt();
+    if (fieldcount >= 0) {
+      r.fields = new String[fieldcount];
+      r.valueLengths = new int[fieldcount];
+      for (int i = 0; i < fieldcount; i++) {
+        r.fields[i] = readRef();
+        r.valueLengths[i] = in.readInt();
+      }
+    }
+    r.valueBytes = in.readLong();
+    r.status = readRef();
+    if (r.op == Workload.Operation.GRAPHTRAVERSAL || r.op == Workload.Operation.GRAPHSHORTESTPATH) {
+      String edgeTable = readRef();
+      String endKey = in.readUTF();
+      r.edgeTable = edgeTable.isEmpty() ? null : edgeTable;
+      r.endKey = endKey.isEmpty() ? null : endKey;
+    } else if (r.op == Workload.Operation.AGGREGATE && in.readByte() != 0) {
+      AggregateQuery.Function function = AggregateQuery.Function.valueOf(readRef());
+      String field = readName();
+      String groupField = readName();
+      String rangeField = readName();
+      long low = in.readLong();
+      r.aggregateQuery = new AggregateQuery(function, field, groupField, rangeField, low, in.readLong());
+    } else if (r.op == Workload.Operation.SEARCH && in.readByte() != 0) {
+      SearchQuery.Type type = SearchQuery.Type.valueOf(readRef());
+      String field = readRef();
+      int limit = in.readInt();
+      String[] terms = new String[in.readInt()];
+      for (int i = 0; i < terms.length; i++) {
+        terms[i] = in.readUTF();
+      }
+      r.searchQuery = new SearchQuery(type, field, Arrays.asList(terms), limit);
+    }
+    return r;
+  }
+
+  /**
+   * A name of a query, null if it was written empty.
+   */
+  private String readName() throws IOException {
+    String name = readRef();
+    return name.isEmpty() ? null : name;
+  }
+
+  private String readRef() throws IOException {
+    int id = in.readInt();
+    if (id == refs.size()) {
+      refs.add(in.readUTF());
+    }
+    return refs.get(id);
+  }
+
+  @Override
+  public void close() throws IOException {
+    in.close();
+  }
+}
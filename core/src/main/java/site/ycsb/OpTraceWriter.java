@@ -0,0 +1,308 @@
+/**
+ * Copyright (c) 2020 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Append-only, per-thread binary trace of every operation issued through a {@link DBWrapper}.
+ * <p>
+ * Each client thread owns one writer and therefore one file, so no synchronization is needed on
+ * the hot path. Table, field and status names are written once per file and then referenced by
+ * id. The file layout is:
+ * <pre>
+ * header: int MAGIC, short VERSION, int file index, long wall clock millis at creation
+ * record: byte op, long intended start ns, long start ns, long latency ns,
+ *         ref table, UTF key, int record count,
+ *         int field count (-1 for "all fields"), field count x (ref name, int value length),
+ *         long value bytes, ref status,
+ *         for graph operations only: ref edge table, UTF end key,
+ *         for aggregates only: byte 0, or byte 1 followed by the aggregate query,
+ *         for searches only: byte 0, or byte 1 followed by the search query
+ * aggregate query: ref function, ref field, ref group field, ref range field, long low, long high
+ * search query:    ref type, ref field, int limit, int term count, term count x UTF term
+ * ref:    int id, followed by a UTF string the first time the id appears
+ * </pre>
+ * Times are relative to the creation of the writer. Value lengths are -1 for fields that were
+ * only requested, not written. The edge table and end key of graph operations are empty for the
+ * single-table overloads, and the end key is empty for traversals. Aggregates and searches issued
+ * by key have no query. Missing fields of a query are written as empty names. See {@link OpTraceReader} for
+ * the matching reader.
+ */
+public class OpTraceWriter implements Closeable {
+  /**
+   * The name of the property holding the directory traces are written to. Capture is disabled
+   * when it is not set.
+   */
+  public static final String TRACE_DIR_PROPERTY = "optrace.dir";
+
+  /**
+   * The name of the property for the size of the per-thread write buffer in bytes.
+   */
+  public static final String TRACE_BUFFER_SIZE_PROPERTY = "optrace.buffersize";
+
+  /**
+   * The default size of the per-thread write buffer in bytes.
+   */
+  public static final String TRACE_BUFFER_SIZE_PROPERTY_DEFAULT = "65536";
+
+  static final int MAGIC = 0x59435354;
+  static final short VERSION = 4;
+  static final String FILE_PREFIX = "optrace-";
+  static final String FILE_SUFFIX = ".bin";
+
+  private static final AtomicInteger FILE_COUNTER = new AtomicInteger(0);
+
+  private final DataOutputStream out;
+  private final long baseNanos;
+  private final Map<String, Integer> refs = new HashMap<>();
+
+  // Field names and lengths captured before the call, as the binding consumes the iterators.
+  private String[] pendingNames = new String[16];
+  private int[] pendingLengths = new int[16];
+  private int pendingCount = -1;
+  private long pendingBytes;
+
+  /**
+   * Opens the next trace file in the directory named by {@link #TRACE_DIR_PROPERTY}.
+   *
+   * @return the writer, or null if tracing is not enabled.
+   */
+  public static OpTraceWriter fromProperties(Properties p) throws IOException {
+    String dir = p.getProperty(TRACE_DIR_PROPERTY);
+    if (dir == null) {
+      return null;
+    }
+    int bufferSize = Integer.parseInt(p.getProperty(TRACE_BUFFER_SIZE_PROPERTY,
+        TRACE_BUFFER_SIZE_PROPERTY_DEFAULT));
+    File directory = new File(dir);
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new IOException("Unable to create trace directory " + dir);
+    }
+    int index = FILE_COUNTER.getAndIncrement();
+    return new OpTraceWriter(new File(directory, fileName(index)), index, bufferSize);
+  }
+
+  static String fileName(int index) {
+    return FILE_PREFIX + index + FILE_SUFFIX;
+  }
+
+  public OpTraceWriter(File file, int index, int bufferSize) throws IOException {
+    out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), bufferSize));
+    baseNanos = System.nanoTime();
+    out.writeInt(MAGIC);
+    out.writeShort(VERSION);
+    out.writeInt(index);
+    out.writeLong(System.currentTimeMillis());
+  }
+
+  /**
+   * Remember the field names and value lengths of a write before the binding consumes them.
+   *
+   * @param values the values about to be written.
+   */
+  public void prepareValues(Map<String, ByteIterator> values) {
+    int size = values.size();
+    if (size > pendingNames.length) {
+      pendingNames = new String[size];
+      pendingLengths = new int[size];
+    }
+    pendingCount = 0;
+    pendingBytes = 0;
+    for (Map.Entry<String, ByteIterator> entry : values.entrySet()) {
+      int len = (int) entry.getValue().bytesLeft();
+      pendingNames[pendingCount] = entry.getKey();
+      pendingLengths[pendingCount] = len;
+      pendingBytes += len;
+      pendingCount++;
+    }
+  }
+
+  /**
+   * Forget the values of a write whose operation will not be traced, so that they are not
+   * attributed to the next one.
+   */
+  public void clearValues() {
+    for (int i = 0; i < pendingCount; i++) {
+      pendingNames[i] = null;
+    }
+    pendingCount = -1;
+  }
+
+  /**
+   * Append one operation to the trace.
+   *
+   * @param op the operation.
+   * @param intendedStartNanos the intended start time, or 0 if the run is not throttled.
+   * @param startNanos the actual start time.
+   * @param endNanos the completion time.
+   * @param table the table the operation was issued against.
+   * @param key the (start) key.
+   * @param recordcount the number of records requested by scan-like operations, 0 otherwise.
+   * @param fields the requested fields, or null for all. Ignored if values were prepared.
+   * @param valueBytes bytes returned by reads. Ignored if values were prepared.
+   * @param status the result of the operation.
+   */
+  public void write(Workload.Operation op, long intendedStartNanos, long startNanos, long endNanos,
+                    String table, String key, int recordcount, Collection<String> fields,
+                    long valueBytes, Status status) throws IOException {
+    write(op, intendedStartNanos, startNanos, endNanos, table, key, recordcount, fields, valueBytes, status,
+        null, null);
+  }
+
+  /**
+   * Append one operation to the trace, with the edge table and end key of graph operations on a
+   * vertex and an edge table.
+   *
+   * @param edgeTable the edge table of a graph operation, or null for the single-table overloads.
+   * @param endKey the end key of a shortest path between two vertices, or null.
+   * @see #write(Workload.Operation, long, long, long, String, String, int, Collection, long, Status)
+   */
+  public void write(Workload.Operation op, long intendedStartNanos, long startNanos, long endNanos,
+                    String table, String key, int recordcount, Collection<String> fields,
+                    long valueBytes, Status status, String edgeTable, String endKey) throws IOException {
+    write(op, intendedStartNanos, startNanos, endNanos, table, key, recordcount, fields, valueBytes, status,
+        edgeTable, endKey, null, null);
+  }
+
+  /**
+   * Append an aggregate query to the trace, so that it can be replayed as the same query.
+   *
+   * @param query the query of an {@link Workload.Operation#AGGREGATE} operation.
+   * @see #write(Workload.Operation, long, long, long, String, String, int, Collection, long, Status)
+   */
+  public void write(Workload.Operation op, long intendedStartNanos, long startNanos, long endNanos,
+                    String table, String key, int recordcount, Collection<String> fields,
+                    long valueBytes, Status status, AggregateQuery query) throws IOException {
+    write(op, intendedStartNanos, startNanos, endNanos, table, key, recordcount, fields, valueBytes, status,
+        null, null, query, null);
+  }
+
+  /**
+   * Append a full-text query to the trace, so that it can be replayed as the same query.
+   *
+   * @param query the query of a {@link Workload.Operation#SEARCH} operation.
+   * @see #write(Workload.Operation, long, long, long, String, String, int, Collection, long, Status)
+   */
+  public void write(Workload.Operation op, long intendedStartNanos, long startNanos, long endNanos,
+                    String table, String key, int recordcount, Collection<String> fields,
+                    long valueBytes, Status status, SearchQuery query) throws IOException {
+    write(op, intendedStartNanos, startNanos, endNanos, table, key, recordcount, fields, valueBytes, status,
+        null, null, null, query);
+  }
+
+  private void write(Workload.Operation op, long intendedStartNanos, long startNanos, long endNanos,
+                     String table, String key, int recordcount, Collection<String> fields,
+                     long valueBytes, Status status, String edgeTable, String endKey,
+                     AggregateQuery aggregate, SearchQuery search) throws IOException {
+    out.writeByte(op.ordinal());
+    out.writeLong((intendedStartNanos == 0 ? startNanos : intendedStartNanos) - baseNanos);
+    out.writeLong(startNanos - baseNanos);
+    out.writeLong(endNanos - startNanos);
+    writeRef(table);
+    out.writeUTF(key == null ? "" : key);
+    out.writeInt(recordcount);
+    if (pendingCount >= 0) {
+      try {
+        out.writeInt(pendingCount);
+        for (int i = 0; i < pendingCount; i++) {
+          writeRef(pendingNames[i]);
+          out.writeInt(pendingLengths[i]);
+        }
+        out.writeLong(pendingBytes);
+      } finally {
+        clearValues();
+      }
+    } else if (fields == null) {
+      out.writeInt(-1);
+      out.writeLong(valueBytes);
+    } else {
+      out.writeInt(fields.size());
+      for (String field : fields) {
+        writeRef(field);
+        out.writeInt(-1);
+      }
+      out.writeLong(valueBytes);
+    }
+    writeRef(status == null ? "null" : status.getName());
+    if (op == Workload.Operation.GRAPHTRAVERSAL || op == Workload.Operation.GRAPHSHORTESTPATH) {
+      writeRef(edgeTable == null ? "" : edgeTable);
+      out.writeUTF(endKey == null ? "" : endKey);
+    } else if (op == Workload.Operation.AGGREGATE) {
+      writeAggregate(aggregate);
+    } else if (op == Workload.Operation.SEARCH) {
+      writeSearch(search);
+    }
+  }
+
+  private void writeSearch(SearchQuery query) throws IOException {
+    if (query == null) {
+      out.writeByte(0);
+      return;
+    }
+    out.writeByte(1);
+    writeRef(query.getType().name());
+    writeRef(query.getField());
+    out.writeInt(query.getLimit());
+    out.writeInt(query.getTerms().size());
+    for (String term : query.getTerms()) {
+      out.writeUTF(term);
+    }
+  }
+
+  private void writeAggregate(AggregateQuery query) throws IOException {
+    if (query == null) {
+      out.writeByte(0);
+      return;
+    }
+    out.writeByte(1);
+    writeRef(query.getFunction().name());
+    writeRef(query.getField() == null ? "" : query.getField());
+    writeRef(query.isGrouped() ? query.getGroupField() : "");
+    writeRef(query.getRangeField() == null ? "" : query.getRangeField());
+    out.writeLong(query.getLow());
+    out.writeLong(query.getHigh());
+  }
+
+  private void writeRef(String name) throws IOException {
+    Integer id = refs.get(name);
+    if (id != null) {
+      out.writeInt(id);
+    } else {
+      id = refs.size();
+      refs.put(name, id);
+      out.writeInt(id);
+      out.writeUTF(name);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    out.close();
+  }
+}
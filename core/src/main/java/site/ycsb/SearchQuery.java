@@ -0,0 +1,88 @@
+/**
+ * Copyright (c) 2020 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A full-text query over a text field, returning up to a limit of the best matching records.
+ */
+public final class SearchQuery {
+  /**
+   * The kind of query, which decides how its terms match.
+   */
+  public enum Type {
+    /** Records containing the single term. */
+    TERM,
+    /** Records containing the terms next to each other, in order. */
+    PHRASE,
+    /** Records containing a word starting with the single term. */
+    PREFIX,
+    /** Records containing all of the terms. */
+    AND,
+    /** Records containing any of the terms. */
+    OR
+  }
+
+  private final Type type;
+  private final String field;
+  private final List<String> terms;
+  private final int limit;
+
+  /**
+   * @param type the kind of query.
+   * @param field the text field to search.
+   * @param terms the terms, or the prefix of a prefix query.
+   * @param limit the most records to return.
+   */
+  public SearchQuery(Type type, String field, List<String> terms, int limit) {
+    this.type = type;
+    this.field = field;
+    this.terms = Collections.unmodifiableList(terms);
+    this.limit = limit;
+  }
+
+  public Type getType() {
+    return type;
+  }
+
+  public String getField() {
+    return field;
+  }
+
+  public List<String> getTerms() {
+    return terms;
+  }
+
+  /**
+   * The terms separated by spaces.
+   */
+  public String getText() {
+    return String.join(" ", terms);
+  }
+
+  public int getLimit() {
+    return limit;
+  }
+
+  @Override
+  public String toString() {
+    return type + "(" + field + ": " + getText() + ") LIMIT " + limit;
+  }
+}
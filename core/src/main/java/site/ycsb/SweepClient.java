@@ -0,0 +1,327 @@
+/**
+ * Copyright (c) 2020 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb;
+
+import site.ycsb.measurements.Measurements;
+import site.ycsb.measurements.UniversalScalabilityLaw;
+import site.ycsb.measurements.exporter.MeasurementsExporter;
+import org.apache.htrace.core.TraceScope;
+import org.apache.htrace.core.Tracer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Runs the same workload once per point of a property matrix, in a single JVM, and fits the
+ * Universal Scalability Law to the throughput measured across thread counts.
+ * <p>
+ * Takes the same arguments as {@link Client}. Every property of the form
+ * <code>sweep.&lt;property&gt;=v1,v2,...</code> adds a dimension to the matrix, for example
+ * <code>-p sweep.threadcount=1,2,4,8,16 -p sweep.fieldlength=100,1000</code>. Each point creates
+ * a new workload and new DB instances, so bindings reconnect between points, and gets fresh
+ * measurements. The results of each point are exported under
+ * <code>&lt;point&gt;.OVERALL</code> and <code>&lt;point&gt;.&lt;operation&gt;</code>, where the
+ * point is named after its swept values, the thread count last, e.g.
+ * <code>[fieldlength=100,threadcount=4.READ]</code>.
+ * <p>
+ * When at least three thread counts are swept, the points sharing the other swept values are fitted
+ * to the Universal Scalability Law and the contention and coherency coefficients, the predicted
+ * peak concurrency and the predicted peak throughput are exported under <code>&lt;rest&gt;.USL</code>.
+ * <p>
+ * Additional properties:
+ * <UL>
+ * <LI><b>sweep.pause</b>: milliseconds to wait between two points (default: 0)
+ * </UL>
+ */
+public final class SweepClient {
+  /**
+   * The prefix of the swept properties.
+   */
+  public static final String SWEEP_PROPERTY_PREFIX = "sweep.";
+
+  /**
+   * The name of the property for the pause between two points.
+   */
+  public static final String SWEEP_PAUSE_PROPERTY = "sweep.pause";
+
+  /**
+   * The default value for the sweep.pause property.
+   */
+  public static final String SWEEP_PAUSE_PROPERTY_DEFAULT = "0";
+
+  private SweepClient() {
+    // not used
+  }
+
+  /**
+   * The measured result of one point of the matrix.
+   */
+  static final class Point {
+    private final Map<String, String> values;
+    private int threads;
+    private long runtime;
+    private long opsDone;
+
+    Point(Map<String, String> values) {
+      this.values = values;
+    }
+
+    String getName() {
+      return name(values, null);
+    }
+
+    double getThroughput() {
+      return runtime == 0 ? 0 : 1000.0 * opsDone / runtime;
+    }
+  }
+
+  public static void main(String[] args) {
+    Properties props = Client.parseArguments(args);
+    List<Map<String, String>> matrix = matrix(props);
+    long pause = Long.parseLong(props.getProperty(SWEEP_PAUSE_PROPERTY, SWEEP_PAUSE_PROPERTY_DEFAULT));
+
+    MeasurementsExporter exporter = null;
+    try {
+      exporter = Client.createExporter(props);
+      List<Point> points = new ArrayList<>(matrix.size());
+      for (Map<String, String> values : matrix) {
+        Point point = new Point(values);
+        System.err.println("Sweep point " + (points.size() + 1) + "/" + matrix.size() + ": " + point.getName());
+        run(props, point, exporter);
+        points.add(point);
+        if (pause > 0 && points.size() < matrix.size()) {
+          Thread.sleep(pause);
+        }
+      }
+      exportFits(points, exporter);
+    } catch (IOException e) {
+      System.err.println("Could not export measurements, error: " + e.getMessage());
+      e.printStackTrace();
+      System.exit(-1);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      if (exporter != null) {
+        try {
+          exporter.close();
+        } catch (IOException e) {
+          e.printStackTrace();
+        }
+      }
+    }
+    System.exit(0);
+  }
+
+  /**
+   * Expand the sweep.* properties into the list of points to run, thread count varying fastest.
+   */
+  static List<Map<String, String>> matrix(Properties props) {
+    Map<String, String[]> sorted = new TreeMap<>();
+    for (String key : props.stringPropertyNames()) {
+      if (key.startsWith(SWEEP_PROPERTY_PREFIX) && !key.equals(SWEEP_PAUSE_PROPERTY)) {
+        String[] values = props.getProperty(key).split(",");
+        for (int i = 0; i < values.length; i++) {
+          values[i] = values[i].trim();
+        }
+        sorted.put(key.substring(SWEEP_PROPERTY_PREFIX.length()), values);
+      }
+    }
+    // The last dimension varies fastest
+    String[] threads = sorted.remove(Client.THREAD_COUNT_PROPERTY);
+    Map<String, String[]> dimensions = new LinkedHashMap<>(sorted);
+    if (threads != null) {
+      dimensions.put(Client.THREAD_COUNT_PROPERTY, threads);
+    }
+
+    List<Map<String, String>> matrix = new ArrayList<>();
+    matrix.add(new LinkedHashMap<String, String>());
+    for (Map.Entry<String, String[]> dimension : dimensions.entrySet()) {
+      List<Map<String, String>> expanded = new ArrayList<>();
+      for (Map<String, String> partial : matrix) {
+        for (String value : dimension.getValue()) {
+          Map<String, String> point = new LinkedHashMap<>(partial);
+          point.put(dimension.getKey(), value);
+          expanded.add(point);
+        }
+      }
+      matrix = expanded;
+    }
+    return matrix;
+  }
+
+  private static String name(Map<String, String> values, String skip) {
+    StringBuilder sb = new StringBuilder();
+    for (Map.Entry<String, String> entry : values.entrySet()) {
+      if (entry.getKey().equals(skip)) {
+        continue;
+      }
+      if (sb.length() > 0) {
+        sb.append(',');
+      }
+      sb.append(entry.getKey()).append('=').append(entry.getValue());
+    }
+    return sb.toString();
+  }
+
+  private static void run(Properties props, Point point, MeasurementsExporter exporter) throws IOException {
+    Properties pointProps = new Properties();
+    pointProps.putAll(props);
+    for (Map.Entry<String, String> entry : point.values.entrySet()) {
+      pointProps.setProperty(entry.getKey(), entry.getValue());
+    }
+
+    Measurements.setProperties(pointProps);
+    Measurements.reset();
+
+    WorkloadGroup group = new WorkloadGroup("", pointProps);
+    Workload workload = Client.getWorkload(pointProps);
+    Tracer tracer = Client.getTracer(pointProps, workload);
+    Thread warningthread = Client.setupWarningThread();
+    warningthread.start();
+    Client.initWorkload(pointProps, warningthread, workload, tracer);
+
+    CountDownLatch completeLatch = new CountDownLatch(group.getThreadCount());
+    String dbname = pointProps.getProperty(Client.DB_PROPERTY, "site.ycsb.BasicDB");
+    List<ClientThread> clients = Client.initDb(dbname, pointProps, group.getThreadCount(),
+        group.getTargetPerThreadPerMs(), workload, tracer, completeLatch);
+    long maxExecutionTime = Integer.parseInt(pointProps.getProperty(Client.MAX_EXECUTION_TIME, "0"));
+
+    List<Thread> threads = new ArrayList<>(clients.size());
+    long st;
+    long en;
+    try (final TraceScope span = tracer.newScope("SweepClient#point")) {
+      for (ClientThread client : clients) {
+        threads.add(new Thread(tracer.wrap(client, "ClientThread")));
+      }
+      st = System.currentTimeMillis();
+      for (Thread t : threads) {
+        t.start();
+      }
+      Thread terminator = null;
+      if (maxExecutionTime > 0) {
+        terminator = new TerminatorThread(maxExecutionTime, threads, workload);
+        terminator.start();
+      }
+      for (Thread t : threads) {
+        try {
+          t.join();
+        } catch (InterruptedException ignored) {
+          // ignored
+        }
+      }
+      en = System.currentTimeMillis();
+      if (terminator != null && !terminator.isInterrupted()) {
+        terminator.interrupt();
+      }
+    }
+
+    try {
+      workload.cleanup();
+    } catch (WorkloadException e) {
+      e.printStackTrace();
+    }
+
+    point.threads = clients.size();
+    point.runtime = en - st;
+    for (ClientThread client : clients) {
+      point.opsDone += client.getOpsDone();
+    }
+
+    String prefix = point.getName().isEmpty() ? "" : point.getName() + ".";
+    exporter.write(prefix + "OVERALL", "Threads", point.threads);
+    exporter.write(prefix + "OVERALL", "RunTime(ms)", point.runtime);
+    exporter.write(prefix + "OVERALL", "Throughput(ops/sec)", point.getThroughput());
+    Measurements.getMeasurements().exportMeasurements(new PrefixingExporter(prefix, exporter));
+  }
+
+  private static void exportFits(List<Point> points, MeasurementsExporter exporter) throws IOException {
+    Map<String, List<Point>> series = new LinkedHashMap<>();
+    for (Point point : points) {
+      String rest = name(point.values, Client.THREAD_COUNT_PROPERTY);
+      List<Point> list = series.get(rest);
+      if (list == null) {
+        list = new ArrayList<>();
+        series.put(rest, list);
+      }
+      list.add(point);
+    }
+
+    for (Map.Entry<String, List<Point>> entry : series.entrySet()) {
+      List<Point> list = entry.getValue();
+      double[] n = new double[list.size()];
+      double[] x = new double[list.size()];
+      for (int i = 0; i < n.length; i++) {
+        n[i] = list.get(i).threads;
+        x[i] = list.get(i).getThroughput();
+      }
+      UniversalScalabilityLaw usl = UniversalScalabilityLaw.fit(n, x);
+      if (usl == null) {
+        continue;
+      }
+      String metric = entry.getKey().isEmpty() ? "USL" : entry.getKey() + ".USL";
+      exporter.write(metric, "Lambda(ops/sec)", usl.getLambda());
+      exporter.write(metric, "Sigma", usl.getSigma());
+      exporter.write(metric, "Kappa", usl.getKappa());
+      exporter.write(metric, "RSquared", usl.getRSquared());
+      double peak = usl.getPeakConcurrency();
+      if (peak > 0) {
+        exporter.write(metric, "PeakConcurrency", peak);
+        exporter.write(metric, "PeakThroughput(ops/sec)", usl.throughput(peak));
+      }
+    }
+  }
+
+  /**
+   * Forwards to another exporter, prefixing every metric name.
+   */
+  private static final class PrefixingExporter implements MeasurementsExporter {
+    private final String prefix;
+    private final MeasurementsExporter delegate;
+
+    private PrefixingExporter(String prefix, MeasurementsExporter delegate) {
+      this.prefix = prefix;
+      this.delegate = delegate;
+    }
+
+    @Override
+    public void write(String metric, String measurement, int i) throws IOException {
+      delegate.write(prefix + metric, measurement, i);
+    }
+
+    @Override
+    public void write(String metric, String measurement, long i) throws IOException {
+      delegate.write(prefix + metric, measurement, i);
+    }
+
+    @Override
+    public void write(String metric, String measurement, double d) throws IOException {
+      delegate.write(prefix + metric, measurement, d);
+    }
+
+    @Override
+    public void close() {
+      // the delegate is closed once all points are exported
+    }
+  }
+}
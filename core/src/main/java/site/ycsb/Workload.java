@@ -49,7 +49,14 @@ public abstract class Workload {
     UPDATE,
     INSERT,
     SCAN,
-    DELETE
+    DELETE,
+    ARRAYSCAN,
+    SEARCH,
+    GRAPHTRAVERSAL,
+    GRAPHSHORTESTPATH,
+    JOIN,
+    GROUP,
+    AGGREGATE
   }
   
   /**
@@ -0,0 +1,163 @@
+/**
+ * Copyright (c) 2020 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb;
+
+import site.ycsb.measurements.Measurements;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * A workload together with the client threads that drive it.
+ * <p>
+ * A run normally has a single, unnamed group configured by the top level properties. Setting
+ * <b>workloadgroups</b> to a comma separated list of names instead runs one group per name,
+ * concurrently. Each group starts from a copy of the top level properties, overridden by every
+ * property of the form <code>workloadgroup.&lt;name&gt;.&lt;property&gt;</code>, so each group can
+ * have its own <code>workload</code>, <code>threadcount</code>, <code>target</code>,
+ * <code>table</code>, <code>operationcount</code>, <code>db</code> and so on. Measurements of a
+ * named group are recorded under the group name as their
+ * {@link Measurements#MEASUREMENT_NAMESPACE_PROPERTY namespace}, e.g. <code>[kv.READ]</code>.
+ */
+public final class WorkloadGroup {
+  /**
+   * The name of the property listing the workload groups to run.
+   */
+  public static final String WORKLOAD_GROUPS_PROPERTY = "workloadgroups";
+
+  /**
+   * The prefix of the per-group property overrides.
+   */
+  public static final String GROUP_PROPERTY_PREFIX = "workloadgroup.";
+
+  private final String name;
+  private final Properties props;
+  private Workload workload;
+  private List<ClientThread> clients = Collections.emptyList();
+
+  WorkloadGroup(String name, Properties props) {
+    this.name = name;
+    this.props = props;
+  }
+
+  /**
+   * Build the groups declared by the given properties.
+   *
+   * @return the declared groups, or a single unnamed group using the given properties as is.
+   */
+  public static List<WorkloadGroup> fromProperties(Properties props) {
+    String declared = props.getProperty(WORKLOAD_GROUPS_PROPERTY);
+    if (declared == null || declared.trim().isEmpty()) {
+      return Collections.singletonList(new WorkloadGroup("", props));
+    }
+    List<WorkloadGroup> groups = new ArrayList<>();
+    for (String name : declared.split(",")) {
+      name = name.trim();
+      if (name.isEmpty()) {
+        continue;
+      }
+      Properties groupProps = new Properties();
+      String prefix = GROUP_PROPERTY_PREFIX + name + ".";
+      for (String key : props.stringPropertyNames()) {
+        if (!key.startsWith(GROUP_PROPERTY_PREFIX)) {
+          groupProps.setProperty(key, props.getProperty(key));
+        }
+      }
+      groupProps.setProperty(Measurements.MEASUREMENT_NAMESPACE_PROPERTY, name);
+      for (String key : props.stringPropertyNames()) {
+        if (key.startsWith(prefix)) {
+          groupProps.setProperty(key.substring(prefix.length()), props.getProperty(key));
+        }
+      }
+      groups.add(new WorkloadGroup(name, groupProps));
+    }
+    if (groups.isEmpty()) {
+      throw new IllegalArgumentException("No workload group declared in " + WORKLOAD_GROUPS_PROPERTY);
+    }
+    return groups;
+  }
+
+  /**
+   * The group name, empty for the single default group.
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * The properties of this group, with the group overrides applied.
+   */
+  public Properties getProperties() {
+    return props;
+  }
+
+  public int getThreadCount() {
+    return Integer.parseInt(props.getProperty(Client.THREAD_COUNT_PROPERTY, "1"));
+  }
+
+  /**
+   * The target number of operations per thread per millisecond, or -1 if unthrottled.
+   */
+  public double getTargetPerThreadPerMs() {
+    int target = Integer.parseInt(props.getProperty(Client.TARGET_PROPERTY, "0"));
+    if (target <= 0) {
+      return -1;
+    }
+    return ((double) target) / ((double) getThreadCount()) / 1000.0;
+  }
+
+  public Workload getWorkload() {
+    return workload;
+  }
+
+  void setWorkload(Workload workload) {
+    this.workload = workload;
+  }
+
+  public List<ClientThread> getClients() {
+    return clients;
+  }
+
+  void setClients(List<ClientThread> clients) {
+    this.clients = clients;
+  }
+
+  /**
+   * The number of operations completed by the threads of this group.
+   */
+  public long getOpsDone() {
+    long ops = 0;
+    for (ClientThread client : clients) {
+      ops += client.getOpsDone();
+    }
+    return ops;
+  }
+
+  /**
+   * The time the last thread of this group finished, in milliseconds since the epoch.
+   */
+  public long getFinishTimeMillis() {
+    long finish = 0;
+    for (ClientThread client : clients) {
+      finish = Math.max(finish, client.getFinishTimeMillis());
+    }
+    return finish;
+  }
+}
@@ -0,0 +1,116 @@
+/**
+ * Copyright (c) 2020 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.generator;
+
+import site.ycsb.ByteArrayByteIterator;
+import site.ycsb.ByteIterator;
+
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Generates values with a target compression ratio and literal entropy, by slicing a pool that is
+ * generated once up front.
+ * <p>
+ * The pool is a sequence of units. Each unit starts with a run of literal bytes, drawn uniformly
+ * from an alphabet of 2^entropy symbols, followed by a repetition of that run long enough that
+ * literals make up 1/ratio of the unit. LZ style compressors (snappy, lz4, zlib, zstd) encode the
+ * repetition as a back reference, so any slice spanning a few units compresses by about the
+ * target ratio, and entropy coders bound the literals to about entropy bits per byte. With a
+ * dictionary, literal runs are picked from a fixed set of runs rather than generated afresh,
+ * adding redundancy across values that block and dictionary compression can exploit.
+ * <p>
+ * Values share the immutable pool and are handed out without copying, so generating them costs
+ * about as much as generating a random offset.
+ */
+public class CompressibleValueGenerator {
+  private final byte[] pool;
+
+  /**
+   * Create a new generator.
+   *
+   * @param ratio the target compression ratio, uncompressed over compressed size, at least 1.
+   * @param entropy the number of random bits in each literal byte, from 1 to 8.
+   * @param unitLength the length of a literal run plus its repetition; values should be a few times
+   *                   longer to reach the target ratio.
+   * @param dictionarySize the number of distinct literal runs, or 0 for fresh runs in every unit.
+   * @param poolSize the size of the pool values are sliced from.
+   * @param seed the seed of the pool contents.
+   */
+  public CompressibleValueGenerator(double ratio, int entropy, int unitLength, int dictionarySize,
+                                    int poolSize, long seed) {
+    if (ratio < 1) {
+      throw new IllegalArgumentException("Compression ratio must be at least 1, got " + ratio);
+    }
+    if (entropy < 1 || entropy > 8) {
+      throw new IllegalArgumentException("Entropy must be between 1 and 8 bits, got " + entropy);
+    }
+    if (unitLength < 1 || poolSize < unitLength) {
+      throw new IllegalArgumentException("Invalid unit length " + unitLength + " for pool size " + poolSize);
+    }
+    Random random = new Random(seed);
+    int literals = Math.max(1, (int) Math.round(unitLength / ratio));
+
+    byte[][] dictionary = new byte[dictionarySize][];
+    for (int i = 0; i < dictionarySize; i++) {
+      dictionary[i] = new byte[literals];
+      fillLiterals(random, entropy, dictionary[i], 0, literals);
+    }
+
+    pool = new byte[poolSize];
+    for (int off = 0; off < poolSize; off += unitLength) {
+      int end = Math.min(poolSize, off + unitLength);
+      int run = Math.min(literals, end - off);
+      if (dictionarySize > 0) {
+        System.arraycopy(dictionary[random.nextInt(dictionarySize)], 0, pool, off, run);
+      } else {
+        fillLiterals(random, entropy, pool, off, run);
+      }
+      for (int i = off + run; i < end; i++) {
+        pool[i] = pool[i - run];
+      }
+    }
+  }
+
+  /**
+   * Literals are printable ASCII, like {@link site.ycsb.RandomByteIterator}, as long as the
+   * alphabet fits.
+   */
+  private static void fillLiterals(Random random, int entropy, byte[] buf, int off, int len) {
+    int mask = (1 << entropy) - 1;
+    int base = entropy <= 6 ? ' ' : 0;
+    for (int i = off; i < off + len; i++) {
+      buf[i] = (byte) ((random.nextInt() & mask) + base);
+    }
+  }
+
+  /**
+   * Return a value of the given length.
+   */
+  public ByteIterator nextValue(int length) {
+    if (length <= pool.length) {
+      int off = ThreadLocalRandom.current().nextInt(pool.length - length + 1);
+      return new ByteArrayByteIterator(pool, off, length);
+    }
+    byte[] value = new byte[length];
+    for (int off = 0; off < length; off += pool.length) {
+      System.arraycopy(pool, 0, value, off, Math.min(pool.length, length - off));
+    }
+    return new ByteArrayByteIterator(value);
+  }
+}
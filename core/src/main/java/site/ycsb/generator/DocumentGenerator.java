@@ -0,0 +1,207 @@
+/**
+ * Copyright (c) 2020 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.generator;
+
+import site.ycsb.DocumentByteIterator;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Generates nested documents that all follow one schema, like the records of a real collection.
+ * <p>
+ * The schema is drawn once, when the generator is created: every object gets the configured number
+ * of fields, each of a type chosen by the configured proportions among string, number, boolean,
+ * object and array. Objects and arrays are only chosen above the maximum depth. Field names start
+ * with a letter giving their type, e.g. <code>s0</code>, <code>n1</code>, <code>o2.b0</code>,
+ * <code>a3</code>. Each document then fills the schema with fresh values: strings of the
+ * configured length sliced from a pre-generated pool, uniform longs or doubles, and arrays of up to
+ * the configured length.
+ */
+public class DocumentGenerator extends Generator<Map<String, Object>> {
+  private static final int POOL_SIZE = 1 << 16;
+
+  /**
+   * The node types of a schema.
+   */
+  private enum Type {
+    STRING, LONG, DOUBLE, BOOLEAN, OBJECT, ARRAY
+  }
+
+  /**
+   * A node of the schema: a field type, its fields for objects or its element for arrays.
+   */
+  private static final class Node {
+    private final Type type;
+    private String[] names;
+    private Node[] children;
+    private Node element;
+
+    private Node(Type type) {
+      this.type = type;
+    }
+  }
+
+  private final Node root;
+  private final int arrayLength;
+  private final int stringLength;
+  private final String pool;
+  private Map<String, Object> last;
+
+  /**
+   * Create a new generator.
+   *
+   * @param depth the maximum nesting depth of objects and arrays, 1 for flat documents.
+   * @param fieldCount the number of fields of every object.
+   * @param arrayLength the maximum number of elements of arrays.
+   * @param stringLength the length of strings.
+   * @param proportions the relative proportions of string, number, boolean, object and array fields.
+   * @param seed the seed of the schema.
+   */
+  public DocumentGenerator(int depth, int fieldCount, int arrayLength, int stringLength,
+                           double[] proportions, long seed) {
+    if (depth < 1 || fieldCount < 1 || arrayLength < 0 || stringLength < 0) {
+      throw new IllegalArgumentException("Invalid document shape");
+    }
+    if (proportions.length != 5) {
+      throw new IllegalArgumentException("Expected 5 type proportions, got " + proportions.length);
+    }
+    this.arrayLength = arrayLength;
+    this.stringLength = stringLength;
+    Random random = new Random(seed);
+    root = object(random, depth, fieldCount, proportions);
+
+    char[] chars = new char[Math.max(POOL_SIZE, 2 * stringLength)];
+    for (int i = 0; i < chars.length; i++) {
+      chars[i] = (char) ('a' + random.nextInt(26));
+    }
+    pool = new String(chars);
+  }
+
+  private static Node object(Random random, int depth, int fieldCount, double[] proportions) {
+    Node node = new Node(Type.OBJECT);
+    node.names = new String[fieldCount];
+    node.children = new Node[fieldCount];
+    for (int i = 0; i < fieldCount; i++) {
+      Node child = field(random, depth, fieldCount, proportions);
+      node.children[i] = child;
+      node.names[i] = Character.toString(prefix(child.type)) + i;
+    }
+    return node;
+  }
+
+  private static Node field(Random random, int depth, int fieldCount, double[] proportions) {
+    // Objects and arrays take the next depth level, so leave them out at the last one.
+    int choices = depth > 1 ? 5 : 3;
+    double sum = 0;
+    for (int i = 0; i < choices; i++) {
+      sum += proportions[i];
+    }
+    if (sum <= 0) {
+      return new Node(Type.STRING);
+    }
+    double val = random.nextDouble() * sum;
+    int choice = 0;
+    while (choice < choices - 1 && val >= proportions[choice]) {
+      val -= proportions[choice];
+      choice++;
+    }
+    switch (choice) {
+    case 0:
+      return new Node(Type.STRING);
+    case 1:
+      return new Node(random.nextBoolean() ? Type.LONG : Type.DOUBLE);
+    case 2:
+      return new Node(Type.BOOLEAN);
+    case 3:
+      return object(random, depth - 1, fieldCount, proportions);
+    default:
+      Node array = new Node(Type.ARRAY);
+      // Arrays hold scalars, or objects if there is room for another level below them.
+      array.element = depth > 2 && random.nextBoolean() ?
+          object(random, depth - 2, fieldCount, proportions) : field(random, 1, fieldCount, proportions);
+      return array;
+    }
+  }
+
+  private static char prefix(Type type) {
+    switch (type) {
+    case STRING:
+      return 's';
+    case LONG:
+    case DOUBLE:
+      return 'n';
+    case BOOLEAN:
+      return 'b';
+    case OBJECT:
+      return 'o';
+    default:
+      return 'a';
+    }
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public Map<String, Object> nextValue() {
+    last = (Map<String, Object>) generate(root, ThreadLocalRandom.current());
+    return last;
+  }
+
+  /**
+   * Return the next document, wrapped for use as a field value.
+   */
+  public DocumentByteIterator nextDocument() {
+    return new DocumentByteIterator(nextValue());
+  }
+
+  @Override
+  public Map<String, Object> lastValue() {
+    return last;
+  }
+
+  private Object generate(Node node, ThreadLocalRandom random) {
+    switch (node.type) {
+    case STRING:
+      int off = random.nextInt(pool.length() - stringLength + 1);
+      return pool.substring(off, off + stringLength);
+    case LONG:
+      return random.nextLong();
+    case DOUBLE:
+      return random.nextDouble();
+    case BOOLEAN:
+      return random.nextBoolean();
+    case OBJECT:
+      Map<String, Object> object = new LinkedHashMap<>(node.names.length * 2);
+      for (int i = 0; i < node.names.length; i++) {
+        object.put(node.names[i], generate(node.children[i], random));
+      }
+      return object;
+    default:
+      int length = random.nextInt(arrayLength + 1);
+      List<Object> array = new ArrayList<>(length);
+      for (int i = 0; i < length; i++) {
+        array.add(generate(node.element, random));
+      }
+      return array;
+    }
+  }
+}
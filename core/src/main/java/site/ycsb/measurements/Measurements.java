@@ -54,6 +54,12 @@ public class Measurements {
   public static final String MEASUREMENT_TRACK_JVM_PROPERTY = "measurement.trackjvm";
   public static final String MEASUREMENT_TRACK_JVM_PROPERTY_DEFAULT = "false";
 
+  /**
+   * Optional namespace prepended (followed by a '.') to the operation names recorded by a DB
+   * wrapper and workload, so several workloads can share one report.
+   */
+  public static final String MEASUREMENT_NAMESPACE_PROPERTY = "measurement.namespace";
+
   private static Measurements singleton = null;
   private static Properties measurementproperties = null;
 
@@ -61,6 +67,23 @@ public class Measurements {
     measurementproperties = props;
   }
 
+  /**
+   * Return the prefix to prepend to operation names for the namespace configured in the given
+   * properties, or the empty string if there is none.
+   */
+  public static String namespacePrefix(Properties props) {
+    String namespace = props.getProperty(MEASUREMENT_NAMESPACE_PROPERTY, "");
+    return namespace.isEmpty() ? "" : namespace + ".";
+  }
+
+  /**
+   * Discard the singleton Measurements object, so that the next call to {@link #getMeasurements()}
+   * starts afresh with the current properties.
+   */
+  public static synchronized void reset() {
+    singleton = null;
+  }
+
   /**
    * Return the singleton Measurements object.
    */
@@ -247,9 +270,13 @@ public class Measurements {
   }
 
   /**
-   * Report a return code for a single DB operation.
+   * Report a return code for a single DB operation. {@link Status#PENDING} is not reported: the
+   * binding reports the final status when the operation completes.
    */
   public void reportStatus(final String operation, final Status status) {
+    if (status == Status.PENDING) {
+      return;
+    }
     OneMeasurement m = measurementInterval == 1 ?
         getOpIntendedMeasurement(operation) :
         getOpMeasurement(operation);
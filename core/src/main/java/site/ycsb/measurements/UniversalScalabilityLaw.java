@@ -0,0 +1,195 @@
+/**
+ * Copyright (c) 2020 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.measurements;
+
+/**
+ * A fit of Gunther's Universal Scalability Law,
+ * <pre>
+ *   X(N) = lambda * N / (1 + sigma * (N - 1) + kappa * N * (N - 1))
+ * </pre>
+ * to throughput X measured at concurrency N. Sigma is the contention (serialization) coefficient
+ * and kappa the coherency (crosstalk) coefficient.
+ * <p>
+ * The model is fitted by linear least squares on its rearranged form
+ * <code>N / X = a + b * (N - 1) + c * N * (N - 1)</code>, with lambda = 1/a, sigma = b/a and
+ * kappa = c/a, so no measurement at N = 1 is needed.
+ */
+public final class UniversalScalabilityLaw {
+  private final double lambda;
+  private final double sigma;
+  private final double kappa;
+  private final double rSquared;
+
+  private UniversalScalabilityLaw(double lambda, double sigma, double kappa, double[] n, double[] x) {
+    this.lambda = lambda;
+    this.sigma = sigma;
+    this.kappa = kappa;
+
+    double mean = 0;
+    for (double v : x) {
+      mean += v;
+    }
+    mean /= x.length;
+    double ssRes = 0;
+    double ssTot = 0;
+    for (int i = 0; i < n.length; i++) {
+      double r = x[i] - throughput(n[i]);
+      ssRes += r * r;
+      ssTot += (x[i] - mean) * (x[i] - mean);
+    }
+    this.rSquared = ssTot == 0 ? 1.0 : 1.0 - ssRes / ssTot;
+  }
+
+  /**
+   * Fit the model to the given measurements.
+   *
+   * @param n the concurrency of each measurement.
+   * @param x the throughput of each measurement.
+   * @return the fitted model, or null if there are fewer than three distinct concurrency levels or
+   *         the measurements do not describe a scalable system.
+   */
+  public static UniversalScalabilityLaw fit(double[] n, double[] x) {
+    if (n.length != x.length) {
+      throw new IllegalArgumentException("Concurrency and throughput counts differ");
+    }
+    if (distinct(n) < 3) {
+      return null;
+    }
+
+    // Normal equations of the least squares fit of y = a + b * u + c * v.
+    double[][] m = new double[3][4];
+    for (int i = 0; i < n.length; i++) {
+      if (x[i] <= 0) {
+        continue;
+      }
+      double[] row = {1, n[i] - 1, n[i] * (n[i] - 1)};
+      double y = n[i] / x[i];
+      for (int j = 0; j < 3; j++) {
+        for (int k = 0; k < 3; k++) {
+          m[j][k] += row[j] * row[k];
+        }
+        m[j][3] += row[j] * y;
+      }
+    }
+    double[] coef = solve(m);
+    if (coef == null || coef[0] <= 0) {
+      return null;
+    }
+    return new UniversalScalabilityLaw(1.0 / coef[0], coef[1] / coef[0], coef[2] / coef[0], n, x);
+  }
+
+  private static int distinct(double[] values) {
+    int count = 0;
+    for (int i = 0; i < values.length; i++) {
+      boolean seen = false;
+      for (int j = 0; j < i && !seen; j++) {
+        seen = values[j] == values[i];
+      }
+      if (!seen) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Gaussian elimination with partial pivoting of an augmented 3x4 matrix.
+   */
+  private static double[] solve(double[][] m) {
+    int size = m.length;
+    for (int col = 0; col < size; col++) {
+      int pivot = col;
+      for (int row = col + 1; row < size; row++) {
+        if (Math.abs(m[row][col]) > Math.abs(m[pivot][col])) {
+          pivot = row;
+        }
+      }
+      if (Math.abs(m[pivot][col]) < 1e-300) {
+        return null;
+      }
+      double[] tmp = m[col];
+      m[col] = m[pivot];
+      m[pivot] = tmp;
+      for (int row = col + 1; row < size; row++) {
+        double f = m[row][col] / m[col][col];
+        for (int k = col; k <= size; k++) {
+          m[row][k] -= f * m[col][k];
+        }
+      }
+    }
+    double[] result = new double[size];
+    for (int row = size - 1; row >= 0; row--) {
+      double sum = m[row][size];
+      for (int k = row + 1; k < size; k++) {
+        sum -= m[row][k] * result[k];
+      }
+      result[row] = sum / m[row][row];
+    }
+    return result;
+  }
+
+  /**
+   * The throughput of a single client, in the unit of the fitted throughput.
+   */
+  public double getLambda() {
+    return lambda;
+  }
+
+  /**
+   * The contention coefficient.
+   */
+  public double getSigma() {
+    return sigma;
+  }
+
+  /**
+   * The coherency coefficient.
+   */
+  public double getKappa() {
+    return kappa;
+  }
+
+  /**
+   * The coefficient of determination of the fit, on the throughput scale.
+   */
+  public double getRSquared() {
+    return rSquared;
+  }
+
+  /**
+   * The predicted throughput at the given concurrency.
+   */
+  public double throughput(double n) {
+    return lambda * n / (1 + sigma * (n - 1) + kappa * n * (n - 1));
+  }
+
+  /**
+   * The concurrency at which the predicted throughput peaks, or -1 if it keeps growing.
+   */
+  public double getPeakConcurrency() {
+    if (kappa <= 0 || sigma >= 1) {
+      return -1;
+    }
+    return Math.sqrt((1 - sigma) / kappa);
+  }
+
+  @Override
+  public String toString() {
+    return "USL(lambda=" + lambda + ", sigma=" + sigma + ", kappa=" + kappa + ")";
+  }
+}
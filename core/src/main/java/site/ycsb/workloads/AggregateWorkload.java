@@ -0,0 +1,249 @@
+/**
+ * Copyright (c) 2020 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.workloads;
+
+import site.ycsb.AggregateQuery;
+import site.ycsb.ByteIterator;
+import site.ycsb.Client;
+import site.ycsb.DB;
+import site.ycsb.NumericByteIterator;
+import site.ycsb.RandomByteIterator;
+import site.ycsb.Status;
+import site.ycsb.StringByteIterator;
+import site.ycsb.Workload;
+import site.ycsb.WorkloadException;
+import site.ycsb.generator.CounterGenerator;
+import site.ycsb.generator.DiscreteGenerator;
+import site.ycsb.generator.NumberGenerator;
+import site.ycsb.generator.UniformLongGenerator;
+import site.ycsb.generator.ZipfianGenerator;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Vector;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Loads records with a group, a numeric value and a numeric sequence, and runs analytical queries
+ * over ranges of the sequence: counts, sums, averages, minimums and maximums of the value, over
+ * the whole range or per group. Each query shape is measured on its own, e.g.
+ * <code>AGGREGATE-SUM</code> or <code>AGGREGATE-GROUP-AVG</code>, see {@link AggregateQuery}.
+ * <p>
+ * The workload decides the number of distinct groups and how records spread over them, so the
+ * size of group-by results and the imbalance between groups are under control. The range of each
+ * query covers a fixed share of the records, which sets the amount of data it aggregates.
+ * <p>
+ * Properties to control the workload:
+ * <UL>
+ * <LI><b>aggregate.groupfield</b>: the group field (default: category)
+ * <LI><b>aggregate.valuefield</b>: the numeric field to aggregate (default: amount)
+ * <LI><b>aggregate.rangefield</b>: the numeric field queries filter on, which holds the insertion
+ * sequence of the record (default: seq)
+ * <LI><b>aggregate.groupcardinality</b>: the number of distinct groups (default: 100)
+ * <LI><b>aggregate.groupdistribution</b>: "uniform" or "zipfian" spread of records over groups
+ * (default: zipfian)
+ * <LI><b>aggregate.zipfianconstant</b>: the skew of the zipfian spread (default: 0.99)
+ * <LI><b>aggregate.maxvalue</b>: values are drawn uniformly from 0 to this value, exclusive
+ * (default: 1000)
+ * <LI><b>aggregate.rangeselectivity</b>: the share of the records the range of a query covers
+ * (default: 0.1)
+ * <LI><b>aggregate.queries</b>: the comma separated query shapes to pick from uniformly, each a
+ * function among count, sum, avg, min and max, prefixed with "group-" to group by the group field
+ * (default: count,sum,avg,min,max,group-count,group-sum,group-avg)
+ * <LI><b>aggregate.queryproportion</b> and <b>aggregate.updateproportion</b>: the operation mix;
+ * updates give a record a new group and value (default: 0.95 and 0.05)
+ * <LI><b>fieldcount</b> and <b>fieldlength</b>: the random fields of records (default: 10 and 100)
+ * </UL>
+ */
+public class AggregateWorkload extends Workload {
+  /** Name and default value for the group field property. */
+  public static final String GROUP_FIELD_PROPERTY = "aggregate.groupfield";
+  public static final String GROUP_FIELD_PROPERTY_DEFAULT = "category";
+
+  /** Name and default value for the value field property. */
+  public static final String VALUE_FIELD_PROPERTY = "aggregate.valuefield";
+  public static final String VALUE_FIELD_PROPERTY_DEFAULT = "amount";
+
+  /** Name and default value for the range field property. */
+  public static final String RANGE_FIELD_PROPERTY = "aggregate.rangefield";
+  public static final String RANGE_FIELD_PROPERTY_DEFAULT = "seq";
+
+  /** Name and default value for the group cardinality property. */
+  public static final String GROUP_CARDINALITY_PROPERTY = "aggregate.groupcardinality";
+  public static final String GROUP_CARDINALITY_PROPERTY_DEFAULT = "100";
+
+  /** Name and default value for the group distribution property. */
+  public static final String GROUP_DISTRIBUTION_PROPERTY = "aggregate.groupdistribution";
+  public static final String GROUP_DISTRIBUTION_PROPERTY_DEFAULT = "zipfian";
+
+  /** Name and default value for the zipfian constant of the group distribution property. */
+  public static final String ZIPFIAN_CONSTANT_PROPERTY = "aggregate.zipfianconstant";
+  public static final String ZIPFIAN_CONSTANT_PROPERTY_DEFAULT = "0.99";
+
+  /** Name and default value for the largest value property. */
+  public static final String MAX_VALUE_PROPERTY = "aggregate.maxvalue";
+  public static final String MAX_VALUE_PROPERTY_DEFAULT = "1000";
+
+  /** Name and default value for the range selectivity property. */
+  public static final String RANGE_SELECTIVITY_PROPERTY = "aggregate.rangeselectivity";
+  public static final String RANGE_SELECTIVITY_PROPERTY_DEFAULT = "0.1";
+
+  /** Name and default value for the query shapes property. */
+  public static final String QUERIES_PROPERTY = "aggregate.queries";
+  public static final String QUERIES_PROPERTY_DEFAULT = "count,sum,avg,min,max,group-count,group-sum,group-avg";
+
+  /** Name and default value for the query proportion property. */
+  public static final String QUERY_PROPORTION_PROPERTY = "aggregate.queryproportion";
+  public static final String QUERY_PROPORTION_PROPERTY_DEFAULT = "0.95";
+
+  /** Name and default value for the update proportion property. */
+  public static final String UPDATE_PROPORTION_PROPERTY = "aggregate.updateproportion";
+  public static final String UPDATE_PROPORTION_PROPERTY_DEFAULT = "0.05";
+
+  private String table;
+  private String groupField;
+  private String valueField;
+  private String rangeField;
+  private long recordCount;
+  private long maxValue;
+  private long rangeWidth;
+  private int fieldCount;
+  private int fieldLength;
+  private List<AggregateQuery.Function> functions;
+  private List<Boolean> grouped;
+  private NumberGenerator groupchooser;
+  private NumberGenerator keysequence;
+  private NumberGenerator keychooser;
+  private DiscreteGenerator operationchooser;
+
+  @Override
+  public void init(Properties p) throws WorkloadException {
+    table = p.getProperty(CoreWorkload.TABLENAME_PROPERTY, CoreWorkload.TABLENAME_PROPERTY_DEFAULT);
+    groupField = p.getProperty(GROUP_FIELD_PROPERTY, GROUP_FIELD_PROPERTY_DEFAULT);
+    valueField = p.getProperty(VALUE_FIELD_PROPERTY, VALUE_FIELD_PROPERTY_DEFAULT);
+    rangeField = p.getProperty(RANGE_FIELD_PROPERTY, RANGE_FIELD_PROPERTY_DEFAULT);
+    recordCount = Long.parseLong(p.getProperty(Client.RECORD_COUNT_PROPERTY, Client.DEFAULT_RECORD_COUNT));
+    maxValue = Long.parseLong(p.getProperty(MAX_VALUE_PROPERTY, MAX_VALUE_PROPERTY_DEFAULT));
+    double selectivity = Double.parseDouble(p.getProperty(RANGE_SELECTIVITY_PROPERTY,
+        RANGE_SELECTIVITY_PROPERTY_DEFAULT));
+    fieldCount = Integer.parseInt(p.getProperty(CoreWorkload.FIELD_COUNT_PROPERTY,
+        CoreWorkload.FIELD_COUNT_PROPERTY_DEFAULT));
+    fieldLength = Integer.parseInt(p.getProperty(CoreWorkload.FIELD_LENGTH_PROPERTY,
+        CoreWorkload.FIELD_LENGTH_PROPERTY_DEFAULT));
+    int cardinality = Integer.parseInt(p.getProperty(GROUP_CARDINALITY_PROPERTY, GROUP_CARDINALITY_PROPERTY_DEFAULT));
+
+    if (recordCount < 1 || maxValue < 1 || cardinality < 1 || selectivity <= 0 || selectivity > 1) {
+      throw new WorkloadException("Invalid aggregate workload shape");
+    }
+    rangeWidth = Math.max(1, Math.round(recordCount * selectivity));
+
+    String distribution = p.getProperty(GROUP_DISTRIBUTION_PROPERTY, GROUP_DISTRIBUTION_PROPERTY_DEFAULT);
+    if (distribution.equals("uniform")) {
+      groupchooser = new UniformLongGenerator(0, cardinality - 1);
+    } else if (distribution.equals("zipfian")) {
+      groupchooser = new ZipfianGenerator(0, cardinality - 1, Double.parseDouble(
+          p.getProperty(ZIPFIAN_CONSTANT_PROPERTY, ZIPFIAN_CONSTANT_PROPERTY_DEFAULT)));
+    } else {
+      throw new WorkloadException("Unknown group distribution \"" + distribution + "\"");
+    }
+
+    functions = new ArrayList<>();
+    grouped = new ArrayList<>();
+    for (String shape : p.getProperty(QUERIES_PROPERTY, QUERIES_PROPERTY_DEFAULT).split(",")) {
+      String name = shape.trim().toUpperCase(Locale.ROOT);
+      boolean group = name.startsWith("GROUP-");
+      try {
+        functions.add(AggregateQuery.Function.valueOf(group ? name.substring("GROUP-".length()) : name));
+      } catch (IllegalArgumentException e) {
+        throw new WorkloadException("Unknown aggregate query shape \"" + shape + "\"");
+      }
+      grouped.add(group);
+    }
+
+    long insertstart = Long.parseLong(p.getProperty(INSERT_START_PROPERTY, INSERT_START_PROPERTY_DEFAULT));
+    keysequence = new CounterGenerator(insertstart);
+    keychooser = new UniformLongGenerator(0, recordCount - 1);
+
+    operationchooser = new DiscreteGenerator();
+    double queries = Double.parseDouble(p.getProperty(QUERY_PROPORTION_PROPERTY, QUERY_PROPORTION_PROPERTY_DEFAULT));
+    if (queries > 0) {
+      operationchooser.addValue(queries, "QUERY");
+    }
+    double updates = Double.parseDouble(p.getProperty(UPDATE_PROPORTION_PROPERTY, UPDATE_PROPORTION_PROPERTY_DEFAULT));
+    if (updates > 0) {
+      operationchooser.addValue(updates, "UPDATE");
+    }
+  }
+
+  /**
+   * The record key of a sequence number.
+   */
+  static String recordKey(long seq) {
+    return "user" + seq;
+  }
+
+  /**
+   * A new group and value for a record.
+   */
+  HashMap<String, ByteIterator> groupAndValue() {
+    HashMap<String, ByteIterator> values = new HashMap<>();
+    values.put(groupField, new StringByteIterator("group" + groupchooser.nextValue().longValue()));
+    values.put(valueField, new NumericByteIterator(ThreadLocalRandom.current().nextLong(maxValue)));
+    return values;
+  }
+
+  /**
+   * A random query among the configured shapes over a random range.
+   */
+  AggregateQuery nextQuery() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    int shape = random.nextInt(functions.size());
+    long low = random.nextLong(Math.max(1, recordCount - rangeWidth + 1));
+    return new AggregateQuery(functions.get(shape), valueField, grouped.get(shape) ? groupField : null,
+        rangeField, low, low + rangeWidth);
+  }
+
+  @Override
+  public boolean doInsert(DB db, Object threadstate) {
+    long seq = keysequence.nextValue().longValue();
+    HashMap<String, ByteIterator> values = groupAndValue();
+    values.put(rangeField, new NumericByteIterator(seq));
+    for (int i = 0; i < fieldCount; i++) {
+      values.put("field" + i, new RandomByteIterator(fieldLength));
+    }
+    Status status = db.insert(table, recordKey(seq), values);
+    return null != status && status.isOk();
+  }
+
+  @Override
+  public boolean doTransaction(DB db, Object threadstate) {
+    String operation = operationchooser.nextString();
+    if (operation == null) {
+      return false;
+    }
+    if (operation.equals("UPDATE")) {
+      db.update(table, recordKey(keychooser.nextValue().longValue()), groupAndValue());
+    } else {
+      db.aggregate(table, nextQuery(), new Vector<HashMap<String, ByteIterator>>());
+    }
+    return true;
+  }
+}
@@ -63,6 +63,27 @@ import java.util.*;
  * order ("hashed") (default: hashed)
  * <LI><b>fieldnameprefix</b>: what should be a prefix for field names, the shorter may decrease the
  * required storage size (default: "field")
+ * <LI><b>valuegenerator</b>: how field values are generated, "random" printable bytes,
+ * "compressible" values tuned by the valuegenerator.* properties below, or "document" values,
+ * nested documents tuned by the document.* properties below (default: random)
+ * <LI><b>valuegenerator.compressionratio</b>: target compression ratio of compressible values
+ * (default: 2.0)
+ * <LI><b>valuegenerator.entropy</b>: random bits per literal byte of compressible values, 1 to 8
+ * (default: 6)
+ * <LI><b>valuegenerator.unitlength</b>: length of a literal run plus its repetition; values should
+ * be a few units long to reach the target ratio (default: 32)
+ * <LI><b>valuegenerator.dictionarysize</b>: number of distinct literal runs shared by all values,
+ * 0 for none (default: 0)
+ * <LI><b>valuegenerator.poolsize</b>: size of the pre-generated pool values are sliced from
+ * (default: 4194304)
+ * <LI><b>document.depth</b>: maximum nesting depth of document values, 1 for flat (default: 3)
+ * <LI><b>document.fieldcount</b>: number of fields of every object of document values (default: 4)
+ * <LI><b>document.arraylength</b>: maximum number of elements of arrays (default: 4)
+ * <LI><b>document.stringlength</b>: length of strings (default: 16)
+ * <LI><b>document.stringproportion</b>, <b>document.numberproportion</b>,
+ * <b>document.booleanproportion</b>, <b>document.objectproportion</b>,
+ * <b>document.arrayproportion</b>: relative proportions of the field types of the document schema
+ * (default: 0.4, 0.25, 0.1, 0.15, 0.1)
  * </ul>
  */
 public class CoreWorkload extends Workload {
@@ -170,6 +191,19 @@ public class CoreWorkload extends Workload {
 
   protected boolean readallfieldsbyname;
 
+  /**
+   * The name of the property for the number of records each read operation asks for at once.
+   * Above 1, reads go through {@link DB#batchRead} and are measured as READ-BATCH.
+   */
+  public static final String READ_BATCH_SIZE_PROPERTY = "readbatchsize";
+
+  /**
+   * The default number of records each read operation asks for.
+   */
+  public static final String READ_BATCH_SIZE_PROPERTY_DEFAULT = "1";
+
+  protected int readbatchsize;
+
   /**
    * The name of the property for deciding whether to write one field (false) or all fields (true)
    * of a record.
@@ -200,6 +234,128 @@ public class CoreWorkload extends Workload {
    */
   private boolean dataintegrity;
 
+  /**
+   * The name of the property for the generator of field values: "random" for random printable
+   * bytes, or "compressible" for values with a controlled compression ratio and entropy.
+   */
+  public static final String VALUE_GENERATOR_PROPERTY = "valuegenerator";
+
+  /**
+   * The default value for the valuegenerator property.
+   */
+  public static final String VALUE_GENERATOR_PROPERTY_DEFAULT = "random";
+
+  /**
+   * The name of the property for the target compression ratio of compressible values.
+   */
+  public static final String VALUE_COMPRESSION_RATIO_PROPERTY = "valuegenerator.compressionratio";
+
+  /**
+   * The default value for the valuegenerator.compressionratio property.
+   */
+  public static final String VALUE_COMPRESSION_RATIO_PROPERTY_DEFAULT = "2.0";
+
+  /**
+   * The name of the property for the number of random bits per literal byte of compressible values.
+   */
+  public static final String VALUE_ENTROPY_PROPERTY = "valuegenerator.entropy";
+
+  /**
+   * The default value for the valuegenerator.entropy property.
+   */
+  public static final String VALUE_ENTROPY_PROPERTY_DEFAULT = "6";
+
+  /**
+   * The name of the property for the length of a literal run plus its repetition in compressible
+   * values. Values shorter than a few units compress less than the target ratio.
+   */
+  public static final String VALUE_UNIT_LENGTH_PROPERTY = "valuegenerator.unitlength";
+
+  /**
+   * The default value for the valuegenerator.unitlength property.
+   */
+  public static final String VALUE_UNIT_LENGTH_PROPERTY_DEFAULT = "32";
+
+  /**
+   * The name of the property for the number of distinct literal runs compressible values are built
+   * from, or 0 for no dictionary.
+   */
+  public static final String VALUE_DICTIONARY_SIZE_PROPERTY = "valuegenerator.dictionarysize";
+
+  /**
+   * The default value for the valuegenerator.dictionarysize property.
+   */
+  public static final String VALUE_DICTIONARY_SIZE_PROPERTY_DEFAULT = "0";
+
+  /**
+   * The name of the property for the size in bytes of the pool compressible values are sliced from.
+   */
+  public static final String VALUE_POOL_SIZE_PROPERTY = "valuegenerator.poolsize";
+
+  /**
+   * The default value for the valuegenerator.poolsize property.
+   */
+  public static final String VALUE_POOL_SIZE_PROPERTY_DEFAULT = "4194304";
+
+  /**
+   * The name of the property for the maximum nesting depth of document values.
+   */
+  public static final String DOCUMENT_DEPTH_PROPERTY = "document.depth";
+
+  /**
+   * The default value for the document.depth property.
+   */
+  public static final String DOCUMENT_DEPTH_PROPERTY_DEFAULT = "3";
+
+  /**
+   * The name of the property for the number of fields of every object in document values.
+   */
+  public static final String DOCUMENT_FIELD_COUNT_PROPERTY = "document.fieldcount";
+
+  /**
+   * The default value for the document.fieldcount property.
+   */
+  public static final String DOCUMENT_FIELD_COUNT_PROPERTY_DEFAULT = "4";
+
+  /**
+   * The name of the property for the maximum number of elements of arrays in document values.
+   */
+  public static final String DOCUMENT_ARRAY_LENGTH_PROPERTY = "document.arraylength";
+
+  /**
+   * The default value for the document.arraylength property.
+   */
+  public static final String DOCUMENT_ARRAY_LENGTH_PROPERTY_DEFAULT = "4";
+
+  /**
+   * The name of the property for the length of strings in document values.
+   */
+  public static final String DOCUMENT_STRING_LENGTH_PROPERTY = "document.stringlength";
+
+  /**
+   * The default value for the document.stringlength property.
+   */
+  public static final String DOCUMENT_STRING_LENGTH_PROPERTY_DEFAULT = "16";
+
+  /**
+   * The names of the properties for the proportions of string, number, boolean, object and array
+   * fields in document values, and their defaults.
+   */
+  private static final String[] DOCUMENT_TYPE_PROPORTION_PROPERTIES = {
+      "document.stringproportion", "document.numberproportion", "document.booleanproportion",
+      "document.objectproportion", "document.arrayproportion"};
+  private static final String[] DOCUMENT_TYPE_PROPORTION_PROPERTIES_DEFAULT = {"0.4", "0.25", "0.1", "0.15", "0.1"};
+
+  /**
+   * Generator of compressible values, or null.
+   */
+  private CompressibleValueGenerator valuegenerator;
+
+  /**
+   * Generator of document values, or null.
+   */
+  private DocumentGenerator documentgenerator;
+
   /**
    * The name of the property for the proportion of transactions that are reads.
    */
@@ -452,6 +608,8 @@ public class CoreWorkload extends Workload {
   protected int insertionRetryInterval;
 
   private Measurements measurements = Measurements.getMeasurements();
+  private String verifyMeasurementName = "VERIFY";
+  private String readModifyWriteMeasurementName = "READ-MODIFY-WRITE";
 
   public static String buildKeyName(long keynum, int zeropadding, boolean orderedinserts) {
     if (!orderedinserts) {
@@ -503,6 +661,9 @@ public class CoreWorkload extends Workload {
   @Override
   public void init(Properties p) throws WorkloadException {
     table = p.getProperty(TABLENAME_PROPERTY, TABLENAME_PROPERTY_DEFAULT);
+    final String measurementPrefix = Measurements.namespacePrefix(p);
+    verifyMeasurementName = measurementPrefix + "VERIFY";
+    readModifyWriteMeasurementName = measurementPrefix + "READ-MODIFY-WRITE";
 
     fieldcount =
         Long.parseLong(p.getProperty(FIELD_COUNT_PROPERTY, FIELD_COUNT_PROPERTY_DEFAULT));
@@ -544,6 +705,7 @@ public class CoreWorkload extends Workload {
         p.getProperty(READ_ALL_FIELDS_PROPERTY, READ_ALL_FIELDS_PROPERTY_DEFAULT));
     readallfieldsbyname = Boolean.parseBoolean(
         p.getProperty(READ_ALL_FIELDS_BY_NAME_PROPERTY, READ_ALL_FIELDS_BY_NAME_PROPERTY_DEFAULT));
+    readbatchsize = Integer.parseInt(p.getProperty(READ_BATCH_SIZE_PROPERTY, READ_BATCH_SIZE_PROPERTY_DEFAULT));
     writeallfields = Boolean.parseBoolean(
         p.getProperty(WRITE_ALL_FIELDS_PROPERTY, WRITE_ALL_FIELDS_PROPERTY_DEFAULT));
 
@@ -561,6 +723,30 @@ public class CoreWorkload extends Workload {
       System.out.println("Data integrity is enabled.");
     }
 
+    String valuegen = p.getProperty(VALUE_GENERATOR_PROPERTY, VALUE_GENERATOR_PROPERTY_DEFAULT);
+    if (valuegen.equals("compressible")) {
+      valuegenerator = new CompressibleValueGenerator(
+          Double.parseDouble(p.getProperty(VALUE_COMPRESSION_RATIO_PROPERTY, VALUE_COMPRESSION_RATIO_PROPERTY_DEFAULT)),
+          Integer.parseInt(p.getProperty(VALUE_ENTROPY_PROPERTY, VALUE_ENTROPY_PROPERTY_DEFAULT)),
+          Integer.parseInt(p.getProperty(VALUE_UNIT_LENGTH_PROPERTY, VALUE_UNIT_LENGTH_PROPERTY_DEFAULT)),
+          Integer.parseInt(p.getProperty(VALUE_DICTIONARY_SIZE_PROPERTY, VALUE_DICTIONARY_SIZE_PROPERTY_DEFAULT)),
+          Integer.parseInt(p.getProperty(VALUE_POOL_SIZE_PROPERTY, VALUE_POOL_SIZE_PROPERTY_DEFAULT)), 0);
+    } else if (valuegen.equals("document")) {
+      double[] proportions = new double[DOCUMENT_TYPE_PROPORTION_PROPERTIES.length];
+      for (int i = 0; i < proportions.length; i++) {
+        proportions[i] = Double.parseDouble(p.getProperty(DOCUMENT_TYPE_PROPORTION_PROPERTIES[i],
+            DOCUMENT_TYPE_PROPORTION_PROPERTIES_DEFAULT[i]));
+      }
+      documentgenerator = new DocumentGenerator(
+          Integer.parseInt(p.getProperty(DOCUMENT_DEPTH_PROPERTY, DOCUMENT_DEPTH_PROPERTY_DEFAULT)),
+          Integer.parseInt(p.getProperty(DOCUMENT_FIELD_COUNT_PROPERTY, DOCUMENT_FIELD_COUNT_PROPERTY_DEFAULT)),
+          Integer.parseInt(p.getProperty(DOCUMENT_ARRAY_LENGTH_PROPERTY, DOCUMENT_ARRAY_LENGTH_PROPERTY_DEFAULT)),
+          Integer.parseInt(p.getProperty(DOCUMENT_STRING_LENGTH_PROPERTY, DOCUMENT_STRING_LENGTH_PROPERTY_DEFAULT)),
+          proportions, 0);
+    } else if (!valuegen.equals("random")) {
+      throw new WorkloadException("Unknown value generator \"" + valuegen + "\"");
+    }
+
     if (p.getProperty(INSERT_ORDER_PROPERTY, INSERT_ORDER_PROPERTY_DEFAULT).compareTo("hashed") == 0) {
       orderedinserts = false;
     } else {
@@ -644,8 +830,7 @@ public class CoreWorkload extends Workload {
     if (dataintegrity) {
       data = new StringByteIterator(buildDeterministicValue(key, fieldkey));
     } else {
-      // fill with random data
-      data = new RandomByteIterator(fieldlengthgenerator.nextValue().longValue());
+      data = buildRandomValue();
     }
     value.put(fieldkey, data);
 
@@ -663,14 +848,27 @@ public class CoreWorkload extends Workload {
       if (dataintegrity) {
         data = new StringByteIterator(buildDeterministicValue(key, fieldkey));
       } else {
-        // fill with random data
-        data = new RandomByteIterator(fieldlengthgenerator.nextValue().longValue());
+        data = buildRandomValue();
       }
       values.put(fieldkey, data);
     }
     return values;
   }
 
+  /**
+   * Builds a value from the configured value generator.
+   */
+  private ByteIterator buildRandomValue() {
+    if (documentgenerator != null) {
+      return documentgenerator.nextDocument();
+    }
+    long length = fieldlengthgenerator.nextValue().longValue();
+    if (valuegenerator != null) {
+      return valuegenerator.nextValue((int) length);
+    }
+    return new RandomByteIterator(length);
+  }
+
   /**
    * Build a deterministic value given the key information.
    */
@@ -808,8 +1006,8 @@ public class CoreWorkload extends Workload {
       verifyStatus = Status.ERROR;
     }
     long endTime = System.nanoTime();
-    measurements.measure("VERIFY", (int) (endTime - startTime) / 1000);
-    measurements.reportStatus("VERIFY", verifyStatus);
+    measurements.measure(verifyMeasurementName, (int) (endTime - startTime) / 1000);
+    measurements.reportStatus(verifyMeasurementName, verifyStatus);
   }
 
   long nextKeynum() {
@@ -827,11 +1025,50 @@ public class CoreWorkload extends Workload {
   }
 
   public void doTransactionRead(DB db) {
+    if (readbatchsize > 1) {
+      doTransactionBatchRead(db);
+      return;
+    }
+
     // choose a random key
     long keynum = nextKeynum();
 
     String keyname = CoreWorkload.buildKeyName(keynum, zeropadding, orderedinserts);
 
+    HashSet<String> fields = readFields();
+
+    HashMap<String, ByteIterator> cells = new HashMap<String, ByteIterator>();
+    Status status = db.read(table, keyname, fields, cells);
+
+    // A pending read is filled in later by the binding, so there is nothing to verify yet.
+    if (dataintegrity && status != Status.PENDING) {
+      verifyRow(keyname, cells);
+    }
+  }
+
+  /**
+   * Reads readbatchsize random records in one call.
+   */
+  private void doTransactionBatchRead(DB db) {
+    List<String> keynames = new ArrayList<>(readbatchsize);
+    for (int i = 0; i < readbatchsize; i++) {
+      keynames.add(CoreWorkload.buildKeyName(nextKeynum(), zeropadding, orderedinserts));
+    }
+
+    List<Map<String, ByteIterator>> results = new ArrayList<>(readbatchsize);
+    db.batchRead(table, keynames, readFields(), results);
+
+    if (dataintegrity) {
+      for (int i = 0; i < keynames.size(); i++) {
+        verifyRow(keynames.get(i), i < results.size() ? new HashMap<>(results.get(i)) : new HashMap<>());
+      }
+    }
+  }
+
+  /**
+   * The fields a read asks for: a random one, all of them by name, or null for all of them.
+   */
+  private HashSet<String> readFields() {
     HashSet<String> fields = null;
 
     if (!readallfields) {
@@ -844,13 +1081,7 @@ public class CoreWorkload extends Workload {
       // pass the full field list if dataintegrity is on for verification
       fields = new HashSet<String>(fieldnames);
     }
-
-    HashMap<String, ByteIterator> cells = new HashMap<String, ByteIterator>();
-    db.read(table, keyname, fields, cells);
-
-    if (dataintegrity) {
-      verifyRow(keyname, cells);
-    }
+    return fields;
   }
 
   public void doTransactionReadModifyWrite(DB db) {
@@ -886,18 +1117,18 @@ public class CoreWorkload extends Workload {
 
     long ist = measurements.getIntendedStartTimeNs();
     long st = System.nanoTime();
-    db.read(table, keyname, fields, cells);
+    Status readStatus = db.read(table, keyname, fields, cells);
 
     db.update(table, keyname, values);
 
     long en = System.nanoTime();
 
-    if (dataintegrity) {
+    if (dataintegrity && readStatus != Status.PENDING) {
       verifyRow(keyname, cells);
     }
 
-    measurements.measure("READ-MODIFY-WRITE", (int) ((en - st) / 1000));
-    measurements.measureIntended("READ-MODIFY-WRITE", (int) ((en - ist) / 1000));
+    measurements.measure(readModifyWriteMeasurementName, (int) ((en - st) / 1000));
+    measurements.measureIntended(readModifyWriteMeasurementName, (int) ((en - ist) / 1000));
   }
 
   public void doTransactionScan(DB db) {
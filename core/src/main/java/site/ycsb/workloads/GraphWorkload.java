@@ -0,0 +1,369 @@
+/**
+ * Copyright (c) 2020 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.workloads;
+
+import site.ycsb.ByteIterator;
+import site.ycsb.Client;
+import site.ycsb.DB;
+import site.ycsb.RandomByteIterator;
+import site.ycsb.Status;
+import site.ycsb.StringByteIterator;
+import site.ycsb.Workload;
+import site.ycsb.WorkloadException;
+import site.ycsb.generator.CounterGenerator;
+import site.ycsb.generator.DiscreteGenerator;
+import site.ycsb.generator.NumberGenerator;
+import site.ycsb.generator.ScrambledZipfianGenerator;
+import site.ycsb.generator.UniformLongGenerator;
+
+import java.util.HashMap;
+import java.util.Properties;
+import java.util.SplittableRandom;
+import java.util.Vector;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Loads a directed graph into a vertex table and an edge table and runs k-hop traversals, shortest
+ * path queries and vertex reads against it.
+ * <p>
+ * There are <code>recordcount</code> vertices, split into contiguous communities of equal size.
+ * The out-degree of each vertex is drawn from a uniform or a power-law distribution, and each edge
+ * stays inside the community of its source with a configurable probability, otherwise it points to
+ * any vertex. Edges carry a weight and a label. The out-edges of a vertex only depend on the seed
+ * and the vertex, so the load phase can insert vertices from any number of threads in any order,
+ * and the transaction phase can regenerate the neighbours of a vertex without reading them.
+ * <p>
+ * Each insert writes one vertex followed by its out-edges. Edge records hold the handles of their
+ * end vertices, <code>vertexTable/key</code>, in the {@link DB#EDGE_FROM} and {@link DB#EDGE_TO}
+ * fields. Bindings that batch inserts during the load phase batch these too.
+ * <p>
+ * Properties to control the workload:
+ * <UL>
+ * <LI><b>graph.vertextable</b>: the vertex table (default: the <code>table</code> property)
+ * <LI><b>graph.edgetable</b>: the edge table (default: the vertex table followed by "_edges")
+ * <LI><b>graph.degreedistribution</b>: "uniform" or "powerlaw" out-degrees (default: powerlaw)
+ * <LI><b>graph.mindegree</b>: the smallest out-degree (default: 1)
+ * <LI><b>graph.maxdegree</b>: the largest out-degree (default: 64)
+ * <LI><b>graph.powerlawexponent</b>: the exponent of the power-law, above 1 (default: 2.5)
+ * <LI><b>graph.communities</b>: the number of communities (default: 10)
+ * <LI><b>graph.intracommunity</b>: the probability that an edge stays inside its community
+ * (default: 0.9)
+ * <LI><b>graph.edgelabels</b>: the number of distinct edge labels (default: 4)
+ * <LI><b>graph.seed</b>: the seed of the graph structure (default: 0)
+ * <LI><b>graph.mindepth</b> and <b>graph.maxdepth</b>: the range of hops of traversals (default: 1
+ * and 3)
+ * <LI><b>graph.pathtarget</b>: "walk" to end shortest paths at the end of a random walk of
+ * <b>graph.maxdepth</b> hops from their start, so a path exists, or "random" for any vertex
+ * (default: walk)
+ * <LI><b>graph.traversalproportion</b>, <b>graph.shortestpathproportion</b> and
+ * <b>graph.readproportion</b>: the operation mix (default: 0.5, 0.3 and 0.2)
+ * <LI><b>requestdistribution</b>: "uniform" or "zipfian" start vertices (default: uniform)
+ * <LI><b>fieldcount</b> and <b>fieldlength</b>: the random fields of vertices (default: 10 and 100)
+ * </UL>
+ */
+public class GraphWorkload extends Workload {
+  /** Name of the vertex table property. */
+  public static final String VERTEX_TABLE_PROPERTY = "graph.vertextable";
+
+  /** Name of the edge table property. */
+  public static final String EDGE_TABLE_PROPERTY = "graph.edgetable";
+
+  /** Name and default value for the out-degree distribution property. */
+  public static final String DEGREE_DISTRIBUTION_PROPERTY = "graph.degreedistribution";
+  public static final String DEGREE_DISTRIBUTION_PROPERTY_DEFAULT = "powerlaw";
+
+  /** Name and default value for the smallest out-degree property. */
+  public static final String MIN_DEGREE_PROPERTY = "graph.mindegree";
+  public static final String MIN_DEGREE_PROPERTY_DEFAULT = "1";
+
+  /** Name and default value for the largest out-degree property. */
+  public static final String MAX_DEGREE_PROPERTY = "graph.maxdegree";
+  public static final String MAX_DEGREE_PROPERTY_DEFAULT = "64";
+
+  /** Name and default value for the power-law exponent property. */
+  public static final String POWER_LAW_EXPONENT_PROPERTY = "graph.powerlawexponent";
+  public static final String POWER_LAW_EXPONENT_PROPERTY_DEFAULT = "2.5";
+
+  /** Name and default value for the number of communities property. */
+  public static final String COMMUNITIES_PROPERTY = "graph.communities";
+  public static final String COMMUNITIES_PROPERTY_DEFAULT = "10";
+
+  /** Name and default value for the intra-community edge probability property. */
+  public static final String INTRA_COMMUNITY_PROPERTY = "graph.intracommunity";
+  public static final String INTRA_COMMUNITY_PROPERTY_DEFAULT = "0.9";
+
+  /** Name and default value for the number of edge labels property. */
+  public static final String EDGE_LABELS_PROPERTY = "graph.edgelabels";
+  public static final String EDGE_LABELS_PROPERTY_DEFAULT = "4";
+
+  /** Name and default value for the graph seed property. */
+  public static final String SEED_PROPERTY = "graph.seed";
+  public static final String SEED_PROPERTY_DEFAULT = "0";
+
+  /** Name and default value for the smallest traversal depth property. */
+  public static final String MIN_DEPTH_PROPERTY = "graph.mindepth";
+  public static final String MIN_DEPTH_PROPERTY_DEFAULT = "1";
+
+  /** Name and default value for the largest traversal depth property. */
+  public static final String MAX_DEPTH_PROPERTY = "graph.maxdepth";
+  public static final String MAX_DEPTH_PROPERTY_DEFAULT = "3";
+
+  /** Name and default value for the shortest path target property. */
+  public static final String PATH_TARGET_PROPERTY = "graph.pathtarget";
+  public static final String PATH_TARGET_PROPERTY_DEFAULT = "walk";
+
+  /** Name and default value for the traversal proportion property. */
+  public static final String TRAVERSAL_PROPORTION_PROPERTY = "graph.traversalproportion";
+  public static final String TRAVERSAL_PROPORTION_PROPERTY_DEFAULT = "0.5";
+
+  /** Name and default value for the shortest path proportion property. */
+  public static final String SHORTEST_PATH_PROPORTION_PROPERTY = "graph.shortestpathproportion";
+  public static final String SHORTEST_PATH_PROPORTION_PROPERTY_DEFAULT = "0.3";
+
+  /** Name and default value for the vertex read proportion property. */
+  public static final String READ_PROPORTION_PROPERTY = "graph.readproportion";
+  public static final String READ_PROPORTION_PROPERTY_DEFAULT = "0.2";
+
+  /** The weight of an edge. */
+  public static final String WEIGHT_FIELD = "weight";
+
+  /** The label of an edge. */
+  public static final String LABEL_FIELD = "label";
+
+  /** The community of a vertex. */
+  public static final String COMMUNITY_FIELD = "community";
+
+  private String vertexTable;
+  private String edgeTable;
+  private long vertexCount;
+  private boolean powerLaw;
+  private int minDegree;
+  private int maxDegree;
+  private double powerLawExponent;
+  private int communities;
+  private double intraCommunity;
+  private int edgeLabels;
+  private long seed;
+  private int minDepth;
+  private int maxDepth;
+  private boolean walkTarget;
+  private int fieldCount;
+  private int fieldLength;
+  private NumberGenerator keysequence;
+  private NumberGenerator keychooser;
+  private DiscreteGenerator operationchooser;
+
+  /**
+   * The vertex table of a graph workload configured by the given properties.
+   */
+  public static String vertexTable(Properties p) {
+    return p.getProperty(VERTEX_TABLE_PROPERTY,
+        p.getProperty(CoreWorkload.TABLENAME_PROPERTY, CoreWorkload.TABLENAME_PROPERTY_DEFAULT));
+  }
+
+  /**
+   * The edge table of a graph workload configured by the given properties.
+   */
+  public static String edgeTable(Properties p) {
+    return p.getProperty(EDGE_TABLE_PROPERTY, vertexTable(p) + "_edges");
+  }
+
+  @Override
+  public void init(Properties p) throws WorkloadException {
+    vertexTable = vertexTable(p);
+    edgeTable = edgeTable(p);
+    vertexCount = Long.parseLong(p.getProperty(Client.RECORD_COUNT_PROPERTY, Client.DEFAULT_RECORD_COUNT));
+
+    String distribution = p.getProperty(DEGREE_DISTRIBUTION_PROPERTY, DEGREE_DISTRIBUTION_PROPERTY_DEFAULT);
+    if (!distribution.equals("powerlaw") && !distribution.equals("uniform")) {
+      throw new WorkloadException("Unknown graph degree distribution \"" + distribution + "\"");
+    }
+    powerLaw = distribution.equals("powerlaw");
+    minDegree = Integer.parseInt(p.getProperty(MIN_DEGREE_PROPERTY, MIN_DEGREE_PROPERTY_DEFAULT));
+    maxDegree = Integer.parseInt(p.getProperty(MAX_DEGREE_PROPERTY, MAX_DEGREE_PROPERTY_DEFAULT));
+    powerLawExponent = Double.parseDouble(p.getProperty(POWER_LAW_EXPONENT_PROPERTY,
+        POWER_LAW_EXPONENT_PROPERTY_DEFAULT));
+    communities = Integer.parseInt(p.getProperty(COMMUNITIES_PROPERTY, COMMUNITIES_PROPERTY_DEFAULT));
+    intraCommunity = Double.parseDouble(p.getProperty(INTRA_COMMUNITY_PROPERTY, INTRA_COMMUNITY_PROPERTY_DEFAULT));
+    edgeLabels = Integer.parseInt(p.getProperty(EDGE_LABELS_PROPERTY, EDGE_LABELS_PROPERTY_DEFAULT));
+    seed = Long.parseLong(p.getProperty(SEED_PROPERTY, SEED_PROPERTY_DEFAULT));
+    minDepth = Integer.parseInt(p.getProperty(MIN_DEPTH_PROPERTY, MIN_DEPTH_PROPERTY_DEFAULT));
+    maxDepth = Integer.parseInt(p.getProperty(MAX_DEPTH_PROPERTY, MAX_DEPTH_PROPERTY_DEFAULT));
+    String target = p.getProperty(PATH_TARGET_PROPERTY, PATH_TARGET_PROPERTY_DEFAULT);
+    if (!target.equals("walk") && !target.equals("random")) {
+      throw new WorkloadException("Unknown shortest path target \"" + target + "\"");
+    }
+    walkTarget = target.equals("walk");
+    fieldCount = Integer.parseInt(p.getProperty(CoreWorkload.FIELD_COUNT_PROPERTY,
+        CoreWorkload.FIELD_COUNT_PROPERTY_DEFAULT));
+    fieldLength = Integer.parseInt(p.getProperty(CoreWorkload.FIELD_LENGTH_PROPERTY,
+        CoreWorkload.FIELD_LENGTH_PROPERTY_DEFAULT));
+
+    if (vertexCount < 1 || minDegree < 0 || maxDegree < minDegree || communities < 1
+        || communities > vertexCount || edgeLabels < 1 || minDepth < 1 || maxDepth < minDepth) {
+      throw new WorkloadException("Invalid graph shape");
+    }
+    if (powerLaw && powerLawExponent <= 1) {
+      throw new WorkloadException("The power-law exponent must be above 1, got " + powerLawExponent);
+    }
+
+    long insertstart = Long.parseLong(p.getProperty(INSERT_START_PROPERTY, INSERT_START_PROPERTY_DEFAULT));
+    keysequence = new CounterGenerator(insertstart);
+    String requestdistrib = p.getProperty(CoreWorkload.REQUEST_DISTRIBUTION_PROPERTY, "uniform");
+    if (requestdistrib.equals("uniform")) {
+      keychooser = new UniformLongGenerator(0, vertexCount - 1);
+    } else if (requestdistrib.equals("zipfian")) {
+      keychooser = new ScrambledZipfianGenerator(0, vertexCount - 1);
+    } else {
+      throw new WorkloadException("Unknown request distribution \"" + requestdistrib + "\"");
+    }
+
+    operationchooser = new DiscreteGenerator();
+    addOperation(p, TRAVERSAL_PROPORTION_PROPERTY, TRAVERSAL_PROPORTION_PROPERTY_DEFAULT, "TRAVERSAL");
+    addOperation(p, SHORTEST_PATH_PROPORTION_PROPERTY, SHORTEST_PATH_PROPORTION_PROPERTY_DEFAULT, "SHORTESTPATH");
+    addOperation(p, READ_PROPORTION_PROPERTY, READ_PROPORTION_PROPERTY_DEFAULT, "READ");
+  }
+
+  private void addOperation(Properties p, String property, String defaultValue, String op) {
+    double proportion = Double.parseDouble(p.getProperty(property, defaultValue));
+    if (proportion > 0) {
+      operationchooser.addValue(proportion, op);
+    }
+  }
+
+  /**
+   * The record key of a vertex.
+   */
+  static String vertexKey(long vertex) {
+    return "v" + vertex;
+  }
+
+  /**
+   * The community of a vertex.
+   */
+  int community(long vertex) {
+    return (int) (vertex * communities / vertexCount);
+  }
+
+  /**
+   * The targets of the out-edges of a vertex, in edge order.
+   */
+  long[] targets(long vertex) {
+    SplittableRandom random = edgeRandom(vertex);
+    long[] targets = new long[degree(random)];
+    for (int i = 0; i < targets.length; i++) {
+      targets[i] = target(random, vertex);
+    }
+    return targets;
+  }
+
+  private SplittableRandom edgeRandom(long vertex) {
+    return new SplittableRandom(seed ^ (vertex * 0x9E3779B97F4A7C15L));
+  }
+
+  private int degree(SplittableRandom random) {
+    if (!powerLaw) {
+      return minDegree + random.nextInt(maxDegree - minDegree + 1);
+    }
+    // Inverse transform of a Pareto distribution shifted by one, so a minimum of 0 works too.
+    double degree = (minDegree + 1) * Math.pow(1 - random.nextDouble(), -1 / (powerLawExponent - 1)) - 1;
+    return (int) Math.min(maxDegree, Math.floor(degree));
+  }
+
+  private long target(SplittableRandom random, long vertex) {
+    if (random.nextDouble() < intraCommunity) {
+      int community = community(vertex);
+      long first = (community * vertexCount + communities - 1) / communities;
+      long end = ((community + 1) * vertexCount + communities - 1) / communities;
+      return first + random.nextLong(end - first);
+    }
+    return random.nextLong(vertexCount);
+  }
+
+  @Override
+  public boolean doInsert(DB db, Object threadstate) {
+    long vertex = keysequence.nextValue().longValue();
+    String key = vertexKey(vertex);
+    HashMap<String, ByteIterator> values = new HashMap<>();
+    for (int i = 0; i < fieldCount; i++) {
+      values.put("field" + i, new RandomByteIterator(fieldLength));
+    }
+    values.put(COMMUNITY_FIELD, new StringByteIterator(Integer.toString(community(vertex))));
+    Status status = db.insert(vertexTable, key, values);
+    if (null == status || !status.isOk()) {
+      return false;
+    }
+
+    String from = vertexTable + "/" + key;
+    long[] targets = targets(vertex);
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    for (int i = 0; i < targets.length; i++) {
+      HashMap<String, ByteIterator> edge = new HashMap<>();
+      edge.put(DB.EDGE_FROM, new StringByteIterator(from));
+      edge.put(DB.EDGE_TO, new StringByteIterator(vertexTable + "/" + vertexKey(targets[i])));
+      edge.put(WEIGHT_FIELD, new StringByteIterator(Double.toString(random.nextDouble())));
+      edge.put(LABEL_FIELD, new StringByteIterator("label" + random.nextInt(edgeLabels)));
+      status = db.insert(edgeTable, key + "-" + i, edge);
+      if (null == status || !status.isOk()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public boolean doTransaction(DB db, Object threadstate) {
+    String operation = operationchooser.nextString();
+    if (operation == null) {
+      return false;
+    }
+    long start = keychooser.nextValue().longValue();
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    switch (operation) {
+    case "TRAVERSAL":
+      int depth = minDepth + random.nextInt(maxDepth - minDepth + 1);
+      db.graphTraversal(vertexTable, edgeTable, vertexKey(start), depth, null,
+          new Vector<HashMap<String, ByteIterator>>());
+      break;
+    case "SHORTESTPATH":
+      long end = walkTarget ? walk(start, maxDepth, random) : random.nextLong(vertexCount);
+      db.graphShortestPath(vertexTable, edgeTable, vertexKey(start), vertexKey(end),
+          new Vector<HashMap<String, ByteIterator>>());
+      break;
+    default:
+      db.read(vertexTable, vertexKey(start), null, new HashMap<String, ByteIterator>());
+      break;
+    }
+    return true;
+  }
+
+  /**
+   * Follow random out-edges from a vertex for up to the given number of hops and return where the
+   * walk stopped.
+   */
+  long walk(long vertex, int hops, ThreadLocalRandom random) {
+    for (int i = 0; i < hops; i++) {
+      long[] targets = targets(vertex);
+      if (targets.length == 0) {
+        break;
+      }
+      vertex = targets[random.nextInt(targets.length)];
+    }
+    return vertex;
+  }
+}
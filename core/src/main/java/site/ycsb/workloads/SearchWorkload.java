@@ -0,0 +1,312 @@
+/**
+ * Copyright (c) 2020 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.workloads;
+
+import site.ycsb.ByteIterator;
+import site.ycsb.Client;
+import site.ycsb.DB;
+import site.ycsb.SearchQuery;
+import site.ycsb.Status;
+import site.ycsb.StringByteIterator;
+import site.ycsb.Workload;
+import site.ycsb.WorkloadException;
+import site.ycsb.generator.CounterGenerator;
+import site.ycsb.generator.DiscreteGenerator;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.Vector;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Loads records with a text field made of words of a vocabulary whose frequencies follow a Zipfian
+ * law, like natural language, and runs term, phrase, prefix and boolean full-text queries against
+ * it. Each kind of query is measured on its own, e.g. <code>SEARCH-PHRASE</code>, see
+ * {@link SearchQuery}.
+ * <p>
+ * The vocabulary comes from a file, most frequent word first, or is made of random words. The text
+ * of a record only depends on the seed and its key, so phrase queries regenerate the text of a
+ * random record and pick words that follow each other in it. Query terms follow the frequencies of
+ * the text by default, so common terms match many records and rare ones few; drawing them
+ * uniformly from the vocabulary instead favors rare, selective terms.
+ * <p>
+ * Properties to control the workload:
+ * <UL>
+ * <LI><b>search.field</b>: the text field (default: text)
+ * <LI><b>search.vocabularyfile</b>: a file with one word per line, most frequent first (default:
+ * none, random words)
+ * <LI><b>search.vocabularysize</b>: the number of random words (default: 10000)
+ * <LI><b>search.zipfianconstant</b>: the exponent of the word frequencies (default: 1.0)
+ * <LI><b>search.wordsperrecord</b>: the number of words of a text (default: 50)
+ * <LI><b>search.seed</b>: the seed of the vocabulary and the texts (default: 0)
+ * <LI><b>search.querytermdistribution</b>: "zipfian" or "uniform" query terms (default: zipfian)
+ * <LI><b>search.phraselength</b>: the number of words of phrase queries (default: 2)
+ * <LI><b>search.booleanterms</b>: the number of terms of AND and OR queries (default: 2)
+ * <LI><b>search.maxresults</b>: the most records a query returns (default: 100)
+ * <LI><b>search.termproportion</b>, <b>search.phraseproportion</b>, <b>search.prefixproportion</b>,
+ * <b>search.andproportion</b> and <b>search.orproportion</b>: the query mix (default: 0.4, 0.2,
+ * 0.1, 0.15 and 0.15)
+ * </UL>
+ */
+public class SearchWorkload extends Workload {
+  /** Name and default value for the text field property. */
+  public static final String FIELD_PROPERTY = "search.field";
+  public static final String FIELD_PROPERTY_DEFAULT = "text";
+
+  /** Name of the vocabulary file property. */
+  public static final String VOCABULARY_FILE_PROPERTY = "search.vocabularyfile";
+
+  /** Name and default value for the random vocabulary size property. */
+  public static final String VOCABULARY_SIZE_PROPERTY = "search.vocabularysize";
+  public static final String VOCABULARY_SIZE_PROPERTY_DEFAULT = "10000";
+
+  /** Name and default value for the word frequency exponent property. */
+  public static final String ZIPFIAN_CONSTANT_PROPERTY = "search.zipfianconstant";
+  public static final String ZIPFIAN_CONSTANT_PROPERTY_DEFAULT = "1.0";
+
+  /** Name and default value for the words per record property. */
+  public static final String WORDS_PER_RECORD_PROPERTY = "search.wordsperrecord";
+  public static final String WORDS_PER_RECORD_PROPERTY_DEFAULT = "50";
+
+  /** Name and default value for the seed property. */
+  public static final String SEED_PROPERTY = "search.seed";
+  public static final String SEED_PROPERTY_DEFAULT = "0";
+
+  /** Name and default value for the query term distribution property. */
+  public static final String QUERY_TERM_DISTRIBUTION_PROPERTY = "search.querytermdistribution";
+  public static final String QUERY_TERM_DISTRIBUTION_PROPERTY_DEFAULT = "zipfian";
+
+  /** Name and default value for the phrase length property. */
+  public static final String PHRASE_LENGTH_PROPERTY = "search.phraselength";
+  public static final String PHRASE_LENGTH_PROPERTY_DEFAULT = "2";
+
+  /** Name and default value for the boolean query terms property. */
+  public static final String BOOLEAN_TERMS_PROPERTY = "search.booleanterms";
+  public static final String BOOLEAN_TERMS_PROPERTY_DEFAULT = "2";
+
+  /** Name and default value for the most results property. */
+  public static final String MAX_RESULTS_PROPERTY = "search.maxresults";
+  public static final String MAX_RESULTS_PROPERTY_DEFAULT = "100";
+
+  /** Names and default values for the query mix properties. */
+  public static final String TERM_PROPORTION_PROPERTY = "search.termproportion";
+  public static final String TERM_PROPORTION_PROPERTY_DEFAULT = "0.4";
+  public static final String PHRASE_PROPORTION_PROPERTY = "search.phraseproportion";
+  public static final String PHRASE_PROPORTION_PROPERTY_DEFAULT = "0.2";
+  public static final String PREFIX_PROPORTION_PROPERTY = "search.prefixproportion";
+  public static final String PREFIX_PROPORTION_PROPERTY_DEFAULT = "0.1";
+  public static final String AND_PROPORTION_PROPERTY = "search.andproportion";
+  public static final String AND_PROPORTION_PROPERTY_DEFAULT = "0.15";
+  public static final String OR_PROPORTION_PROPERTY = "search.orproportion";
+  public static final String OR_PROPORTION_PROPERTY_DEFAULT = "0.15";
+
+  private String table;
+  private String field;
+  private List<String> vocabulary;
+  /** The cumulative frequencies of the words of the vocabulary. */
+  private double[] cumulative;
+  private int wordsPerRecord;
+  private long seed;
+  private boolean zipfianQueries;
+  private int phraseLength;
+  private int booleanTerms;
+  private int maxResults;
+  private long recordCount;
+  private CounterGenerator keysequence;
+  private DiscreteGenerator operationchooser;
+
+  @Override
+  public void init(Properties p) throws WorkloadException {
+    table = p.getProperty(CoreWorkload.TABLENAME_PROPERTY, CoreWorkload.TABLENAME_PROPERTY_DEFAULT);
+    field = p.getProperty(FIELD_PROPERTY, FIELD_PROPERTY_DEFAULT);
+    seed = Long.parseLong(p.getProperty(SEED_PROPERTY, SEED_PROPERTY_DEFAULT));
+    String file = p.getProperty(VOCABULARY_FILE_PROPERTY);
+    if (file != null) {
+      vocabulary = readVocabulary(file);
+    } else {
+      vocabulary = randomVocabulary(Integer.parseInt(p.getProperty(VOCABULARY_SIZE_PROPERTY,
+          VOCABULARY_SIZE_PROPERTY_DEFAULT)), seed);
+    }
+    if (vocabulary.isEmpty()) {
+      throw new WorkloadException("The search vocabulary is empty");
+    }
+    double exponent = Double.parseDouble(p.getProperty(ZIPFIAN_CONSTANT_PROPERTY, ZIPFIAN_CONSTANT_PROPERTY_DEFAULT));
+    cumulative = new double[vocabulary.size()];
+    double total = 0;
+    for (int rank = 0; rank < cumulative.length; rank++) {
+      total += 1 / Math.pow(rank + 1, exponent);
+      cumulative[rank] = total;
+    }
+    for (int rank = 0; rank < cumulative.length; rank++) {
+      cumulative[rank] /= total;
+    }
+
+    wordsPerRecord = Integer.parseInt(p.getProperty(WORDS_PER_RECORD_PROPERTY, WORDS_PER_RECORD_PROPERTY_DEFAULT));
+    String distribution = p.getProperty(QUERY_TERM_DISTRIBUTION_PROPERTY, QUERY_TERM_DISTRIBUTION_PROPERTY_DEFAULT);
+    if (!distribution.equals("zipfian") && !distribution.equals("uniform")) {
+      throw new WorkloadException("Unknown query term distribution \"" + distribution + "\"");
+    }
+    zipfianQueries = distribution.equals("zipfian");
+    phraseLength = Integer.parseInt(p.getProperty(PHRASE_LENGTH_PROPERTY, PHRASE_LENGTH_PROPERTY_DEFAULT));
+    booleanTerms = Integer.parseInt(p.getProperty(BOOLEAN_TERMS_PROPERTY, BOOLEAN_TERMS_PROPERTY_DEFAULT));
+    maxResults = Integer.parseInt(p.getProperty(MAX_RESULTS_PROPERTY, MAX_RESULTS_PROPERTY_DEFAULT));
+    recordCount = Long.parseLong(p.getProperty(Client.RECORD_COUNT_PROPERTY, Client.DEFAULT_RECORD_COUNT));
+    if (wordsPerRecord < 1 || phraseLength < 1 || phraseLength > wordsPerRecord || booleanTerms < 1
+        || maxResults < 1 || recordCount < 1) {
+      throw new WorkloadException("Invalid search workload shape");
+    }
+
+    long insertstart = Long.parseLong(p.getProperty(INSERT_START_PROPERTY, INSERT_START_PROPERTY_DEFAULT));
+    keysequence = new CounterGenerator(insertstart);
+
+    operationchooser = new DiscreteGenerator();
+    addQuery(p, TERM_PROPORTION_PROPERTY, TERM_PROPORTION_PROPERTY_DEFAULT, SearchQuery.Type.TERM);
+    addQuery(p, PHRASE_PROPORTION_PROPERTY, PHRASE_PROPORTION_PROPERTY_DEFAULT, SearchQuery.Type.PHRASE);
+    addQuery(p, PREFIX_PROPORTION_PROPERTY, PREFIX_PROPORTION_PROPERTY_DEFAULT, SearchQuery.Type.PREFIX);
+    addQuery(p, AND_PROPORTION_PROPERTY, AND_PROPORTION_PROPERTY_DEFAULT, SearchQuery.Type.AND);
+    addQuery(p, OR_PROPORTION_PROPERTY, OR_PROPORTION_PROPERTY_DEFAULT, SearchQuery.Type.OR);
+  }
+
+  private void addQuery(Properties p, String property, String defaultValue, SearchQuery.Type type) {
+    double proportion = Double.parseDouble(p.getProperty(property, defaultValue));
+    if (proportion > 0) {
+      operationchooser.addValue(proportion, type.name());
+    }
+  }
+
+  private static List<String> readVocabulary(String file) throws WorkloadException {
+    try {
+      List<String> words = new ArrayList<>();
+      for (String line : Files.readAllLines(Paths.get(file), StandardCharsets.UTF_8)) {
+        if (!line.trim().isEmpty()) {
+          words.add(line.trim());
+        }
+      }
+      return words;
+    } catch (IOException e) {
+      throw new WorkloadException("Could not read the search vocabulary " + file, e);
+    }
+  }
+
+  /**
+   * Distinct random lowercase words of 3 to 10 letters.
+   */
+  static List<String> randomVocabulary(int size, long seed) {
+    SplittableRandom random = new SplittableRandom(seed);
+    Set<String> words = new LinkedHashSet<>();
+    char[] letters = new char[10];
+    while (words.size() < size) {
+      int length = 3 + random.nextInt(8);
+      for (int i = 0; i < length; i++) {
+        letters[i] = (char) ('a' + random.nextInt(26));
+      }
+      words.add(new String(letters, 0, length));
+    }
+    return new ArrayList<>(words);
+  }
+
+  /**
+   * The record key of a sequence number.
+   */
+  static String recordKey(long seq) {
+    return "user" + seq;
+  }
+
+  /**
+   * The words of the text of a record.
+   */
+  String[] text(long seq) {
+    // Not the golden gamma SplittableRandom steps by, which would make the texts shifted copies.
+    SplittableRandom random = new SplittableRandom(seed ^ (seq * 0xBF58476D1CE4E5B9L));
+    String[] words = new String[wordsPerRecord];
+    for (int i = 0; i < words.length; i++) {
+      words[i] = vocabulary.get(zipfianRank(random.nextDouble()));
+    }
+    return words;
+  }
+
+  private int zipfianRank(double u) {
+    int rank = Arrays.binarySearch(cumulative, u);
+    return Math.min(cumulative.length - 1, rank >= 0 ? rank : -rank - 1);
+  }
+
+  private String queryTerm(ThreadLocalRandom random) {
+    return vocabulary.get(zipfianQueries ? zipfianRank(random.nextDouble()) : random.nextInt(vocabulary.size()));
+  }
+
+  /**
+   * A random query of the given type.
+   */
+  SearchQuery nextQuery(SearchQuery.Type type) {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    List<String> terms;
+    switch (type) {
+    case PHRASE:
+      String[] words = text(random.nextLong(recordCount));
+      int start = random.nextInt(words.length - phraseLength + 1);
+      terms = Arrays.asList(Arrays.copyOfRange(words, start, start + phraseLength));
+      break;
+    case PREFIX:
+      String term = queryTerm(random);
+      terms = Collections.singletonList(term.substring(0, Math.min(term.length(), 2 + random.nextInt(3))));
+      break;
+    case AND:
+    case OR:
+      Set<String> distinct = new LinkedHashSet<>();
+      while (distinct.size() < Math.min(booleanTerms, vocabulary.size())) {
+        distinct.add(queryTerm(random));
+      }
+      terms = new ArrayList<>(distinct);
+      break;
+    default:
+      terms = Collections.singletonList(queryTerm(random));
+      break;
+    }
+    return new SearchQuery(type, field, terms, maxResults);
+  }
+
+  @Override
+  public boolean doInsert(DB db, Object threadstate) {
+    long seq = keysequence.nextValue().longValue();
+    HashMap<String, ByteIterator> values = new HashMap<>();
+    values.put(field, new StringByteIterator(String.join(" ", text(seq))));
+    Status status = db.insert(table, recordKey(seq), values);
+    return status != null && status.isOk();
+  }
+
+  @Override
+  public boolean doTransaction(DB db, Object threadstate) {
+    String operation = operationchooser.nextString();
+    if (operation == null) {
+      return false;
+    }
+    db.search(table, nextQuery(SearchQuery.Type.valueOf(operation)), new Vector<HashMap<String, ByteIterator>>());
+    return true;
+  }
+}
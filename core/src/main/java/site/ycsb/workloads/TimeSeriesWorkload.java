@@ -540,10 +540,14 @@ public class TimeSeriesWorkload extends Workload {
   
   /** Measurements to write data integrity results to. */
   protected Measurements measurements = Measurements.getMeasurements();
+
+  /** Name data integrity results are recorded under, including any measurement namespace. */
+  private String verifyMeasurementName = "VERIFY";
   
   @Override
   public void init(final Properties p) throws WorkloadException {
     properties = p;
+    verifyMeasurementName = Measurements.namespacePrefix(p) + "VERIFY";
     recordcount =
         Integer.parseInt(p.getProperty(Client.RECORD_COUNT_PROPERTY, 
             Client.DEFAULT_RECORD_COUNT));
@@ -918,8 +922,8 @@ public class TimeSeriesWorkload extends Workload {
       verifyStatus = Status.OK;
     }
     long endTime = System.nanoTime();
-    measurements.measure("VERIFY", (int) (endTime - startTime) / 1000);
-    measurements.reportStatus("VERIFY", verifyStatus);
+    measurements.measure(verifyMeasurementName, (int) (endTime - startTime) / 1000);
+    measurements.reportStatus(verifyMeasurementName, verifyStatus);
     return verifyStatus;
   }
   
@@ -0,0 +1,253 @@
+/**
+ * Copyright (c) 2020 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.workloads;
+
+import site.ycsb.ByteIterator;
+import site.ycsb.DB;
+import site.ycsb.OpTraceReader;
+import site.ycsb.RandomByteIterator;
+import site.ycsb.Workload;
+import site.ycsb.WorkloadException;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays the operation traces captured by {@link site.ycsb.DBWrapper} when
+ * <code>optrace.dir</code> was set, issuing the same operations, keys, field sets and value
+ * lengths in the same per-thread order.
+ * <p>
+ * Trace files are dealt out round robin: with N client threads, thread i replays files i, i+N,
+ * i+2N, ... one after the other. Running with the same thread count as the capture reproduces
+ * the original per-thread sequences exactly. Both the load and the transaction phase replay the
+ * trace; set <code>operationcount</code> to 0 to replay it to the end.
+ * <p>
+ * Properties to control the workload:
+ * <UL>
+ * <LI><b>tracereplay.dir</b>: the directory holding the trace files (required)
+ * <LI><b>tracereplay.timing</b>: if true, each operation waits for its recorded intended start
+ * time relative to the start of its file, otherwise operations are issued back to back or at
+ * the <code>target</code> rate (default: false)
+ * <LI><b>tracereplay.speedup</b>: divides the recorded inter-arrival times when timing is
+ * honored (default: 1.0)
+ * </UL>
+ */
+public class TraceReplayWorkload extends Workload {
+  /**
+   * The name of the property for the directory holding the trace files.
+   */
+  public static final String TRACE_DIR_PROPERTY = "tracereplay.dir";
+
+  /**
+   * The name of the property for honoring the recorded operation start times.
+   */
+  public static final String TIMING_PROPERTY = "tracereplay.timing";
+
+  /**
+   * The default value for the tracereplay.timing property.
+   */
+  public static final String TIMING_PROPERTY_DEFAULT = "false";
+
+  /**
+   * The name of the property for speeding up (or slowing down) a timed replay.
+   */
+  public static final String SPEEDUP_PROPERTY = "tracereplay.speedup";
+
+  /**
+   * The default value for the tracereplay.speedup property.
+   */
+  public static final String SPEEDUP_PROPERTY_DEFAULT = "1.0";
+
+  private List<File> files;
+  private boolean timing;
+  private double speedup;
+
+  /**
+   * Per-thread replay position.
+   */
+  private static final class ReplayState {
+    private final List<File> files;
+    private int nextFile;
+    private OpTraceReader reader;
+    private long fileStartNanos;
+
+    private ReplayState(List<File> files) {
+      this.files = files;
+    }
+  }
+
+  @Override
+  public void init(Properties p) throws WorkloadException {
+    String dir = p.getProperty(TRACE_DIR_PROPERTY);
+    if (dir == null) {
+      throw new WorkloadException("Missing property: " + TRACE_DIR_PROPERTY);
+    }
+    try {
+      files = OpTraceReader.listTraceFiles(new File(dir));
+    } catch (IOException e) {
+      throw new WorkloadException("Unable to read trace directory " + dir, e);
+    }
+    if (files.isEmpty()) {
+      throw new WorkloadException("No operation traces found in " + dir);
+    }
+    timing = Boolean.parseBoolean(p.getProperty(TIMING_PROPERTY, TIMING_PROPERTY_DEFAULT));
+    speedup = Double.parseDouble(p.getProperty(SPEEDUP_PROPERTY, SPEEDUP_PROPERTY_DEFAULT));
+    if (speedup <= 0) {
+      throw new WorkloadException(SPEEDUP_PROPERTY + " must be positive");
+    }
+  }
+
+  @Override
+  public Object initThread(Properties p, int mythreadid, int threadcount) throws WorkloadException {
+    List<File> mine = new ArrayList<>();
+    for (int i = mythreadid; i < files.size(); i += threadcount) {
+      mine.add(files.get(i));
+    }
+    return new ReplayState(mine);
+  }
+
+  @Override
+  public boolean doInsert(DB db, Object threadstate) {
+    return doTransaction(db, threadstate);
+  }
+
+  @Override
+  public boolean doTransaction(DB db, Object threadstate) {
+    ReplayState state = (ReplayState) threadstate;
+    OpTraceReader.Record record;
+    try {
+      record = nextRecord(state);
+    } catch (IOException e) {
+      System.err.println("Unable to read operation trace: " + e.getMessage());
+      return false;
+    }
+    if (record == null) {
+      return false;
+    }
+    if (timing) {
+      long deadline = state.fileStartNanos + (long) (record.getIntendedStartNanos() / speedup);
+      while (System.nanoTime() < deadline) {
+        LockSupport.parkNanos(deadline - System.nanoTime());
+      }
+    }
+    replay(db, record);
+    return true;
+  }
+
+  private static OpTraceReader.Record nextRecord(ReplayState state) throws IOException {
+    while (true) {
+      if (state.reader == null) {
+        if (state.nextFile >= state.files.size()) {
+          return null;
+        }
+        state.reader = new OpTraceReader(state.files.get(state.nextFile++));
+        state.fileStartNanos = System.nanoTime();
+      }
+      OpTraceReader.Record record = state.reader.next();
+      if (record != null) {
+        return record;
+      }
+      state.reader.close();
+      state.reader = null;
+    }
+  }
+
+  private static void replay(DB db, OpTraceReader.Record r) {
+    String table = r.getTable();
+    String key = r.getKey();
+    Set<String> fields = r.getFields() == null ? null : new HashSet<>(Arrays.asList(r.getFields()));
+    int count = r.getRecordcount();
+    switch (r.getOp()) {
+    case READ:
+      db.read(table, key, fields, new HashMap<String, ByteIterator>());
+      break;
+    case UPDATE:
+      db.update(table, key, buildValues(r));
+      break;
+    case INSERT:
+      db.insert(table, key, buildValues(r));
+      break;
+    case DELETE:
+      db.delete(table, key);
+      break;
+    case SCAN:
+      db.scan(table, key, count, fields, new Vector<HashMap<String, ByteIterator>>());
+      break;
+    case ARRAYSCAN:
+      db.arrayscan(table, key, count, fields, new Vector<HashMap<String, ByteIterator>>());
+      break;
+    case SEARCH:
+      if (r.getSearchQuery() != null) {
+        db.search(table, r.getSearchQuery(), new Vector<HashMap<String, ByteIterator>>());
+      } else {
+        db.search(table, key, count, fields, new Vector<HashMap<String, ByteIterator>>());
+      }
+      break;
+    case GRAPHTRAVERSAL:
+      if (r.getEdgeTable() != null) {
+        db.graphTraversal(table, r.getEdgeTable(), key, count, fields, new Vector<HashMap<String, ByteIterator>>());
+      } else {
+        db.graphTraversal(table, key, count, fields, new Vector<HashMap<String, ByteIterator>>());
+      }
+      break;
+    case GRAPHSHORTESTPATH:
+      if (r.getEdgeTable() != null) {
+        db.graphShortestPath(table, r.getEdgeTable(), key, r.getEndKey(), new Vector<HashMap<String, ByteIterator>>());
+      } else {
+        db.graphShortestPath(table, key, count, fields, new Vector<HashMap<String, ByteIterator>>());
+      }
+      break;
+    case JOIN:
+      db.join(table, key, count, fields, new Vector<HashMap<String, ByteIterator>>());
+      break;
+    case GROUP:
+      db.group(table, key, count, fields, new Vector<HashMap<String, ByteIterator>>());
+      break;
+    case AGGREGATE:
+      if (r.getAggregateQuery() != null) {
+        db.aggregate(table, r.getAggregateQuery(), new Vector<HashMap<String, ByteIterator>>());
+      } else {
+        db.aggregate(table, key, count, fields, new Vector<HashMap<String, ByteIterator>>());
+      }
+      break;
+    default:
+      throw new IllegalStateException("Unknown traced operation " + r.getOp());
+    }
+  }
+
+  private static HashMap<String, ByteIterator> buildValues(OpTraceReader.Record r) {
+    HashMap<String, ByteIterator> values = new HashMap<>();
+    String[] names = r.getFields();
+    int[] lengths = r.getValueLengths();
+    if (names != null) {
+      for (int i = 0; i < names.length; i++) {
+        values.put(names[i], new RandomByteIterator(Math.max(0, lengths[i])));
+      }
+    }
+    return values;
+  }
+}
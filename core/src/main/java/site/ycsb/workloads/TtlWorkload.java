@@ -0,0 +1,298 @@
+/**
+ * Copyright (c) 2020 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.workloads;
+
+import site.ycsb.ByteIterator;
+import site.ycsb.Client;
+import site.ycsb.DB;
+import site.ycsb.NumericByteIterator;
+import site.ycsb.RandomByteIterator;
+import site.ycsb.Status;
+import site.ycsb.Workload;
+import site.ycsb.WorkloadException;
+import site.ycsb.generator.AcknowledgedCounterGenerator;
+import site.ycsb.generator.CounterGenerator;
+import site.ycsb.generator.DiscreteGenerator;
+import site.ycsb.generator.SkewedLatestGenerator;
+import site.ycsb.measurements.Measurements;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A key-value workload whose records expire: each record holds a value and, in the
+ * {@link DB#EXPIRE_AT} field, the time in seconds since the epoch after which the database may
+ * drop it, or -1 for never. Bindings with native expiry map the field onto it; the others store it
+ * like any field.
+ * <p>
+ * Transactions read keys written so far, insert new keys with new time-to-lives, and optionally
+ * refresh the value and time-to-live of existing keys. As keys keep being written and expire, a
+ * long run reaches a steady state of expiry churn; run it with the timeseries measurement type to
+ * see how that churn affects latencies over time.
+ * <p>
+ * Misses are expected, so reads and refreshes of missing keys do not stop the client thread, but
+ * they are still measured as failed READ and UPDATE operations. The workload classifies every read
+ * and measures it again under one of:
+ * <UL>
+ * <LI><b>READ-FRESH</b>: the record was found and has not expired
+ * <LI><b>READ-EXPIRED</b>: the record was found although it expired, i.e. an expired hit
+ * <LI><b>READ-MISS</b>: the record was not found
+ * </UL>
+ * The expired-hit ratio is the number of READ-EXPIRED operations over the number of reads.
+ * <p>
+ * Properties to control the workload:
+ * <UL>
+ * <LI><b>ttl.distribution</b>: "constant", "uniform" or "exponential" time-to-lives (default:
+ * uniform)
+ * <LI><b>ttl.min</b> and <b>ttl.max</b>: the range of time-to-lives in seconds; constant ones use
+ * <b>ttl.min</b> and exponential ones are capped at <b>ttl.max</b> (default: 60 and 3600)
+ * <LI><b>ttl.mean</b>: the mean of exponential time-to-lives in seconds (default: 600)
+ * <LI><b>ttl.noexpiryproportion</b>: the share of records that never expire (default: 0)
+ * <LI><b>ttl.readproportion</b>, <b>ttl.insertproportion</b> and <b>ttl.refreshproportion</b>:
+ * the operation mix (default: 0.8, 0.2 and 0)
+ * <LI><b>requestdistribution</b>: "uniform" over all keys written so far, which reads many
+ * expired keys, or "latest", which favors recent ones (default: uniform)
+ * <LI><b>fieldlength</b>: the length of values (default: 100)
+ * </UL>
+ */
+public class TtlWorkload extends Workload {
+  /** Name and default value for the time-to-live distribution property. */
+  public static final String TTL_DISTRIBUTION_PROPERTY = "ttl.distribution";
+  public static final String TTL_DISTRIBUTION_PROPERTY_DEFAULT = "uniform";
+
+  /** Name and default value for the smallest time-to-live property. */
+  public static final String TTL_MIN_PROPERTY = "ttl.min";
+  public static final String TTL_MIN_PROPERTY_DEFAULT = "60";
+
+  /** Name and default value for the largest time-to-live property. */
+  public static final String TTL_MAX_PROPERTY = "ttl.max";
+  public static final String TTL_MAX_PROPERTY_DEFAULT = "3600";
+
+  /** Name and default value for the mean exponential time-to-live property. */
+  public static final String TTL_MEAN_PROPERTY = "ttl.mean";
+  public static final String TTL_MEAN_PROPERTY_DEFAULT = "600";
+
+  /** Name and default value for the share of records that never expire property. */
+  public static final String NO_EXPIRY_PROPORTION_PROPERTY = "ttl.noexpiryproportion";
+  public static final String NO_EXPIRY_PROPORTION_PROPERTY_DEFAULT = "0";
+
+  /** Name and default value for the read proportion property. */
+  public static final String READ_PROPORTION_PROPERTY = "ttl.readproportion";
+  public static final String READ_PROPORTION_PROPERTY_DEFAULT = "0.8";
+
+  /** Name and default value for the insert proportion property. */
+  public static final String INSERT_PROPORTION_PROPERTY = "ttl.insertproportion";
+  public static final String INSERT_PROPORTION_PROPERTY_DEFAULT = "0.2";
+
+  /** Name and default value for the refresh proportion property. */
+  public static final String REFRESH_PROPORTION_PROPERTY = "ttl.refreshproportion";
+  public static final String REFRESH_PROPORTION_PROPERTY_DEFAULT = "0";
+
+  /** The field holding the value of a record. */
+  public static final String VALUE_FIELD = "value";
+
+  /** How a read turned out. */
+  enum ReadOutcome {
+    FRESH,
+    EXPIRED,
+    MISS
+  }
+
+  private String table;
+  private String distribution;
+  private long minTtl;
+  private long maxTtl;
+  private double meanTtl;
+  private double noExpiryProportion;
+  private int valueLength;
+  private boolean latest;
+  private CounterGenerator keysequence;
+  private AcknowledgedCounterGenerator transactioninsertkeysequence;
+  private SkewedLatestGenerator latestchooser;
+  private DiscreteGenerator operationchooser;
+  private Measurements measurements;
+  private String[] readMeasurementNames;
+
+  @Override
+  public void init(Properties p) throws WorkloadException {
+    table = p.getProperty(CoreWorkload.TABLENAME_PROPERTY, CoreWorkload.TABLENAME_PROPERTY_DEFAULT);
+    distribution = p.getProperty(TTL_DISTRIBUTION_PROPERTY, TTL_DISTRIBUTION_PROPERTY_DEFAULT);
+    if (!distribution.equals("constant") && !distribution.equals("uniform") && !distribution.equals("exponential")) {
+      throw new WorkloadException("Unknown time-to-live distribution \"" + distribution + "\"");
+    }
+    minTtl = Long.parseLong(p.getProperty(TTL_MIN_PROPERTY, TTL_MIN_PROPERTY_DEFAULT));
+    maxTtl = Long.parseLong(p.getProperty(TTL_MAX_PROPERTY, TTL_MAX_PROPERTY_DEFAULT));
+    meanTtl = Double.parseDouble(p.getProperty(TTL_MEAN_PROPERTY, TTL_MEAN_PROPERTY_DEFAULT));
+    noExpiryProportion = Double.parseDouble(p.getProperty(NO_EXPIRY_PROPORTION_PROPERTY,
+        NO_EXPIRY_PROPORTION_PROPERTY_DEFAULT));
+    if (minTtl < 0 || maxTtl < minTtl || meanTtl <= 0) {
+      throw new WorkloadException("Invalid time-to-lives: min " + minTtl + ", max " + maxTtl + ", mean " + meanTtl);
+    }
+    valueLength = Integer.parseInt(p.getProperty(CoreWorkload.FIELD_LENGTH_PROPERTY,
+        CoreWorkload.FIELD_LENGTH_PROPERTY_DEFAULT));
+
+    String requestdistrib = p.getProperty(CoreWorkload.REQUEST_DISTRIBUTION_PROPERTY, "uniform");
+    if (!requestdistrib.equals("uniform") && !requestdistrib.equals("latest")) {
+      throw new WorkloadException("Unknown request distribution \"" + requestdistrib + "\"");
+    }
+    latest = requestdistrib.equals("latest");
+    long recordCount = Long.parseLong(p.getProperty(Client.RECORD_COUNT_PROPERTY, Client.DEFAULT_RECORD_COUNT));
+    long insertStart = Long.parseLong(p.getProperty(INSERT_START_PROPERTY, INSERT_START_PROPERTY_DEFAULT));
+    keysequence = new CounterGenerator(insertStart);
+    transactioninsertkeysequence = new AcknowledgedCounterGenerator(recordCount);
+    latestchooser = new SkewedLatestGenerator(transactioninsertkeysequence);
+
+    operationchooser = new DiscreteGenerator();
+    addOperation(p, READ_PROPORTION_PROPERTY, READ_PROPORTION_PROPERTY_DEFAULT, "READ");
+    addOperation(p, INSERT_PROPORTION_PROPERTY, INSERT_PROPORTION_PROPERTY_DEFAULT, "INSERT");
+    addOperation(p, REFRESH_PROPORTION_PROPERTY, REFRESH_PROPORTION_PROPERTY_DEFAULT, "REFRESH");
+
+    measurements = Measurements.getMeasurements();
+    String prefix = Measurements.namespacePrefix(p);
+    readMeasurementNames = new String[ReadOutcome.values().length];
+    for (ReadOutcome outcome : ReadOutcome.values()) {
+      readMeasurementNames[outcome.ordinal()] = prefix + "READ-" + outcome.name();
+    }
+  }
+
+  private void addOperation(Properties p, String property, String defaultValue, String op) {
+    double proportion = Double.parseDouble(p.getProperty(property, defaultValue));
+    if (proportion > 0) {
+      operationchooser.addValue(proportion, op);
+    }
+  }
+
+  /**
+   * The record key of a key number.
+   */
+  static String recordKey(long keynum) {
+    return "key" + keynum;
+  }
+
+  /**
+   * A time-to-live in seconds, or -1 for a record that never expires.
+   */
+  long nextTtl() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    if (noExpiryProportion > 0 && random.nextDouble() < noExpiryProportion) {
+      return -1;
+    }
+    switch (distribution) {
+    case "constant":
+      return minTtl;
+    case "exponential":
+      return Math.min(maxTtl, minTtl + Math.round(-meanTtl * Math.log(1 - random.nextDouble())));
+    default:
+      return minTtl + random.nextLong(maxTtl - minTtl + 1);
+    }
+  }
+
+  /**
+   * A new value and expiry time.
+   */
+  HashMap<String, ByteIterator> nextValues() {
+    HashMap<String, ByteIterator> values = new HashMap<>();
+    values.put(VALUE_FIELD, new RandomByteIterator(valueLength));
+    long ttl = nextTtl();
+    values.put(DB.EXPIRE_AT, new NumericByteIterator(ttl < 0 ? -1 : System.currentTimeMillis() / 1000 + ttl));
+    return values;
+  }
+
+  /**
+   * Classify a read by its status and the expiry time of the record it returned.
+   */
+  static ReadOutcome classify(Status status, Map<String, ByteIterator> result, long nowSeconds) {
+    if (status == Status.NOT_FOUND || (status != null && status.isOk() && result.isEmpty())) {
+      return ReadOutcome.MISS;
+    }
+    ByteIterator expireAt = result.get(DB.EXPIRE_AT);
+    if (expireAt == null) {
+      return ReadOutcome.FRESH;
+    }
+    long seconds;
+    if (expireAt instanceof NumericByteIterator) {
+      seconds = ((NumericByteIterator) expireAt).getLong();
+    } else {
+      try {
+        seconds = Long.parseLong(expireAt.toString().trim());
+      } catch (NumberFormatException e) {
+        return ReadOutcome.FRESH;
+      }
+    }
+    return seconds >= 0 && seconds <= nowSeconds ? ReadOutcome.EXPIRED : ReadOutcome.FRESH;
+  }
+
+  @Override
+  public boolean doInsert(DB db, Object threadstate) {
+    long keynum = keysequence.nextValue();
+    Status status = db.insert(table, recordKey(keynum), nextValues());
+    return null != status && status.isOk();
+  }
+
+  @Override
+  public boolean doTransaction(DB db, Object threadstate) {
+    String operation = operationchooser.nextString();
+    if (operation == null) {
+      return false;
+    }
+    switch (operation) {
+    case "INSERT":
+      long keynum = transactioninsertkeysequence.nextValue();
+      try {
+        db.insert(table, recordKey(keynum), nextValues());
+      } finally {
+        transactioninsertkeysequence.acknowledge(keynum);
+      }
+      break;
+    case "REFRESH":
+      db.update(table, recordKey(nextKeynum()), nextValues());
+      break;
+    default:
+      doTransactionRead(db);
+      break;
+    }
+    return true;
+  }
+
+  /**
+   * Read a key and measure the read again under whether it missed, found an expired record or
+   * found a fresh one. Failed and pending reads are left to the usual measurements.
+   */
+  private void doTransactionRead(DB db) {
+    HashMap<String, ByteIterator> result = new HashMap<>();
+    long start = System.nanoTime();
+    Status status = db.read(table, recordKey(nextKeynum()), null, result);
+    long end = System.nanoTime();
+    if (status == Status.NOT_FOUND || (status != null && status.isOk() && status != Status.PENDING)) {
+      ReadOutcome outcome = classify(status, result, System.currentTimeMillis() / 1000);
+      measurements.measure(readMeasurementNames[outcome.ordinal()], (int) ((end - start) / 1000));
+    }
+  }
+
+  /**
+   * A key written so far, uniformly or favoring recent ones.
+   */
+  long nextKeynum() {
+    if (latest) {
+      return latestchooser.nextValue();
+    }
+    return ThreadLocalRandom.current().nextLong(transactioninsertkeysequence.lastValue() + 1);
+  }
+}
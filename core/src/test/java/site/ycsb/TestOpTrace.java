@@ -0,0 +1,307 @@
+/**
+ * Copyright (c) 2020 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.Vector;
+
+import org.apache.htrace.core.HTraceConfiguration;
+import org.apache.htrace.core.Tracer;
+import org.testng.annotations.Test;
+
+import site.ycsb.measurements.Measurements;
+import site.ycsb.workloads.TraceReplayWorkload;
+
+public class TestOpTrace {
+
+  @Test
+  public void captureAndReplay() throws Exception {
+    File dir = Files.createTempDirectory("optrace").toFile();
+    Properties p = new Properties();
+    p.setProperty(OpTraceWriter.TRACE_DIR_PROPERTY, dir.getAbsolutePath());
+    Measurements.setProperties(p);
+    Tracer tracer = new Tracer.Builder("test")
+        .conf(HTraceConfiguration.fromMap(Collections.<String, String>emptyMap())).build();
+
+    RecordingDB captured = new RecordingDB();
+    captured.setProperties(p);
+    DBWrapper wrapper = new DBWrapper(captured, tracer);
+    wrapper.init();
+
+    HashMap<String, ByteIterator> values = new HashMap<>();
+    values.put("field0", new RandomByteIterator(100));
+    values.put("field1", new RandomByteIterator(20));
+    wrapper.insert("usertable", "user1", values);
+    wrapper.read("usertable", "user1", null, new HashMap<String, ByteIterator>());
+    Set<String> fields = new HashSet<>();
+    fields.add("field1");
+    wrapper.scan("usertable", "user1", 7, fields, new Vector<HashMap<String, ByteIterator>>());
+    wrapper.delete("usertable", "user1");
+    wrapper.graphTraversal("vertices", "edges", "v1", 3, null, new Vector<HashMap<String, ByteIterator>>());
+    wrapper.graphShortestPath("vertices", "edges", "v1", "v9", new Vector<HashMap<String, ByteIterator>>());
+    wrapper.aggregate("usertable", "user1", 5, null, new Vector<HashMap<String, ByteIterator>>());
+    AggregateQuery query = new AggregateQuery(AggregateQuery.Function.SUM, "amount", "category", "seq", 10, 20);
+    wrapper.aggregate("usertable", query, new Vector<HashMap<String, ByteIterator>>());
+    wrapper.search("usertable", "user1", 3, null, new Vector<HashMap<String, ByteIterator>>());
+    SearchQuery search = new SearchQuery(SearchQuery.Type.PHRASE, "text", Arrays.asList("quick", "fox"), 10);
+    wrapper.search("usertable", search, new Vector<HashMap<String, ByteIterator>>());
+    wrapper.cleanup();
+
+    List<File> files = OpTraceReader.listTraceFiles(dir);
+    assertEquals(files.size(), 1);
+    try (OpTraceReader reader = new OpTraceReader(files.get(0))) {
+      OpTraceReader.Record insert = reader.next();
+      assertEquals(insert.getOp(), Workload.Operation.INSERT);
+      assertEquals(insert.getKey(), "user1");
+      assertEquals(insert.getTable(), "usertable");
+      assertEquals(insert.getValueBytes(), 120);
+      assertEquals(insert.getFields().length, 2);
+      assertEquals(insert.getStatus(), "OK");
+
+      OpTraceReader.Record read = reader.next();
+      assertEquals(read.getOp(), Workload.Operation.READ);
+      assertNull(read.getFields());
+      assertEquals(read.getValueBytes(), 5);
+
+      OpTraceReader.Record scan = reader.next();
+      assertEquals(scan.getOp(), Workload.Operation.SCAN);
+      assertEquals(scan.getRecordcount(), 7);
+      assertEquals(scan.getFields()[0], "field1");
+      assertEquals(scan.getValueLengths()[0], -1);
+      assertTrue(scan.getStartNanos() >= read.getStartNanos());
+
+      assertEquals(reader.next().getOp(), Workload.Operation.DELETE);
+
+      OpTraceReader.Record traversal = reader.next();
+      assertEquals(traversal.getOp(), Workload.Operation.GRAPHTRAVERSAL);
+      assertEquals(traversal.getTable(), "vertices");
+      assertEquals(traversal.getEdgeTable(), "edges");
+      assertEquals(traversal.getRecordcount(), 3);
+      assertNull(traversal.getEndKey());
+
+      OpTraceReader.Record path = reader.next();
+      assertEquals(path.getOp(), Workload.Operation.GRAPHSHORTESTPATH);
+      assertEquals(path.getEdgeTable(), "edges");
+      assertEquals(path.getEndKey(), "v9");
+
+      OpTraceReader.Record byKey = reader.next();
+      assertEquals(byKey.getOp(), Workload.Operation.AGGREGATE);
+      assertEquals(byKey.getKey(), "user1");
+      assertNull(byKey.getAggregateQuery());
+
+      OpTraceReader.Record aggregate = reader.next();
+      assertEquals(aggregate.getOp(), Workload.Operation.AGGREGATE);
+      assertEquals(aggregate.getAggregateQuery().toString(), query.toString());
+
+      OpTraceReader.Record searchByKey = reader.next();
+      assertEquals(searchByKey.getOp(), Workload.Operation.SEARCH);
+      assertEquals(searchByKey.getKey(), "user1");
+      assertNull(searchByKey.getSearchQuery());
+
+      OpTraceReader.Record text = reader.next();
+      assertEquals(text.getOp(), Workload.Operation.SEARCH);
+      assertEquals(text.getSearchQuery().toString(), search.toString());
+      assertNull(reader.next());
+    }
+
+    Properties replayProps = new Properties();
+    replayProps.setProperty(TraceReplayWorkload.TRACE_DIR_PROPERTY, dir.getAbsolutePath());
+    TraceReplayWorkload workload = new TraceReplayWorkload();
+    workload.init(replayProps);
+    Object state = workload.initThread(replayProps, 0, 1);
+    RecordingDB replayed = new RecordingDB();
+    while (workload.doTransaction(replayed, state)) {
+      // replay to the end
+    }
+    assertEquals(replayed.ops, captured.ops);
+    assertEquals(replayed.insertedBytes, 120);
+
+    for (File f : files) {
+      f.delete();
+    }
+    dir.delete();
+  }
+
+  @Test
+  public void failedWriteDoesNotLeakValues() throws Exception {
+    File dir = Files.createTempDirectory("optrace").toFile();
+    Properties p = new Properties();
+    p.setProperty(OpTraceWriter.TRACE_DIR_PROPERTY, dir.getAbsolutePath());
+    Measurements.setProperties(p);
+    Tracer tracer = new Tracer.Builder("test")
+        .conf(HTraceConfiguration.fromMap(Collections.<String, String>emptyMap())).build();
+
+    RecordingDB captured = new RecordingDB();
+    captured.setProperties(p);
+    DBWrapper wrapper = new DBWrapper(captured, tracer);
+    wrapper.init();
+
+    HashMap<String, ByteIterator> values = new HashMap<>();
+    values.put("field0", new RandomByteIterator(100));
+    try {
+      wrapper.update("usertable", "fail", values);
+      assertTrue(false, "The update should have thrown");
+    } catch (IllegalStateException expected) {
+      // the binding failed before the update was traced
+    }
+    wrapper.read("usertable", "user1", null, new HashMap<String, ByteIterator>());
+    wrapper.cleanup();
+
+    List<File> files = OpTraceReader.listTraceFiles(dir);
+    assertEquals(files.size(), 1);
+    try (OpTraceReader reader = new OpTraceReader(files.get(0))) {
+      OpTraceReader.Record read = reader.next();
+      assertEquals(read.getOp(), Workload.Operation.READ);
+      assertNull(read.getFields());
+      assertEquals(read.getValueBytes(), 5);
+      assertNull(reader.next());
+    }
+
+    for (File f : files) {
+      f.delete();
+    }
+    dir.delete();
+  }
+
+  static class RecordingDB extends DB {
+    final List<String> ops = new ArrayList<>();
+    long insertedBytes;
+
+    @Override
+    public Status read(String table, String key, Set<String> fields, Map<String, ByteIterator> result) {
+      ops.add("read " + key + " " + fields);
+      result.put("field0", new StringByteIterator("hello"));
+      return Status.OK;
+    }
+
+    @Override
+    public Status scan(String table, String startkey, int recordcount, Set<String> fields,
+                       Vector<HashMap<String, ByteIterator>> result) {
+      ops.add("scan " + startkey + " " + recordcount + " " + fields);
+      return Status.OK;
+    }
+
+    @Override
+    public Status arrayscan(String table, String startkey, int recordcount, Set<String> fields,
+                            Vector<HashMap<String, ByteIterator>> result) {
+      return Status.NOT_IMPLEMENTED;
+    }
+
+    @Override
+    public Status search(String table, String startkey, int recordcount, Set<String> fields,
+                         Vector<HashMap<String, ByteIterator>> result) {
+      ops.add("search " + startkey + " " + recordcount);
+      return Status.OK;
+    }
+
+    @Override
+    public Status search(String table, SearchQuery query, Vector<HashMap<String, ByteIterator>> result) {
+      ops.add("search " + query);
+      return Status.OK;
+    }
+
+    @Override
+    public Status update(String table, String key, Map<String, ByteIterator> values) {
+      if ("fail".equals(key)) {
+        throw new IllegalStateException("update of " + key + " failed");
+      }
+      return Status.NOT_IMPLEMENTED;
+    }
+
+    @Override
+    public Status insert(String table, String key, Map<String, ByteIterator> values) {
+      ops.add("insert " + key + " " + new TreeSet<>(values.keySet()));
+      for (ByteIterator value : values.values()) {
+        insertedBytes += value.toArray().length;
+      }
+      return Status.OK;
+    }
+
+    @Override
+    public Status delete(String table, String key) {
+      ops.add("delete " + key);
+      return Status.OK;
+    }
+
+    @Override
+    public Status graphTraversal(String table, String startkey, int recordcount, Set<String> fields,
+                                 Vector<HashMap<String, ByteIterator>> result) {
+      return Status.NOT_IMPLEMENTED;
+    }
+
+    @Override
+    public Status graphShortestPath(String table, String startkey, int recordcount, Set<String> fields,
+                                    Vector<HashMap<String, ByteIterator>> result) {
+      return Status.NOT_IMPLEMENTED;
+    }
+
+    @Override
+    public Status graphTraversal(String vertexTable, String edgeTable, String startkey, int depth, Set<String> fields,
+                                 Vector<HashMap<String, ByteIterator>> result) {
+      ops.add("traverse " + vertexTable + " " + edgeTable + " " + startkey + " " + depth);
+      return Status.OK;
+    }
+
+    @Override
+    public Status graphShortestPath(String vertexTable, String edgeTable, String startkey, String endkey,
+                                    Vector<HashMap<String, ByteIterator>> result) {
+      ops.add("path " + vertexTable + " " + edgeTable + " " + startkey + " " + endkey);
+      return Status.OK;
+    }
+
+    @Override
+    public Status join(String table, String startkey, int recordcount, Set<String> fields,
+                       Vector<HashMap<String, ByteIterator>> result) {
+      return Status.NOT_IMPLEMENTED;
+    }
+
+    @Override
+    public Status group(String table, String startkey, int recordcount, Set<String> fields,
+                        Vector<HashMap<String, ByteIterator>> result) {
+      return Status.NOT_IMPLEMENTED;
+    }
+
+    @Override
+    public Status aggregate(String table, String startkey, int recordcount, Set<String> fields,
+                            Vector<HashMap<String, ByteIterator>> result) {
+      ops.add("aggregate " + startkey + " " + recordcount);
+      return Status.OK;
+    }
+
+    @Override
+    public Status aggregate(String table, AggregateQuery query, Vector<HashMap<String, ByteIterator>> result) {
+      ops.add("aggregate " + query);
+      return Status.OK;
+    }
+  }
+}
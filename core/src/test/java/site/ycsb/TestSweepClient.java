@@ -0,0 +1,54 @@
+/**
+ * Copyright (c) 2020 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package site.ycsb;
+
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Test class for {@link SweepClient}.
+ */
+public class TestSweepClient {
+
+  @Test
+  public void threadCountVariesFastest() {
+    Properties props = new Properties();
+    props.setProperty("sweep.threadcount", "1, 2");
+    props.setProperty("sweep.zeropadding", "1,4");
+    props.setProperty("sweep.fieldlength", "100");
+    props.setProperty(SweepClient.SWEEP_PAUSE_PROPERTY, "10");
+
+    List<Map<String, String>> matrix = SweepClient.matrix(props);
+
+    List<String> points = new ArrayList<>();
+    for (Map<String, String> point : matrix) {
+      points.add(point.toString());
+    }
+    assertEquals(points, Arrays.asList(
+        "{fieldlength=100, zeropadding=1, threadcount=1}",
+        "{fieldlength=100, zeropadding=1, threadcount=2}",
+        "{fieldlength=100, zeropadding=4, threadcount=1}",
+        "{fieldlength=100, zeropadding=4, threadcount=2}"));
+  }
+}
@@ -0,0 +1,80 @@
+/**
+ * Copyright (c) 2020 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Properties;
+
+import org.testng.annotations.Test;
+
+import site.ycsb.measurements.Measurements;
+
+public class TestWorkloadGroup {
+
+  @Test
+  public void singleUnnamedGroupByDefault() {
+    Properties p = new Properties();
+    p.setProperty(Client.WORKLOAD_PROPERTY, "site.ycsb.workloads.CoreWorkload");
+    List<WorkloadGroup> groups = WorkloadGroup.fromProperties(p);
+    assertEquals(groups.size(), 1);
+    assertEquals(groups.get(0).getName(), "");
+    assertSame(groups.get(0).getProperties(), p);
+    assertEquals(Measurements.namespacePrefix(p), "");
+    assertTrue(Client.checkRequiredProperties(p));
+  }
+
+  @Test
+  public void groupsOverrideTopLevelProperties() {
+    Properties p = new Properties();
+    p.setProperty(WorkloadGroup.WORKLOAD_GROUPS_PROPERTY, "kv, scan");
+    p.setProperty(Client.WORKLOAD_PROPERTY, "site.ycsb.workloads.CoreWorkload");
+    p.setProperty(Client.THREAD_COUNT_PROPERTY, "4");
+    p.setProperty("workloadgroup.kv.target", "1000");
+    p.setProperty("workloadgroup.scan.threadcount", "2");
+    p.setProperty("workloadgroup.scan.table", "scantable");
+
+    List<WorkloadGroup> groups = WorkloadGroup.fromProperties(p);
+    assertEquals(groups.size(), 2);
+
+    WorkloadGroup kv = groups.get(0);
+    assertEquals(kv.getName(), "kv");
+    assertEquals(kv.getThreadCount(), 4);
+    assertEquals(kv.getTargetPerThreadPerMs(), 0.25);
+    assertNull(kv.getProperties().getProperty("table"));
+    assertNull(kv.getProperties().getProperty("workloadgroup.scan.table"));
+    assertEquals(Measurements.namespacePrefix(kv.getProperties()), "kv.");
+
+    WorkloadGroup scan = groups.get(1);
+    assertEquals(scan.getName(), "scan");
+    assertEquals(scan.getThreadCount(), 2);
+    assertEquals(scan.getTargetPerThreadPerMs(), -1.0);
+    assertEquals(scan.getProperties().getProperty("table"), "scantable");
+    assertEquals(Measurements.namespacePrefix(scan.getProperties()), "scan.");
+
+    assertTrue(Client.checkRequiredProperties(p));
+    p.remove(Client.WORKLOAD_PROPERTY);
+    p.setProperty("workloadgroup.kv.workload", "site.ycsb.workloads.CoreWorkload");
+    assertFalse(Client.checkRequiredProperties(p));
+  }
+}
@@ -0,0 +1,73 @@
+/**
+ * Copyright (c) 2020 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.generator;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.zip.Deflater;
+
+import org.testng.annotations.Test;
+
+public class TestCompressibleValueGenerator {
+
+  @Test
+  public void valuesHaveRequestedLength() {
+    CompressibleValueGenerator gen = new CompressibleValueGenerator(2.0, 6, 32, 0, 1024, 0);
+    assertEquals(gen.nextValue(100).toArray().length, 100);
+    assertEquals(gen.nextValue(1024).toArray().length, 1024);
+    assertEquals(gen.nextValue(5000).toArray().length, 5000);
+  }
+
+  @Test
+  public void reachesTargetRatio() {
+    for (double ratio : new double[] {1.0, 2.0, 4.0}) {
+      CompressibleValueGenerator gen = new CompressibleValueGenerator(ratio, 8, 64, 0, 1 << 20, 0);
+      double achieved = deflateRatio(gen, 1000);
+      assertTrue(achieved > ratio * 0.75 && achieved < ratio * 1.25,
+          "target " + ratio + ", achieved " + achieved);
+    }
+  }
+
+  @Test
+  public void lowerEntropyCompressesFurther() {
+    CompressibleValueGenerator wide = new CompressibleValueGenerator(1.0, 8, 64, 0, 1 << 20, 0);
+    CompressibleValueGenerator narrow = new CompressibleValueGenerator(1.0, 4, 64, 0, 1 << 20, 0);
+    assertTrue(deflateRatio(narrow, 1000) > 1.6 * deflateRatio(wide, 1000));
+  }
+
+  /**
+   * Compresses each value on its own, the way per-value compression would, and returns the
+   * overall ratio.
+   */
+  private static double deflateRatio(CompressibleValueGenerator gen, int length) {
+    long raw = 0;
+    long compressed = 0;
+    byte[] out = new byte[2 * length + 64];
+    for (int i = 0; i < 200; i++) {
+      byte[] value = gen.nextValue(length).toArray();
+      Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+      deflater.setInput(value);
+      deflater.finish();
+      compressed += deflater.deflate(out);
+      deflater.end();
+      raw += value.length;
+    }
+    return (double) raw / compressed;
+  }
+}
@@ -0,0 +1,107 @@
+/**
+ * Copyright (c) 2020 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.generator;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.annotations.Test;
+
+import site.ycsb.DocumentByteIterator;
+import site.ycsb.NumericByteIterator;
+
+public class TestDocumentGenerator {
+
+  @Test
+  public void documentsShareTheSchema() {
+    DocumentGenerator gen = new DocumentGenerator(3, 5, 3, 8, new double[] {1, 1, 1, 1, 1}, 42);
+    Map<String, Object> first = gen.nextValue();
+    Map<String, Object> second = gen.nextValue();
+    assertEquals(first.keySet(), second.keySet());
+    assertEquals(first.size(), 5);
+    assertEquals(depth(first), depth(second));
+    assertTrue(depth(first) <= 3);
+    for (Map.Entry<String, Object> entry : first.entrySet()) {
+      char type = entry.getKey().charAt(0);
+      Object value = entry.getValue();
+      if (type == 's') {
+        assertEquals(((String) value).length(), 8);
+      } else if (type == 'n') {
+        assertTrue(value instanceof Long || value instanceof Double);
+      } else if (type == 'b') {
+        assertTrue(value instanceof Boolean);
+      } else if (type == 'o') {
+        assertTrue(value instanceof Map);
+      } else {
+        assertTrue(((List<?>) value).size() <= 3);
+      }
+    }
+  }
+
+  @Test
+  public void flatDocumentsHaveNoNesting() {
+    DocumentGenerator gen = new DocumentGenerator(1, 10, 3, 8, new double[] {0, 0, 0, 1, 1}, 0);
+    Map<String, Object> doc = gen.nextValue();
+    assertEquals(depth(doc), 1);
+    for (String name : doc.keySet()) {
+      assertEquals(name.charAt(0), 's');
+    }
+  }
+
+  @Test
+  public void serializesToJson() {
+    Map<String, Object> doc = new LinkedHashMap<>();
+    doc.put("s0", "a\"b");
+    doc.put("n1", 12L);
+    doc.put("a2", Arrays.<Object>asList(true, 1.5));
+    Map<String, Object> nested = new LinkedHashMap<>();
+    nested.put("b0", false);
+    doc.put("o3", nested);
+    DocumentByteIterator it = new DocumentByteIterator(doc);
+    String json = "{\"s0\":\"a\\\"b\",\"n1\":12,\"a2\":[true,1.5],\"o3\":{\"b0\":false}}";
+    assertEquals(it.bytesLeft(), json.length());
+    assertEquals(new String(it.toArray(), StandardCharsets.UTF_8), json);
+    assertEquals(it.bytesLeft(), 0);
+    assertTrue(DocumentByteIterator.documentOrString(new DocumentByteIterator(doc)) == doc);
+    assertEquals(DocumentByteIterator.documentOrString(new NumericByteIterator(42L)), 42L);
+    assertEquals(DocumentByteIterator.documentOrString(new NumericByteIterator(0.5)), 0.5);
+  }
+
+  private static int depth(Object value) {
+    int max = 0;
+    if (value instanceof Map) {
+      for (Object child : ((Map<?, ?>) value).values()) {
+        max = Math.max(max, depth(child));
+      }
+      return max + 1;
+    }
+    if (value instanceof List) {
+      for (Object child : (List<?>) value) {
+        max = Math.max(max, depth(child));
+      }
+      return max + 1;
+    }
+    return 0;
+  }
+}
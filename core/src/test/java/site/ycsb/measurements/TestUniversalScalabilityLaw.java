@@ -0,0 +1,63 @@
+/**
+ * Copyright (c) 2020 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.measurements;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+
+import org.testng.annotations.Test;
+
+public class TestUniversalScalabilityLaw {
+
+  @Test
+  public void recoversCoefficients() {
+    double lambda = 1200;
+    double sigma = 0.05;
+    double kappa = 0.002;
+    double[] n = {2, 4, 8, 16, 32, 64};
+    double[] x = new double[n.length];
+    for (int i = 0; i < n.length; i++) {
+      x[i] = lambda * n[i] / (1 + sigma * (n[i] - 1) + kappa * n[i] * (n[i] - 1));
+    }
+
+    UniversalScalabilityLaw usl = UniversalScalabilityLaw.fit(n, x);
+    assertNotNull(usl);
+    assertEquals(usl.getLambda(), lambda, 1e-6);
+    assertEquals(usl.getSigma(), sigma, 1e-9);
+    assertEquals(usl.getKappa(), kappa, 1e-9);
+    assertEquals(usl.getRSquared(), 1.0, 1e-9);
+    assertEquals(usl.getPeakConcurrency(), Math.sqrt((1 - sigma) / kappa), 1e-6);
+  }
+
+  @Test
+  public void linearScalingHasNoPeak() {
+    double[] n = {1, 2, 4, 8};
+    double[] x = {100, 200, 400, 800};
+    UniversalScalabilityLaw usl = UniversalScalabilityLaw.fit(n, x);
+    assertNotNull(usl);
+    assertEquals(usl.getSigma(), 0, 1e-9);
+    assertEquals(usl.getPeakConcurrency(), -1.0);
+    assertEquals(usl.throughput(16), 1600, 1e-6);
+  }
+
+  @Test
+  public void needsThreeConcurrencyLevels() {
+    assertNull(UniversalScalabilityLaw.fit(new double[] {1, 2, 2}, new double[] {100, 180, 190}));
+  }
+}
@@ -0,0 +1,101 @@
+/**
+ * Copyright (c) 2020 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.workloads;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Vector;
+
+import site.ycsb.AggregateQuery;
+import site.ycsb.BasicDB;
+import site.ycsb.ByteIterator;
+import site.ycsb.SearchQuery;
+import site.ycsb.Status;
+
+/**
+ * A DB for the workload tests that records the operations it is asked to run and answers every one
+ * of them with {@link #status}.
+ */
+class RecordingDB extends BasicDB {
+  /** The tables, keys and values of the inserts, in order. */
+  final List<String> tables = new ArrayList<>();
+  final List<String> keys = new ArrayList<>();
+  final List<Map<String, ByteIterator>> records = new ArrayList<>();
+
+  /** The keys of the reads and updates, in order. */
+  final List<String> reads = new ArrayList<>();
+  final List<String> updates = new ArrayList<>();
+
+  final List<AggregateQuery> aggregates = new ArrayList<>();
+  final List<SearchQuery> searches = new ArrayList<>();
+
+  /** The start and end keys of the shortest path queries. */
+  final List<String[]> paths = new ArrayList<>();
+
+  /** The status of every operation. */
+  Status status = Status.OK;
+
+  @Override
+  public Status read(String table, String key, Set<String> fields, Map<String, ByteIterator> result) {
+    reads.add(key);
+    return status;
+  }
+
+  @Override
+  public Status update(String table, String key, Map<String, ByteIterator> values) {
+    updates.add(key);
+    return status;
+  }
+
+  @Override
+  public Status insert(String table, String key, Map<String, ByteIterator> values) {
+    tables.add(table);
+    keys.add(key);
+    records.add(values);
+    return status;
+  }
+
+  @Override
+  public Status aggregate(String table, AggregateQuery query, Vector<HashMap<String, ByteIterator>> result) {
+    aggregates.add(query);
+    return status;
+  }
+
+  @Override
+  public Status search(String table, SearchQuery query, Vector<HashMap<String, ByteIterator>> result) {
+    searches.add(query);
+    return status;
+  }
+
+  @Override
+  public Status graphTraversal(String vertexTable, String edgeTable, String startkey, int depth,
+                               Set<String> fields, Vector<HashMap<String, ByteIterator>> result) {
+    reads.add(startkey);
+    return status;
+  }
+
+  @Override
+  public Status graphShortestPath(String vertexTable, String edgeTable, String startkey, String endkey,
+                                  Vector<HashMap<String, ByteIterator>> result) {
+    paths.add(new String[] {startkey, endkey});
+    return status;
+  }
+}
@@ -0,0 +1,127 @@
+/**
+ * Copyright (c) 2020 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.workloads;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import org.testng.annotations.Test;
+
+import site.ycsb.AggregateQuery;
+import site.ycsb.ByteIterator;
+import site.ycsb.Client;
+import site.ycsb.NumericByteIterator;
+import site.ycsb.Status;
+import site.ycsb.WorkloadException;
+
+public class TestAggregateWorkload {
+
+  @Test
+  public void groupsFollowTheCardinalityAndSkew() throws WorkloadException {
+    Properties p = properties();
+    p.setProperty(AggregateWorkload.GROUP_CARDINALITY_PROPERTY, "20");
+    AggregateWorkload workload = new AggregateWorkload();
+    workload.init(p);
+    RecordingDB db = new RecordingDB();
+    for (int i = 0; i < 10000; i++) {
+      assertTrue(workload.doInsert(db, null));
+    }
+
+    Map<String, Integer> groups = new HashMap<>();
+    for (int i = 0; i < db.records.size(); i++) {
+      Map<String, ByteIterator> record = db.records.get(i);
+      assertEquals(((NumericByteIterator) record.get("seq")).getLong(), i);
+      long amount = ((NumericByteIterator) record.get("amount")).getLong();
+      assertTrue(amount >= 0 && amount < 1000);
+      groups.merge(record.get("category").toString(), 1, Integer::sum);
+    }
+    assertEquals(groups.size(), 20);
+    // The most popular of 20 zipfian groups takes about a quarter of the records.
+    int first = groups.get("group0");
+    assertTrue(first > 2000 && first < 3200, "group0: " + first);
+  }
+
+  @Test
+  public void queriesCoverTheShapesAndRange() throws WorkloadException {
+    Properties p = properties();
+    p.setProperty(AggregateWorkload.QUERIES_PROPERTY, "sum, group-max");
+    p.setProperty(AggregateWorkload.RANGE_SELECTIVITY_PROPERTY, "0.25");
+    p.setProperty(AggregateWorkload.QUERY_PROPORTION_PROPERTY, "1");
+    AggregateWorkload workload = new AggregateWorkload();
+    workload.init(p);
+    RecordingDB db = new RecordingDB();
+    for (int i = 0; i < 1000; i++) {
+      assertTrue(workload.doTransaction(db, null));
+    }
+
+    Set<String> shapes = new HashSet<>();
+    for (AggregateQuery query : db.aggregates) {
+      shapes.add(query.getShape());
+      assertEquals(query.getField(), "amount");
+      assertEquals(query.getRangeField(), "seq");
+      assertEquals(query.getHigh() - query.getLow(), 2500);
+      assertTrue(query.getLow() >= 0 && query.getHigh() <= 10000);
+      if (query.getFunction() == AggregateQuery.Function.SUM) {
+        assertNull(query.getGroupField());
+      } else {
+        assertEquals(query.getGroupField(), "category");
+      }
+    }
+    assertEquals(shapes, new HashSet<>(Arrays.asList("SUM", "GROUP-MAX")));
+  }
+
+  @Test
+  public void failedOperationsDoNotEndTheRun() throws WorkloadException {
+    Properties p = properties();
+    p.setProperty(AggregateWorkload.QUERY_PROPORTION_PROPERTY, "0.5");
+    p.setProperty(AggregateWorkload.UPDATE_PROPORTION_PROPERTY, "0.5");
+    AggregateWorkload workload = new AggregateWorkload();
+    workload.init(p);
+    RecordingDB db = new RecordingDB();
+    db.status = Status.ERROR;
+    assertFalse(workload.doInsert(db, null));
+    for (int i = 0; i < 100; i++) {
+      assertTrue(workload.doTransaction(db, null));
+    }
+    assertEquals(db.aggregates.size() + db.updates.size(), 100);
+  }
+
+  @Test(expectedExceptions = WorkloadException.class)
+  public void rejectsUnknownShapes() throws WorkloadException {
+    Properties p = properties();
+    p.setProperty(AggregateWorkload.QUERIES_PROPERTY, "median");
+    new AggregateWorkload().init(p);
+  }
+
+  private static Properties properties() {
+    Properties p = new Properties();
+    p.setProperty(Client.RECORD_COUNT_PROPERTY, "10000");
+    p.setProperty(CoreWorkload.FIELD_COUNT_PROPERTY, "1");
+    p.setProperty(CoreWorkload.FIELD_LENGTH_PROPERTY, "8");
+    return p;
+  }
+}
@@ -16,13 +16,25 @@
  */
 package site.ycsb.workloads;
 
+import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 
 import org.testng.annotations.Test;
 
+import site.ycsb.BasicDB;
+import site.ycsb.ByteIterator;
+import site.ycsb.Client;
+import site.ycsb.Status;
+import site.ycsb.WorkloadException;
 import site.ycsb.generator.DiscreteGenerator;
+import site.ycsb.measurements.Measurements;
 
 public class TestCoreWorkload {
 
@@ -67,4 +79,61 @@ public class TestCoreWorkload {
   public void createOperationChooserNullProperties() {
     CoreWorkload.createOperationGenerator(null);
   }
-}
\ No newline at end of file
+
+  @Test
+  public void readsInBatches() throws WorkloadException {
+    final Properties p = new Properties();
+    p.setProperty(Client.RECORD_COUNT_PROPERTY, "1000");
+    p.setProperty(CoreWorkload.READ_PROPORTION_PROPERTY, "1");
+    p.setProperty(CoreWorkload.UPDATE_PROPORTION_PROPERTY, "0");
+    p.setProperty(CoreWorkload.READ_BATCH_SIZE_PROPERTY, "8");
+    Measurements.setProperties(p);
+    final CoreWorkload workload = new CoreWorkload();
+    workload.init(p);
+    final List<List<String>> batches = new ArrayList<>();
+    final BasicDB db = new BasicDB() {
+      @Override
+      public Status batchRead(String table, List<String> keys, Set<String> fields,
+                              List<Map<String, ByteIterator>> results) {
+        batches.add(keys);
+        return Status.OK;
+      }
+    };
+    for (int i = 0; i < 10; i++) {
+      assertTrue(workload.doTransaction(db, null));
+    }
+    assertEquals(batches.size(), 10);
+    for (List<String> keys : batches) {
+      assertEquals(keys.size(), 8);
+    }
+  }
+
+  @Test
+  public void skipsVerifyingPendingReads() throws WorkloadException {
+    final Properties p = new Properties();
+    p.setProperty(Client.RECORD_COUNT_PROPERTY, "1000");
+    p.setProperty(CoreWorkload.READ_PROPORTION_PROPERTY, "1");
+    p.setProperty(CoreWorkload.UPDATE_PROPORTION_PROPERTY, "0");
+    p.setProperty(CoreWorkload.DATA_INTEGRITY_PROPERTY, "true");
+    Measurements.setProperties(p);
+    final List<String> verified = new ArrayList<>();
+    final CoreWorkload workload = new CoreWorkload() {
+      @Override
+      protected void verifyRow(String key, HashMap<String, ByteIterator> cells) {
+        verified.add(key);
+      }
+    };
+    workload.init(p);
+    final RecordingDB db = new RecordingDB();
+    db.status = Status.PENDING;
+    for (int i = 0; i < 10; i++) {
+      assertTrue(workload.doTransaction(db, null));
+    }
+    assertEquals(db.reads.size(), 10);
+    assertEquals(verified.size(), 0);
+
+    db.status = Status.OK;
+    assertTrue(workload.doTransaction(db, null));
+    assertEquals(verified.size(), 1);
+  }
+}
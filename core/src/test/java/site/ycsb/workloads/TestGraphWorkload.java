@@ -0,0 +1,153 @@
+/**
+ * Copyright (c) 2020 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.workloads;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Map;
+import java.util.Properties;
+
+import org.testng.annotations.Test;
+
+import site.ycsb.ByteIterator;
+import site.ycsb.Client;
+import site.ycsb.DB;
+import site.ycsb.Status;
+import site.ycsb.WorkloadException;
+
+public class TestGraphWorkload {
+
+  @Test
+  public void powerLawDegreesAreSkewed() throws WorkloadException {
+    GraphWorkload workload = workload("powerlaw");
+    int ones = 0;
+    int max = 0;
+    for (long v = 0; v < 10000; v++) {
+      int degree = workload.targets(v).length;
+      assertTrue(degree >= 1 && degree <= 64);
+      if (degree == 1) {
+        ones++;
+      }
+      max = Math.max(max, degree);
+    }
+    // P(degree < 2) = P(2 * U^(-2/3) - 1 < 2) = 1 - 1.5^-1.5, about 46%.
+    assertTrue(ones > 4300 && ones < 4900, "degree 1: " + ones);
+    assertEquals(max, 64);
+  }
+
+  @Test
+  public void edgesStayInTheirCommunity() throws WorkloadException {
+    GraphWorkload workload = workload("uniform");
+    int intra = 0;
+    int edges = 0;
+    for (long v = 0; v < 10000; v++) {
+      long[] targets = workload.targets(v);
+      assertTrue(targets.length >= 1 && targets.length <= 64);
+      for (long target : targets) {
+        assertTrue(target >= 0 && target < 10000);
+        if (workload.community(target) == workload.community(v)) {
+          intra++;
+        }
+        edges++;
+      }
+      assertEquals(workload.targets(v), targets);
+    }
+    // 90% intra-community edges plus the random ones that happen to land in the community.
+    double share = (double) intra / edges;
+    assertTrue(share > 0.9 && share < 0.93, "intra-community share " + share);
+  }
+
+  @Test
+  public void insertsVertexThenOutEdges() throws WorkloadException {
+    GraphWorkload workload = workload("powerlaw");
+    RecordingDB db = new RecordingDB();
+    assertTrue(workload.doInsert(db, null));
+    long[] targets = workload.targets(0);
+    assertEquals(db.tables.size(), 1 + targets.length);
+    assertEquals(db.tables.get(0), "vertices");
+    assertEquals(db.keys.get(0), "v0");
+    for (int i = 0; i < targets.length; i++) {
+      Map<String, ByteIterator> edge = db.records.get(i + 1);
+      assertEquals(db.tables.get(i + 1), "vertices_edges");
+      assertEquals(db.keys.get(i + 1), "v0-" + i);
+      assertEquals(edge.get(DB.EDGE_FROM).toString(), "vertices/v0");
+      assertEquals(edge.get(DB.EDGE_TO).toString(), "vertices/v" + targets[i]);
+    }
+  }
+
+  @Test
+  public void shortestPathsEndOnAWalk() throws WorkloadException {
+    Properties p = properties("uniform");
+    p.setProperty(GraphWorkload.SHORTEST_PATH_PROPORTION_PROPERTY, "1");
+    p.setProperty(GraphWorkload.TRAVERSAL_PROPORTION_PROPERTY, "0");
+    p.setProperty(GraphWorkload.READ_PROPORTION_PROPERTY, "0");
+    GraphWorkload workload = new GraphWorkload();
+    workload.init(p);
+    RecordingDB db = new RecordingDB();
+    assertTrue(workload.doTransaction(db, null));
+    assertEquals(db.paths.size(), 1);
+    long start = Long.parseLong(db.paths.get(0)[0].substring(1));
+    long end = Long.parseLong(db.paths.get(0)[1].substring(1));
+    assertTrue(reachable(workload, start, end, 3));
+  }
+
+  @Test
+  public void failedOperationsDoNotEndTheRun() throws WorkloadException {
+    GraphWorkload workload = workload("powerlaw");
+    RecordingDB db = new RecordingDB();
+    db.status = Status.ERROR;
+    assertFalse(workload.doInsert(db, null));
+    for (int i = 0; i < 100; i++) {
+      assertTrue(workload.doTransaction(db, null));
+    }
+    assertEquals(db.reads.size() + db.paths.size(), 100);
+  }
+
+  private static boolean reachable(GraphWorkload workload, long from, long to, int hops) {
+    if (from == to) {
+      return true;
+    }
+    if (hops == 0) {
+      return false;
+    }
+    for (long next : workload.targets(from)) {
+      if (reachable(workload, next, to, hops - 1)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static Properties properties(String distribution) {
+    Properties p = new Properties();
+    p.setProperty(Client.RECORD_COUNT_PROPERTY, "10000");
+    p.setProperty(CoreWorkload.TABLENAME_PROPERTY, "vertices");
+    p.setProperty(CoreWorkload.FIELD_COUNT_PROPERTY, "1");
+    p.setProperty(CoreWorkload.FIELD_LENGTH_PROPERTY, "8");
+    p.setProperty(GraphWorkload.DEGREE_DISTRIBUTION_PROPERTY, distribution);
+    return p;
+  }
+
+  private static GraphWorkload workload(String distribution) throws WorkloadException {
+    GraphWorkload workload = new GraphWorkload();
+    workload.init(properties(distribution));
+    return workload;
+  }
+}
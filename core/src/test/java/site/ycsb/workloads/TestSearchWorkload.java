@@ -0,0 +1,138 @@
+/**
+ * Copyright (c) 2020 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.workloads;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.testng.annotations.Test;
+
+import site.ycsb.ByteIterator;
+import site.ycsb.Client;
+import site.ycsb.SearchQuery;
+import site.ycsb.Status;
+import site.ycsb.WorkloadException;
+
+public class TestSearchWorkload {
+
+  @Test
+  public void textsAreSkewedAndRepeatable() throws WorkloadException {
+    SearchWorkload workload = new SearchWorkload();
+    workload.init(properties());
+    RecordingDB db = new RecordingDB();
+    for (int i = 0; i < 200; i++) {
+      assertTrue(workload.doInsert(db, null));
+    }
+
+    List<String> vocabulary = SearchWorkload.randomVocabulary(1000, 0);
+    Map<String, Integer> counts = new HashMap<>();
+    for (int i = 0; i < db.records.size(); i++) {
+      String text = db.records.get(i).get("text").toString();
+      assertEquals(text, String.join(" ", workload.text(i)));
+      for (String word : text.split(" ")) {
+        assertTrue(vocabulary.contains(word), word);
+        counts.merge(word, 1, Integer::sum);
+      }
+    }
+    // With 1000 zipfian words the most frequent one is about 13% of the text, the 100th about 0.13%.
+    int first = counts.get(vocabulary.get(0));
+    assertTrue(first > 1000 && first < 1600, "first: " + first);
+    assertTrue(counts.getOrDefault(vocabulary.get(99), 0) < 50);
+  }
+
+  @Test
+  public void queriesMatchTheirTypes() throws WorkloadException {
+    Properties p = properties();
+    p.setProperty(SearchWorkload.PHRASE_LENGTH_PROPERTY, "3");
+    p.setProperty(SearchWorkload.BOOLEAN_TERMS_PROPERTY, "3");
+    SearchWorkload workload = new SearchWorkload();
+    workload.init(p);
+    RecordingDB db = new RecordingDB();
+    for (int i = 0; i < 2000; i++) {
+      assertTrue(workload.doTransaction(db, null));
+    }
+
+    EnumSet<SearchQuery.Type> types = EnumSet.noneOf(SearchQuery.Type.class);
+    for (SearchQuery query : db.searches) {
+      types.add(query.getType());
+      assertEquals(query.getField(), "text");
+      assertEquals(query.getLimit(), 10);
+      switch (query.getType()) {
+      case PHRASE:
+        assertEquals(query.getTerms().size(), 3);
+        assertTrue(inSomeText(workload, query.getText()), query.toString());
+        break;
+      case PREFIX:
+        assertEquals(query.getTerms().size(), 1);
+        assertTrue(query.getText().length() >= 2 && query.getText().length() <= 4);
+        break;
+      case AND:
+      case OR:
+        assertEquals(new HashSet<>(query.getTerms()).size(), 3);
+        break;
+      default:
+        assertEquals(query.getTerms().size(), 1);
+        break;
+      }
+    }
+    assertEquals(types, EnumSet.allOf(SearchQuery.Type.class));
+  }
+
+  @Test
+  public void failedSearchesDoNotEndTheRun() throws WorkloadException {
+    SearchWorkload workload = new SearchWorkload();
+    workload.init(properties());
+    RecordingDB db = new RecordingDB();
+    db.status = Status.NOT_FOUND;
+    for (int i = 0; i < 100; i++) {
+      assertTrue(workload.doTransaction(db, null));
+    }
+    assertEquals(db.searches.size(), 100);
+  }
+
+  @Test(expectedExceptions = WorkloadException.class)
+  public void rejectsUnknownDistributions() throws WorkloadException {
+    Properties p = properties();
+    p.setProperty(SearchWorkload.QUERY_TERM_DISTRIBUTION_PROPERTY, "latest");
+    new SearchWorkload().init(p);
+  }
+
+  private static boolean inSomeText(SearchWorkload workload, String phrase) {
+    for (int i = 0; i < 100; i++) {
+      if ((" " + String.join(" ", workload.text(i)) + " ").contains(" " + phrase + " ")) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static Properties properties() {
+    Properties p = new Properties();
+    p.setProperty(Client.RECORD_COUNT_PROPERTY, "100");
+    p.setProperty(SearchWorkload.VOCABULARY_SIZE_PROPERTY, "1000");
+    p.setProperty(SearchWorkload.MAX_RESULTS_PROPERTY, "10");
+    return p;
+  }
+}
@@ -0,0 +1,160 @@
+/**
+ * Copyright (c) 2020 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.workloads;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.testng.annotations.Test;
+
+import site.ycsb.ByteIterator;
+import site.ycsb.Client;
+import site.ycsb.DB;
+import site.ycsb.NumericByteIterator;
+import site.ycsb.Status;
+import site.ycsb.StringByteIterator;
+import site.ycsb.WorkloadException;
+import site.ycsb.measurements.Measurements;
+
+public class TestTtlWorkload {
+
+  @Test
+  public void insertsValuesWithExpiryTimes() throws WorkloadException {
+    Properties p = properties();
+    p.setProperty(TtlWorkload.TTL_MIN_PROPERTY, "10");
+    p.setProperty(TtlWorkload.TTL_MAX_PROPERTY, "20");
+    p.setProperty(TtlWorkload.NO_EXPIRY_PROPORTION_PROPERTY, "0.25");
+    TtlWorkload workload = workload(p);
+    RecordingDB db = new RecordingDB();
+    long now = System.currentTimeMillis() / 1000;
+    for (int i = 0; i < 1000; i++) {
+      assertTrue(workload.doInsert(db, null));
+    }
+
+    int never = 0;
+    for (int i = 0; i < db.keys.size(); i++) {
+      assertEquals(db.keys.get(i), "key" + i);
+      Map<String, ByteIterator> record = db.records.get(i);
+      assertEquals(record.get(TtlWorkload.VALUE_FIELD).toString().length(), 16);
+      long expireAt = ((NumericByteIterator) record.get(DB.EXPIRE_AT)).getLong();
+      if (expireAt == -1) {
+        never++;
+      } else {
+        assertTrue(expireAt >= now + 10 && expireAt <= now + 21, "expireAt " + expireAt + " at " + now);
+      }
+    }
+    assertTrue(never > 180 && never < 320, "never expiring: " + never);
+  }
+
+  @Test
+  public void exponentialTimeToLivesAreCapped() throws WorkloadException {
+    Properties p = properties();
+    p.setProperty(TtlWorkload.TTL_DISTRIBUTION_PROPERTY, "exponential");
+    p.setProperty(TtlWorkload.TTL_MIN_PROPERTY, "5");
+    p.setProperty(TtlWorkload.TTL_MAX_PROPERTY, "100");
+    p.setProperty(TtlWorkload.TTL_MEAN_PROPERTY, "20");
+    TtlWorkload workload = workload(p);
+    List<Long> ttls = new ArrayList<>();
+    for (int i = 0; i < 10000; i++) {
+      long ttl = workload.nextTtl();
+      assertTrue(ttl >= 5 && ttl <= 100);
+      ttls.add(ttl);
+    }
+    Collections.sort(ttls);
+    // Median of 5 + Exp(mean 20) is 5 + 20 ln 2, about 19.
+    assertTrue(Math.abs(ttls.get(5000) - 19) <= 2, "median " + ttls.get(5000));
+    assertEquals((long) ttls.get(9999), 100L);
+  }
+
+  @Test
+  public void classifiesReads() {
+    long now = 1000;
+    assertEquals(TtlWorkload.classify(Status.NOT_FOUND, new HashMap<String, ByteIterator>(), now),
+        TtlWorkload.ReadOutcome.MISS);
+    assertEquals(TtlWorkload.classify(Status.OK, new HashMap<String, ByteIterator>(), now),
+        TtlWorkload.ReadOutcome.MISS);
+    assertEquals(TtlWorkload.classify(Status.OK, record(new NumericByteIterator(999L)), now),
+        TtlWorkload.ReadOutcome.EXPIRED);
+    assertEquals(TtlWorkload.classify(Status.OK, record(new StringByteIterator("1001")), now),
+        TtlWorkload.ReadOutcome.FRESH);
+    assertEquals(TtlWorkload.classify(Status.OK, record(new StringByteIterator("-1")), now),
+        TtlWorkload.ReadOutcome.FRESH);
+  }
+
+  @Test
+  public void readsOfMissingKeysDoNotEndTheRun() throws WorkloadException {
+    Properties p = properties();
+    p.setProperty(TtlWorkload.READ_PROPORTION_PROPERTY, "1");
+    p.setProperty(TtlWorkload.INSERT_PROPORTION_PROPERTY, "0");
+    TtlWorkload workload = workload(p);
+    RecordingDB db = new RecordingDB();
+    db.status = Status.NOT_FOUND;
+    for (int i = 0; i < 100; i++) {
+      assertTrue(workload.doTransaction(db, null));
+    }
+    for (String key : db.reads) {
+      assertTrue(Long.parseLong(key.substring(3)) < 1000);
+    }
+    assertEquals(db.reads.size(), 100);
+  }
+
+  @Test
+  public void failedOperationsDoNotEndTheRun() throws WorkloadException {
+    Properties p = properties();
+    p.setProperty(TtlWorkload.READ_PROPORTION_PROPERTY, "0.4");
+    p.setProperty(TtlWorkload.INSERT_PROPORTION_PROPERTY, "0.3");
+    p.setProperty(TtlWorkload.REFRESH_PROPORTION_PROPERTY, "0.3");
+    TtlWorkload workload = workload(p);
+    RecordingDB db = new RecordingDB();
+    db.status = Status.ERROR;
+    assertFalse(workload.doInsert(db, null));
+    for (int i = 0; i < 100; i++) {
+      assertTrue(workload.doTransaction(db, null));
+    }
+    assertEquals(db.reads.size() + db.updates.size() + db.keys.size(), 101);
+  }
+
+  private static Map<String, ByteIterator> record(ByteIterator expireAt) {
+    Map<String, ByteIterator> record = new HashMap<>();
+    record.put(TtlWorkload.VALUE_FIELD, new StringByteIterator("v"));
+    record.put(DB.EXPIRE_AT, expireAt);
+    return record;
+  }
+
+  private static Properties properties() {
+    Properties p = new Properties();
+    p.setProperty(Client.RECORD_COUNT_PROPERTY, "1000");
+    p.setProperty(CoreWorkload.FIELD_LENGTH_PROPERTY, "16");
+    return p;
+  }
+
+  private static TtlWorkload workload(Properties p) throws WorkloadException {
+    Measurements.setProperties(p);
+    TtlWorkload workload = new TtlWorkload();
+    workload.init(p);
+    return workload;
+  }
+}
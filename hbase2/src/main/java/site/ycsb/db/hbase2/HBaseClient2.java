@@ -23,7 +23,9 @@ import org.apache.hadoop.hbase.filter.ValueFilter;
 import site.ycsb.ByteArrayByteIterator;
 import site.ycsb.ByteIterator;
 import site.ycsb.DBException;
+import site.ycsb.InFlightWindow;
 import site.ycsb.Status;
+import site.ycsb.Workload;
 import site.ycsb.measurements.Measurements;
 
 import org.apache.hadoop.security.UserGroupInformation;
@@ -33,6 +35,9 @@ import org.apache.hadoop.hbase.CellUtil;
 import org.apache.hadoop.hbase.HBaseConfiguration;
 import org.apache.hadoop.hbase.TableName;
 import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.AdvancedScanResultConsumer;
+import org.apache.hadoop.hbase.client.AsyncConnection;
+import org.apache.hadoop.hbase.client.AsyncTable;
 import org.apache.hadoop.hbase.client.BufferedMutator;
 import org.apache.hadoop.hbase.client.BufferedMutatorParams;
 import org.apache.hadoop.hbase.client.Connection;
@@ -49,12 +54,18 @@ import org.apache.hadoop.hbase.filter.PageFilter;
 import org.apache.hadoop.hbase.util.Bytes;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.ConcurrentModificationException;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import static site.ycsb.workloads.CoreWorkload.TABLENAME_PROPERTY;
 import static site.ycsb.workloads.CoreWorkload.TABLENAME_PROPERTY_DEFAULT;
@@ -82,11 +93,24 @@ public class HBaseClient2 extends site.ycsb.DB {
    */
   private static Connection connection = null;
 
+  /**
+   * The asynchronous Cluster Connection shared by all running ycsb threads in
+   * asynchronous mode, or null. Guarded like {@link #connection}.
+   */
+  private static AsyncConnection asyncConnection = null;
+
   // Depending on the value of clientSideBuffering, either bufferedMutator
   // (clientSideBuffering) or currentTable (!clientSideBuffering) will be used.
   private Table currentTable = null;
   private BufferedMutator bufferedMutator = null;
 
+  /**
+   * In asynchronous mode, the table that reads, scans and unbuffered writes go
+   * to, and the operations of this client thread in flight on it.
+   */
+  private AsyncTable<AdvancedScanResultConsumer> asyncTable = null;
+  private InFlightWindow asyncWindow = null;
+
   private String columnFamily = "";
   private byte[] columnFamilyBytes;
 
@@ -98,6 +122,12 @@ public class HBaseClient2 extends site.ycsb.DB {
   /** Whether or not a page filter should be used to limit scan length. */
   private boolean usePageFilter = true;
 
+  /** Rows fetched per scan RPC, or 0 for all the records a scan asks for at once. */
+  private int scanCaching = 0;
+
+  /** Whether scanners fetch the next rows in the background while the current ones are read. */
+  private boolean scanPrefetch = false;
+
   /**
    * If true, buffer mutations on the client. This is the default behavior for
    * HBaseClient. For measuring insert/update/delete latencies, client side
@@ -153,6 +183,11 @@ public class HBaseClient2 extends site.ycsb.DB {
       }
     }
 
+    if (isBooleanParamSet("hbase.async", false)) {
+      asyncWindow = new InFlightWindow(
+          Integer.parseInt(getProperties().getProperty("hbase.async.window", "64")), getProperties());
+    }
+
     String table = getProperties().getProperty(TABLENAME_PROPERTY, TABLENAME_PROPERTY_DEFAULT);
     try {
       THREAD_COUNT.getAndIncrement();
@@ -171,8 +206,14 @@ public class HBaseClient2 extends site.ycsb.DB {
             }
           }
         }
+        if (asyncWindow != null && asyncConnection == null) {
+          asyncConnection = ConnectionFactory.createAsyncConnection(config).get();
+        }
       }
-    } catch (java.io.IOException e) {
+    } catch (java.io.IOException | ExecutionException e) {
+      throw new DBException(e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
       throw new DBException(e);
     }
 
@@ -182,6 +223,8 @@ public class HBaseClient2 extends site.ycsb.DB {
     }
 
     usePageFilter = isBooleanParamSet("hbase.usepagefilter", usePageFilter);
+    scanCaching = Integer.parseInt(getProperties().getProperty("hbase.scancaching", "0"));
+    scanPrefetch = isBooleanParamSet("hbase.scanprefetch", scanPrefetch);
 
 
     if (isBooleanParamSet("hbase.usescanvaluefiltering", false)) {
@@ -213,6 +256,9 @@ public class HBaseClient2 extends site.ycsb.DB {
     // enabled.
     Measurements measurements = Measurements.getMeasurements();
     try {
+      if (asyncWindow != null) {
+        asyncWindow.drain();
+      }
       long st = System.nanoTime();
       if (bufferedMutator != null) {
         bufferedMutator.close();
@@ -231,16 +277,26 @@ public class HBaseClient2 extends site.ycsb.DB {
             connection.close();   
             connection = null;    
           }   
+          if (asyncConnection != null) {
+            asyncConnection.close();
+            asyncConnection = null;
+          }
         }
       }
     } catch (IOException e) {
       throw new DBException(e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new DBException("Interrupted while waiting for asynchronous operations", e);
     }
   }
 
   public void getHTable(String table) throws IOException {
     final TableName tName = TableName.valueOf(table);
     this.currentTable = connection.getTable(tName);
+    if (asyncWindow != null) {
+      this.asyncTable = asyncConnection.getTable(tName);
+    }
     if (clientSideBuffering) {
       final BufferedMutatorParams p = new BufferedMutatorParams(tName);
       p.writeBufferSize(writeBufferSize);
@@ -283,13 +339,9 @@ public class HBaseClient2 extends site.ycsb.DB {
             .println("Doing read from HBase columnfamily " + columnFamily);
         System.out.println("Doing read for key: " + key);
       }
-      Get g = new Get(Bytes.toBytes(key));
-      if (fields == null) {
-        g.addFamily(columnFamilyBytes);
-      } else {
-        for (String field : fields) {
-          g.addColumn(columnFamilyBytes, Bytes.toBytes(field));
-        }
+      final Get g = createGet(key, fields);
+      if (asyncTable != null) {
+        return submit(Workload.Operation.READ, () -> asyncTable.get(g), res -> readResult(res, result));
       }
       r = currentTable.get(g);
     } catch (IOException e) {
@@ -302,6 +354,80 @@ public class HBaseClient2 extends site.ycsb.DB {
       return Status.ERROR;
     }
 
+    return readResult(r, result);
+  }
+
+  /**
+   * Read several records with one multi-get, which the client groups into one
+   * RPC per region server.
+   *
+   * @param table
+   *          The name of the table
+   * @param keys
+   *          The record keys of the records to read.
+   * @param fields
+   *          The list of fields to read, or null for all of them
+   * @param results
+   *          One HashMap of field/value pairs per key, in the order of the keys
+   * @return OK if every record was read, NOT_FOUND if some were missing
+   */
+  @Override
+  public Status batchRead(String table, List<String> keys, Set<String> fields,
+      List<Map<String, ByteIterator>> results) {
+    // if this is a "new" table, init HTable object. Else, use existing one
+    if (!tableName.equals(table)) {
+      currentTable = null;
+      try {
+        getHTable(table);
+        tableName = table;
+      } catch (IOException e) {
+        System.err.println("Error accessing HBase table: " + e);
+        return Status.ERROR;
+      }
+    }
+
+    final List<Get> gets = new ArrayList<Get>(keys.size());
+    for (String key : keys) {
+      gets.add(createGet(key, fields));
+    }
+
+    Result[] rs;
+    try {
+      if (debug) {
+        System.out.println("Doing multi-get for " + keys.size() + " keys");
+      }
+      rs = currentTable.get(gets);
+    } catch (IOException e) {
+      if (debug) {
+        System.err.println("Error doing multi-get: " + e);
+      }
+      return Status.ERROR;
+    }
+
+    Status status = Status.OK;
+    for (Result r : rs) {
+      final Map<String, ByteIterator> result = new HashMap<String, ByteIterator>();
+      if (!readResult(r, result).isOk()) {
+        status = Status.NOT_FOUND;
+      }
+      results.add(result);
+    }
+    return status;
+  }
+
+  private Get createGet(String key, Set<String> fields) {
+    Get g = new Get(Bytes.toBytes(key));
+    if (fields == null) {
+      g.addFamily(columnFamilyBytes);
+    } else {
+      for (String field : fields) {
+        g.addColumn(columnFamilyBytes, Bytes.toBytes(field));
+      }
+    }
+    return g;
+  }
+
+  private Status readResult(Result r, Map<String, ByteIterator> result) {
     if (r.isEmpty()) {
       return Status.NOT_FOUND;
     }
@@ -357,7 +483,10 @@ public class HBaseClient2 extends site.ycsb.DB {
     // We get back recordcount records
     FilterList filterList = new FilterList(FilterList.Operator.MUST_PASS_ALL);
 
-    s.setCaching(recordcount);
+    s.setCaching(scanCaching > 0 ? scanCaching : recordcount);
+    s.setAsyncPrefetch(scanPrefetch);
+    // Let the region server close the scanner once it returned recordcount rows
+    s.setLimit(recordcount);
     if (this.usePageFilter) {
       filterList.addFilter(new PageFilter(recordcount));
     }
@@ -378,30 +507,25 @@ public class HBaseClient2 extends site.ycsb.DB {
 
     s.setFilter(filterList);
 
+    if (asyncTable != null) {
+      return submit(Workload.Operation.SCAN, () -> asyncTable.scanAll(s), rows -> {
+          for (Result rr : rows) {
+            if (result.size() >= recordcount) {
+              break;
+            }
+            addScanResult(rr, result);
+          }
+          return Status.OK;
+        });
+    }
+
     // get results
     ResultScanner scanner = null;
     try {
       scanner = currentTable.getScanner(s);
       int numResults = 0;
       for (Result rr = scanner.next(); rr != null; rr = scanner.next()) {
-        // get row key
-        String key = Bytes.toString(rr.getRow());
-
-        if (debug) {
-          System.out.println("Got scan result for key: " + key);
-        }
-
-        HashMap<String, ByteIterator> rowResult =
-            new HashMap<String, ByteIterator>();
-
-        while (rr.advance()) {
-          final Cell cell = rr.current();
-          rowResult.put(Bytes.toString(CellUtil.cloneQualifier(cell)),
-              new ByteArrayByteIterator(CellUtil.cloneValue(cell)));
-        }
-
-        // add rowResult to result vector
-        result.add(rowResult);
+        addScanResult(rr, result);
         numResults++;
 
         // PageFilter does not guarantee that the number of results is <=
@@ -425,6 +549,27 @@ public class HBaseClient2 extends site.ycsb.DB {
     return Status.OK;
   }
 
+  private void addScanResult(Result rr, Vector<HashMap<String, ByteIterator>> result) {
+    // get row key
+    String key = Bytes.toString(rr.getRow());
+
+    if (debug) {
+      System.out.println("Got scan result for key: " + key);
+    }
+
+    HashMap<String, ByteIterator> rowResult =
+        new HashMap<String, ByteIterator>();
+
+    while (rr.advance()) {
+      final Cell cell = rr.current();
+      rowResult.put(Bytes.toString(CellUtil.cloneQualifier(cell)),
+          new ByteArrayByteIterator(CellUtil.cloneValue(cell)));
+    }
+
+    // add rowResult to result vector
+    result.add(rowResult);
+  }
+
   /**
    * Update a record in the database. Any field/value pairs in the specified
    * values HashMap will be written into the record with the specified record
@@ -441,6 +586,11 @@ public class HBaseClient2 extends site.ycsb.DB {
   @Override
   public Status update(String table, String key,
       Map<String, ByteIterator> values) {
+    return write(Workload.Operation.UPDATE, table, key, values);
+  }
+
+  private Status write(Workload.Operation op, String table, String key,
+      Map<String, ByteIterator> values) {
     // if this is a "new" table, init HTable object. Else, use existing one
     if (!tableName.equals(table)) {
       currentTable = null;
@@ -471,6 +621,8 @@ public class HBaseClient2 extends site.ycsb.DB {
       if (clientSideBuffering) {
         // removed Preconditions.checkNotNull, which throws NPE, in favor of NPE on next line
         bufferedMutator.mutate(p);
+      } else if (asyncTable != null) {
+        return submit(op, () -> asyncTable.put(p), v -> Status.OK);
       } else {
         currentTable.put(p);
       }
@@ -503,7 +655,7 @@ public class HBaseClient2 extends site.ycsb.DB {
   @Override
   public Status insert(String table, String key,
                        Map<String, ByteIterator> values) {
-    return update(table, key, values);
+    return write(Workload.Operation.INSERT, table, key, values);
   }
 
   /**
@@ -539,6 +691,8 @@ public class HBaseClient2 extends site.ycsb.DB {
       if (clientSideBuffering) {
         // removed Preconditions.checkNotNull, which throws NPE, in favor of NPE on next line
         bufferedMutator.mutate(d);
+      } else if (asyncTable != null) {
+        return submit(Workload.Operation.DELETE, () -> asyncTable.delete(d), v -> Status.OK);
       } else {
         currentTable.delete(d);
       }
@@ -557,6 +711,48 @@ public class HBaseClient2 extends site.ycsb.DB {
     this.config = newConfig;
   }
 
+  /**
+   * Wait for room in the window of this client thread, send the request and
+   * return PENDING without waiting for it. The window measures the operation
+   * with the status the handler makes of the response when it arrives.
+   */
+  private <T> Status submit(Workload.Operation op, Supplier<CompletableFuture<T>> request,
+      Function<T, Status> handler) {
+    final InFlightWindow.Completion completion;
+    try {
+      completion = asyncWindow.begin(op);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return Status.ERROR;
+    }
+    try {
+      request.get().whenComplete((response, error) -> {
+          Status status = Status.ERROR;
+          if (error != null) {
+            if (debug) {
+              System.err.println("Error doing asynchronous " + op + ": " + error);
+            }
+          } else {
+            try {
+              status = handler.apply(response);
+            } catch (RuntimeException e) {
+              if (debug) {
+                System.err.println("Error reading asynchronous " + op + " result: " + e);
+              }
+            }
+          }
+          completion.complete(status);
+        });
+    } catch (RuntimeException e) {
+      if (debug) {
+        System.err.println("Error sending asynchronous " + op + ": " + e);
+      }
+      completion.complete(Status.ERROR);
+      return Status.ERROR;
+    }
+    return Status.PENDING;
+  }
+
   private boolean isBooleanParamSet(String param, boolean defaultValue){
     return Boolean.parseBoolean(getProperties().getProperty(param, Boolean.toString(defaultValue)));
   }
@@ -46,9 +46,11 @@ import org.junit.Test;
 
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Vector;
 
@@ -153,6 +155,46 @@ public class HBaseClient2Test {
     assertEquals(0, result.size());
   }
 
+  @Test
+  public void testBatchRead() throws Exception {
+    setUp();
+    for (String rowKey : new String[] {"row1", "row3"}) {
+      final Put p = new Put(Bytes.toBytes(rowKey));
+      p.addColumn(Bytes.toBytes(COLUMN_FAMILY), Bytes.toBytes("column1"), Bytes.toBytes(rowKey + "-value"));
+      table.put(p);
+    }
+
+    final List<Map<String, ByteIterator>> results = new ArrayList<Map<String, ByteIterator>>();
+    final Status status = client.batchRead(tableName, Arrays.asList("row1", "row2", "row3"), null, results);
+    assertEquals(Status.NOT_FOUND, status);
+    assertEquals(3, results.size());
+    assertEquals("row1-value", results.get(0).get("column1").toString());
+    assertTrue(results.get(1).isEmpty());
+    assertEquals("row3-value", results.get(2).get("column1").toString());
+  }
+
+  @Test
+  public void testAsyncReadAndUpdate() throws Exception {
+    final Properties p = new Properties();
+    p.setProperty("hbase.async", "true");
+    setUp(p);
+    final Put put = new Put(Bytes.toBytes("row1"));
+    put.addColumn(Bytes.toBytes(COLUMN_FAMILY), Bytes.toBytes("column1"), Bytes.toBytes("value1"));
+    table.put(put);
+
+    final HashMap<String, ByteIterator> result = new HashMap<String, ByteIterator>();
+    assertEquals(Status.PENDING, client.read(tableName, "row1", null, result));
+    final HashMap<String, String> input = new HashMap<String, String>();
+    input.put("column1", "value2");
+    assertEquals(Status.PENDING, client.update(tableName, "row2", StringByteIterator.getByteIteratorMap(input)));
+    // Waits for the operations in flight
+    client.cleanup();
+
+    assertEquals("value1", result.get("column1").toString());
+    final Result r = table.get(new Get(Bytes.toBytes("row2")));
+    assertEquals("value2", Bytes.toString(r.getValue(Bytes.toBytes(COLUMN_FAMILY), Bytes.toBytes("column1"))));
+  }
+
   @Test
   public void testScan() throws Exception {
     setUp();
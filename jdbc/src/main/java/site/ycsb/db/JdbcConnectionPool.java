@@ -0,0 +1,111 @@
+/**
+ * Copyright (c) 2020 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package site.ycsb.db;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A fixed number of connections to one database URL, shared by all client threads. A connection
+ * is borrowed for one operation at a time, and keeps its prepared statements for the next
+ * borrower.
+ */
+final class JdbcConnectionPool {
+
+  /** The pools of the client, by URL and user. */
+  private static final Map<String, JdbcConnectionPool> POOLS = new HashMap<>();
+
+  private final String name;
+  private final BlockingQueue<Connection> idle;
+  private final Map<Connection, ConcurrentMap<StatementType, PreparedStatement>> statements =
+      new ConcurrentHashMap<>();
+  private int users;
+
+  private JdbcConnectionPool(String name, String url, String user, String passwd, int size)
+      throws SQLException {
+    this.name = name;
+    this.idle = new ArrayBlockingQueue<>(size);
+    for (int i = 0; i < size; i++) {
+      Connection conn = DriverManager.getConnection(url, user, passwd);
+      statements.put(conn, new ConcurrentHashMap<StatementType, PreparedStatement>());
+      idle.add(conn);
+    }
+  }
+
+  /**
+   * The pool for a URL and user, opening its connections for the first client thread. Every call
+   * must be matched by a call to {@link #close()}.
+   */
+  static JdbcConnectionPool open(String url, String user, String passwd, int size) throws SQLException {
+    synchronized (POOLS) {
+      String name = user + "@" + url;
+      JdbcConnectionPool pool = POOLS.get(name);
+      if (pool == null) {
+        pool = new JdbcConnectionPool(name, url, user, passwd, size);
+        POOLS.put(name, pool);
+      }
+      pool.users++;
+      return pool;
+    }
+  }
+
+  /**
+   * Wait for an idle connection.
+   */
+  Connection borrow() throws SQLException {
+    try {
+      return idle.take();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SQLException("Interrupted waiting for a pooled connection", e);
+    }
+  }
+
+  void release(Connection conn) {
+    idle.add(conn);
+  }
+
+  /**
+   * The prepared statements of a connection of the pool.
+   */
+  ConcurrentMap<StatementType, PreparedStatement> statements(Connection conn) {
+    return statements.get(conn);
+  }
+
+  /**
+   * Give up the pool, closing its connections once the last client thread has.
+   */
+  void close() throws SQLException {
+    synchronized (POOLS) {
+      if (--users > 0) {
+        return;
+      }
+      POOLS.remove(name);
+    }
+    for (Connection conn : statements.keySet()) {
+      conn.close();
+    }
+  }
+}
@@ -16,16 +16,22 @@
  */
 package site.ycsb.db;
 
+import site.ycsb.AggregateQuery;
+import site.ycsb.Client;
 import site.ycsb.DB;
 import site.ycsb.DBException;
 import site.ycsb.ByteIterator;
+import site.ycsb.NumericByteIterator;
+import site.ycsb.SearchQuery;
 import site.ycsb.Status;
 import site.ycsb.StringByteIterator;
 
+import java.io.StringReader;
 import java.sql.*;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
 import site.ycsb.db.flavors.DBFlavor;
 
 /**
@@ -67,6 +73,12 @@ public class JdbcDBClient extends DB {
 
   public static final String JDBC_BATCH_UPDATES = "jdbc.batchupdateapi";
 
+  /** How the load phase inserts rows: single, multirow or copy. */
+  public static final String JDBC_INSERT_MODE = "jdbc.insertmode";
+
+  /** The number of connections per URL shared by all client threads. Set to >0 to use pooling. */
+  public static final String DB_POOL_SIZE = "db.poolsize";
+
   /** The name of the property for the number of fields in a record. */
   public static final String FIELD_COUNT_PROPERTY = "fieldcount";
 
@@ -82,12 +94,65 @@ public class JdbcDBClient extends DB {
   /** The field name prefix in the table. */
   public static final String COLUMN_PREFIX = "FIELD";
 
+  /** The suffix of the table holding the child records of a table for joins. */
+  public static final String CHILD_TABLE_SUFFIX = "CHILD";
+
+  /** The core workload properties whose operations need the child records, group or search field. */
+  public static final String JOIN_PROPORTION_PROPERTY = "joinproportion";
+  public static final String GROUP_PROPORTION_PROPERTY = "groupproportion";
+  public static final String SEARCH_PROPORTION_PROPERTY = "searchproportion";
+
+  /** The column of child records holding the key of their parent record. */
+  public static final String CHILD_KEY = "CHILDKEY";
+
+  /** The column records are grouped by, set when the workload runs groups. */
+  public static final String GROUP_FIELD = "GROUPBYFIELD";
+
+  /** The column records are searched by, holding their key, set when the workload runs searches. */
+  public static final String SEARCH_FIELD = "SEARCHVIEWFIELD";
+
+  /** The column label of the record count. */
+  public static final String COUNT_COLUMN = "RECORD_COUNT";
+
+  /** The column label of the group of an aggregate query. */
+  public static final String GROUP_COLUMN = "AGG_GROUP";
+
+  /** The column label of the value of an aggregate query. */
+  public static final String VALUE_COLUMN = "AGG_VALUE";
+
+  /** The number of groups returned by a group operation. */
+  private static final int GROUP_LIMIT = 100;
+
+  /** The number of distinct values of the group field. */
+  private static final int GROUP_COUNT = 10;
+
   /** SQL:2008 standard: FETCH FIRST n ROWS after the ORDER BY. */
   private boolean sqlansiScans = false;
   /** SQL Server before 2012: TOP n after the SELECT. */
   private boolean sqlserverScans = false;
 
+  /**
+   * How the load phase inserts rows. Multi-row and copy inserts buffer db.batchsize rows per shard.
+   */
+  enum InsertMode {
+    /** One INSERT per row, optionally batched with jdbc.batchupdateapi. */
+    SINGLE,
+    /** One INSERT ... VALUES (...),(...) statement per batch. */
+    MULTIROW,
+    /** One COPY FROM STDIN per batch. */
+    COPY
+  }
+
   private List<Connection> conns;
+  /** The shared connections of each shard when pooling, otherwise null. */
+  private List<JdbcConnectionPool> pools;
+  private InsertMode insertMode;
+  /** Whether inserts also write the child record, the group and the search field of records. */
+  private boolean joinRecords;
+  private boolean groupRecords;
+  private boolean searchRecords;
+  /** Rows buffered for multi-row and copy inserts, by shard and table. */
+  private List<Map<String, RowBuffer>> rowBuffers;
   private boolean initialized = false;
   private Properties props;
   private int jdbcFetchSize;
@@ -106,9 +171,10 @@ public class JdbcDBClient extends DB {
    */
   private static class OrderedFieldInfo {
     private String fieldKeys;
-    private List<String> fieldValues;
+    /** Strings, or Longs and Doubles for numeric fields. */
+    private List<Object> fieldValues;
 
-    OrderedFieldInfo(String fieldKeys, List<String> fieldValues) {
+    OrderedFieldInfo(String fieldKeys, List<Object> fieldValues) {
       this.fieldKeys = fieldKeys;
       this.fieldValues = fieldValues;
     }
@@ -117,9 +183,54 @@ public class JdbcDBClient extends DB {
       return fieldKeys;
     }
 
-    List<String> getFieldValues() {
+    List<Object> getFieldValues() {
       return fieldValues;
     }
+
+    /**
+     * Returns the field information with one more field.
+     */
+    OrderedFieldInfo with(String fieldKey, Object fieldValue) {
+      List<Object> values = new ArrayList<>(fieldValues);
+      values.add(fieldValue);
+      return new OrderedFieldInfo(fieldKeys.isEmpty() ? fieldKey : fieldKeys + "," + fieldKey, values);
+    }
+  }
+
+  /**
+   * Rows of one table and set of fields waiting to be inserted together.
+   */
+  private static class RowBuffer {
+    private String tableName;
+    private String fieldKeys;
+    private int numFields;
+    private final List<String> keys = new ArrayList<>();
+    private final List<List<Object>> fieldValues = new ArrayList<>();
+
+    boolean isEmpty() {
+      return keys.isEmpty();
+    }
+
+    int size() {
+      return keys.size();
+    }
+
+    boolean accepts(String fields) {
+      return isEmpty() || fields.equals(fieldKeys);
+    }
+
+    void add(String table, String key, OrderedFieldInfo fieldInfo) {
+      tableName = table;
+      fieldKeys = fieldInfo.getFieldKeys();
+      numFields = fieldInfo.getFieldValues().size();
+      keys.add(key);
+      fieldValues.add(fieldInfo.getFieldValues());
+    }
+
+    void clear() {
+      keys.clear();
+      fieldValues.clear();
+    }
   }
 
   /**
@@ -129,22 +240,45 @@ public class JdbcDBClient extends DB {
    * @return Shard index
    */
   private int getShardIndexByKey(String key) {
-    int ret = Math.abs(key.hashCode()) % conns.size();
+    int ret = Math.abs(key.hashCode()) % getShardCount();
     return ret;
   }
 
   /**
-   * For the given key, returns Connection object that holds connection to the
-   * shard that contains this key.
+   * Returns a connection to the shard, borrowed from its pool when pooling. Every call must be
+   * matched by a call to {@link #releaseConnection}.
    *
-   * @param key Data key to get information for
+   * @param shardIndex Shard to connect to
    * @return Connection object
    */
-  private Connection getShardConnectionByKey(String key) {
-    return conns.get(getShardIndexByKey(key));
+  private Connection getShardConnection(int shardIndex) throws SQLException {
+    if (pools == null) {
+      return conns.get(shardIndex);
+    }
+    return pools.get(shardIndex).borrow();
+  }
+
+  private void releaseConnection(int shardIndex, Connection conn) {
+    if (pools != null && conn != null) {
+      pools.get(shardIndex).release(conn);
+    }
+  }
+
+  /** Returns the prepared statements of a connection. */
+  private ConcurrentMap<StatementType, PreparedStatement> getStatements(int shardIndex, Connection conn) {
+    if (pools == null) {
+      return cachedStatements;
+    }
+    return pools.get(shardIndex).statements(conn);
   }
 
   private void cleanupAllConnections() throws SQLException {
+    if (pools != null) {
+      for (JdbcConnectionPool pool : pools) {
+        pool.close();
+      }
+      return;
+    }
     for (Connection conn : conns) {
       if (!autoCommit) {
         conn.commit();
@@ -167,6 +301,11 @@ public class JdbcDBClient extends DB {
     return -1;
   }
 
+  /** Returns whether the workload runs an operation of the core workload. */
+  static boolean runsOperation(Properties props, String proportionProperty) {
+    return Double.parseDouble(props.getProperty(proportionProperty, "0")) > 0;
+  }
+
   /** Returns parsed boolean value from the properties if set, otherwise returns defaultVal. */
   private static boolean getBoolProperty(Properties props, String key, boolean defaultVal) {
     String valueStr = props.getProperty(key);
@@ -193,6 +332,29 @@ public class JdbcDBClient extends DB {
 
     this.autoCommit = getBoolProperty(props, JDBC_AUTO_COMMIT, true);
     this.batchUpdates = getBoolProperty(props, JDBC_BATCH_UPDATES, false);
+    int poolSize = getIntProperty(props, DB_POOL_SIZE);
+    this.joinRecords = runsOperation(props, JOIN_PROPORTION_PROPERTY);
+    this.groupRecords = runsOperation(props, GROUP_PROPORTION_PROPERTY);
+    this.searchRecords = runsOperation(props, SEARCH_PROPORTION_PROPERTY);
+
+    // Buffered inserts are only acknowledged once flushed, so the run phase inserts row by row
+    boolean loading = !getBoolProperty(props, Client.DO_TRANSACTIONS_PROPERTY, true);
+    try {
+      this.insertMode = loading
+          ? InsertMode.valueOf(props.getProperty(JDBC_INSERT_MODE, "single").toUpperCase())
+          : InsertMode.SINGLE;
+    } catch (IllegalArgumentException e) {
+      throw new DBException("Invalid " + JDBC_INSERT_MODE + " specified: " + props.getProperty(JDBC_INSERT_MODE));
+    }
+    if (insertMode != InsertMode.SINGLE && batchSize <= 0) {
+      throw new DBException(JDBC_INSERT_MODE + "=" + props.getProperty(JDBC_INSERT_MODE)
+          + " needs " + DB_BATCH_SIZE + " > 0");
+    }
+    // A pooled connection only serves one operation, so it cannot hold batches or transactions
+    if (poolSize > 0 && (!autoCommit || batchUpdates)) {
+      throw new DBException(DB_POOL_SIZE + " needs " + JDBC_AUTO_COMMIT + "=true and "
+          + JDBC_BATCH_UPDATES + "=false");
+    }
 
     try {
 //  The SQL Syntax for Scan depends on the DB engine
@@ -221,8 +383,23 @@ public class JdbcDBClient extends DB {
       // semicolons aren't present in JDBC urls, so we use them to delimit
       // multiple JDBC connections to shard across.
       final String[] urlArr = urls.split(";");
+      this.dbFlavor = DBFlavor.fromJdbcUrl(urlArr[0]);
+      if (insertMode == InsertMode.MULTIROW && !dbFlavor.supportsMultiRowInsert()
+          || insertMode == InsertMode.COPY && !dbFlavor.supportsCopy()) {
+        throw new DBException(JDBC_INSERT_MODE + "=" + props.getProperty(JDBC_INSERT_MODE)
+            + " is not supported by " + urlArr[0]);
+      }
+      if (poolSize > 0) {
+        pools = new ArrayList<JdbcConnectionPool>(urlArr.length);
+      }
       for (String url : urlArr) {
         System.out.println("Adding shard node URL: " + url);
+        if (pools != null) {
+          // Pooled connections keep the default auto-commit
+          pools.add(JdbcConnectionPool.open(url, user, passwd, poolSize));
+          shardCount++;
+          continue;
+        }
         Connection conn = DriverManager.getConnection(url, user, passwd);
 
         // Since there is no explicit commit method in the DB interface, all
@@ -238,8 +415,10 @@ public class JdbcDBClient extends DB {
       System.out.println("Using shards: " + shardCount + ", batchSize:" + batchSize + ", fetchSize: " + jdbcFetchSize);
 
       cachedStatements = new ConcurrentHashMap<StatementType, PreparedStatement>();
-
-      this.dbFlavor = DBFlavor.fromJdbcUrl(urlArr[0]);
+      rowBuffers = new ArrayList<Map<String, RowBuffer>>(shardCount);
+      for (int i = 0; i < shardCount; i++) {
+        rowBuffers.add(new HashMap<String, RowBuffer>());
+      }
     } catch (ClassNotFoundException e) {
       System.err.println("Error in initializing the JDBS driver: " + e);
       throw new DBException(e);
@@ -256,6 +435,13 @@ public class JdbcDBClient extends DB {
 
   @Override
   public void cleanup() throws DBException {
+    for (int i = 0; i < rowBuffers.size(); i++) {
+      for (RowBuffer rows : rowBuffers.get(i).values()) {
+        if (!flushRows(i, rows).isOk()) {
+          throw new DBException("Error inserting the last buffered rows");
+        }
+      }
+    }
     if (batchSize > 0) {
       try {
         // commit un-finished batches
@@ -278,58 +464,63 @@ public class JdbcDBClient extends DB {
     }
   }
 
-  private PreparedStatement createAndCacheInsertStatement(StatementType insertType, String key)
+  private PreparedStatement createAndCacheInsertStatement(Connection conn,
+      ConcurrentMap<StatementType, PreparedStatement> statements, StatementType insertType, String key)
       throws SQLException {
     String insert = dbFlavor.createInsertStatement(insertType, key);
-    PreparedStatement insertStatement = getShardConnectionByKey(key).prepareStatement(insert);
-    PreparedStatement stmt = cachedStatements.putIfAbsent(insertType, insertStatement);
+    PreparedStatement insertStatement = conn.prepareStatement(insert);
+    PreparedStatement stmt = statements.putIfAbsent(insertType, insertStatement);
     if (stmt == null) {
       return insertStatement;
     }
     return stmt;
   }
 
-  private PreparedStatement createAndCacheReadStatement(StatementType readType, String key)
+  private PreparedStatement createAndCacheReadStatement(Connection conn,
+      ConcurrentMap<StatementType, PreparedStatement> statements, StatementType readType, String key)
       throws SQLException {
     String read = dbFlavor.createReadStatement(readType, key);
-    PreparedStatement readStatement = getShardConnectionByKey(key).prepareStatement(read);
-    PreparedStatement stmt = cachedStatements.putIfAbsent(readType, readStatement);
+    PreparedStatement readStatement = conn.prepareStatement(read);
+    PreparedStatement stmt = statements.putIfAbsent(readType, readStatement);
     if (stmt == null) {
       return readStatement;
     }
     return stmt;
   }
 
-  private PreparedStatement createAndCacheDeleteStatement(StatementType deleteType, String key)
+  private PreparedStatement createAndCacheDeleteStatement(Connection conn,
+      ConcurrentMap<StatementType, PreparedStatement> statements, StatementType deleteType, String key)
       throws SQLException {
     String delete = dbFlavor.createDeleteStatement(deleteType, key);
-    PreparedStatement deleteStatement = getShardConnectionByKey(key).prepareStatement(delete);
-    PreparedStatement stmt = cachedStatements.putIfAbsent(deleteType, deleteStatement);
+    PreparedStatement deleteStatement = conn.prepareStatement(delete);
+    PreparedStatement stmt = statements.putIfAbsent(deleteType, deleteStatement);
     if (stmt == null) {
       return deleteStatement;
     }
     return stmt;
   }
 
-  private PreparedStatement createAndCacheUpdateStatement(StatementType updateType, String key)
+  private PreparedStatement createAndCacheUpdateStatement(Connection conn,
+      ConcurrentMap<StatementType, PreparedStatement> statements, StatementType updateType, String key)
       throws SQLException {
     String update = dbFlavor.createUpdateStatement(updateType, key);
-    PreparedStatement insertStatement = getShardConnectionByKey(key).prepareStatement(update);
-    PreparedStatement stmt = cachedStatements.putIfAbsent(updateType, insertStatement);
+    PreparedStatement insertStatement = conn.prepareStatement(update);
+    PreparedStatement stmt = statements.putIfAbsent(updateType, insertStatement);
     if (stmt == null) {
       return insertStatement;
     }
     return stmt;
   }
 
-  private PreparedStatement createAndCacheScanStatement(StatementType scanType, String key)
+  private PreparedStatement createAndCacheScanStatement(Connection conn,
+      ConcurrentMap<StatementType, PreparedStatement> statements, StatementType scanType, String key)
       throws SQLException {
     String select = dbFlavor.createScanStatement(scanType, key, sqlserverScans, sqlansiScans);
-    PreparedStatement scanStatement = getShardConnectionByKey(key).prepareStatement(select);
+    PreparedStatement scanStatement = conn.prepareStatement(select);
     if (this.jdbcFetchSize > 0) {
       scanStatement.setFetchSize(this.jdbcFetchSize);
     }
-    PreparedStatement stmt = cachedStatements.putIfAbsent(scanType, scanStatement);
+    PreparedStatement stmt = statements.putIfAbsent(scanType, scanStatement);
     if (stmt == null) {
       return scanStatement;
     }
@@ -338,11 +529,15 @@ public class JdbcDBClient extends DB {
 
   @Override
   public Status read(String tableName, String key, Set<String> fields, Map<String, ByteIterator> result) {
+    int shardIndex = getShardIndexByKey(key);
+    Connection conn = null;
     try {
-      StatementType type = new StatementType(StatementType.Type.READ, tableName, 1, "", getShardIndexByKey(key));
-      PreparedStatement readStatement = cachedStatements.get(type);
+      conn = getShardConnection(shardIndex);
+      ConcurrentMap<StatementType, PreparedStatement> statements = getStatements(shardIndex, conn);
+      StatementType type = new StatementType(StatementType.Type.READ, tableName, 1, "", shardIndex);
+      PreparedStatement readStatement = statements.get(type);
       if (readStatement == null) {
-        readStatement = createAndCacheReadStatement(type, key);
+        readStatement = createAndCacheReadStatement(conn, statements, type, key);
       }
       readStatement.setString(1, key);
       ResultSet resultSet = readStatement.executeQuery();
@@ -361,17 +556,23 @@ public class JdbcDBClient extends DB {
     } catch (SQLException e) {
       System.err.println("Error in processing read of table " + tableName + ": " + e);
       return Status.ERROR;
+    } finally {
+      releaseConnection(shardIndex, conn);
     }
   }
 
   @Override
   public Status scan(String tableName, String startKey, int recordcount, Set<String> fields,
                      Vector<HashMap<String, ByteIterator>> result) {
+    int shardIndex = getShardIndexByKey(startKey);
+    Connection conn = null;
     try {
-      StatementType type = new StatementType(StatementType.Type.SCAN, tableName, 1, "", getShardIndexByKey(startKey));
-      PreparedStatement scanStatement = cachedStatements.get(type);
+      conn = getShardConnection(shardIndex);
+      ConcurrentMap<StatementType, PreparedStatement> statements = getStatements(shardIndex, conn);
+      StatementType type = new StatementType(StatementType.Type.SCAN, tableName, 1, "", shardIndex);
+      PreparedStatement scanStatement = statements.get(type);
       if (scanStatement == null) {
-        scanStatement = createAndCacheScanStatement(type, startKey);
+        scanStatement = createAndCacheScanStatement(conn, statements, type, startKey);
       }
       // SQL Server TOP syntax is at first
       if (sqlserverScans) {
@@ -398,23 +599,29 @@ public class JdbcDBClient extends DB {
     } catch (SQLException e) {
       System.err.println("Error in processing scan of table: " + tableName + e);
       return Status.ERROR;
+    } finally {
+      releaseConnection(shardIndex, conn);
     }
   }
 
   @Override
   public Status update(String tableName, String key, Map<String, ByteIterator> values) {
+    int shardIndex = getShardIndexByKey(key);
+    Connection conn = null;
     try {
+      conn = getShardConnection(shardIndex);
+      ConcurrentMap<StatementType, PreparedStatement> statements = getStatements(shardIndex, conn);
       int numFields = values.size();
       OrderedFieldInfo fieldInfo = getFieldInfo(values);
       StatementType type = new StatementType(StatementType.Type.UPDATE, tableName,
-          numFields, fieldInfo.getFieldKeys(), getShardIndexByKey(key));
-      PreparedStatement updateStatement = cachedStatements.get(type);
+          numFields, fieldInfo.getFieldKeys(), shardIndex);
+      PreparedStatement updateStatement = statements.get(type);
       if (updateStatement == null) {
-        updateStatement = createAndCacheUpdateStatement(type, key);
+        updateStatement = createAndCacheUpdateStatement(conn, statements, type, key);
       }
       int index = 1;
-      for (String value: fieldInfo.getFieldValues()) {
-        updateStatement.setString(index++, value);
+      for (Object value: fieldInfo.getFieldValues()) {
+        setValue(updateStatement, index++, value);
       }
       updateStatement.setString(index, key);
       int result = updateStatement.executeUpdate();
@@ -425,24 +632,52 @@ public class JdbcDBClient extends DB {
     } catch (SQLException e) {
       System.err.println("Error in processing update to table: " + tableName + e);
       return Status.ERROR;
+    } finally {
+      releaseConnection(shardIndex, conn);
     }
   }
 
   @Override
   public Status insert(String tableName, String key, Map<String, ByteIterator> values) {
+    OrderedFieldInfo fieldInfo = getFieldInfo(values);
+    OrderedFieldInfo recordInfo = fieldInfo;
+    if (groupRecords) {
+      recordInfo = recordInfo.with(GROUP_FIELD, groupValue(key));
+    }
+    if (searchRecords) {
+      recordInfo = recordInfo.with(SEARCH_FIELD, key);
+    }
+    int shardIndex = getShardIndexByKey(key);
+    Status status = insertRow(shardIndex, tableName, key, recordInfo);
+    if (!joinRecords || !status.isOk()) {
+      return status;
+    }
+    // The child record of a join holds the fields of its parent, and lives on the shard of its
+    // parent so that a join finds it
+    Status childStatus = insertRow(shardIndex, tableName + CHILD_TABLE_SUFFIX, "child" + key,
+        fieldInfo.with(CHILD_KEY, key));
+    return childStatus.isOk() ? status : childStatus;
+  }
+
+  private Status insertRow(int shardIndex, String tableName, String key, OrderedFieldInfo fieldInfo) {
+    if (insertMode != InsertMode.SINGLE) {
+      return bufferRow(shardIndex, tableName, key, fieldInfo);
+    }
+    Connection conn = null;
     try {
-      int numFields = values.size();
-      OrderedFieldInfo fieldInfo = getFieldInfo(values);
+      conn = getShardConnection(shardIndex);
+      ConcurrentMap<StatementType, PreparedStatement> statements = getStatements(shardIndex, conn);
+      int numFields = fieldInfo.getFieldValues().size();
       StatementType type = new StatementType(StatementType.Type.INSERT, tableName,
-          numFields, fieldInfo.getFieldKeys(), getShardIndexByKey(key));
-      PreparedStatement insertStatement = cachedStatements.get(type);
+          numFields, fieldInfo.getFieldKeys(), shardIndex);
+      PreparedStatement insertStatement = statements.get(type);
       if (insertStatement == null) {
-        insertStatement = createAndCacheInsertStatement(type, key);
+        insertStatement = createAndCacheInsertStatement(conn, statements, type, key);
       }
       insertStatement.setString(1, key);
       int index = 2;
-      for (String value: fieldInfo.getFieldValues()) {
-        insertStatement.setString(index++, value);
+      for (Object value: fieldInfo.getFieldValues()) {
+        setValue(insertStatement, index++, value);
       }
       // Using the batch insert API
       if (batchUpdates) {
@@ -460,7 +695,7 @@ public class JdbcDBClient extends DB {
             }
             // If autoCommit is off, make sure we commit the batch
             if (!autoCommit) {
-              getShardConnectionByKey(key).commit();
+              conn.commit();
             }
             return Status.OK;
           } // else, the default value of -1 or a nonsense. Treat it as an infinitely large batch.
@@ -476,13 +711,13 @@ public class JdbcDBClient extends DB {
           if (batchSize > 0) {
             if (++numRowsInBatch % batchSize == 0) {
               // Send the batch of updates
-              getShardConnectionByKey(key).commit();
+              conn.commit();
             }
             // uhh
             return Status.OK;
           } else {
             // Commit each update
-            getShardConnectionByKey(key).commit();
+            conn.commit();
           }
         }
         if (result == 1) {
@@ -493,16 +728,139 @@ public class JdbcDBClient extends DB {
     } catch (SQLException e) {
       System.err.println("Error in processing insert to table: " + tableName + e);
       return Status.ERROR;
+    } finally {
+      releaseConnection(shardIndex, conn);
     }
   }
 
+  /**
+   * Buffer a row for a multi-row or copy insert, inserting the buffered rows once there are
+   * db.batchsize of them.
+   */
+  private Status bufferRow(int shardIndex, String tableName, String key, OrderedFieldInfo fieldInfo) {
+    RowBuffer rows = rowBuffers.get(shardIndex).get(tableName);
+    if (rows == null) {
+      rows = new RowBuffer();
+      rowBuffers.get(shardIndex).put(tableName, rows);
+    }
+    if (!rows.accepts(fieldInfo.getFieldKeys())) {
+      Status status = flushRows(shardIndex, rows);
+      if (!status.isOk()) {
+        return status;
+      }
+    }
+    rows.add(tableName, key, fieldInfo);
+    if (rows.size() >= batchSize) {
+      return flushRows(shardIndex, rows);
+    }
+    return Status.BATCHED_OK;
+  }
+
+  /**
+   * Insert rows buffered for a shard with one statement.
+   */
+  private Status flushRows(int shardIndex, RowBuffer rows) {
+    if (rows.isEmpty()) {
+      return Status.OK;
+    }
+    Connection conn = null;
+    try {
+      conn = getShardConnection(shardIndex);
+      StatementType type = new StatementType(StatementType.Type.MULTI_ROW_INSERT, rows.tableName,
+          rows.numFields, rows.fieldKeys, shardIndex);
+      long inserted;
+      if (insertMode == InsertMode.COPY) {
+        inserted = dbFlavor.copy(conn, dbFlavor.createCopyStatement(type), new StringReader(toCsv(rows)));
+      } else {
+        inserted = insertRows(shardIndex, conn, type, rows);
+      }
+      if (!autoCommit) {
+        conn.commit();
+      }
+      if (inserted == rows.size()) {
+        return Status.OK;
+      }
+      return Status.UNEXPECTED_STATE;
+    } catch (SQLException e) {
+      System.err.println("Error in processing insert to table: " + rows.tableName + e);
+      return Status.ERROR;
+    } finally {
+      rows.clear();
+      releaseConnection(shardIndex, conn);
+    }
+  }
+
+  private int insertRows(int shardIndex, Connection conn, StatementType type, RowBuffer rows) throws SQLException {
+    // Only full batches reuse their statement, the last partial one of a load is prepared once
+    PreparedStatement insertStatement;
+    if (rows.size() == batchSize) {
+      ConcurrentMap<StatementType, PreparedStatement> statements = getStatements(shardIndex, conn);
+      insertStatement = statements.get(type);
+      if (insertStatement == null) {
+        insertStatement = conn.prepareStatement(dbFlavor.createMultiRowInsertStatement(type, batchSize));
+        PreparedStatement stmt = statements.putIfAbsent(type, insertStatement);
+        if (stmt != null) {
+          insertStatement = stmt;
+        }
+      }
+    } else {
+      insertStatement = conn.prepareStatement(dbFlavor.createMultiRowInsertStatement(type, rows.size()));
+    }
+    int index = 1;
+    for (int row = 0; row < rows.size(); row++) {
+      insertStatement.setString(index++, rows.keys.get(row));
+      for (Object value : rows.fieldValues.get(row)) {
+        setValue(insertStatement, index++, value);
+      }
+    }
+    try {
+      return insertStatement.executeUpdate();
+    } finally {
+      if (rows.size() != batchSize) {
+        insertStatement.close();
+      }
+    }
+  }
+
+  /**
+   * The rows as CSV, the primary key followed by the fields, with every value quoted.
+   */
+  private static String toCsv(RowBuffer rows) {
+    StringBuilder csv = new StringBuilder();
+    for (int row = 0; row < rows.size(); row++) {
+      appendCsvValue(csv, rows.keys.get(row));
+      for (Object value : rows.fieldValues.get(row)) {
+        csv.append(',');
+        appendCsvValue(csv, value.toString());
+      }
+      csv.append('\n');
+    }
+    return csv.toString();
+  }
+
+  private static void appendCsvValue(StringBuilder csv, String value) {
+    csv.append('"');
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '"') {
+        csv.append('"');
+      }
+      csv.append(c);
+    }
+    csv.append('"');
+  }
+
   @Override
   public Status delete(String tableName, String key) {
+    int shardIndex = getShardIndexByKey(key);
+    Connection conn = null;
     try {
-      StatementType type = new StatementType(StatementType.Type.DELETE, tableName, 1, "", getShardIndexByKey(key));
-      PreparedStatement deleteStatement = cachedStatements.get(type);
+      conn = getShardConnection(shardIndex);
+      ConcurrentMap<StatementType, PreparedStatement> statements = getStatements(shardIndex, conn);
+      StatementType type = new StatementType(StatementType.Type.DELETE, tableName, 1, "", shardIndex);
+      PreparedStatement deleteStatement = statements.get(type);
       if (deleteStatement == null) {
-        deleteStatement = createAndCacheDeleteStatement(type, key);
+        deleteStatement = createAndCacheDeleteStatement(conn, statements, type, key);
       }
       deleteStatement.setString(1, key);
       int result = deleteStatement.executeUpdate();
@@ -513,22 +871,249 @@ public class JdbcDBClient extends DB {
     } catch (SQLException e) {
       System.err.println("Error in processing delete to table: " + tableName + e);
       return Status.ERROR;
+    } finally {
+      releaseConnection(shardIndex, conn);
+    }
+  }
+
+  /**
+   * Sets the parameters of a query.
+   */
+  private interface ParameterSetter {
+    void setParameters(PreparedStatement statement) throws SQLException;
+  }
+
+  /**
+   * Converts the current row of a query result.
+   */
+  private interface RowReader {
+    HashMap<String, ByteIterator> readRow(ResultSet resultSet) throws SQLException;
+  }
+
+  private int getShardCount() {
+    return pools == null ? conns.size() : pools.size();
+  }
+
+  /**
+   * Runs a query on a shard, adding its rows to the result.
+   */
+  private Status executeQuery(String operation, int shardIndex, StatementType type, Supplier<String> sql,
+                              ParameterSetter parameters, RowReader rows,
+                              Vector<HashMap<String, ByteIterator>> result) {
+    Connection conn = null;
+    try {
+      conn = getShardConnection(shardIndex);
+      ConcurrentMap<StatementType, PreparedStatement> statements = getStatements(shardIndex, conn);
+      PreparedStatement statement = statements.get(type);
+      if (statement == null) {
+        statement = conn.prepareStatement(sql.get());
+        if (this.jdbcFetchSize > 0) {
+          statement.setFetchSize(this.jdbcFetchSize);
+        }
+        PreparedStatement stmt = statements.putIfAbsent(type, statement);
+        if (stmt != null) {
+          statement = stmt;
+        }
+      }
+      parameters.setParameters(statement);
+      ResultSet resultSet = statement.executeQuery();
+      while (resultSet.next()) {
+        result.add(rows.readRow(resultSet));
+      }
+      resultSet.close();
+      return Status.OK;
+    } catch (SQLException e) {
+      System.err.println("Error in processing " + operation + " of table " + type.getTableName() + ": " + e);
+      return Status.ERROR;
+    } finally {
+      releaseConnection(shardIndex, conn);
+    }
+  }
+
+  /**
+   * Runs a query on every shard, adding the rows of each to the result without merging them.
+   */
+  private Status executeQueryOnAllShards(String operation, StatementType.Type queryType, String tableName,
+                                         String fieldString, int numFields, Supplier<String> sql,
+                                         ParameterSetter parameters, RowReader rows,
+                                         Vector<HashMap<String, ByteIterator>> result) {
+    for (int i = 0; i < getShardCount(); i++) {
+      StatementType type = new StatementType(queryType, tableName, numFields, fieldString, i);
+      Status status = executeQuery(operation, i, type, sql, parameters, rows, result);
+      if (!status.isOk()) {
+        return status;
+      }
+    }
+    return Status.OK;
+  }
+
+  /** Reads every column of a row, by its label. */
+  private static HashMap<String, ByteIterator> readAllColumns(ResultSet resultSet) throws SQLException {
+    ResultSetMetaData metaData = resultSet.getMetaData();
+    HashMap<String, ByteIterator> values = new HashMap<String, ByteIterator>();
+    for (int i = 1; i <= metaData.getColumnCount(); i++) {
+      String value = resultSet.getString(i);
+      if (value != null) {
+        values.put(metaData.getColumnLabel(i), new StringByteIterator(value));
+      }
     }
+    return values;
+  }
+
+  private static HashMap<String, ByteIterator> readColumn(ResultSet resultSet, String name, int index)
+      throws SQLException {
+    HashMap<String, ByteIterator> values = new HashMap<String, ByteIterator>();
+    String value = resultSet.getString(index);
+    values.put(name, new StringByteIterator(value == null ? NULL_VALUE : value));
+    return values;
+  }
+
+  /**
+   * Joins a record with its child records, returning the key of the record once per child.
+   */
+  @Override
+  public Status join(String tableName, String startKey, int recordcount, Set<String> fields,
+                     Vector<HashMap<String, ByteIterator>> result) {
+    int shardIndex = getShardIndexByKey(startKey);
+    StatementType type = new StatementType(StatementType.Type.JOIN, tableName, 1, "", shardIndex);
+    return executeQuery("join", shardIndex, type, () -> dbFlavor.createJoinStatement(type),
+        statement -> statement.setString(1, startKey),
+        resultSet -> readColumn(resultSet, tableName, 1), result);
+  }
+
+  /**
+   * Groups the records by key and group field, returning the first groups.
+   */
+  @Override
+  public Status group(String tableName, String startKey, int recordcount, Set<String> fields,
+                      Vector<HashMap<String, ByteIterator>> result) {
+    return executeQueryOnAllShards("group", StatementType.Type.GROUP, tableName, "", 1,
+        () -> dbFlavor.createGroupStatement(new StatementType(StatementType.Type.GROUP, tableName, 1, "", 0),
+            sqlserverScans, sqlansiScans),
+        statement -> statement.setInt(1, GROUP_LIMIT),
+        resultSet -> {
+          HashMap<String, ByteIterator> values = readColumn(resultSet, "key", 1);
+          values.putAll(readColumn(resultSet, "groupbyfield", 2));
+          return values;
+        }, result);
+  }
+
+  /**
+   * Counts the records of the table.
+   */
+  @Override
+  public Status aggregate(String tableName, String startKey, int recordcount, Set<String> fields,
+                          Vector<HashMap<String, ByteIterator>> result) {
+    return executeQueryOnAllShards("aggregate", StatementType.Type.COUNT, tableName, "", 1,
+        () -> dbFlavor.createCountStatement(new StatementType(StatementType.Type.COUNT, tableName, 1, "", 0)),
+        statement -> { },
+        resultSet -> readColumn(resultSet, "count", 1), result);
+  }
+
+  @Override
+  public Status aggregate(String tableName, AggregateQuery query, Vector<HashMap<String, ByteIterator>> result) {
+    String fieldString = query.getShape() + "," + query.getField() + "," + query.getGroupField() + ","
+        + query.getRangeField();
+    return executeQueryOnAllShards("aggregate", StatementType.Type.AGGREGATE, tableName, fieldString, 1,
+        () -> dbFlavor.createAggregateStatement(
+            new StatementType(StatementType.Type.AGGREGATE, tableName, 1, fieldString, 0), query),
+        statement -> {
+          statement.setLong(1, query.getLow());
+          statement.setLong(2, query.getHigh());
+        },
+        resultSet -> {
+          if (!query.isGrouped()) {
+            return readColumn(resultSet, "value", 1);
+          }
+          HashMap<String, ByteIterator> values = readColumn(resultSet, "group", 1);
+          values.putAll(readColumn(resultSet, "value", 2));
+          return values;
+        }, result);
+  }
+
+  /**
+   * Looks a record up by its search field, which holds its key.
+   */
+  @Override
+  public Status search(String tableName, String startKey, int recordcount, Set<String> fields,
+                       Vector<HashMap<String, ByteIterator>> result) {
+    int shardIndex = getShardIndexByKey(startKey);
+    StatementType type = new StatementType(StatementType.Type.KEY_SEARCH, tableName, 1, "", shardIndex);
+    return executeQuery("search", shardIndex, type, () -> dbFlavor.createKeySearchStatement(type),
+        statement -> statement.setString(1, startKey),
+        JdbcDBClient::readAllColumns, result);
+  }
+
+  /**
+   * Full-text query with the syntax of the database flavor. With several shards, each returns up to
+   * the limit.
+   */
+  @Override
+  public Status search(String tableName, SearchQuery query, Vector<HashMap<String, ByteIterator>> result) {
+    String fieldString = query.getType() + "," + query.getField();
+    int numTerms = query.getTerms().size();
+    List<String> parameters = dbFlavor.createTextSearchParameters(query);
+    return executeQueryOnAllShards("search", StatementType.Type.TEXT_SEARCH, tableName, fieldString, numTerms,
+        () -> dbFlavor.createTextSearchStatement(
+            new StatementType(StatementType.Type.TEXT_SEARCH, tableName, numTerms, fieldString, 0), query,
+            sqlserverScans, sqlansiScans),
+        statement -> {
+          int index = 1;
+          // SQL Server TOP syntax is at first
+          if (sqlserverScans) {
+            statement.setInt(index++, query.getLimit());
+          }
+          for (String parameter : parameters) {
+            statement.setString(index++, parameter);
+          }
+          if (!sqlserverScans) {
+            statement.setInt(index, query.getLimit());
+          }
+        },
+        JdbcDBClient::readAllColumns, result);
   }
 
   private OrderedFieldInfo getFieldInfo(Map<String, ByteIterator> values) {
     String fieldKeys = "";
-    List<String> fieldValues = new ArrayList<>();
+    List<Object> fieldValues = new ArrayList<>();
     int count = 0;
     for (Map.Entry<String, ByteIterator> entry : values.entrySet()) {
       fieldKeys += entry.getKey();
       if (count < values.size() - 1) {
         fieldKeys += ",";
       }
-      fieldValues.add(count, entry.getValue().toString());
+      fieldValues.add(count, toSqlValue(entry.getValue()));
       count++;
     }
 
     return new OrderedFieldInfo(fieldKeys, fieldValues);
   }
+
+  /**
+   * Numeric values are kept as numbers, so that they are bound to numeric columns as such.
+   */
+  private static Object toSqlValue(ByteIterator value) {
+    if (value instanceof NumericByteIterator) {
+      NumericByteIterator number = (NumericByteIterator) value;
+      return number.isFloatingPoint() ? (Object) number.getDouble() : (Object) number.getLong();
+    }
+    return value.toString();
+  }
+
+  private static void setValue(PreparedStatement statement, int index, Object value) throws SQLException {
+    if (value instanceof Long) {
+      statement.setLong(index, (Long) value);
+    } else if (value instanceof Double) {
+      statement.setDouble(index, (Double) value);
+    } else {
+      statement.setString(index, (String) value);
+    }
+  }
+
+  /**
+   * The group field of a record, one of GROUP_COUNT values chosen by its key.
+   */
+  private static String groupValue(String key) {
+    return "groupValue" + (Math.floorMod(key.hashCode(), GROUP_COUNT) + 1);
+  }
 }
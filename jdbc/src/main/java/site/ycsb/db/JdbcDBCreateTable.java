@@ -16,6 +16,8 @@
  */
 package site.ycsb.db;
 
+import site.ycsb.db.flavors.DBFlavor;
+
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.sql.Connection;
@@ -26,12 +28,22 @@ import java.util.Enumeration;
 import java.util.Properties;
 
 /**
- * Utility class to create the table to be used by the benchmark.
+ * Utility class to create the table to be used by the benchmark. Given the workload properties, it
+ * also creates the columns, child table and indexes of the join, group and search operations of
+ * the core workload, and the columns named by the aggregate and search field properties.
  * 
  * @author sudipto
  */
 public final class JdbcDBCreateTable {
 
+  /** The properties naming the group, value and range columns of aggregate queries. */
+  public static final String AGGREGATE_GROUP_FIELD = "aggregate.groupfield";
+  public static final String AGGREGATE_VALUE_FIELD = "aggregate.valuefield";
+  public static final String AGGREGATE_RANGE_FIELD = "aggregate.rangefield";
+
+  /** The property naming the column of full-text searches. */
+  public static final String SEARCH_TEXT_FIELD = "search.field";
+
   private static void usageMessage() {
     System.out.println("Create Table Client. Options:");
     System.out.println("  -p   key=value properties defined.");
@@ -75,11 +87,36 @@ public final class JdbcDBCreateTable {
         sql.append(idx);
         sql.append(" TEXT");
       }
+      sql.append(workloadColumns(props));
       sql.append(");");
 
       stmt.execute(sql.toString());
 
       System.out.println("Table " + tablename + " created..");
+
+      createWorkloadIndexes(stmt, props, tablename, DBFlavor.fromJdbcUrl(url));
+
+      if (JdbcDBClient.runsOperation(props, JdbcDBClient.JOIN_PROPORTION_PROPERTY)) {
+        String childTable = tablename + JdbcDBClient.CHILD_TABLE_SUFFIX;
+        stmt.execute("DROP TABLE IF EXISTS " + childTable + ";");
+
+        sql = new StringBuilder("CREATE TABLE ");
+        sql.append(childTable);
+        sql.append(" (YCSB_KEY VARCHAR PRIMARY KEY, ");
+        sql.append(JdbcDBClient.CHILD_KEY);
+        sql.append(" VARCHAR(255)");
+        for (int idx = 0; idx < fieldcount; idx++) {
+          sql.append(", FIELD");
+          sql.append(idx);
+          sql.append(" TEXT");
+        }
+        sql.append(");");
+
+        stmt.execute(sql.toString());
+        createIndex(stmt, childTable, JdbcDBClient.CHILD_KEY);
+
+        System.out.println("Table " + childTable + " created..");
+      }
     } catch (ClassNotFoundException e) {
       throw new SQLException("JDBC Driver class not found.");
     } finally {
@@ -90,6 +127,55 @@ public final class JdbcDBCreateTable {
     }
   }
 
+  /**
+   * The columns records of the workload have besides their fields.
+   */
+  private static String workloadColumns(Properties props) {
+    StringBuilder columns = new StringBuilder();
+    if (JdbcDBClient.runsOperation(props, JdbcDBClient.GROUP_PROPORTION_PROPERTY)) {
+      columns.append(", " + JdbcDBClient.GROUP_FIELD + " VARCHAR(255)");
+    }
+    if (JdbcDBClient.runsOperation(props, JdbcDBClient.SEARCH_PROPORTION_PROPERTY)) {
+      columns.append(", " + JdbcDBClient.SEARCH_FIELD + " VARCHAR(255)");
+    }
+    appendColumn(columns, props.getProperty(AGGREGATE_GROUP_FIELD), "VARCHAR(255)");
+    appendColumn(columns, props.getProperty(AGGREGATE_VALUE_FIELD), "BIGINT");
+    appendColumn(columns, props.getProperty(AGGREGATE_RANGE_FIELD), "BIGINT");
+    appendColumn(columns, props.getProperty(SEARCH_TEXT_FIELD), "TEXT");
+    return columns.toString();
+  }
+
+  private static void appendColumn(StringBuilder columns, String name, String type) {
+    if (name != null) {
+      columns.append(", " + name + " " + type);
+    }
+  }
+
+  private static void createWorkloadIndexes(Statement stmt, Properties props, String tablename, DBFlavor dbFlavor)
+      throws SQLException {
+    if (JdbcDBClient.runsOperation(props, JdbcDBClient.GROUP_PROPORTION_PROPERTY)) {
+      createIndex(stmt, tablename, JdbcDBClient.GROUP_FIELD);
+    }
+    if (JdbcDBClient.runsOperation(props, JdbcDBClient.SEARCH_PROPORTION_PROPERTY)) {
+      createIndex(stmt, tablename, JdbcDBClient.SEARCH_FIELD);
+    }
+    if (props.getProperty(AGGREGATE_RANGE_FIELD) != null) {
+      createIndex(stmt, tablename, props.getProperty(AGGREGATE_RANGE_FIELD));
+    }
+    if (props.getProperty(SEARCH_TEXT_FIELD) != null) {
+      String index = dbFlavor.createTextSearchIndexStatement(tablename, props.getProperty(SEARCH_TEXT_FIELD));
+      if (index != null) {
+        stmt.execute(index + ";");
+        System.out.println("Full-text index created..");
+      }
+    }
+  }
+
+  private static void createIndex(Statement stmt, String tablename, String column) throws SQLException {
+    stmt.execute("CREATE INDEX " + tablename + "_" + column + " ON " + tablename + " (" + column + ");");
+    System.out.println("Index on " + tablename + "." + column + " created..");
+  }
+
   /**
    * @param args
    */
@@ -22,7 +22,8 @@ package site.ycsb.db;
 public class StatementType {
 
   enum Type {
-    INSERT(1), DELETE(2), READ(3), UPDATE(4), SCAN(5);
+    INSERT(1), DELETE(2), READ(3), UPDATE(4), SCAN(5), MULTI_ROW_INSERT(6), JOIN(7), GROUP(8), COUNT(9),
+    KEY_SEARCH(10), AGGREGATE(11), TEXT_SEARCH(12);
 
     private final int internalType;
 
@@ -16,8 +16,16 @@
  */
 package site.ycsb.db.flavors;
 
+import site.ycsb.AggregateQuery;
+import site.ycsb.SearchQuery;
 import site.ycsb.db.StatementType;
 
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.List;
+
 /**
  * DBFlavor captures minor differences in syntax and behavior among JDBC implementations and SQL
  * dialects. This class also acts as a factory to instantiate concrete flavors based on the JDBC URL.
@@ -26,7 +34,8 @@ public abstract class DBFlavor {
 
   enum DBName {
     DEFAULT,
-    PHOENIX
+    PHOENIX,
+    POSTGRES
   }
 
   private final DBName dbName;
@@ -39,6 +48,9 @@ public abstract class DBFlavor {
     if (url.startsWith("jdbc:phoenix")) {
       return new PhoenixDBFlavor();
     }
+    if (url.startsWith("jdbc:postgresql")) {
+      return new PostgresDBFlavor();
+    }
     return new DefaultDBFlavor();
   }
 
@@ -67,4 +79,86 @@ public abstract class DBFlavor {
    */
   public abstract String createScanStatement(StatementType scanType, String key,
                                              boolean sqlserverScans, boolean sqlansiScans);
+
+  /**
+   * Create and return a SQL statement joining a record with its child records.
+   */
+  public abstract String createJoinStatement(StatementType joinType);
+
+  /**
+   * Create and return a SQL statement grouping the records of a table by their group field.
+   */
+  public abstract String createGroupStatement(StatementType groupType, boolean sqlserverScans, boolean sqlansiScans);
+
+  /**
+   * Create and return a SQL statement counting the records of a table.
+   */
+  public abstract String createCountStatement(StatementType countType);
+
+  /**
+   * Create and return a SQL statement looking records up by their search field.
+   */
+  public abstract String createKeySearchStatement(StatementType searchType);
+
+  /**
+   * Create and return a SQL statement for an aggregate query, whose range bounds are its parameters.
+   */
+  public abstract String createAggregateStatement(StatementType aggregateType, AggregateQuery query);
+
+  /**
+   * Create and return a SQL statement for a full-text query, best matches first. Its parameters are
+   * those of {@link #createTextSearchParameters}, then the limit, which comes first with
+   * sqlserverScans.
+   */
+  public abstract String createTextSearchStatement(StatementType searchType, SearchQuery query,
+                                                   boolean sqlserverScans, boolean sqlansiScans);
+
+  /**
+   * Return the parameters of a statement from {@link #createTextSearchStatement}, but the limit.
+   */
+  public abstract List<String> createTextSearchParameters(SearchQuery query);
+
+  /**
+   * Create and return a SQL statement indexing a text field for full-text queries, or null if the
+   * queries cannot use an index.
+   */
+  public String createTextSearchIndexStatement(String tableName, String field) {
+    return null;
+  }
+
+  /**
+   * Whether {@link #createMultiRowInsertStatement} is supported.
+   */
+  public boolean supportsMultiRowInsert() {
+    return true;
+  }
+
+  /**
+   * Create and return a SQL statement for inserting several rows at once.
+   */
+  public abstract String createMultiRowInsertStatement(StatementType insertType, int numRows);
+
+  /**
+   * Whether rows can be streamed into a table with {@link #copy}.
+   */
+  public boolean supportsCopy() {
+    return false;
+  }
+
+  /**
+   * Create and return a SQL statement reading CSV rows of the primary key followed by the fields
+   * into a table. Only called when {@link #supportsCopy} is true.
+   */
+  public String createCopyStatement(StatementType insertType) throws SQLException {
+    throw new SQLFeatureNotSupportedException("COPY is not supported by " + dbName);
+  }
+
+  /**
+   * Stream CSV rows into a table with a statement from {@link #createCopyStatement}.
+   *
+   * @return The number of rows loaded.
+   */
+  public long copy(Connection conn, String copyStatement, Reader rows) throws SQLException {
+    throw new SQLFeatureNotSupportedException("COPY is not supported by " + dbName);
+  }
 }
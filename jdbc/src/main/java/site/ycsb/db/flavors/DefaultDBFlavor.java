@@ -16,9 +16,14 @@
  */
 package site.ycsb.db.flavors;
 
+import site.ycsb.AggregateQuery;
+import site.ycsb.SearchQuery;
 import site.ycsb.db.JdbcDBClient;
 import site.ycsb.db.StatementType;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * A default flavor for relational databases.
  */
@@ -43,6 +48,22 @@ public class DefaultDBFlavor extends DBFlavor {
     return insert.toString();
   }
 
+  @Override
+  public String createMultiRowInsertStatement(StatementType insertType, int numRows) {
+    StringBuilder insert = new StringBuilder("INSERT INTO ");
+    insert.append(insertType.getTableName());
+    insert.append(" (" + JdbcDBClient.PRIMARY_KEY + "," + insertType.getFieldString() + ")");
+    insert.append(" VALUES");
+    for (int row = 0; row < numRows; row++) {
+      insert.append(row == 0 ? "(?" : ",(?");
+      for (int i = 0; i < insertType.getNumFields(); i++) {
+        insert.append(",?");
+      }
+      insert.append(")");
+    }
+    return insert.toString();
+  }
+
   @Override
   public String createReadStatement(StatementType readType, String key) {
     StringBuilder read = new StringBuilder("SELECT * FROM ");
@@ -106,4 +127,169 @@ public class DefaultDBFlavor extends DBFlavor {
     }
     return select.toString();
   }
+
+  @Override
+  public String createJoinStatement(StatementType joinType) {
+    StringBuilder join = new StringBuilder("SELECT u.");
+    join.append(JdbcDBClient.PRIMARY_KEY);
+    join.append(" FROM ");
+    join.append(joinType.getTableName());
+    join.append(" u JOIN ");
+    join.append(joinType.getTableName() + JdbcDBClient.CHILD_TABLE_SUFFIX);
+    join.append(" c ON u.");
+    join.append(JdbcDBClient.PRIMARY_KEY);
+    join.append(" = c.");
+    join.append(JdbcDBClient.CHILD_KEY);
+    join.append(" WHERE u.");
+    join.append(JdbcDBClient.PRIMARY_KEY);
+    join.append(" = ?");
+    return join.toString();
+  }
+
+  @Override
+  public String createGroupStatement(StatementType groupType, boolean sqlserverScans, boolean sqlansiScans) {
+    String columns = JdbcDBClient.PRIMARY_KEY + ", " + JdbcDBClient.GROUP_FIELD;
+    StringBuilder group = new StringBuilder(sqlserverScans ? "SELECT TOP (?) " : "SELECT ");
+    group.append(columns);
+    group.append(" FROM ");
+    group.append(groupType.getTableName());
+    group.append(" GROUP BY ");
+    group.append(columns);
+    group.append(" ORDER BY ");
+    group.append(columns);
+    appendLimit(group, sqlserverScans, sqlansiScans);
+    return group.toString();
+  }
+
+  @Override
+  public String createCountStatement(StatementType countType) {
+    return "SELECT COUNT(*) AS " + JdbcDBClient.COUNT_COLUMN + " FROM " + countType.getTableName();
+  }
+
+  @Override
+  public String createKeySearchStatement(StatementType searchType) {
+    StringBuilder search = new StringBuilder("SELECT * FROM ");
+    search.append(searchType.getTableName());
+    search.append(" WHERE ");
+    search.append(JdbcDBClient.SEARCH_FIELD);
+    search.append(" = ?");
+    return search.toString();
+  }
+
+  @Override
+  public String createAggregateStatement(StatementType aggregateType, AggregateQuery query) {
+    StringBuilder aggregate = new StringBuilder("SELECT ");
+    if (query.isGrouped()) {
+      aggregate.append(query.getGroupField());
+      aggregate.append(" AS ");
+      aggregate.append(JdbcDBClient.GROUP_COLUMN);
+      aggregate.append(", ");
+    }
+    if (query.getFunction() == AggregateQuery.Function.COUNT) {
+      aggregate.append("COUNT(*)");
+    } else {
+      aggregate.append(query.getFunction().name());
+      aggregate.append("(");
+      aggregate.append(query.getField());
+      aggregate.append(")");
+    }
+    aggregate.append(" AS ");
+    aggregate.append(JdbcDBClient.VALUE_COLUMN);
+    aggregate.append(" FROM ");
+    aggregate.append(aggregateType.getTableName());
+    aggregate.append(" WHERE ");
+    aggregate.append(query.getRangeField());
+    aggregate.append(" >= ? AND ");
+    aggregate.append(query.getRangeField());
+    aggregate.append(" < ?");
+    if (query.isGrouped()) {
+      aggregate.append(" GROUP BY ");
+      aggregate.append(query.getGroupField());
+    }
+    return aggregate.toString();
+  }
+
+  /**
+   * Matches whole words of space separated text with LIKE, so no index helps and matches are not
+   * ranked.
+   */
+  @Override
+  public String createTextSearchStatement(StatementType searchType, SearchQuery query,
+                                          boolean sqlserverScans, boolean sqlansiScans) {
+    StringBuilder search = new StringBuilder(sqlserverScans ? "SELECT TOP (?) * FROM " : "SELECT * FROM ");
+    search.append(searchType.getTableName());
+    search.append(" WHERE ");
+    String field = query.getField();
+    switch (query.getType()) {
+    case PREFIX:
+      search.append("(" + field + " LIKE ? ESCAPE '!' OR " + field + " LIKE ? ESCAPE '!')");
+      break;
+    case AND:
+    case OR:
+      for (int i = 0; i < query.getTerms().size(); i++) {
+        if (i > 0) {
+          search.append(query.getType() == SearchQuery.Type.AND ? " AND " : " OR ");
+        }
+        appendWordMatch(search, field);
+      }
+      break;
+    default:
+      appendWordMatch(search, field);
+      break;
+    }
+    appendLimit(search, sqlserverScans, sqlansiScans);
+    return search.toString();
+  }
+
+  @Override
+  public List<String> createTextSearchParameters(SearchQuery query) {
+    List<String> parameters = new ArrayList<>();
+    switch (query.getType()) {
+    case PREFIX:
+      String prefix = escapeLike(query.getText());
+      parameters.add(prefix + "%");
+      parameters.add("% " + prefix + "%");
+      break;
+    case AND:
+    case OR:
+      for (String term : query.getTerms()) {
+        addWordMatchParameters(parameters, term);
+      }
+      break;
+    default:
+      addWordMatchParameters(parameters, query.getText());
+      break;
+    }
+    return parameters;
+  }
+
+  /**
+   * The text is the words, or starts with, ends with or contains them between spaces.
+   */
+  private static void appendWordMatch(StringBuilder search, String field) {
+    search.append("(" + field + " = ? OR " + field + " LIKE ? ESCAPE '!' OR " + field + " LIKE ? ESCAPE '!' OR "
+        + field + " LIKE ? ESCAPE '!')");
+  }
+
+  private static void addWordMatchParameters(List<String> parameters, String words) {
+    String escaped = escapeLike(words);
+    parameters.add(words);
+    parameters.add(escaped + " %");
+    parameters.add("% " + escaped);
+    parameters.add("% " + escaped + " %");
+  }
+
+  private static String escapeLike(String text) {
+    return text.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+  }
+
+  private static void appendLimit(StringBuilder select, boolean sqlserverScans, boolean sqlansiScans) {
+    if (!sqlserverScans) {
+      if (sqlansiScans) {
+        select.append(" FETCH FIRST ? ROWS ONLY");
+      } else {
+        select.append(" LIMIT ?");
+      }
+    }
+  }
 }
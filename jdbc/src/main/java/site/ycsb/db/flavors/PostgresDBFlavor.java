@@ -0,0 +1,113 @@
+/**
+ * Copyright (c) 2020 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package site.ycsb.db.flavors;
+
+import org.postgresql.copy.CopyManager;
+import org.postgresql.core.BaseConnection;
+import site.ycsb.SearchQuery;
+import site.ycsb.db.JdbcDBClient;
+import site.ycsb.db.StatementType;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Database flavor for PostgreSQL, which can stream bulk loads with COPY FROM STDIN and runs
+ * full-text queries on an index of the english text search configuration, ranked by ts_rank.
+ */
+public class PostgresDBFlavor extends DefaultDBFlavor {
+  private static final String TEXT_SEARCH_CONFIG = "'english'";
+
+  public PostgresDBFlavor() {
+    super(DBName.POSTGRES);
+  }
+
+  @Override
+  public boolean supportsCopy() {
+    return true;
+  }
+
+  @Override
+  public String createCopyStatement(StatementType insertType) {
+    StringBuilder copy = new StringBuilder("COPY ");
+    copy.append(insertType.getTableName());
+    copy.append(" (" + JdbcDBClient.PRIMARY_KEY + "," + insertType.getFieldString() + ")");
+    copy.append(" FROM STDIN WITH (FORMAT csv)");
+    return copy.toString();
+  }
+
+  @Override
+  public long copy(Connection conn, String copyStatement, Reader rows) throws SQLException {
+    try {
+      return new CopyManager(conn.unwrap(BaseConnection.class)).copyIn(copyStatement, rows);
+    } catch (IOException e) {
+      throw new SQLException(e);
+    }
+  }
+
+  @Override
+  public String createTextSearchIndexStatement(String tableName, String field) {
+    return "CREATE INDEX " + tableName + "_" + field + "_TEXT ON " + tableName
+        + " USING GIN (" + toTsvector(field) + ")";
+  }
+
+  @Override
+  public String createTextSearchStatement(StatementType searchType, SearchQuery query,
+                                          boolean sqlserverScans, boolean sqlansiScans) {
+    String tsquery;
+    switch (query.getType()) {
+    case PHRASE:
+      tsquery = "phraseto_tsquery";
+      break;
+    case PREFIX:
+    case OR:
+      tsquery = "to_tsquery";
+      break;
+    default:
+      tsquery = "plainto_tsquery";
+      break;
+    }
+    String document = toTsvector("t." + query.getField());
+    StringBuilder search = new StringBuilder("SELECT t.* FROM ");
+    search.append(searchType.getTableName());
+    search.append(" t, " + tsquery + "(" + TEXT_SEARCH_CONFIG + ", ?) q");
+    search.append(" WHERE " + document + " @@ q");
+    search.append(" ORDER BY ts_rank(" + document + ", q) DESC");
+    search.append(sqlansiScans ? " FETCH FIRST ? ROWS ONLY" : " LIMIT ?");
+    return search.toString();
+  }
+
+  @Override
+  public List<String> createTextSearchParameters(SearchQuery query) {
+    switch (query.getType()) {
+    case PREFIX:
+      return Collections.singletonList(query.getText() + ":*");
+    case OR:
+      return Collections.singletonList(String.join(" | ", query.getTerms()));
+    default:
+      return Collections.singletonList(query.getText());
+    }
+  }
+
+  private static String toTsvector(String field) {
+    return "to_tsvector(" + TEXT_SEARCH_CONFIG + ", " + field + ")";
+  }
+}
@@ -19,12 +19,18 @@ package site.ycsb.db;
 
 import static org.junit.Assert.*;
 
+import site.ycsb.AggregateQuery;
 import site.ycsb.ByteIterator;
+import site.ycsb.Client;
 import site.ycsb.DBException;
+import site.ycsb.NumericByteIterator;
+import site.ycsb.SearchQuery;
+import site.ycsb.Status;
 import site.ycsb.StringByteIterator;
 import org.junit.*;
 
 import java.sql.*;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.HashSet;
@@ -52,20 +58,17 @@ public class JdbcDBClientTest {
     }
 
     public static void setupWithBatch(int batchSize, boolean autoCommit) {
+      Properties p = new Properties();
+      p.setProperty(JdbcDBClient.DB_BATCH_SIZE, Integer.toString(batchSize));
+      p.setProperty(JdbcDBClient.JDBC_BATCH_UPDATES, "true");
+      p.setProperty(JdbcDBClient.JDBC_AUTO_COMMIT, Boolean.toString(autoCommit));
+      setupWithProperties(p);
+    }
+
+    public static void setupWithProperties(Properties p) {
       try {
         jdbcConnection = DriverManager.getConnection(TEST_DB_URL);
-        jdbcDBClient = new JdbcDBClient();
-
-        Properties p = new Properties();
-        p.setProperty(JdbcDBClient.CONNECTION_URL, TEST_DB_URL);
-        p.setProperty(JdbcDBClient.DRIVER_CLASS, TEST_DB_DRIVER);
-        p.setProperty(JdbcDBClient.CONNECTION_USER, TEST_DB_USER);
-        p.setProperty(JdbcDBClient.DB_BATCH_SIZE, Integer.toString(batchSize));
-        p.setProperty(JdbcDBClient.JDBC_BATCH_UPDATES, "true");
-        p.setProperty(JdbcDBClient.JDBC_AUTO_COMMIT, Boolean.toString(autoCommit));
-
-        jdbcDBClient.setProperties(p);
-        jdbcDBClient.init();
+        jdbcDBClient = newClient(p);
       } catch (SQLException e) {
         e.printStackTrace();
         fail("Could not create local Database");
@@ -75,6 +78,20 @@ public class JdbcDBClientTest {
       }
     }
 
+    private static JdbcDBClient newClient(Properties extra) throws DBException {
+      JdbcDBClient client = new JdbcDBClient();
+
+      Properties p = new Properties();
+      p.setProperty(JdbcDBClient.CONNECTION_URL, TEST_DB_URL);
+      p.setProperty(JdbcDBClient.DRIVER_CLASS, TEST_DB_DRIVER);
+      p.setProperty(JdbcDBClient.CONNECTION_USER, TEST_DB_USER);
+      p.putAll(extra);
+
+      client.setProperties(p);
+      client.init();
+      return client;
+    }
+
     @AfterClass
     public static void teardown() {
         try {
@@ -390,4 +407,162 @@ public class JdbcDBClientTest {
 
       resultSet.close();
     }
+
+    @Test
+    public void multiRowInsertTest() throws DBException {
+      multiRowInsertTest(25);
+    }
+
+    @Test
+    public void multiRowInsertFullBatchesTest() throws DBException {
+      multiRowInsertTest(20);
+    }
+
+    public void multiRowInsertTest(int numRows) throws DBException {
+      teardown();
+      Properties p = new Properties();
+      p.setProperty(JdbcDBClient.DB_BATCH_SIZE, "10");
+      p.setProperty(JdbcDBClient.JDBC_INSERT_MODE, "multirow");
+      p.setProperty(Client.DO_TRANSACTIONS_PROPERTY, "false");
+      setupWithProperties(p);
+      try {
+        Map<String, HashMap<String, ByteIterator>> keyMap = new HashMap<String, HashMap<String, ByteIterator>>();
+        for (int i = 0; i < numRows; i++) {
+          keyMap.put(KEY_PREFIX + i, insertRow(KEY_PREFIX + i));
+        }
+        // Only full batches have been inserted so far
+        assertNumRows(10 * (numRows / 10));
+
+        // call cleanup, which should insert the partial batch
+        jdbcDBClient.cleanup();
+        jdbcDBClient = null;
+        assertNumRows(numRows);
+
+        ResultSet resultSet = jdbcConnection.prepareStatement(
+          String.format("SELECT * FROM %s", TABLE_NAME)
+            ).executeQuery();
+        while (resultSet.next()) {
+          HashMap<String, ByteIterator> inserted = keyMap.get(resultSet.getString(KEY_FIELD));
+          for (int i = 0; i < NUM_FIELDS; i++) {
+            assertEquals(inserted.get(FIELD_PREFIX + i).toString(), resultSet.getString(FIELD_PREFIX + i));
+          }
+        }
+        resultSet.close();
+      } catch (SQLException e) {
+        e.printStackTrace();
+        fail("Failed multiRowInsertTest");
+      } finally {
+        teardown(); // for next tests
+        setup();
+      }
+    }
+
+    @Test(expected = DBException.class)
+    public void copyNeedsPostgresTest() throws DBException {
+      Properties p = new Properties();
+      p.setProperty(JdbcDBClient.DB_BATCH_SIZE, "10");
+      p.setProperty(JdbcDBClient.JDBC_INSERT_MODE, "copy");
+      p.setProperty(Client.DO_TRANSACTIONS_PROPERTY, "false");
+      newClient(p);
+    }
+
+    @Test
+    public void pooledConnectionsTest() throws DBException {
+      Properties p = new Properties();
+      p.setProperty(JdbcDBClient.DB_POOL_SIZE, "1");
+      JdbcDBClient first = newClient(p);
+      JdbcDBClient second = newClient(p);
+      try {
+        Set<String> fields = new HashSet<String>();
+        fields.add("FIELD0");
+        for (int i = 0; i < 4; i++) {
+          JdbcDBClient writer = i % 2 == 0 ? first : second;
+          JdbcDBClient reader = i % 2 == 0 ? second : first;
+          HashMap<String, ByteIterator> values = new HashMap<String, ByteIterator>();
+          for (int j = 0; j < NUM_FIELDS; j++) {
+            values.put(FIELD_PREFIX + j, new StringByteIterator(buildDeterministicValue(KEY_PREFIX + i, FIELD_PREFIX + j)));
+          }
+          assertEquals(Status.OK, writer.insert(TABLE_NAME, KEY_PREFIX + i, values));
+
+          HashMap<String, ByteIterator> result = new HashMap<String, ByteIterator>();
+          assertEquals(Status.OK, reader.read(TABLE_NAME, KEY_PREFIX + i, fields, result));
+          assertEquals(values.get("FIELD0").toString(), result.get("FIELD0").toString());
+        }
+      } finally {
+        first.cleanup();
+        second.cleanup();
+      }
+    }
+
+    @Test
+    public void analyticsTest() throws SQLException, DBException {
+      String[] bodies = {"the quick brown fox", "a brown dog", "quiet fox", "the lazy dog"};
+      for (String table : new String[] {"ANALYTICS", "ANALYTICSCHILD"}) {
+        jdbcConnection.prepareStatement("DROP TABLE " + table + " IF EXISTS").execute();
+        jdbcConnection.prepareStatement(String.format("CREATE TABLE %s (%s VARCHAR(100) PRIMARY KEY, %s VARCHAR(100),"
+            + " FIELD0 VARCHAR(100), BODY VARCHAR(100), AMOUNT BIGINT, SEQ BIGINT)", table, KEY_FIELD,
+            table.endsWith("CHILD") ? "CHILDKEY" : "GROUPBYFIELD VARCHAR(100), SEARCHVIEWFIELD")).execute();
+      }
+      Properties p = new Properties();
+      p.setProperty(JdbcDBClient.JOIN_PROPORTION_PROPERTY, "0.1");
+      p.setProperty(JdbcDBClient.GROUP_PROPORTION_PROPERTY, "0.1");
+      p.setProperty(JdbcDBClient.SEARCH_PROPORTION_PROPERTY, "0.1");
+      JdbcDBClient client = newClient(p);
+      try {
+        for (int i = 0; i < bodies.length; i++) {
+          HashMap<String, ByteIterator> values = new HashMap<String, ByteIterator>();
+          values.put("FIELD0", new StringByteIterator("value" + i));
+          values.put("BODY", new StringByteIterator(bodies[i]));
+          values.put("AMOUNT", new NumericByteIterator(10L * i));
+          values.put("SEQ", new NumericByteIterator((long) i));
+          assertEquals(Status.OK, client.insert("ANALYTICS", KEY_PREFIX + i, values));
+        }
+
+        Vector<HashMap<String, ByteIterator>> result = new Vector<HashMap<String, ByteIterator>>();
+        assertEquals(Status.OK, client.join("ANALYTICS", "user1", 1, null, result));
+        assertEquals(1, result.size());
+        assertEquals("user1", result.get(0).get("ANALYTICS").toString());
+
+        result.clear();
+        assertEquals(Status.OK, client.group("ANALYTICS", "user0", 1, null, result));
+        assertEquals(bodies.length, result.size());
+        assertTrue(result.get(0).get("groupbyfield").toString().startsWith("groupValue"));
+
+        result.clear();
+        assertEquals(Status.OK, client.aggregate("ANALYTICS", "user0", 1, null, result));
+        assertEquals("4", result.get(0).get("count").toString());
+
+        result.clear();
+        assertEquals(Status.OK, client.search("ANALYTICS", "user2", 1, null, result));
+        assertEquals(1, result.size());
+        assertEquals("quiet fox", result.get(0).get("BODY").toString());
+
+        result.clear();
+        assertEquals(Status.OK, client.aggregate("ANALYTICS",
+            new AggregateQuery(AggregateQuery.Function.SUM, "AMOUNT", null, "SEQ", 1, 3), result));
+        assertEquals("30", result.get(0).get("value").toString());
+
+        result.clear();
+        assertEquals(Status.OK, client.aggregate("ANALYTICS",
+            new AggregateQuery(AggregateQuery.Function.COUNT, "AMOUNT", "GROUPBYFIELD", "SEQ", 0, 4), result));
+        assertEquals(bodies.length, result.size());
+
+        assertEquals(2, textSearch(client, SearchQuery.Type.TERM, "fox"));
+        assertEquals(2, textSearch(client, SearchQuery.Type.PHRASE, "brown"));
+        assertEquals(1, textSearch(client, SearchQuery.Type.PHRASE, "brown", "fox"));
+        assertEquals(2, textSearch(client, SearchQuery.Type.PREFIX, "qui"));
+        assertEquals(1, textSearch(client, SearchQuery.Type.AND, "brown", "dog"));
+        assertEquals(3, textSearch(client, SearchQuery.Type.OR, "brown", "quiet"));
+        // Words only match whole words
+        assertEquals(0, textSearch(client, SearchQuery.Type.TERM, "ox"));
+      } finally {
+        client.cleanup();
+      }
+    }
+
+    private static int textSearch(JdbcDBClient client, SearchQuery.Type type, String... terms) {
+      Vector<HashMap<String, ByteIterator>> result = new Vector<HashMap<String, ByteIterator>>();
+      assertEquals(Status.OK, client.search("ANALYTICS", new SearchQuery(type, "BODY", Arrays.asList(terms), 10), result));
+      return result.size();
+    }
 }
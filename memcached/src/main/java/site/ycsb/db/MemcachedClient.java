@@ -20,13 +20,17 @@ package site.ycsb.db;
 import site.ycsb.ByteIterator;
 import site.ycsb.DB;
 import site.ycsb.DBException;
+import site.ycsb.InFlightWindow;
 import site.ycsb.Status;
 import site.ycsb.StringByteIterator;
+import site.ycsb.Workload;
+import site.ycsb.measurements.Measurements;
 
 import java.io.IOException;
 import java.io.StringWriter;
 import java.io.Writer;
 import java.net.InetSocketAddress;
+import java.net.SocketAddress;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -35,9 +39,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Vector;
+import java.util.function.Supplier;
 
 import net.spy.memcached.ConnectionFactoryBuilder;
 import net.spy.memcached.FailureMode;
+import net.spy.memcached.NodeLocator;
 // We also use `net.spy.memcached.MemcachedClient`; it is not imported
 // explicitly and referred to with its full path to avoid conflicts with the
 // class of the same name in this file.
@@ -102,12 +108,35 @@ public class MemcachedClient extends DB {
   public static final ConnectionFactoryBuilder.Protocol DEFAULT_PROTOCOL =
       ConnectionFactoryBuilder.Protocol.TEXT;
 
+  public static final String ASYNC_PROPERTY = "memcached.async";
+  public static final String ASYNC_PROPERTY_DEFAULT = "false";
+  public static final String ASYNC_WINDOW_PROPERTY = "memcached.async.window";
+  public static final String ASYNC_WINDOW_PROPERTY_DEFAULT = "64";
+
+  public static final String SERVER_LATENCY_PROPERTY =
+      "memcached.serverlatency";
+  public static final String SERVER_LATENCY_PROPERTY_DEFAULT = "false";
+
   /**
    * The MemcachedClient implementation that will be used to communicate
    * with the memcached server.
    */
   private net.spy.memcached.MemcachedClient client;
 
+  /**
+   * The operations of this client thread in flight in asynchronous mode, or
+   * null.
+   */
+  private InFlightWindow asyncWindow;
+
+  /**
+   * The servers of the keys, when operations are also measured per server,
+   * or null.
+   */
+  private NodeLocator serverLocator;
+
+  private String measurementPrefix;
+
   /**
    * @returns Underlying Memcached protocol client, implemented by
    *     SpyMemcached.
@@ -129,6 +158,19 @@ public class MemcachedClient extends DB {
       shutdownTimeoutMillis = Integer.parseInt(
           getProperties().getProperty(SHUTDOWN_TIMEOUT_MILLIS_PROPERTY,
                                       DEFAULT_SHUTDOWN_TIMEOUT_MILLIS));
+      if (Boolean.parseBoolean(getProperties().getProperty(
+          ASYNC_PROPERTY, ASYNC_PROPERTY_DEFAULT))) {
+        asyncWindow = new InFlightWindow(Integer.parseInt(
+            getProperties().getProperty(ASYNC_WINDOW_PROPERTY,
+                                        ASYNC_WINDOW_PROPERTY_DEFAULT)),
+            getProperties());
+      }
+      if (Boolean.parseBoolean(getProperties().getProperty(
+          SERVER_LATENCY_PROPERTY, SERVER_LATENCY_PROPERTY_DEFAULT))) {
+        // A read-only copy; the servers of a static host list do not change.
+        serverLocator = client.getNodeLocator();
+        measurementPrefix = Measurements.namespacePrefix(getProperties());
+      }
     } catch (Exception e) {
       throw new DBException(e);
     }
@@ -181,16 +223,75 @@ public class MemcachedClient extends DB {
   public Status read(
       String table, String key, Set<String> fields,
       Map<String, ByteIterator> result) {
-    key = createQualifiedKey(table, key);
+    final String qualifiedKey = createQualifiedKey(table, key);
     try {
-      GetFuture<Object> future = memcachedClient().asyncGet(key);
-      Object document = future.get();
-      if (document != null) {
-        fromJson((String) document, fields, result);
+      if (asyncWindow == null) {
+        long startNanos = System.nanoTime();
+        GetFuture<Object> future = memcachedClient().asyncGet(qualifiedKey);
+        Object document = future.get();
+        measureServer(Workload.Operation.READ, qualifiedKey, startNanos);
+        if (document != null) {
+          fromJson((String) document, fields, result);
+        }
+        return Status.OK;
+      }
+
+      final InFlightWindow.Completion completion =
+          asyncWindow.begin(Workload.Operation.READ);
+      final long startNanos = System.nanoTime();
+      try {
+        memcachedClient().asyncGet(qualifiedKey).addListener(future -> {
+            Status status = Status.ERROR;
+            try {
+              Object document = future.get();
+              measureServer(Workload.Operation.READ, qualifiedKey, startNanos);
+              if (document != null) {
+                fromJson((String) document, fields, result);
+              }
+              status = Status.OK;
+            } catch (Exception e) {
+              logger.error("Error encountered for key: " + qualifiedKey, e);
+            }
+            completion.complete(status);
+          });
+      } catch (RuntimeException e) {
+        completion.complete(Status.ERROR);
+        throw e;
+      }
+      return Status.PENDING;
+    } catch (Exception e) {
+      logger.error("Error encountered for key: " + qualifiedKey, e);
+      return Status.ERROR;
+    }
+  }
+
+  /**
+   * Reads all the keys with one multi-get, which asks each server for all of
+   * its keys at once. As with {@link #read}, missing keys are not an error and
+   * leave their maps empty.
+   */
+  @Override
+  public Status batchRead(
+      String table, List<String> keys, Set<String> fields,
+      List<Map<String, ByteIterator>> results) {
+    List<String> qualifiedKeys = new ArrayList<String>(keys.size());
+    for (String key : keys) {
+      qualifiedKeys.add(createQualifiedKey(table, key));
+    }
+    try {
+      Map<String, Object> documents =
+          memcachedClient().getBulk(qualifiedKeys);
+      for (String key : qualifiedKeys) {
+        Map<String, ByteIterator> result = new HashMap<String, ByteIterator>();
+        Object document = documents.get(key);
+        if (document != null) {
+          fromJson((String) document, fields, result);
+        }
+        results.add(result);
       }
       return Status.OK;
     } catch (Exception e) {
-      logger.error("Error encountered for key: " + key, e);
+      logger.error("Error encountered for keys: " + qualifiedKeys, e);
       return Status.ERROR;
     }
   }
@@ -205,13 +306,14 @@ public class MemcachedClient extends DB {
   @Override
   public Status update(
       String table, String key, Map<String, ByteIterator> values) {
-    key = createQualifiedKey(table, key);
+    final String qualifiedKey = createQualifiedKey(table, key);
     try {
-      OperationFuture<Boolean> future =
-          memcachedClient().replace(key, objectExpirationTime, toJson(values));
-      return getReturnCode(future);
+      final String document = toJson(values);
+      return write(Workload.Operation.UPDATE, qualifiedKey,
+          () -> memcachedClient().replace(
+              qualifiedKey, objectExpirationTime, document));
     } catch (Exception e) {
-      logger.error("Error updating value with key: " + key, e);
+      logger.error("Error updating value with key: " + qualifiedKey, e);
       return Status.ERROR;
     }
   }
@@ -219,11 +321,12 @@ public class MemcachedClient extends DB {
   @Override
   public Status insert(
       String table, String key, Map<String, ByteIterator> values) {
-    key = createQualifiedKey(table, key);
+    final String qualifiedKey = createQualifiedKey(table, key);
     try {
-      OperationFuture<Boolean> future =
-          memcachedClient().add(key, objectExpirationTime, toJson(values));
-      return getReturnCode(future);
+      final String document = toJson(values);
+      return write(Workload.Operation.INSERT, qualifiedKey,
+          () -> memcachedClient().add(
+              qualifiedKey, objectExpirationTime, document));
     } catch (Exception e) {
       logger.error("Error inserting value", e);
       return Status.ERROR;
@@ -232,16 +335,76 @@ public class MemcachedClient extends DB {
 
   @Override
   public Status delete(String table, String key) {
-    key = createQualifiedKey(table, key);
+    final String qualifiedKey = createQualifiedKey(table, key);
     try {
-      OperationFuture<Boolean> future = memcachedClient().delete(key);
-      return getReturnCode(future);
+      return write(Workload.Operation.DELETE, qualifiedKey,
+          () -> memcachedClient().delete(qualifiedKey));
     } catch (Exception e) {
       logger.error("Error deleting value", e);
       return Status.ERROR;
     }
   }
 
+  /**
+   * Send a write and make a status of its result. In asynchronous mode, wait
+   * for room in the window of this client thread, send the write and return
+   * {@link Status#PENDING}; the window measures the write when the server
+   * answers, so that writes are pipelined on the server connections instead of
+   * waiting for each other.
+   */
+  private Status write(
+      final Workload.Operation op, final String key,
+      Supplier<OperationFuture<Boolean>> request)
+      throws InterruptedException {
+    if (asyncWindow == null) {
+      long startNanos = System.nanoTime();
+      Status status = getReturnCode(request.get());
+      measureServer(op, key, startNanos);
+      return status;
+    }
+
+    final InFlightWindow.Completion completion = asyncWindow.begin(op);
+    final long startNanos = System.nanoTime();
+    try {
+      final OperationFuture<Boolean> future = request.get();
+      future.addListener(done -> {
+          Status status = Status.ERROR;
+          try {
+            status = getReturnCode(future);
+            measureServer(op, key, startNanos);
+          } catch (RuntimeException e) {
+            logger.error("Error in " + op + " of key: " + key, e);
+          }
+          completion.complete(status);
+        });
+    } catch (RuntimeException e) {
+      completion.complete(Status.ERROR);
+      throw e;
+    }
+    return Status.PENDING;
+  }
+
+  /**
+   * With {@link #SERVER_LATENCY_PROPERTY} set, measure an operation a second
+   * time under the server owning its key, as {@code OP-host:port}, so that a
+   * slow or hot server stands out in the report.
+   */
+  private void measureServer(
+      Workload.Operation op, String key, long startNanos) {
+    if (serverLocator == null) {
+      return;
+    }
+    int latency = (int) ((System.nanoTime() - startNanos) / 1000);
+    SocketAddress address =
+        serverLocator.getPrimary(key).getSocketAddress();
+    String server = address instanceof InetSocketAddress
+        ? ((InetSocketAddress) address).getHostString() + ":"
+            + ((InetSocketAddress) address).getPort()
+        : String.valueOf(address);
+    Measurements.getMeasurements().measure(
+        measurementPrefix + op.name() + "-" + server, latency);
+  }
+
   protected Status getReturnCode(OperationFuture<Boolean> future) {
     if (!checkOperationStatus) {
       return Status.OK;
@@ -258,6 +421,15 @@ public class MemcachedClient extends DB {
 
   @Override
   public void cleanup() throws DBException {
+    if (asyncWindow != null) {
+      try {
+        asyncWindow.drain();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new DBException(
+            "Interrupted while waiting for asynchronous operations", e);
+      }
+    }
     if (client != null) {
       memcachedClient().shutdown(shutdownTimeoutMillis, MILLISECONDS);
     }
@@ -41,7 +41,9 @@ import site.ycsb.ByteArrayByteIterator;
 import site.ycsb.ByteIterator;
 import site.ycsb.DB;
 import site.ycsb.DBException;
+import site.ycsb.DocumentByteIterator;
 import site.ycsb.Status;
+import site.ycsb.StringByteIterator;
 
 import org.bson.Document;
 import org.bson.types.Binary;
@@ -111,12 +113,23 @@ public class MongoDbClient extends DB {
   /** The bulk inserts pending for the thread. */
   private final List<Document> bulkInserts = new ArrayList<Document>();
 
+  /** The table of the pending bulk inserts. */
+  private String bulkInsertTable;
+
   /**
    * Cleanup any state for this DB. Called once per DB instance; there is one DB
    * instance per client thread.
    */
   @Override
   public void cleanup() throws DBException {
+    if (!bulkInserts.isEmpty()) {
+      try {
+        flushInserts(database.getCollection(bulkInsertTable));
+      } catch (Exception e) {
+        System.err.println("Could not insert the last " + bulkInserts.size()
+            + " batched documents: " + e.toString());
+      }
+    }
     if (INIT_COUNT.decrementAndGet() == 0) {
       try {
         mongoClient.close();
@@ -257,7 +270,7 @@ public class MongoDbClient extends DB {
       MongoCollection<Document> collection = database.getCollection(table);
       Document toInsert = new Document("_id", key);
       for (Map.Entry<String, ByteIterator> entry : values.entrySet()) {
-        toInsert.put(entry.getKey(), entry.getValue().toArray());
+        toInsert.put(entry.getKey(), toBson(entry.getValue()));
       }
 
       if (batchSize == 1) {
@@ -272,20 +285,9 @@ public class MongoDbClient extends DB {
         }
       } else {
         bulkInserts.add(toInsert);
+        bulkInsertTable = table;
         if (bulkInserts.size() == batchSize) {
-          if (useUpsert) {
-            List<UpdateOneModel<Document>> updates = 
-                new ArrayList<UpdateOneModel<Document>>(bulkInserts.size());
-            for (Document doc : bulkInserts) {
-              updates.add(new UpdateOneModel<Document>(
-                  new Document("_id", doc.get("_id")),
-                  doc, UPDATE_WITH_UPSERT));
-            }
-            collection.bulkWrite(updates);
-          } else {
-            collection.insertMany(bulkInserts, INSERT_UNORDERED);
-          }
-          bulkInserts.clear();
+          flushInserts(collection);
         } else {
           return Status.BATCHED_OK;
         }
@@ -300,6 +302,32 @@ public class MongoDbClient extends DB {
 
   }
 
+  /**
+   * Sends the pending bulk inserts as one unordered batch, so that the server
+   * may apply them in parallel and a failed document does not stop the rest.
+   *
+   * @param collection
+   *          The collection of the pending inserts.
+   */
+  private void flushInserts(MongoCollection<Document> collection) {
+    try {
+      if (useUpsert) {
+        List<UpdateOneModel<Document>> updates = 
+            new ArrayList<UpdateOneModel<Document>>(bulkInserts.size());
+        for (Document doc : bulkInserts) {
+          updates.add(new UpdateOneModel<Document>(
+              new Document("_id", doc.get("_id")),
+              doc, UPDATE_WITH_UPSERT));
+        }
+        collection.bulkWrite(updates);
+      } else {
+        collection.insertMany(bulkInserts, INSERT_UNORDERED);
+      }
+    } finally {
+      bulkInserts.clear();
+    }
+  }
+
   /**
    * Read a record from the database. Each field/value pair from the result will
    * be stored in a HashMap.
@@ -343,6 +371,77 @@ public class MongoDbClient extends DB {
     }
   }
 
+  /**
+   * Read several records with a single query for all their ids.
+   * 
+   * @param table
+   *          The name of the table
+   * @param keys
+   *          The record keys of the records to read.
+   * @param fields
+   *          The list of fields to read, or null for all of them
+   * @param results
+   *          One HashMap of field/value pairs per key, in the order of the keys
+   * @return Zero on success, a non-zero error code on error or if any record
+   *         was not found.
+   */
+  @Override
+  public Status batchRead(String table, List<String> keys, Set<String> fields,
+      List<Map<String, ByteIterator>> results) {
+    try {
+      MongoCollection<Document> collection = database.getCollection(table);
+      Document query = new Document("_id", new Document("$in", keys));
+
+      FindIterable<Document> findIterable =
+          collection.find(query).batchSize(keys.size());
+
+      if (fields != null) {
+        Document projection = new Document();
+        for (String field : fields) {
+          projection.put(field, INCLUDE);
+        }
+        findIterable.projection(projection);
+      }
+
+      Map<Object, Document> found = new HashMap<Object, Document>();
+      for (Document obj : findIterable) {
+        found.put(obj.get("_id"), obj);
+      }
+      return fillResults(keys, found, results);
+    } catch (Exception e) {
+      System.err.println(e.toString());
+      return Status.ERROR;
+    }
+  }
+
+  /**
+   * Fills one map per key, in the order of the keys, with the documents found
+   * for them.
+   * 
+   * @param keys
+   *          The keys read.
+   * @param found
+   *          The documents found, by id.
+   * @param results
+   *          The maps to add to.
+   * @return OK if every key was found, otherwise NOT_FOUND.
+   */
+  private Status fillResults(List<String> keys, Map<Object, Document> found,
+      List<Map<String, ByteIterator>> results) {
+    Status status = Status.OK;
+    for (String key : keys) {
+      Map<String, ByteIterator> result = new HashMap<String, ByteIterator>();
+      Document obj = found.get(key);
+      if (obj == null) {
+        status = Status.NOT_FOUND;
+      } else {
+        fillMap(result, obj);
+      }
+      results.add(result);
+    }
+    return status;
+  }
+
   /**
    * Perform a range scan for a set of records in the database. Each field/value
    * pair from the result will be stored in a HashMap.
@@ -436,7 +535,7 @@ public class MongoDbClient extends DB {
       Document query = new Document("_id", key);
       Document fieldsToSet = new Document();
       for (Map.Entry<String, ByteIterator> entry : values.entrySet()) {
-        fieldsToSet.put(entry.getKey(), entry.getValue().toArray());
+        fieldsToSet.put(entry.getKey(), toBson(entry.getValue()));
       }
       Document update = new Document("$set", fieldsToSet);
 
@@ -465,7 +564,22 @@ public class MongoDbClient extends DB {
       if (entry.getValue() instanceof Binary) {
         resultMap.put(entry.getKey(),
             new ByteArrayByteIterator(((Binary) entry.getValue()).getData()));
+      } else if (entry.getValue() instanceof Map || entry.getValue() instanceof List) {
+        StringBuilder json = new StringBuilder();
+        DocumentByteIterator.toJson(entry.getValue(), json);
+        resultMap.put(entry.getKey(), new StringByteIterator(json.toString()));
       }
     }
   }
+
+  /**
+   * Converts a field value to its BSON form: a sub-document for structured values, binary
+   * otherwise.
+   */
+  private static Object toBson(ByteIterator value) {
+    if (value instanceof DocumentByteIterator) {
+      return ((DocumentByteIterator) value).getDocument();
+    }
+    return value.toArray();
+  }
 }
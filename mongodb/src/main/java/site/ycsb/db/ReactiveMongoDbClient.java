@@ -0,0 +1,577 @@
+/**
+ * Copyright (c) 2020 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package site.ycsb.db;
+
+import com.mongodb.ConnectionString;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.UpdateResult;
+import com.mongodb.reactivestreams.client.FindPublisher;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import com.mongodb.reactivestreams.client.MongoDatabase;
+import org.bson.Document;
+import org.bson.types.Binary;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import site.ycsb.ByteArrayByteIterator;
+import site.ycsb.ByteIterator;
+import site.ycsb.DB;
+import site.ycsb.DBException;
+import site.ycsb.DocumentByteIterator;
+import site.ycsb.InFlightWindow;
+import site.ycsb.Status;
+import site.ycsb.StringByteIterator;
+import site.ycsb.Workload;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * MongoDB binding for YCSB framework using the MongoDB Inc. reactive streams
+ * <a href="http://mongodb.github.io/mongo-java-driver-reactivestreams/">driver</a>.
+ * <p>
+ * Each client thread keeps up to <code>mongodb.reactive.window</code>
+ * operations in flight and returns {@link Status#PENDING} for them; their
+ * latencies are measured when the server replies. A window of 0 waits for each
+ * reply instead. See the <code>README.md</code> for configuration information.
+ * </p>
+ */
+public class ReactiveMongoDbClient extends DB {
+
+  /** Used to include a field in a response. */
+  private static final Integer INCLUDE = Integer.valueOf(1);
+
+  /** The options to use for inserting many documents. */
+  private static final InsertManyOptions INSERT_UNORDERED =
+      new InsertManyOptions().ordered(false);
+
+  /** The options to use for inserting a single document. */
+  private static final ReplaceOptions REPLACE_WITH_UPSERT =
+      new ReplaceOptions().upsert(true);
+
+  /**
+   * Count the number of times initialized to teardown on the last
+   * {@link #cleanup()}.
+   */
+  private static final AtomicInteger INIT_COUNT = new AtomicInteger(0);
+
+  /** A singleton client, shared by all client threads. */
+  private static MongoClient mongoClient;
+
+  /** The database to access. */
+  private static MongoDatabase database;
+
+  /** The batch size to use for inserts. */
+  private static int batchSize;
+
+  /** If true then use updates with the upsert option for inserts. */
+  private static boolean useUpsert;
+
+  /** The operations in flight for the thread, or null to wait for each. */
+  private InFlightWindow window;
+
+  /** The bulk inserts pending for the thread. */
+  private final List<Document> bulkInserts = new ArrayList<Document>();
+
+  /** The table of the pending bulk inserts. */
+  private String bulkInsertTable;
+
+  /**
+   * Initialize any state for this DB. Called once per DB instance; there is one
+   * DB instance per client thread.
+   */
+  @Override
+  public void init() throws DBException {
+    Properties props = getProperties();
+    int windowSize =
+        Integer.parseInt(props.getProperty("mongodb.reactive.window", "64"));
+    if (windowSize > 0) {
+      window = new InFlightWindow(windowSize, props);
+    }
+
+    INIT_COUNT.incrementAndGet();
+    synchronized (INCLUDE) {
+      if (mongoClient != null) {
+        return;
+      }
+
+      // Set insert batchsize, default 1 - to be YCSB-original equivalent
+      batchSize = Integer.parseInt(props.getProperty("batchsize", "1"));
+
+      // Set is inserts are done as upserts. Defaults to false.
+      useUpsert = Boolean.parseBoolean(
+          props.getProperty("mongodb.upsert", "false"));
+
+      String url = props.getProperty("mongodb.url", null);
+      boolean defaultedUrl = false;
+      if (url == null) {
+        defaultedUrl = true;
+        url = "mongodb://localhost:27017/ycsb?w=1";
+      }
+
+      url = OptionsSupport.updateUrl(url, props);
+
+      if (!url.startsWith("mongodb://") && !url.startsWith("mongodb+srv://")) {
+        System.err.println("ERROR: Invalid URL: '" + url
+            + "'. Must be of the form "
+            + "'mongodb://<host1>:<port1>,<host2>:<port2>/database?options' "
+            + "or 'mongodb+srv://<host>/database?options'. "
+            + "http://docs.mongodb.org/manual/reference/connection-string/");
+        System.exit(1);
+      }
+
+      try {
+        ConnectionString uri = new ConnectionString(url);
+
+        String databaseName = "ycsb";
+        String uriDb = uri.getDatabase();
+        if (!defaultedUrl && (uriDb != null) && !uriDb.isEmpty()
+            && !"admin".equals(uriDb)) {
+          databaseName = uriDb;
+        }
+
+        // The read preference and write concern of the URL apply to the
+        // client and so to all of its databases.
+        mongoClient = MongoClients.create(uri);
+        database = mongoClient.getDatabase(databaseName);
+
+        System.out.println("mongo reactive client connection created with "
+            + url);
+      } catch (Exception e1) {
+        System.err.println("Could not initialize MongoDB reactive client: "
+            + e1.toString());
+        e1.printStackTrace();
+        return;
+      }
+    }
+  }
+
+  /**
+   * Cleanup any state for this DB. Called once per DB instance; there is one DB
+   * instance per client thread.
+   */
+  @Override
+  public void cleanup() throws DBException {
+    if (!bulkInserts.isEmpty()) {
+      flushInserts(database.getCollection(bulkInsertTable));
+    }
+    try {
+      if (window != null) {
+        window.drain();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new DBException(
+          "Interrupted while waiting for the operations in flight", e);
+    } finally {
+      if (INIT_COUNT.decrementAndGet() == 0) {
+        try {
+          mongoClient.close();
+        } catch (Exception e1) {
+          System.err.println("Could not close MongoDB reactive client: "
+              + e1.toString());
+        } finally {
+          database = null;
+          mongoClient = null;
+        }
+      }
+    }
+  }
+
+  /**
+   * Delete a record from the database.
+   *
+   * @param table
+   *          The name of the table
+   * @param key
+   *          The record key of the record to delete.
+   * @return Zero on success, a non-zero error code on error. See the {@link DB}
+   *         class's description for a discussion of error codes.
+   */
+  @Override
+  public Status delete(String table, String key) {
+    MongoCollection<Document> collection = database.getCollection(table);
+    return execute(Workload.Operation.DELETE,
+        collection.deleteOne(new Document("_id", key)),
+        results -> {
+          DeleteResult result = results.get(0);
+          if (result.wasAcknowledged() && result.getDeletedCount() == 0) {
+            return Status.NOT_FOUND;
+          }
+          return Status.OK;
+        });
+  }
+
+  /**
+   * Insert a record in the database. Any field/value pairs in the specified
+   * values HashMap will be written into the record with the specified record
+   * key.
+   *
+   * @param table
+   *          The name of the table
+   * @param key
+   *          The record key of the record to insert.
+   * @param values
+   *          A HashMap of field/value pairs to insert in the record
+   * @return Zero on success, a non-zero error code on error. See the {@link DB}
+   *         class's description for a discussion of error codes.
+   */
+  @Override
+  public Status insert(String table, String key,
+      Map<String, ByteIterator> values) {
+    MongoCollection<Document> collection = database.getCollection(table);
+    Document toInsert = new Document("_id", key);
+    for (Map.Entry<String, ByteIterator> entry : values.entrySet()) {
+      toInsert.put(entry.getKey(), toBson(entry.getValue()));
+    }
+
+    if (batchSize > 1) {
+      bulkInserts.add(toInsert);
+      bulkInsertTable = table;
+      if (bulkInserts.size() < batchSize) {
+        return Status.BATCHED_OK;
+      }
+      return flushInserts(collection);
+    }
+    if (useUpsert) {
+      return execute(Workload.Operation.INSERT,
+          collection.replaceOne(new Document("_id", key), toInsert,
+              REPLACE_WITH_UPSERT),
+          results -> Status.OK);
+    }
+    return execute(Workload.Operation.INSERT, collection.insertOne(toInsert),
+        results -> Status.OK);
+  }
+
+  /**
+   * Sends the pending bulk inserts as one unordered batch, so that the server
+   * may apply them in parallel and a failed document does not stop the rest.
+   *
+   * @param collection
+   *          The collection of the pending inserts.
+   * @return The status of the batch.
+   */
+  private Status flushInserts(MongoCollection<Document> collection) {
+    List<Document> documents = new ArrayList<Document>(bulkInserts);
+    bulkInserts.clear();
+    if (useUpsert) {
+      List<ReplaceOneModel<Document>> replacements =
+          new ArrayList<ReplaceOneModel<Document>>(documents.size());
+      for (Document doc : documents) {
+        replacements.add(new ReplaceOneModel<Document>(
+            new Document("_id", doc.get("_id")), doc, REPLACE_WITH_UPSERT));
+      }
+      return execute(Workload.Operation.INSERT,
+          collection.bulkWrite(replacements), results -> Status.OK);
+    }
+    return execute(Workload.Operation.INSERT,
+        collection.insertMany(documents, INSERT_UNORDERED),
+        results -> Status.OK);
+  }
+
+  /**
+   * Read a record from the database. Each field/value pair from the result will
+   * be stored in a HashMap.
+   *
+   * @param table
+   *          The name of the table
+   * @param key
+   *          The record key of the record to read.
+   * @param fields
+   *          The list of fields to read, or null for all of them
+   * @param result
+   *          A HashMap of field/value pairs for the result
+   * @return Zero on success, a non-zero error code on error or "not found".
+   */
+  @Override
+  public Status read(String table, String key, Set<String> fields,
+      Map<String, ByteIterator> result) {
+    MongoCollection<Document> collection = database.getCollection(table);
+    FindPublisher<Document> find =
+        project(collection.find(new Document("_id", key)), fields);
+    return execute(Workload.Operation.READ, find.first(), results -> {
+        if (results.isEmpty()) {
+          return Status.NOT_FOUND;
+        }
+        fillMap(result, results.get(0));
+        return Status.OK;
+      });
+  }
+
+  /**
+   * Read several records with a single query for all their ids. The batch is
+   * measured as a whole by the caller, so this waits for the reply even when
+   * other operations are kept in flight.
+   *
+   * @param table
+   *          The name of the table
+   * @param keys
+   *          The record keys of the records to read.
+   * @param fields
+   *          The list of fields to read, or null for all of them
+   * @param results
+   *          One HashMap of field/value pairs per key, in the order of the keys
+   * @return Zero on success, a non-zero error code on error or if any record
+   *         was not found.
+   */
+  @Override
+  public Status batchRead(String table, List<String> keys, Set<String> fields,
+      List<Map<String, ByteIterator>> results) {
+    MongoCollection<Document> collection = database.getCollection(table);
+    FindPublisher<Document> find = project(collection
+        .find(new Document("_id", new Document("$in", keys)))
+        .batchSize(keys.size()), fields);
+    return await(find, documents -> {
+        Map<Object, Document> found = new HashMap<Object, Document>();
+        for (Document obj : documents) {
+          found.put(obj.get("_id"), obj);
+        }
+        Status status = Status.OK;
+        for (String key : keys) {
+          Map<String, ByteIterator> result = new HashMap<String, ByteIterator>();
+          Document obj = found.get(key);
+          if (obj == null) {
+            status = Status.NOT_FOUND;
+          } else {
+            fillMap(result, obj);
+          }
+          results.add(result);
+        }
+        return status;
+      });
+  }
+
+  /**
+   * Perform a range scan for a set of records in the database. Each field/value
+   * pair from the result will be stored in a HashMap.
+   *
+   * @param table
+   *          The name of the table
+   * @param startkey
+   *          The record key of the first record to read.
+   * @param recordcount
+   *          The number of records to read
+   * @param fields
+   *          The list of fields to read, or null for all of them
+   * @param result
+   *          A Vector of HashMaps, where each HashMap is a set field/value
+   *          pairs for one record
+   * @return Zero on success, a non-zero error code on error. See the {@link DB}
+   *         class's description for a discussion of error codes.
+   */
+  @Override
+  public Status scan(String table, String startkey, int recordcount,
+      Set<String> fields, Vector<HashMap<String, ByteIterator>> result) {
+    MongoCollection<Document> collection = database.getCollection(table);
+    FindPublisher<Document> find = project(collection
+        .find(new Document("_id", new Document("$gte", startkey)))
+        .sort(new Document("_id", INCLUDE))
+        .limit(recordcount)
+        .batchSize(recordcount), fields);
+    return execute(Workload.Operation.SCAN, find, documents -> {
+        if (documents.isEmpty()) {
+          System.err.println("Nothing found in scan for key " + startkey);
+          return Status.ERROR;
+        }
+        result.ensureCapacity(recordcount);
+        for (Document obj : documents) {
+          HashMap<String, ByteIterator> resultMap =
+              new HashMap<String, ByteIterator>();
+          fillMap(resultMap, obj);
+          result.add(resultMap);
+        }
+        return Status.OK;
+      });
+  }
+
+  /**
+   * Update a record in the database. Any field/value pairs in the specified
+   * values HashMap will be written into the record with the specified record
+   * key, overwriting any existing values with the same field name.
+   *
+   * @param table
+   *          The name of the table
+   * @param key
+   *          The record key of the record to write.
+   * @param values
+   *          A HashMap of field/value pairs to update in the record
+   * @return Zero on success, a non-zero error code on error. See this class's
+   *         description for a discussion of error codes.
+   */
+  @Override
+  public Status update(String table, String key,
+      Map<String, ByteIterator> values) {
+    MongoCollection<Document> collection = database.getCollection(table);
+    Document fieldsToSet = new Document();
+    for (Map.Entry<String, ByteIterator> entry : values.entrySet()) {
+      fieldsToSet.put(entry.getKey(), toBson(entry.getValue()));
+    }
+    return execute(Workload.Operation.UPDATE,
+        collection.updateOne(new Document("_id", key),
+            new Document("$set", fieldsToSet)),
+        results -> {
+          UpdateResult result = results.get(0);
+          if (result.wasAcknowledged() && result.getMatchedCount() == 0) {
+            return Status.NOT_FOUND;
+          }
+          return Status.OK;
+        });
+  }
+
+  /**
+   * Run an operation: in the window, returning PENDING, or waiting for its
+   * reply when there is no window. The handler makes a status of the items the
+   * publisher emitted.
+   */
+  private <T> Status execute(Workload.Operation op, Publisher<T> publisher,
+      Function<List<T>, Status> handler) {
+    if (window == null) {
+      return await(publisher, handler);
+    }
+    final InFlightWindow.Completion completion;
+    try {
+      completion = window.begin(op);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return Status.ERROR;
+    }
+    collect(publisher).whenComplete((items, error) -> {
+        Status status = Status.ERROR;
+        if (error != null) {
+          System.err.println("Error doing " + op + ": " + error);
+        } else {
+          try {
+            status = handler.apply(items);
+          } catch (RuntimeException e) {
+            System.err.println("Error reading " + op + " result: " + e);
+          }
+        }
+        completion.complete(status);
+      });
+    return Status.PENDING;
+  }
+
+  /**
+   * Run an operation and wait for its reply.
+   */
+  private static <T> Status await(Publisher<T> publisher,
+      Function<List<T>, Status> handler) {
+    try {
+      return handler.apply(collect(publisher).get());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return Status.ERROR;
+    } catch (ExecutionException e) {
+      System.err.println(e.getCause().toString());
+      return Status.ERROR;
+    }
+  }
+
+  /**
+   * Subscribes to a publisher, which sends its request, and gathers all the
+   * items it emits.
+   */
+  private static <T> CompletableFuture<List<T>> collect(
+      Publisher<T> publisher) {
+    final CompletableFuture<List<T>> future = new CompletableFuture<List<T>>();
+    publisher.subscribe(new Subscriber<T>() {
+        private final List<T> items = new ArrayList<T>();
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+          subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(T item) {
+          items.add(item);
+        }
+
+        @Override
+        public void onError(Throwable error) {
+          future.completeExceptionally(error);
+        }
+
+        @Override
+        public void onComplete() {
+          future.complete(items);
+        }
+      });
+    return future;
+  }
+
+  /**
+   * Limits a query to the fields to read, or leaves it reading all of them.
+   */
+  private static FindPublisher<Document> project(FindPublisher<Document> find,
+      Set<String> fields) {
+    if (fields == null) {
+      return find;
+    }
+    Document projection = new Document();
+    for (String field : fields) {
+      projection.put(field, INCLUDE);
+    }
+    return find.projection(projection);
+  }
+
+  /**
+   * Fills the map with the values from the document.
+   *
+   * @param resultMap
+   *          The map to fill.
+   * @param obj
+   *          The object to copy values from.
+   */
+  protected void fillMap(Map<String, ByteIterator> resultMap, Document obj) {
+    for (Map.Entry<String, Object> entry : obj.entrySet()) {
+      if (entry.getValue() instanceof Binary) {
+        resultMap.put(entry.getKey(),
+            new ByteArrayByteIterator(((Binary) entry.getValue()).getData()));
+      } else if (entry.getValue() instanceof Map || entry.getValue() instanceof List) {
+        StringBuilder json = new StringBuilder();
+        DocumentByteIterator.toJson(entry.getValue(), json);
+        resultMap.put(entry.getKey(), new StringByteIterator(json.toString()));
+      }
+    }
+  }
+
+  /**
+   * Converts a field value to its BSON form: a sub-document for structured values, binary
+   * otherwise.
+   */
+  private static Object toBson(ByteIterator value) {
+    if (value instanceof DocumentByteIterator) {
+      return ((DocumentByteIterator) value).getDocument();
+    }
+    return value.toArray();
+  }
+}
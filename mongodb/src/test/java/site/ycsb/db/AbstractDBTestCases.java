@@ -35,8 +35,11 @@ import org.junit.Test;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
@@ -304,6 +307,45 @@ public abstract class AbstractDBTestCases {
     }
   }
 
+  /**
+   * Test method for {@link DB#batchRead}.
+   */
+  @Test
+  public void testBatchRead() {
+    final DB client = getDB();
+
+    final String table = getClass().getSimpleName();
+
+    for (int i = 0; i < 3; ++i) {
+      HashMap<String, ByteIterator> inserted =
+          new HashMap<String, ByteIterator>();
+      inserted.put("a", new ByteArrayByteIterator(new byte[] { (byte) i }));
+      Status result = client.insert(table, "batch" + i, inserted);
+      assertThat("Insert did not return success (0).", result, is(Status.OK));
+    }
+
+    List<Map<String, ByteIterator>> results =
+        new ArrayList<Map<String, ByteIterator>>();
+    Status result = client.batchRead(table,
+        Arrays.asList("batch2", "batch0", "batch1"), null, results);
+    assertThat("Batch read did not return success (0).", result,
+        is(Status.OK));
+    assertThat(results.size(), is(3));
+    assertThat(results.get(0).get("a").nextByte(), is(Byte.valueOf((byte) 2)));
+    assertThat(results.get(1).get("a").nextByte(), is(Byte.valueOf((byte) 0)));
+    assertThat(results.get(2).get("a").nextByte(), is(Byte.valueOf((byte) 1)));
+
+    results.clear();
+    result = client.batchRead(table, Arrays.asList("batch1", "batchmissing"),
+        Collections.singleton("a"), results);
+    assertThat("Batch read did not return not found (1).", result,
+        is(Status.NOT_FOUND));
+    assertThat(results.size(), is(2));
+    assertThat(results.get(0).get("a").nextByte(), is(Byte.valueOf((byte) 1)));
+    assertThat("Found fields for the missing key.", results.get(1).size(),
+        is(0));
+  }
+
   /**
    * Gets the test DB.
    * 
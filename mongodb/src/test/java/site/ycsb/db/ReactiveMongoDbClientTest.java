@@ -0,0 +1,86 @@
+/**
+ * Copyright (c) 2020 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package site.ycsb.db;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.HashMap;
+import java.util.Properties;
+
+import org.junit.Test;
+
+import site.ycsb.ByteArrayByteIterator;
+import site.ycsb.ByteIterator;
+import site.ycsb.DB;
+import site.ycsb.Status;
+
+/**
+ * ReactiveMongoDbClientTest runs the basic workload operations, waiting for
+ * each, and checks operations kept in flight.
+ */
+public class ReactiveMongoDbClientTest extends MongoDbClientTest {
+
+  @Override
+  protected DB instantiateClient() {
+    return new ReactiveMongoDbClient();
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Overridden to wait for each operation, so that the shared cases can check
+   * their results.
+   * </p>
+   */
+  @Override
+  protected DB getDB(Properties props) {
+    props.setProperty("mongodb.reactive.window", "0");
+    return super.getDB(props);
+  }
+
+  /**
+   * Inserts through a window are pending until the client is cleaned up.
+   */
+  @Test
+  public void testWindowedInserts() throws Exception {
+    final String table = getClass().getSimpleName();
+
+    Properties props = new Properties();
+    props.setProperty("mongodb.reactive.window", "4");
+    props.setProperty("batchsize", "3");
+    DB windowed = new ReactiveMongoDbClient();
+    windowed.setProperties(props);
+    windowed.init();
+    for (int i = 0; i < 10; ++i) {
+      HashMap<String, ByteIterator> inserted =
+          new HashMap<String, ByteIterator>();
+      inserted.put("a", new ByteArrayByteIterator(new byte[] { (byte) i }));
+      Status result = windowed.insert(table, "windowed" + i, inserted);
+      assertThat(result, is(i % 3 == 2 ? Status.PENDING : Status.BATCHED_OK));
+    }
+    windowed.cleanup();
+
+    DB client = getDB();
+    for (int i = 0; i < 10; ++i) {
+      HashMap<String, ByteIterator> read = new HashMap<String, ByteIterator>();
+      assertThat("Did not insert record " + i,
+          client.read(table, "windowed" + i, null, read), is(Status.OK));
+      assertThat(read.get("a").nextByte(), is(Byte.valueOf((byte) i)));
+    }
+  }
+}
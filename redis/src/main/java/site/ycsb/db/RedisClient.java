@@ -27,17 +27,23 @@ package site.ycsb.db;
 import site.ycsb.ByteIterator;
 import site.ycsb.DB;
 import site.ycsb.DBException;
+import site.ycsb.InFlightWindow;
 import site.ycsb.Status;
 import site.ycsb.StringByteIterator;
+import site.ycsb.Workload;
 import redis.clients.jedis.BasicCommands;
 import redis.clients.jedis.HostAndPort;
 import redis.clients.jedis.Jedis;
-import redis.clients.jedis.JedisCluster;
 import redis.clients.jedis.JedisCommands;
+import redis.clients.jedis.Pipeline;
 import redis.clients.jedis.Protocol;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.exceptions.JedisException;
+import redis.clients.jedis.exceptions.JedisRedirectionException;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.HashSet;
@@ -61,9 +67,42 @@ public class RedisClient extends DB {
   public static final String PASSWORD_PROPERTY = "redis.password";
   public static final String CLUSTER_PROPERTY = "redis.cluster";
   public static final String TIMEOUT_PROPERTY = "redis.timeout";
+  public static final String PIPELINE_DEPTH_PROPERTY = "redis.pipeline.depth";
+  public static final String INDEX_PROPERTY = "redis.index";
 
   public static final String INDEX_KEY = "_indices";
 
+  /** Whether inserts and deletes maintain INDEX_KEY, which scans need. */
+  private boolean maintainIndex;
+
+  /** Pipelines for batched reads, and for every operation in pipelined mode. */
+  private RedisPipelines pipelines;
+
+  /** Commands queued before the pipelines are sent, 1 to send each operation on its own. */
+  private int pipelineDepth;
+  private InFlightWindow window;
+  private final List<Queued> queued = new ArrayList<>();
+
+  /**
+   * The reply to an operation, read once its pipeline has been sent.
+   */
+  private interface Reply {
+    Status status();
+  }
+
+  /**
+   * An operation waiting in a pipeline.
+   */
+  private static final class Queued {
+    private final InFlightWindow.Completion completion;
+    private final Reply reply;
+
+    private Queued(InFlightWindow.Completion completion, Reply reply) {
+      this.completion = completion;
+      this.reply = reply;
+    }
+  }
+
   public void init() throws DBException {
     Properties props = getProperties();
     int port;
@@ -80,7 +119,9 @@ public class RedisClient extends DB {
     if (clusterEnabled) {
       Set<HostAndPort> jedisClusterNodes = new HashSet<>();
       jedisClusterNodes.add(new HostAndPort(host, port));
-      jedis = new JedisCluster(jedisClusterNodes);
+      RedisPipelines.SlotJedisCluster cluster = new RedisPipelines.SlotJedisCluster(jedisClusterNodes);
+      jedis = cluster;
+      pipelines = new RedisPipelines(cluster);
     } else {
       String redisTimeout = props.getProperty(TIMEOUT_PROPERTY);
       if (redisTimeout != null){
@@ -89,15 +130,23 @@ public class RedisClient extends DB {
         jedis = new Jedis(host, port);
       }
       ((Jedis) jedis).connect();
+      pipelines = new RedisPipelines((Jedis) jedis);
     }
 
     String password = props.getProperty(PASSWORD_PROPERTY);
     if (password != null) {
       ((BasicCommands) jedis).auth(password);
     }
+
+    maintainIndex = Boolean.parseBoolean(props.getProperty(INDEX_PROPERTY, "true"));
+    pipelineDepth = Integer.parseInt(props.getProperty(PIPELINE_DEPTH_PROPERTY, "1"));
+    if (pipelineDepth > 1) {
+      window = new InFlightWindow(pipelineDepth, props);
+    }
   }
 
   public void cleanup() throws DBException {
+    sendQueued();
     try {
       ((Closeable) jedis).close();
     } catch (IOException e) {
@@ -117,9 +166,93 @@ public class RedisClient extends DB {
 
   // XXX jedis.select(int index) to switch to `table`
 
+  /**
+   * Queue an operation in pipelined mode, first sending the pipelines if they are full.
+   *
+   * @return The completion to queue with the reply, or null if the caller must run the operation
+   *         synchronously.
+   */
+  private InFlightWindow.Completion begin(Workload.Operation op) {
+    if (window == null) {
+      return null;
+    }
+    if (queued.size() >= pipelineDepth) {
+      sendQueued();
+    }
+    try {
+      return window.begin(op);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return null;
+    }
+  }
+
+  private Status queue(InFlightWindow.Completion completion, Reply reply) {
+    queued.add(new Queued(completion, reply));
+    if (queued.size() >= pipelineDepth) {
+      sendQueued();
+    }
+    return Status.PENDING;
+  }
+
+  /**
+   * Send the queued operations and complete each with its reply.
+   */
+  private void sendQueued() {
+    if (queued.isEmpty()) {
+      return;
+    }
+    boolean sent = sync();
+    for (Queued operation : queued) {
+      Status status = Status.ERROR;
+      if (sent) {
+        try {
+          status = operation.reply.status();
+        } catch (JedisRedirectionException e) {
+          pipelines.renewSlots();
+        } catch (JedisException e) {
+          status = Status.ERROR;
+        }
+      }
+      operation.completion.complete(status);
+    }
+    queued.clear();
+  }
+
+  private boolean sync() {
+    try {
+      pipelines.sync();
+      return true;
+    } catch (JedisException e) {
+      // Every queued operation is completed with ERROR by the caller.
+      return false;
+    }
+  }
+
+  private static boolean hasValues(List<String> values) {
+    for (String value : values) {
+      if (value != null) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   @Override
   public Status read(String table, String key, Set<String> fields,
       Map<String, ByteIterator> result) {
+    InFlightWindow.Completion completion = begin(Workload.Operation.READ);
+    if (completion != null) {
+      // The caller has moved on by the time the reply arrives, so only its status is used
+      Pipeline pipeline = pipelines.forKey(key);
+      if (fields == null) {
+        Response<Map<String, String>> values = pipeline.hgetAll(key);
+        return queue(completion, () -> values.get().isEmpty() ? Status.ERROR : Status.OK);
+      }
+      Response<List<String>> values = pipeline.hmget(key, fields.toArray(new String[fields.size()]));
+      return queue(completion, () -> hasValues(values.get()) ? Status.OK : Status.ERROR);
+    }
+
     if (fields == null) {
       StringByteIterator.putAllAsByteIterators(result, jedis.hgetAll(key));
     } else {
@@ -139,12 +272,79 @@ public class RedisClient extends DB {
     return result.isEmpty() ? Status.ERROR : Status.OK;
   }
 
+  /**
+   * Read the records with one pipeline per node, sent at once.
+   */
+  @Override
+  public Status batchRead(String table, List<String> keys, Set<String> fields,
+      List<Map<String, ByteIterator>> results) {
+    sendQueued();
+    String[] fieldArray = fields == null ? null : fields.toArray(new String[fields.size()]);
+    List<Response<Map<String, String>>> allValues = new ArrayList<>(keys.size());
+    List<Response<List<String>>> fieldValues = new ArrayList<>(keys.size());
+    try {
+      for (String key : keys) {
+        Pipeline pipeline = pipelines.forKey(key);
+        if (fieldArray == null) {
+          allValues.add(pipeline.hgetAll(key));
+        } else {
+          fieldValues.add(pipeline.hmget(key, fieldArray));
+        }
+      }
+    } catch (JedisException e) {
+      // Gives back the connections of the pipelines queued so far
+      sync();
+      return Status.ERROR;
+    }
+    if (!sync()) {
+      return Status.ERROR;
+    }
+
+    Status status = Status.OK;
+    try {
+      for (int i = 0; i < keys.size(); i++) {
+        Map<String, ByteIterator> result = new HashMap<>();
+        if (fieldArray == null) {
+          StringByteIterator.putAllAsByteIterators(result, allValues.get(i).get());
+        } else {
+          List<String> values = fieldValues.get(i).get();
+          for (int j = 0; j < fieldArray.length; j++) {
+            if (values.get(j) != null) {
+              result.put(fieldArray[j], new StringByteIterator(values.get(j)));
+            }
+          }
+        }
+        if (result.isEmpty()) {
+          status = Status.ERROR;
+        }
+        results.add(result);
+      }
+    } catch (JedisRedirectionException e) {
+      pipelines.renewSlots();
+      return Status.ERROR;
+    } catch (JedisException e) {
+      return Status.ERROR;
+    }
+    return status;
+  }
+
   @Override
   public Status insert(String table, String key,
       Map<String, ByteIterator> values) {
+    InFlightWindow.Completion completion = begin(Workload.Operation.INSERT);
+    if (completion != null) {
+      Response<String> reply = pipelines.forKey(key).hmset(key, StringByteIterator.getStringMap(values));
+      if (maintainIndex) {
+        pipelines.forKey(INDEX_KEY).zadd(INDEX_KEY, hash(key), key);
+      }
+      return queue(completion, () -> "OK".equals(reply.get()) ? Status.OK : Status.ERROR);
+    }
+
     if (jedis.hmset(key, StringByteIterator.getStringMap(values))
         .equals("OK")) {
-      jedis.zadd(INDEX_KEY, hash(key), key);
+      if (maintainIndex) {
+        jedis.zadd(INDEX_KEY, hash(key), key);
+      }
       return Status.OK;
     }
     return Status.ERROR;
@@ -152,6 +352,17 @@ public class RedisClient extends DB {
 
   @Override
   public Status delete(String table, String key) {
+    InFlightWindow.Completion completion = begin(Workload.Operation.DELETE);
+    if (completion != null) {
+      Response<Long> deleted = pipelines.forKey(key).del(key);
+      Response<Long> unindexed = maintainIndex ? pipelines.forKey(INDEX_KEY).zrem(INDEX_KEY, key) : null;
+      return queue(completion, () -> deleted.get() == 0 && (unindexed == null || unindexed.get() == 0)
+          ? Status.ERROR : Status.OK);
+    }
+
+    if (!maintainIndex) {
+      return jedis.del(key) == 0 ? Status.ERROR : Status.OK;
+    }
     return jedis.del(key) == 0 && jedis.zrem(INDEX_KEY, key) == 0 ? Status.ERROR
         : Status.OK;
   }
@@ -159,6 +370,12 @@ public class RedisClient extends DB {
   @Override
   public Status update(String table, String key,
       Map<String, ByteIterator> values) {
+    InFlightWindow.Completion completion = begin(Workload.Operation.UPDATE);
+    if (completion != null) {
+      Response<String> reply = pipelines.forKey(key).hmset(key, StringByteIterator.getStringMap(values));
+      return queue(completion, () -> "OK".equals(reply.get()) ? Status.OK : Status.ERROR);
+    }
+
     return jedis.hmset(key, StringByteIterator.getStringMap(values))
         .equals("OK") ? Status.OK : Status.ERROR;
   }
@@ -166,6 +383,10 @@ public class RedisClient extends DB {
   @Override
   public Status scan(String table, String startkey, int recordcount,
       Set<String> fields, Vector<HashMap<String, ByteIterator>> result) {
+    if (!maintainIndex) {
+      return Status.NOT_IMPLEMENTED;
+    }
+    sendQueued();
     Set<String> keys = jedis.zrangeByScore(INDEX_KEY, hash(startkey),
         Double.POSITIVE_INFINITY, 0, recordcount);
 
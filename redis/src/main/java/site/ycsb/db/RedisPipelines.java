@@ -0,0 +1,184 @@
+/**
+ * Copyright (c) 2020 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.db;
+
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisCluster;
+import redis.clients.jedis.JedisClusterInfoCache;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.exceptions.JedisClusterException;
+import redis.clients.util.JedisClusterCRC16;
+import redis.clients.util.SafeEncoder;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Commands of one client thread queued on Jedis pipelines and sent together. A standalone server
+ * has one pipeline; in a cluster commands are grouped by the node serving the slot of their key,
+ * with one pipeline per node.
+ */
+final class RedisPipelines {
+
+  /**
+   * A cluster client whose connection pools can be told to catch up with the nodes of the cluster.
+   */
+  static final class SlotJedisCluster extends JedisCluster {
+    SlotJedisCluster(Set<HostAndPort> nodes) {
+      super(nodes);
+    }
+
+    void renewSlots() {
+      connectionHandler.renewSlotCache();
+    }
+  }
+
+  private final Jedis jedis;
+  private final SlotJedisCluster cluster;
+
+  /** The node, as host:port, serving each slot of the cluster, or null until it is loaded. */
+  private String[] slotNodes;
+
+  private Pipeline pipeline;
+  private final Map<String, Jedis> connections = new HashMap<>();
+  private final Map<String, Pipeline> pipelines = new HashMap<>();
+
+  RedisPipelines(Jedis jedis) {
+    this.jedis = jedis;
+    this.cluster = null;
+  }
+
+  RedisPipelines(SlotJedisCluster cluster) {
+    this.jedis = null;
+    this.cluster = cluster;
+  }
+
+  /**
+   * The pipeline to queue a command on the key on.
+   */
+  Pipeline forKey(String key) {
+    if (jedis != null) {
+      if (pipeline == null) {
+        pipeline = jedis.pipelined();
+      }
+      return pipeline;
+    }
+
+    String node = nodeFor(key);
+    Pipeline nodePipeline = pipelines.get(node);
+    if (nodePipeline == null) {
+      JedisPool pool = cluster.getClusterNodes().get(node);
+      if (pool == null) {
+        throw new JedisClusterException("No connection pool for cluster node " + node);
+      }
+      Jedis connection = pool.getResource();
+      nodePipeline = connection.pipelined();
+      connections.put(node, connection);
+      pipelines.put(node, nodePipeline);
+    }
+    return nodePipeline;
+  }
+
+  /**
+   * The node serving the slot of the key, loading the slots of the cluster the first time.
+   */
+  private String nodeFor(String key) {
+    if (slotNodes == null) {
+      slotNodes = loadSlots();
+    }
+    String node = slotNodes[JedisClusterCRC16.getSlot(key)];
+    if (node == null) {
+      throw new JedisClusterException("No cluster node serves the slot of key " + key);
+    }
+    return node;
+  }
+
+  /**
+   * Ask a node of the cluster which master serves each range of slots.
+   */
+  private String[] loadSlots() {
+    for (Map.Entry<String, JedisPool> entry : cluster.getClusterNodes().entrySet()) {
+      try (Jedis connection = entry.getValue().getResource()) {
+        String[] nodes = new String[JedisCluster.HASHSLOTS];
+        for (Object range : connection.clusterSlots()) {
+          List<Object> slots = (List<Object>) range;
+          List<Object> master = (List<Object>) slots.get(2);
+          String host = SafeEncoder.encode((byte[]) master.get(0));
+          if (host.isEmpty()) {
+            // The node answering does not know its own address
+            host = connection.getClient().getHost();
+          }
+          String node = JedisClusterInfoCache.getNodeKey(
+              new HostAndPort(host, ((Long) master.get(1)).intValue()));
+          for (int slot = ((Long) slots.get(0)).intValue(); slot <= ((Long) slots.get(1)).intValue(); slot++) {
+            nodes[slot] = node;
+          }
+        }
+        return nodes;
+      } catch (RuntimeException e) {
+        // Try the next node
+        continue;
+      }
+    }
+    throw new JedisClusterException("No cluster node answered CLUSTER SLOTS");
+  }
+
+  /**
+   * Whether commands are waiting to be sent.
+   */
+  boolean isEmpty() {
+    return pipeline == null && pipelines.isEmpty();
+  }
+
+  /**
+   * Send the queued commands and wait for all their replies, after which their responses can be
+   * read. The pipelines are released even when sending fails.
+   */
+  void sync() {
+    try {
+      if (pipeline != null) {
+        pipeline.sync();
+      }
+      for (Pipeline nodePipeline : pipelines.values()) {
+        nodePipeline.sync();
+      }
+    } finally {
+      pipeline = null;
+      for (Jedis connection : connections.values()) {
+        connection.close();
+      }
+      connections.clear();
+      pipelines.clear();
+    }
+  }
+
+  /**
+   * Forget the slots of the cluster after a reply said a key moved; they are loaded again before
+   * the next command is queued.
+   */
+  void renewSlots() {
+    if (cluster != null) {
+      cluster.renewSlots();
+      slotNodes = null;
+    }
+  }
+}
@@ -19,6 +19,7 @@ package site.ycsb.db.rocksdb;
 
 import site.ycsb.*;
 import site.ycsb.Status;
+import site.ycsb.measurements.Measurements;
 import net.jcip.annotations.GuardedBy;
 import org.rocksdb.*;
 import org.slf4j.Logger;
@@ -26,10 +27,16 @@ import org.slf4j.LoggerFactory;
 
 import java.io.*;
 import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
 import java.nio.file.*;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -44,26 +51,100 @@ public class RocksDBClient extends DB {
 
   static final String PROPERTY_ROCKSDB_DIR = "rocksdb.dir";
   static final String PROPERTY_ROCKSDB_OPTIONS_FILE = "rocksdb.optionsfile";
+  static final String PROPERTY_ROCKSDB_BATCH_SIZE = "rocksdb.batchsize";
+  static final String PROPERTY_ROCKSDB_DISABLE_WAL = "rocksdb.disablewal";
+  static final String PROPERTY_ROCKSDB_UPDATE_MODE = "rocksdb.updatemode";
+  static final String PROPERTY_ROCKSDB_MULTIGET = "rocksdb.multiget";
+  static final String PROPERTY_ROCKSDB_REUSE_BUFFERS = "rocksdb.reusebuffers";
+  static final String PROPERTY_ROCKSDB_STATISTICS_INTERVAL = "rocksdb.statistics.intervalms";
   private static final String COLUMN_FAMILY_NAMES_FILENAME = "CF_NAMES";
 
+  /**
+   * Separates the operands the merge operator appends to a record. A field starts with its 4 byte
+   * big-endian name length, so it never starts with this byte.
+   */
+  private static final byte MERGE_DELIMITER = (byte) 0xFF;
+
   private static final Logger LOGGER = LoggerFactory.getLogger(RocksDBClient.class);
 
   @GuardedBy("RocksDBClient.class") private static Path rocksDbDir = null;
   @GuardedBy("RocksDBClient.class") private static Path optionsFile = null;
   @GuardedBy("RocksDBClient.class") private static RocksObject dbOptions = null;
   @GuardedBy("RocksDBClient.class") private static RocksDB rocksDb = null;
+  @GuardedBy("RocksDBClient.class") private static WriteOptions writeOptions = null;
+  @GuardedBy("RocksDBClient.class") private static MergeOperator mergeOperator = null;
+  @GuardedBy("RocksDBClient.class") private static Statistics statistics = null;
+  @GuardedBy("RocksDBClient.class") private static RocksDBStatisticsExporter statisticsExporter = null;
+  @GuardedBy("RocksDBClient.class") private static ScheduledExecutorService statisticsScheduler = null;
   @GuardedBy("RocksDBClient.class") private static int references = 0;
 
   private static final ConcurrentMap<String, ColumnFamily> COLUMN_FAMILIES = new ConcurrentHashMap<>();
   private static final ConcurrentMap<String, Lock> COLUMN_FAMILY_LOCKS = new ConcurrentHashMap<>();
 
+  /** Inserts of the load phase buffered into one write, when batching. */
+  private WriteBatch writeBatch = null;
+  private int batchSize;
+  private String batchMeasurementName;
+  private boolean multiGet;
+
+  /*
+   * Buffers of this client thread, reused by every operation when rocksdb.reusebuffers is set so
+   * that keys and values are not allocated anew each time.
+   */
+  private boolean reuseBuffers;
+  private final CharsetEncoder keyEncoder = UTF_8.newEncoder()
+      .onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+  private ByteBuffer keyBuffer;
+  private byte[] valueBuffer;
+  private ValueWriter valueWriter;
+  private final Map<String, byte[]> fieldNames = new HashMap<>();
+
   @Override
   public void init() throws DBException {
+    RocksDB.loadLibrary();
+
+    final Properties props = getProperties();
+    final boolean loading = !Boolean.parseBoolean(props.getProperty(Client.DO_TRANSACTIONS_PROPERTY, "true"));
+    batchSize = loading ? Integer.parseInt(props.getProperty(PROPERTY_ROCKSDB_BATCH_SIZE, "1")) : 1;
+    if (batchSize > 1) {
+      writeBatch = new WriteBatch();
+      batchMeasurementName = Measurements.namespacePrefix(props) + "ROCKSDB-BATCH-INSERT";
+    }
+    multiGet = Boolean.parseBoolean(props.getProperty(PROPERTY_ROCKSDB_MULTIGET, "true"));
+    reuseBuffers = Boolean.parseBoolean(props.getProperty(PROPERTY_ROCKSDB_REUSE_BUFFERS, "false"));
+    if (reuseBuffers) {
+      keyBuffer = ByteBuffer.allocate(64);
+      valueBuffer = new byte[4096];
+      valueWriter = new ValueWriter();
+    }
+
     synchronized(RocksDBClient.class) {
       if(rocksDb == null) {
         rocksDbDir = Paths.get(getProperties().getProperty(PROPERTY_ROCKSDB_DIR));
         LOGGER.info("RocksDB data dir: " + rocksDbDir);
 
+        writeOptions = new WriteOptions()
+            .setDisableWAL(Boolean.parseBoolean(props.getProperty(PROPERTY_ROCKSDB_DISABLE_WAL, "false")));
+        final String updateMode = props.getProperty(PROPERTY_ROCKSDB_UPDATE_MODE, "readmodifywrite");
+        if (updateMode.equals("merge")) {
+          mergeOperator = new StringAppendOperator((char) (MERGE_DELIMITER & 0xFF));
+        } else if (!updateMode.equals("readmodifywrite")) {
+          throw new DBException("Unknown " + PROPERTY_ROCKSDB_UPDATE_MODE + " \"" + updateMode + "\"");
+        }
+
+        final long statisticsInterval = Long.parseLong(props.getProperty(PROPERTY_ROCKSDB_STATISTICS_INTERVAL, "0"));
+        if (statisticsInterval > 0) {
+          statistics = new Statistics();
+          statisticsExporter = new RocksDBStatisticsExporter(statistics, Measurements.namespacePrefix(props));
+          statisticsScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            final Thread thread = new Thread(r, "rocksdb-statistics");
+            thread.setDaemon(true);
+            return thread;
+          });
+          statisticsScheduler.scheduleAtFixedRate(statisticsExporter, statisticsInterval, statisticsInterval,
+              TimeUnit.MILLISECONDS);
+        }
+
         String optionsFileString = getProperties().getProperty(PROPERTY_ROCKSDB_OPTIONS_FILE);
         if (optionsFileString != null) {
           optionsFile = Paths.get(optionsFileString);
@@ -103,7 +184,13 @@ public class RocksDBClient extends DB {
 
     RocksDB.loadLibrary();
     OptionsUtil.loadOptionsFromFile(optionsFile.toAbsolutePath().toString(), Env.getDefault(), options, cfDescriptors);
+    if (statistics != null) {
+      options.setStatistics(statistics);
+    }
     dbOptions = options;
+    for (final ColumnFamilyDescriptor cfDescriptor : cfDescriptors) {
+      withMergeOperator(cfDescriptor.getOptions());
+    }
 
     final RocksDB db = RocksDB.open(options, rocksDbDir.toAbsolutePath().toString(), cfDescriptors, cfHandles);
 
@@ -135,8 +222,8 @@ public class RocksDBClient extends DB {
     final List<ColumnFamilyDescriptor> cfDescriptors = new ArrayList<>();
 
     for(final String cfName : cfNames) {
-      final ColumnFamilyOptions cfOptions = new ColumnFamilyOptions()
-          .optimizeLevelStyleCompaction();
+      final ColumnFamilyOptions cfOptions = withMergeOperator(new ColumnFamilyOptions()
+          .optimizeLevelStyleCompaction());
       final ColumnFamilyDescriptor cfDescriptor = new ColumnFamilyDescriptor(
           cfName.getBytes(UTF_8),
           cfOptions
@@ -155,6 +242,9 @@ public class RocksDBClient extends DB {
           .setIncreaseParallelism(rocksThreads)
           .setMaxBackgroundCompactions(rocksThreads)
           .setInfoLogLevel(InfoLogLevel.INFO_LEVEL);
+      if (statistics != null) {
+        options.setStatistics(statistics);
+      }
       dbOptions = options;
       return RocksDB.open(options, rocksDbDir.toAbsolutePath().toString());
     } else {
@@ -164,6 +254,9 @@ public class RocksDBClient extends DB {
           .setIncreaseParallelism(rocksThreads)
           .setMaxBackgroundCompactions(rocksThreads)
           .setInfoLogLevel(InfoLogLevel.INFO_LEVEL);
+      if (statistics != null) {
+        options.setStatistics(statistics);
+      }
       dbOptions = options;
 
       final List<ColumnFamilyHandle> cfHandles = new ArrayList<>();
@@ -179,9 +272,25 @@ public class RocksDBClient extends DB {
   public void cleanup() throws DBException {
     super.cleanup();
 
+    if (writeBatch != null) {
+      if (writeBatch.count() > 0 && !flushBatch().isOk()) {
+        LOGGER.error("Failed to write the remaining batched records");
+      }
+      writeBatch.close();
+      writeBatch = null;
+    }
+
     synchronized (RocksDBClient.class) {
       try {
         if (references == 1) {
+          if (statisticsScheduler != null) {
+            statisticsScheduler.shutdownNow();
+            statisticsScheduler = null;
+            // The last interval, up to now
+            statisticsExporter.run();
+            statisticsExporter = null;
+          }
+
           for (final ColumnFamily cf : COLUMN_FAMILIES.values()) {
             cf.getHandle().close();
           }
@@ -192,6 +301,17 @@ public class RocksDBClient extends DB {
           dbOptions.close();
           dbOptions = null;
 
+          writeOptions.close();
+          writeOptions = null;
+          if (mergeOperator != null) {
+            mergeOperator.close();
+            mergeOperator = null;
+          }
+          if (statistics != null) {
+            statistics.close();
+            statistics = null;
+          }
+
           for (final ColumnFamily cf : COLUMN_FAMILIES.values()) {
             cf.getOptions().close();
           }
@@ -199,6 +319,7 @@ public class RocksDBClient extends DB {
           COLUMN_FAMILIES.clear();
 
           rocksDbDir = null;
+          optionsFile = null;
         }
 
       } catch (final IOException e) {
@@ -218,11 +339,9 @@ public class RocksDBClient extends DB {
       }
 
       final ColumnFamilyHandle cf = COLUMN_FAMILIES.get(table).getHandle();
-      final byte[] values = rocksDb.get(cf, key.getBytes(UTF_8));
-      if(values == null) {
+      if(!get(cf, key, fields, result, true)) {
         return Status.NOT_FOUND;
       }
-      deserializeValues(values, fields, result);
       return Status.OK;
     } catch(final RocksDBException e) {
       LOGGER.error(e.getMessage(), e);
@@ -230,6 +349,42 @@ public class RocksDBClient extends DB {
     }
   }
 
+  @Override
+  public Status batchRead(final String table, final List<String> keys, final Set<String> fields,
+      final List<Map<String, ByteIterator>> results) {
+    if (!multiGet) {
+      return super.batchRead(table, keys, fields, results);
+    }
+    try {
+      if (!COLUMN_FAMILIES.containsKey(table)) {
+        createColumnFamily(table);
+      }
+
+      final ColumnFamilyHandle cf = COLUMN_FAMILIES.get(table).getHandle();
+      final List<ColumnFamilyHandle> cfs = new ArrayList<>(keys.size());
+      final List<byte[]> keyBytes = new ArrayList<>(keys.size());
+      for (final String key : keys) {
+        cfs.add(cf);
+        keyBytes.add(key.getBytes(UTF_8));
+      }
+
+      Status status = Status.OK;
+      for (final byte[] values : rocksDb.multiGetAsList(cfs, keyBytes)) {
+        final Map<String, ByteIterator> result = new HashMap<>();
+        if (values == null) {
+          status = Status.NOT_FOUND;
+        } else {
+          deserializeValues(values, values.length, fields, result, false);
+        }
+        results.add(result);
+      }
+      return status;
+    } catch(final RocksDBException e) {
+      LOGGER.error(e.getMessage(), e);
+      return Status.ERROR;
+    }
+  }
+
   @Override
   public Status scan(final String table, final String startkey, final int recordcount, final Set<String> fields,
         final Vector<HashMap<String, ByteIterator>> result) {
@@ -244,7 +399,8 @@ public class RocksDBClient extends DB {
         for (iterator.seek(startkey.getBytes(UTF_8)); iterator.isValid() && iterations < recordcount;
              iterator.next()) {
           final HashMap<String, ByteIterator> values = new HashMap<>();
-          deserializeValues(iterator.value(), fields, values);
+          final byte[] value = iterator.value();
+          deserializeValues(value, value.length, fields, values, false);
           result.add(values);
           iterations++;
         }
@@ -259,26 +415,34 @@ public class RocksDBClient extends DB {
 
   @Override
   public Status update(final String table, final String key, final Map<String, ByteIterator> values) {
-    //TODO(AR) consider if this would be faster with merge operator
-
     try {
       if (!COLUMN_FAMILIES.containsKey(table)) {
         createColumnFamily(table);
       }
 
       final ColumnFamilyHandle cf = COLUMN_FAMILIES.get(table).getHandle();
+      if (mergeOperator != null) {
+        // Append the new fields without reading the record; the later value of a field wins on read
+        if (reuseBuffers) {
+          final int keyLength = encodeKey(key);
+          final int valueLength = writeValues(values);
+          rocksDb.merge(cf, writeOptions, keyBuffer.array(), 0, keyLength, valueWriter.array(), 0, valueLength);
+        } else {
+          rocksDb.merge(cf, writeOptions, key.getBytes(UTF_8), serializeValues(values));
+        }
+        return Status.OK;
+      }
+
       final Map<String, ByteIterator> result = new HashMap<>();
-      final byte[] currentValues = rocksDb.get(cf, key.getBytes(UTF_8));
-      if(currentValues == null) {
+      if(!get(cf, key, null, result, false)) {
         return Status.NOT_FOUND;
       }
-      deserializeValues(currentValues, null, result);
 
       //update
       result.putAll(values);
 
       //store
-      rocksDb.put(cf, key.getBytes(UTF_8), serializeValues(result));
+      put(cf, key, result);
 
       return Status.OK;
 
@@ -296,7 +460,11 @@ public class RocksDBClient extends DB {
       }
 
       final ColumnFamilyHandle cf = COLUMN_FAMILIES.get(table).getHandle();
-      rocksDb.put(cf, key.getBytes(UTF_8), serializeValues(values));
+      if (writeBatch != null) {
+        writeBatch.put(cf, key.getBytes(UTF_8), serializeValues(values));
+        return writeBatch.count() >= batchSize ? flushBatch() : Status.BATCHED_OK;
+      }
+      put(cf, key, values);
 
       return Status.OK;
     } catch(final RocksDBException | IOException e) {
@@ -313,7 +481,12 @@ public class RocksDBClient extends DB {
       }
 
       final ColumnFamilyHandle cf = COLUMN_FAMILIES.get(table).getHandle();
-      rocksDb.delete(cf, key.getBytes(UTF_8));
+      if (reuseBuffers) {
+        final int keyLength = encodeKey(key);
+        rocksDb.delete(cf, writeOptions, keyBuffer.array(), 0, keyLength);
+      } else {
+        rocksDb.delete(cf, writeOptions, key.getBytes(UTF_8));
+      }
 
       return Status.OK;
     } catch(final RocksDBException e) {
@@ -322,6 +495,107 @@ public class RocksDBClient extends DB {
     }
   }
 
+  /**
+   * Reads a record.
+   *
+   * @param keep Whether the values must outlive the next operation of this client, which reuses the
+   *             buffer they point into unless they are copied.
+   * @return Whether the record exists.
+   */
+  private boolean get(final ColumnFamilyHandle cf, final String key, final Set<String> fields,
+      final Map<String, ByteIterator> result, final boolean keep) throws RocksDBException {
+    if (reuseBuffers) {
+      final int keyLength = encodeKey(key);
+      int length;
+      while ((length = rocksDb.get(cf, keyBuffer.array(), 0, keyLength, valueBuffer, 0, valueBuffer.length))
+          > valueBuffer.length) {
+        valueBuffer = new byte[Math.max(length, valueBuffer.length * 2)];
+      }
+      if (length == RocksDB.NOT_FOUND) {
+        return false;
+      }
+      deserializeValues(valueBuffer, length, fields, result, keep);
+      return true;
+    }
+
+    final byte[] values = rocksDb.get(cf, key.getBytes(UTF_8));
+    if (values == null) {
+      return false;
+    }
+    deserializeValues(values, values.length, fields, result, false);
+    return true;
+  }
+
+  private void put(final ColumnFamilyHandle cf, final String key, final Map<String, ByteIterator> values)
+      throws RocksDBException, IOException {
+    if (reuseBuffers) {
+      final int keyLength = encodeKey(key);
+      final int valueLength = writeValues(values);
+      rocksDb.put(cf, writeOptions, keyBuffer.array(), 0, keyLength, valueWriter.array(), 0, valueLength);
+    } else {
+      rocksDb.put(cf, writeOptions, key.getBytes(UTF_8), serializeValues(values));
+    }
+  }
+
+  /**
+   * Encodes a key into the key buffer, growing it as needed.
+   *
+   * @return The length of the encoded key.
+   */
+  private int encodeKey(final String key) {
+    while (true) {
+      keyBuffer.clear();
+      keyEncoder.reset();
+      if (!keyEncoder.encode(CharBuffer.wrap(key), keyBuffer, true).isOverflow()
+          && !keyEncoder.flush(keyBuffer).isOverflow()) {
+        return keyBuffer.position();
+      }
+      keyBuffer = ByteBuffer.allocate(keyBuffer.capacity() * 2);
+    }
+  }
+
+  /**
+   * Serializes values into the value writer.
+   *
+   * @return The length of the serialized values.
+   */
+  private int writeValues(final Map<String, ByteIterator> values) throws IOException {
+    valueWriter.reset();
+    writeValues(values, valueWriter);
+    return valueWriter.size();
+  }
+
+  /**
+   * Writes the batched records in one go and starts a new batch.
+   */
+  private Status flushBatch() {
+    final int records = writeBatch.count();
+    final long start = System.nanoTime();
+    Status status;
+    try {
+      rocksDb.write(writeOptions, writeBatch);
+      status = Status.OK;
+    } catch (final RocksDBException e) {
+      LOGGER.error(e.getMessage(), e);
+      status = Status.ERROR;
+    } finally {
+      writeBatch.clear();
+    }
+    final Measurements measurements = Measurements.getMeasurements();
+    measurements.measure(batchMeasurementName, (int) ((System.nanoTime() - start) / 1000));
+    for (int i = 0; i < records; i++) {
+      measurements.reportStatus(batchMeasurementName, status);
+    }
+    return status;
+  }
+
+  private static ColumnFamilyOptions withMergeOperator(final ColumnFamilyOptions cfOptions) {
+    if (mergeOperator != null) {
+      cfOptions.setMergeOperator(mergeOperator);
+    }
+    return cfOptions;
+  }
+
   private void saveColumnFamilyNames() throws IOException {
     final Path file = rocksDbDir.resolve(COLUMN_FAMILY_NAMES_FILENAME);
     try(final PrintWriter writer = new PrintWriter(Files.newBufferedWriter(file, UTF_8))) {
@@ -347,29 +621,34 @@ public class RocksDBClient extends DB {
     return cfNames;
   }
 
-  private Map<String, ByteIterator> deserializeValues(final byte[] values, final Set<String> fields,
-      final Map<String, ByteIterator> result) {
-    final ByteBuffer buf = ByteBuffer.allocate(4);
-
+  /**
+   * Deserializes the fields of a record, or only the given ones. Each field is its name length, name,
+   * value length and value, so the fields not asked for are skipped by their lengths without being
+   * decoded.
+   *
+   * @param copy Whether to copy the values out of {@code values} rather than point into it.
+   */
+  private Map<String, ByteIterator> deserializeValues(final byte[] values, final int length,
+      final Set<String> fields, final Map<String, ByteIterator> result, final boolean copy) {
     int offset = 0;
-    while(offset < values.length) {
-      buf.put(values, offset, 4);
-      buf.flip();
-      final int keyLen = buf.getInt();
-      buf.clear();
-      offset += 4;
+    while(offset < length) {
+      if(values[offset] == MERGE_DELIMITER) {
+        offset++;
+        continue;
+      }
 
-      final String key = new String(values, offset, keyLen);
+      final int keyLen = readInt(values, offset);
+      offset += 4;
+      final int keyOffset = offset;
       offset += keyLen;
 
-      buf.put(values, offset, 4);
-      buf.flip();
-      final int valueLen = buf.getInt();
-      buf.clear();
+      final int valueLen = readInt(values, offset);
       offset += 4;
 
-      if(fields == null || fields.contains(key)) {
-        result.put(key, new ByteArrayByteIterator(values, offset, valueLen));
+      final String key = fieldName(values, keyOffset, keyLen, fields);
+      if(key != null) {
+        result.put(key, copy ? new ByteArrayByteIterator(Arrays.copyOfRange(values, offset, offset + valueLen))
+            : new ByteArrayByteIterator(values, offset, valueLen));
       }
 
       offset += valueLen;
@@ -378,30 +657,73 @@ public class RocksDBClient extends DB {
     return result;
   }
 
-  private byte[] serializeValues(final Map<String, ByteIterator> values) throws IOException {
-    try(final ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-      final ByteBuffer buf = ByteBuffer.allocate(4);
+  /**
+   * The name of a stored field, or null if it is not one of the fields. Names are compared as bytes
+   * so that skipped fields cost no allocation.
+   */
+  private String fieldName(final byte[] values, final int offset, final int length, final Set<String> fields) {
+    if(fields == null) {
+      return new String(values, offset, length, UTF_8);
+    }
+    for(final String field : fields) {
+      final byte[] name = fieldNameBytes(field);
+      if(name.length == length && regionMatches(name, values, offset)) {
+        return field;
+      }
+    }
+    return null;
+  }
 
-      for(final Map.Entry<String, ByteIterator> value : values.entrySet()) {
-        final byte[] keyBytes = value.getKey().getBytes(UTF_8);
-        final byte[] valueBytes = value.getValue().toArray();
+  private static boolean regionMatches(final byte[] name, final byte[] values, final int offset) {
+    for(int i = 0; i < name.length; i++) {
+      if(name[i] != values[offset + i]) {
+        return false;
+      }
+    }
+    return true;
+  }
 
-        buf.putInt(keyBytes.length);
-        baos.write(buf.array());
-        baos.write(keyBytes);
+  private byte[] fieldNameBytes(final String field) {
+    byte[] name = fieldNames.get(field);
+    if(name == null) {
+      name = field.getBytes(UTF_8);
+      fieldNames.put(field, name);
+    }
+    return name;
+  }
 
-        buf.clear();
+  private static int readInt(final byte[] values, final int offset) {
+    return (values[offset] & 0xFF) << 24 | (values[offset + 1] & 0xFF) << 16
+        | (values[offset + 2] & 0xFF) << 8 | (values[offset + 3] & 0xFF);
+  }
 
-        buf.putInt(valueBytes.length);
-        baos.write(buf.array());
-        baos.write(valueBytes);
+  private static void writeInt(final OutputStream out, final int value) throws IOException {
+    out.write(value >>> 24);
+    out.write(value >>> 16);
+    out.write(value >>> 8);
+    out.write(value);
+  }
 
-        buf.clear();
-      }
+  private byte[] serializeValues(final Map<String, ByteIterator> values) throws IOException {
+    try(final ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
+      writeValues(values, baos);
       return baos.toByteArray();
     }
   }
 
+  private void writeValues(final Map<String, ByteIterator> values, final OutputStream out) throws IOException {
+    for(final Map.Entry<String, ByteIterator> value : values.entrySet()) {
+      final byte[] keyBytes = fieldNameBytes(value.getKey());
+      final byte[] valueBytes = value.getValue().toArray();
+
+      writeInt(out, keyBytes.length);
+      out.write(keyBytes);
+
+      writeInt(out, valueBytes.length);
+      out.write(valueBytes);
+    }
+  }
+
   private ColumnFamilyOptions getDefaultColumnFamilyOptions(final String destinationCfName) {
     final ColumnFamilyOptions cfOptions;
 
@@ -412,7 +734,7 @@ public class RocksDBClient extends DB {
     } else {
       LOGGER.warn("no column family options for either \"" + destinationCfName + "\" or " +
                   "\"default\" in options file - initializing with empty configuration");
-      cfOptions = new ColumnFamilyOptions();
+      cfOptions = withMergeOperator(new ColumnFamilyOptions());
     }
     LOGGER.warn("Add a CFOptions section for \"" + destinationCfName + "\" to the options file, " +
                 "or subsequent runs on this DB will fail.");
@@ -434,7 +756,7 @@ public class RocksDBClient extends DB {
           // apply those options to this column family
           cfOptions = getDefaultColumnFamilyOptions(name);
         } else {
-          cfOptions = new ColumnFamilyOptions().optimizeLevelStyleCompaction();
+          cfOptions = withMergeOperator(new ColumnFamilyOptions().optimizeLevelStyleCompaction());
         }
 
         final ColumnFamilyHandle cfHandle = rocksDb.createColumnFamily(
@@ -447,6 +769,19 @@ public class RocksDBClient extends DB {
     }
   }
 
+  /**
+   * Serializes values into one array, kept and grown between operations.
+   */
+  private static final class ValueWriter extends ByteArrayOutputStream {
+    private ValueWriter() {
+      super(4096);
+    }
+
+    private byte[] array() {
+      return buf;
+    }
+  }
+
   private static final class ColumnFamily {
     private final ColumnFamilyHandle handle;
     private final ColumnFamilyOptions options;
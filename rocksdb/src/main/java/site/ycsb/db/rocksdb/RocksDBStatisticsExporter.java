@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2020 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.db.rocksdb;
+
+import org.rocksdb.Statistics;
+import org.rocksdb.TickerType;
+import site.ycsb.measurements.Measurements;
+
+/**
+ * Records what RocksDB did since the previous call as YCSB measurements, so that they line up with
+ * the operation latencies of the same interval in time series reports. The values are not latencies:
+ * <ul>
+ * <li>{@code ROCKSDB-BLOCK-CACHE-HIT-PERCENT}: block cache hits over lookups, when there were any</li>
+ * <li>{@code ROCKSDB-STALL-MICROS}: time writes were stalled</li>
+ * <li>{@code ROCKSDB-COMPACTION-READ-KB} and {@code ROCKSDB-COMPACTION-WRITE-KB}: compaction I/O</li>
+ * <li>{@code ROCKSDB-FLUSH-WRITE-KB}: memtable flush writes</li>
+ * </ul>
+ */
+final class RocksDBStatisticsExporter implements Runnable {
+
+  private final Statistics statistics;
+  private final String hitRateName;
+  private final String stallName;
+  private final String compactionReadName;
+  private final String compactionWriteName;
+  private final String flushWriteName;
+
+  private long blockCacheHits;
+  private long blockCacheMisses;
+  private long stallMicros;
+  private long compactionReadBytes;
+  private long compactionWriteBytes;
+  private long flushWriteBytes;
+
+  RocksDBStatisticsExporter(final Statistics statistics, final String measurementPrefix) {
+    this.statistics = statistics;
+    hitRateName = measurementPrefix + "ROCKSDB-BLOCK-CACHE-HIT-PERCENT";
+    stallName = measurementPrefix + "ROCKSDB-STALL-MICROS";
+    compactionReadName = measurementPrefix + "ROCKSDB-COMPACTION-READ-KB";
+    compactionWriteName = measurementPrefix + "ROCKSDB-COMPACTION-WRITE-KB";
+    flushWriteName = measurementPrefix + "ROCKSDB-FLUSH-WRITE-KB";
+  }
+
+  @Override
+  public synchronized void run() {
+    final Measurements measurements = Measurements.getMeasurements();
+
+    final long hits = statistics.getTickerCount(TickerType.BLOCK_CACHE_HIT);
+    final long misses = statistics.getTickerCount(TickerType.BLOCK_CACHE_MISS);
+    final long lookups = hits - blockCacheHits + misses - blockCacheMisses;
+    if (lookups > 0) {
+      measurements.measure(hitRateName, (int) ((hits - blockCacheHits) * 100 / lookups));
+    }
+    blockCacheHits = hits;
+    blockCacheMisses = misses;
+
+    final long stall = statistics.getTickerCount(TickerType.STALL_MICROS);
+    measurements.measure(stallName, (int) (stall - stallMicros));
+    stallMicros = stall;
+
+    final long compactionRead = statistics.getTickerCount(TickerType.COMPACT_READ_BYTES);
+    measurements.measure(compactionReadName, (int) ((compactionRead - compactionReadBytes) / 1024));
+    compactionReadBytes = compactionRead;
+
+    final long compactionWrite = statistics.getTickerCount(TickerType.COMPACT_WRITE_BYTES);
+    measurements.measure(compactionWriteName, (int) ((compactionWrite - compactionWriteBytes) / 1024));
+    compactionWriteBytes = compactionWrite;
+
+    final long flushWrite = statistics.getTickerCount(TickerType.FLUSH_WRITE_BYTES);
+    measurements.measure(flushWriteName, (int) ((flushWrite - flushWriteBytes) / 1024));
+    flushWriteBytes = flushWrite;
+  }
+}
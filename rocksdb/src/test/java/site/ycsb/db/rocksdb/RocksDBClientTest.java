@@ -18,8 +18,10 @@
 package site.ycsb.db.rocksdb;
 
 import site.ycsb.ByteIterator;
+import site.ycsb.Client;
 import site.ycsb.Status;
 import site.ycsb.StringByteIterator;
+import site.ycsb.measurements.Measurements;
 import site.ycsb.workloads.CoreWorkload;
 import org.junit.*;
 import org.junit.rules.TemporaryFolder;
@@ -27,6 +29,7 @@ import org.junit.rules.TemporaryFolder;
 import java.util.*;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class RocksDBClientTest {
 
@@ -51,15 +54,41 @@ public class RocksDBClientTest {
 
   private RocksDBClient instance;
 
+  /**
+   * Fresh values, since inserting consumes them.
+   */
+  private static Map<String, ByteIterator> mockData() {
+    final Map<String, ByteIterator> data = new HashMap<>(NUM_RECORDS);
+    for (int i = 0; i < NUM_RECORDS; i++) {
+      data.put(FIELD_PREFIX + i, new StringByteIterator("value" + i));
+    }
+    return data;
+  }
+
+  @BeforeClass
+  public static void setupMeasurements() {
+    Measurements.setProperties(new Properties());
+  }
+
   @Before
   public void setup() throws Exception {
-    instance = new RocksDBClient();
+    instance = open(new Properties());
+  }
 
-    final Properties properties = new Properties();
+  private RocksDBClient open(final Properties properties) throws Exception {
+    final RocksDBClient client = new RocksDBClient();
     properties.setProperty(RocksDBClient.PROPERTY_ROCKSDB_DIR, tmpFolder.getRoot().getAbsolutePath());
-    instance.setProperties(properties);
+    client.setProperties(properties);
+    client.init();
+    return client;
+  }
 
-    instance.init();
+  /**
+   * Closes the shared database and opens it again with other properties.
+   */
+  private void reopen(final Properties properties) throws Exception {
+    instance.cleanup();
+    instance = open(properties);
   }
 
   @After
@@ -120,4 +149,112 @@ public class RocksDBClientTest {
     final Status result = instance.scan(MOCK_TABLE, MOCK_KEY3, NUM_RECORDS, fields, resultParam);
     assertEquals(Status.OK, result);
   }
+
+  @Test
+  public void batchRead() throws Exception {
+    assertEquals(Status.OK, instance.insert(MOCK_TABLE, MOCK_KEY0, mockData()));
+    assertEquals(Status.OK, instance.insert(MOCK_TABLE, MOCK_KEY1, mockData()));
+
+    final List<Map<String, ByteIterator>> results = new ArrayList<>();
+    final Status result = instance.batchRead(MOCK_TABLE, Arrays.asList(MOCK_KEY1, MOCK_KEY3, MOCK_KEY0),
+        Collections.singleton(FIELD_PREFIX + 1), results);
+    assertEquals(Status.NOT_FOUND, result);
+    assertEquals(3, results.size());
+    assertEquals("value1", results.get(0).get(FIELD_PREFIX + 1).toString());
+    assertTrue(results.get(1).isEmpty());
+    assertEquals(1, results.get(2).size());
+  }
+
+  @Test
+  public void batchedLoad() throws Exception {
+    final Properties properties = new Properties();
+    properties.setProperty(Client.DO_TRANSACTIONS_PROPERTY, "false");
+    properties.setProperty(RocksDBClient.PROPERTY_ROCKSDB_BATCH_SIZE, "3");
+    properties.setProperty(RocksDBClient.PROPERTY_ROCKSDB_DISABLE_WAL, "true");
+    reopen(properties);
+
+    assertEquals(Status.BATCHED_OK, instance.insert(MOCK_TABLE, MOCK_KEY0, mockData()));
+    assertEquals(Status.BATCHED_OK, instance.insert(MOCK_TABLE, MOCK_KEY1, mockData()));
+    assertEquals(Status.NOT_FOUND, instance.read(MOCK_TABLE, MOCK_KEY0, null, new HashMap<>()));
+    assertEquals(Status.OK, instance.insert(MOCK_TABLE, MOCK_KEY2, mockData()));
+    assertEquals(Status.OK, instance.read(MOCK_TABLE, MOCK_KEY0, null, new HashMap<>()));
+
+    // The remaining batch is written on cleanup
+    assertEquals(Status.BATCHED_OK, instance.insert(MOCK_TABLE, MOCK_KEY3, mockData()));
+    reopen(new Properties());
+    final Map<String, ByteIterator> resultParam = new HashMap<>();
+    assertEquals(Status.OK, instance.read(MOCK_TABLE, MOCK_KEY3, null, resultParam));
+    assertEquals(NUM_RECORDS, resultParam.size());
+  }
+
+  @Test
+  public void mergeUpdates() throws Exception {
+    final Properties properties = new Properties();
+    properties.setProperty(RocksDBClient.PROPERTY_ROCKSDB_UPDATE_MODE, "merge");
+    reopen(properties);
+
+    assertEquals(Status.OK, instance.insert(MOCK_TABLE, MOCK_KEY2, mockData()));
+    for (int i = 0; i < 3; i++) {
+      final Map<String, ByteIterator> newValues = new HashMap<>();
+      newValues.put(FIELD_PREFIX + i, new StringByteIterator("newvalue" + i));
+      assertEquals(Status.OK, instance.update(MOCK_TABLE, MOCK_KEY2, newValues));
+    }
+
+    final Map<String, ByteIterator> resultParam = new HashMap<>();
+    assertEquals(Status.OK, instance.read(MOCK_TABLE, MOCK_KEY2, null, resultParam));
+    assertEquals(NUM_RECORDS, resultParam.size());
+    for (int i = 0; i < NUM_RECORDS; i++) {
+      assertEquals((i < 3 ? "newvalue" : "value") + i, resultParam.get(FIELD_PREFIX + i).toString());
+    }
+  }
+
+  @Test
+  public void reusedBuffers() throws Exception {
+    final Properties properties = new Properties();
+    properties.setProperty(RocksDBClient.PROPERTY_ROCKSDB_REUSE_BUFFERS, "true");
+    reopen(properties);
+
+    // Longer than the initial buffers
+    final String longKey = String.join("", Collections.nCopies(100, "k\u00e9y"));
+    final Map<String, ByteIterator> data = mockData();
+    final String longValue = String.join("", Collections.nCopies(1000, "value"));
+    data.put(FIELD_PREFIX + 0, new StringByteIterator(longValue));
+    assertEquals(Status.OK, instance.insert(MOCK_TABLE, longKey, data));
+    assertEquals(Status.OK, instance.insert(MOCK_TABLE, MOCK_KEY1, mockData()));
+
+    final Map<String, ByteIterator> first = new HashMap<>();
+    assertEquals(Status.OK, instance.read(MOCK_TABLE, longKey, null, first));
+    final Map<String, ByteIterator> second = new HashMap<>();
+    assertEquals(Status.OK, instance.read(MOCK_TABLE, MOCK_KEY1, Collections.singleton(FIELD_PREFIX + 0), second));
+    // The first result is still intact after the buffers were reused
+    assertEquals(NUM_RECORDS, first.size());
+    assertEquals(longValue, first.get(FIELD_PREFIX + 0).toString());
+    assertEquals("value0", second.get(FIELD_PREFIX + 0).toString());
+    assertEquals(1, second.size());
+
+    final Map<String, ByteIterator> newValues = new HashMap<>();
+    newValues.put(FIELD_PREFIX + 1, new StringByteIterator("newvalue1"));
+    assertEquals(Status.OK, instance.update(MOCK_TABLE, longKey, newValues));
+    final Map<String, ByteIterator> updated = new HashMap<>();
+    assertEquals(Status.OK, instance.read(MOCK_TABLE, longKey, null, updated));
+    assertEquals("newvalue1", updated.get(FIELD_PREFIX + 1).toString());
+    assertEquals(longValue, updated.get(FIELD_PREFIX + 0).toString());
+
+    assertEquals(Status.OK, instance.delete(MOCK_TABLE, longKey));
+    assertEquals(Status.NOT_FOUND, instance.read(MOCK_TABLE, longKey, null, new HashMap<>()));
+  }
+
+  @Test
+  public void exportsStatistics() throws Exception {
+    final Properties properties = new Properties();
+    properties.setProperty(RocksDBClient.PROPERTY_ROCKSDB_STATISTICS_INTERVAL, "60000");
+    reopen(properties);
+
+    assertEquals(Status.OK, instance.insert(MOCK_TABLE, MOCK_KEY0, mockData()));
+    // Closing the database exports the last interval
+    reopen(new Properties());
+    final String summary = Measurements.getMeasurements().getSummary();
+    assertTrue(summary, summary.contains("ROCKSDB-STALL-MICROS"));
+    assertTrue(summary, summary.contains("ROCKSDB-COMPACTION-WRITE-KB"));
+  }
 }
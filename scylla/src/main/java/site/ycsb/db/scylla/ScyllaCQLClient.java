@@ -17,14 +17,18 @@ package site.ycsb.db.scylla;
 
 import com.datastax.driver.core.*;
 import com.datastax.driver.core.policies.DCAwareRoundRobinPolicy;
-import com.datastax.driver.core.policies.LoadBalancingPolicy;
 import com.datastax.driver.core.policies.TokenAwarePolicy;
 import com.datastax.driver.core.querybuilder.*;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
 import site.ycsb.ByteArrayByteIterator;
 import site.ycsb.ByteIterator;
 import site.ycsb.DB;
 import site.ycsb.DBException;
+import site.ycsb.InFlightWindow;
 import site.ycsb.Status;
+import site.ycsb.Workload;
+import site.ycsb.measurements.Measurements;
 
 import java.nio.ByteBuffer;
 import java.util.HashMap;
@@ -36,6 +40,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -50,6 +55,7 @@ public class ScyllaCQLClient extends DB {
 
   private static Cluster cluster = null;
   private static Session session = null;
+  private static ProtocolVersion protocolVersion = null;
 
   private static final ConcurrentMap<Set<String>, PreparedStatement> READ_STMTS = new ConcurrentHashMap<>();
   private static final ConcurrentMap<Set<String>, PreparedStatement> SCAN_STMTS = new ConcurrentHashMap<>();
@@ -94,6 +100,14 @@ public class ScyllaCQLClient extends DB {
   public static final String USE_SSL_CONNECTION = "scylla.useSSL";
   private static final String DEFAULT_USE_SSL_CONNECTION = "false";
 
+  public static final String ASYNC_PROPERTY = "scylla.async";
+  public static final String ASYNC_PROPERTY_DEFAULT = "false";
+  public static final String ASYNC_WINDOW_PROPERTY = "scylla.async.window";
+  public static final String ASYNC_WINDOW_PROPERTY_DEFAULT = "64";
+
+  public static final String SHARD_LATENCY_PROPERTY = "scylla.shardlatency";
+  public static final String SHARD_LATENCY_PROPERTY_DEFAULT = "false";
+
   /**
    * Count the number of times initialized to teardown on the last
    * {@link #cleanup()}.
@@ -104,6 +118,18 @@ public class ScyllaCQLClient extends DB {
 
   private static boolean trace = false;
 
+  /**
+   * The operations of this client thread in flight in asynchronous mode, or null.
+   */
+  private InFlightWindow asyncWindow;
+
+  /**
+   * Whether to also measure each operation under the node and shard that served it.
+   */
+  private boolean shardLatency;
+
+  private String measurementPrefix;
+
   /**
    * Initialize any state for this DB. Called once per DB instance; there is one
    * DB instance per client thread.
@@ -114,6 +140,14 @@ public class ScyllaCQLClient extends DB {
     // Keep track of number of calls to init (for later cleanup)
     INIT_COUNT.incrementAndGet();
 
+    if (Boolean.parseBoolean(getProperties().getProperty(ASYNC_PROPERTY, ASYNC_PROPERTY_DEFAULT))) {
+      asyncWindow = new InFlightWindow(Integer.parseInt(
+          getProperties().getProperty(ASYNC_WINDOW_PROPERTY, ASYNC_WINDOW_PROPERTY_DEFAULT)), getProperties());
+    }
+    shardLatency = Boolean.parseBoolean(
+        getProperties().getProperty(SHARD_LATENCY_PROPERTY, SHARD_LATENCY_PROPERTY_DEFAULT));
+    measurementPrefix = Measurements.namespacePrefix(getProperties());
+
     // Synchronized so that we only have a single
     // cluster/session instance for all the threads.
     synchronized (INIT_COUNT) {
@@ -160,11 +194,10 @@ public class ScyllaCQLClient extends DB {
               .addContactPoints(hosts);
         }
 
+        final DCAwareRoundRobinPolicy.Builder dcPolicy = DCAwareRoundRobinPolicy.builder();
         final String localDC = getProperties().getProperty(TOKEN_AWARE_LOCAL_DC);
         if (localDC != null && !localDC.isEmpty()) {
-          final LoadBalancingPolicy local = DCAwareRoundRobinPolicy.builder().withLocalDc(localDC).build();
-          final TokenAwarePolicy tokenAware = new TokenAwarePolicy(local);
-          builder = builder.withLoadBalancingPolicy(tokenAware);
+          dcPolicy.withLocalDc(localDC);
 
           LOGGER.info("Using local datacenter with token awareness: {}\n", localDC);
 
@@ -178,6 +211,10 @@ public class ScyllaCQLClient extends DB {
           }
         }
 
+        // With the routing token of each statement known, the driver sends it to a replica and
+        // there on the connection of the shard owning the token
+        builder = builder.withLoadBalancingPolicy(new TokenAwarePolicy(dcPolicy.build()));
+
         cluster = builder.build();
 
         String maxConnections = getProperties().getProperty(
@@ -218,6 +255,7 @@ public class ScyllaCQLClient extends DB {
         }
 
         session = cluster.connect(keyspace);
+        protocolVersion = cluster.getConfiguration().getProtocolOptions().getProtocolVersion();
 
         if (Boolean.parseBoolean(getProperties().getProperty(SCYLLA_LWT, Boolean.toString(lwt)))) {
           LOGGER.info("Using LWT\n");
@@ -243,6 +281,15 @@ public class ScyllaCQLClient extends DB {
    */
   @Override
   public void cleanup() throws DBException {
+    if (asyncWindow != null) {
+      try {
+        asyncWindow.drain();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new DBException("Interrupted while waiting for asynchronous operations", e);
+      }
+    }
+
     synchronized (INIT_COUNT) {
       final int curInitCount = INIT_COUNT.decrementAndGet();
       if (curInitCount <= 0) {
@@ -261,6 +308,7 @@ public class ScyllaCQLClient extends DB {
           cluster.close();
           cluster = null;
         }
+        protocolVersion = null;
       }
       if (curInitCount < 0) {
         // This should never happen.
@@ -321,26 +369,26 @@ public class ScyllaCQLClient extends DB {
       LOGGER.debug(stmt.getQueryString());
       LOGGER.debug("key = {}", key);
 
-      ResultSet rs = session.execute(stmt.bind(key));
-
-      if (rs.isExhausted()) {
-        return Status.NOT_FOUND;
-      }
-
-      // Should be only 1 row
-      Row row = rs.one();
-      ColumnDefinitions cd = row.getColumnDefinitions();
+      return query(Workload.Operation.READ, stmt.bind(key), key, rs -> {
+          if (rs.isExhausted()) {
+            return Status.NOT_FOUND;
+          }
 
-      for (ColumnDefinitions.Definition def : cd) {
-        ByteBuffer val = row.getBytesUnsafe(def.getName());
-        if (val != null) {
-          result.put(def.getName(), new ByteArrayByteIterator(val.array()));
-        } else {
-          result.put(def.getName(), null);
-        }
-      }
+          // Should be only 1 row
+          Row row = rs.one();
+          ColumnDefinitions cd = row.getColumnDefinitions();
+
+          for (ColumnDefinitions.Definition def : cd) {
+            ByteBuffer val = row.getBytesUnsafe(def.getName());
+            if (val != null) {
+              result.put(def.getName(), new ByteArrayByteIterator(val.array()));
+            } else {
+              result.put(def.getName(), null);
+            }
+          }
 
-      return Status.OK;
+          return Status.OK;
+        });
 
     } catch (Exception e) {
       LOGGER.error(MessageFormatter.format("Error reading key: {}", key).getMessage(), e);
@@ -415,28 +463,28 @@ public class ScyllaCQLClient extends DB {
       LOGGER.debug(stmt.getQueryString());
       LOGGER.debug("startKey = {}, recordcount = {}", startkey, recordcount);
 
-      ResultSet rs = session.execute(stmt.bind(startkey, recordcount));
+      return query(Workload.Operation.SCAN, stmt.bind(startkey, recordcount), startkey, rs -> {
+          HashMap<String, ByteIterator> tuple;
+          while (!rs.isExhausted()) {
+            Row row = rs.one();
+            tuple = new HashMap<>();
 
-      HashMap<String, ByteIterator> tuple;
-      while (!rs.isExhausted()) {
-        Row row = rs.one();
-        tuple = new HashMap<>();
+            ColumnDefinitions cd = row.getColumnDefinitions();
 
-        ColumnDefinitions cd = row.getColumnDefinitions();
+            for (ColumnDefinitions.Definition def : cd) {
+              ByteBuffer val = row.getBytesUnsafe(def.getName());
+              if (val != null) {
+                tuple.put(def.getName(), new ByteArrayByteIterator(val.array()));
+              } else {
+                tuple.put(def.getName(), null);
+              }
+            }
 
-        for (ColumnDefinitions.Definition def : cd) {
-          ByteBuffer val = row.getBytesUnsafe(def.getName());
-          if (val != null) {
-            tuple.put(def.getName(), new ByteArrayByteIterator(val.array()));
-          } else {
-            tuple.put(def.getName(), null);
+            result.add(tuple);
           }
-        }
 
-        result.add(tuple);
-      }
-
-      return Status.OK;
+          return Status.OK;
+        });
 
     } catch (Exception e) {
       LOGGER.error(
@@ -512,9 +560,7 @@ public class ScyllaCQLClient extends DB {
       // Add key
       boundStmt.setString(vars.size() - 1, key);
 
-      session.execute(boundStmt);
-
-      return Status.OK;
+      return write(Workload.Operation.UPDATE, boundStmt, key);
     } catch (Exception e) {
       LOGGER.error(MessageFormatter.format("Error updating key: {}", key).getMessage(), e);
     }
@@ -587,9 +633,7 @@ public class ScyllaCQLClient extends DB {
         boundStmt.setString(i, values.get(vars.getName(i)).toString());
       }
 
-      session.execute(boundStmt);
-
-      return Status.OK;
+      return write(Workload.Operation.INSERT, boundStmt, key);
     } catch (Exception e) {
       LOGGER.error(MessageFormatter.format("Error inserting key: {}", key).getMessage(), e);
     }
@@ -636,9 +680,7 @@ public class ScyllaCQLClient extends DB {
       LOGGER.debug(stmt.getQueryString());
       LOGGER.debug("key = {}", key);
 
-      session.execute(stmt.bind(key));
-
-      return Status.OK;
+      return write(Workload.Operation.DELETE, stmt.bind(key), key);
     } catch (Exception e) {
       LOGGER.error(MessageFormatter.format("Error deleting key: {}", key).getMessage(), e);
     }
@@ -646,4 +688,91 @@ public class ScyllaCQLClient extends DB {
     return Status.ERROR;
   }
 
+  /**
+   * Send a write, whose result set carries no rows.
+   */
+  private Status write(Workload.Operation op, Statement stmt, String key) throws InterruptedException {
+    return query(op, stmt, key, rs -> Status.OK);
+  }
+
+  /**
+   * Send the statement of an operation and let {@code rows} turn its result set into the status.
+   * With {@link #ASYNC_PROPERTY} set the statement is sent once the window of this client thread
+   * has room, and {@link Status#PENDING} is returned; the window reports the status once Scylla
+   * answers.
+   */
+  private Status query(final Workload.Operation op, Statement stmt, final String key,
+                       final Function<ResultSet, Status> rows) throws InterruptedException {
+    final long startNanos = System.nanoTime();
+    if (asyncWindow == null) {
+      return statusOf(op, key, stmt, session.execute(stmt), rows, startNanos);
+    }
+
+    final InFlightWindow.Completion completion = asyncWindow.begin(op);
+    try {
+      Futures.addCallback(session.executeAsync(stmt), new FutureCallback<ResultSet>() {
+          @Override
+          public void onSuccess(ResultSet rs) {
+            Status status = Status.ERROR;
+            try {
+              status = statusOf(op, key, stmt, rs, rows, startNanos);
+            } catch (RuntimeException e) {
+              LOGGER.error(MessageFormatter.format("Could not read the {} rows of key: {}", op, key).getMessage(), e);
+            }
+            completion.complete(status);
+          }
+
+          @Override
+          public void onFailure(Throwable t) {
+            LOGGER.error(MessageFormatter.format("{} of key {} failed", op, key).getMessage(), t);
+            completion.complete(Status.ERROR);
+          }
+        });
+    } catch (RuntimeException e) {
+      completion.complete(Status.ERROR);
+      throw e;
+    }
+    return Status.PENDING;
+  }
+
+  /**
+   * The status of an answered operation. The shard latency is only measured once the status is
+   * known, and failing to measure it does not fail the operation.
+   */
+  private Status statusOf(Workload.Operation op, String key, Statement stmt, ResultSet rs,
+                          Function<ResultSet, Status> rows, long startNanos) {
+    final int latency = (int) ((System.nanoTime() - startNanos) / 1000);
+    final Status status = rows.apply(rs);
+    if (shardLatency) {
+      try {
+        measureShard(op, stmt, rs, latency);
+      } catch (RuntimeException e) {
+        LOGGER.warn(MessageFormatter.format("Could not measure the shard latency of {} of key: {}", op, key)
+            .getMessage(), e);
+      }
+    }
+    return status;
+  }
+
+  /**
+   * With {@link #SHARD_LATENCY_PROPERTY} set, measure an operation a second time under the node
+   * that served it and the shard there owning its key, as {@code OP-address-SHARDn}, so that hot
+   * shards stand out in the report. Nodes without sharding information, and statements without a
+   * routing key, are measured as {@code OP-address}.
+   */
+  private void measureShard(Workload.Operation op, Statement stmt, ResultSet rs, int latency) {
+    final Host host = rs.getExecutionInfo().getQueriedHost();
+    final StringBuilder name = new StringBuilder(measurementPrefix).append(op.name()).append('-')
+        .append(host.getEndPoint().resolve().getAddress().getHostAddress());
+    final ShardingInfo sharding = host.getShardingInfo();
+    final ByteBuffer routingKey = stmt.getRoutingKey(protocolVersion,
+        cluster.getConfiguration().getCodecRegistry());
+    if (sharding != null && routingKey != null) {
+      // A null partitioner is the cluster's own
+      final Token token = cluster.getMetadata().newToken(stmt.getPartitioner(), routingKey);
+      name.append("-SHARD").append(sharding.shardId(token));
+    }
+    Measurements.getMeasurements().measure(name.toString(), latency);
+  }
+
 }
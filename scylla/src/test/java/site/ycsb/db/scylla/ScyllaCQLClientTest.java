@@ -226,6 +226,30 @@ public class ScyllaCQLClientTest {
     assertThat(row, nullValue());
   }
 
+  @Test
+  public void testAsyncWrites() throws Exception {
+    final Properties p = new Properties();
+    p.putAll(client.getProperties());
+    p.setProperty(ScyllaCQLClient.ASYNC_PROPERTY, "true");
+    p.setProperty(ScyllaCQLClient.ASYNC_WINDOW_PROPERTY, "4");
+    p.setProperty(ScyllaCQLClient.SHARD_LATENCY_PROPERTY, "true");
+    final ScyllaCQLClient asyncClient = new ScyllaCQLClient();
+    asyncClient.setProperties(p);
+    asyncClient.init();
+
+    final Map<String, String> input = new HashMap<>();
+    input.put("field0", "value1");
+    for (int i = 0; i < 10; i++) {
+      final Status status = asyncClient.insert(TABLE, "async" + i, StringByteIterator.getByteIteratorMap(input));
+      assertThat(status, is(Status.PENDING));
+    }
+    // Waits for the writes still in flight
+    asyncClient.cleanup();
+
+    final ResultSet rs = session.execute(QueryBuilder.select().countAll().from(TABLE));
+    assertThat(rs.one().getLong(0), is(10L));
+  }
+
   @Test
   public void testPreparedStatements() {
     final int LOOP_COUNT = 3;